@@ -95,6 +95,7 @@ public final class Account {
     private static DatabaseManager databaseManager;
     private static GlobalSync sync;
     private static PublicKeyTable publicKeyTable;
+    private static GuaranteedBalanceIndex guaranteedBalanceIndex;
     private static  ConcurrentMap<DbKey, byte[]> publicKeyCache = null; 
            
     
@@ -119,7 +120,8 @@ public final class Account {
                             BlockchainConfig blockchainConfigParam,
                             Blockchain blockchainParam,
                             GlobalSync globalSync,
-                            PublicKeyTable pkTable
+                            PublicKeyTable pkTable,
+                            AccountBalanceHistoryTable accountBalanceHistoryTable
     ) {
         databaseManager = databaseManagerParam;
         blockchainProcessor = blockchainProcessorParam;
@@ -128,6 +130,9 @@ public final class Account {
         publicKeyTable = pkTable;
         sync = globalSync;
         CDI.current().select(AccountGuaranteedBalanceTable.class).get();
+        guaranteedBalanceIndex = CDI.current().select(GuaranteedBalanceIndex.class).get();
+        accountBalanceHistoryTable.start(blockchainProcessor.getMinRollbackHeight());
+        AccountTable.getInstance().setBalanceHistoryTable(accountBalanceHistoryTable);
 
         if (propertiesHolder.getBooleanProperty("apl.enablePublicKeyCache")) {
             publicKeyCache = new ConcurrentHashMap<>();
@@ -459,6 +464,7 @@ public final class Account {
     private void save() {
         if (balanceATM == 0 && unconfirmedBalanceATM == 0 && forgedBalanceATM == 0 && activeLesseeId == 0 && controls.isEmpty()) {
             AccountTable.getInstance().delete(this, true);
+            AccountTable.getInstance().onDeleted(this);
         } else {
             AccountTable.getInstance().insert(this);
         }
@@ -558,6 +564,14 @@ public final class Account {
             lessorIds[i] = lessors.get(i).getId();
             balances[i] = lessors.get(i).getBalanceATM();
         }
+        long indexedTotal = 0;
+        for (int i = 0; i < lessorIds.length && indexedTotal >= 0; i++) {
+            Long additions = guaranteedBalanceIndex.getAdditions(lessorIds[i], height);
+            indexedTotal = additions == null ? -1 : indexedTotal + Math.max(balances[i] - additions, 0);
+        }
+        if (indexedTotal >= 0) {
+            return indexedTotal;
+        }
         int blockchainHeight = blockchain.getHeight();
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
@@ -613,6 +627,12 @@ public final class Account {
                     || height > blockchain.getHeight()) {
                 throw new IllegalArgumentException("Height " + height + " not available for guaranteed balance calculation");
             }
+            if (numberOfConfirmations == guaranteedBalanceIndex.getConfirmations()) {
+                Long additions = guaranteedBalanceIndex.getAdditions(this.id, currentHeight);
+                if (additions != null) {
+                    return Math.max(Math.subtractExact(balanceATM, additions), 0);
+                }
+            }
             TransactionalDataSource dataSource = databaseManager.getDataSource();
             try (Connection con = dataSource.getConnection();
                  PreparedStatement pstmt = con.prepareStatement("SELECT SUM (additions) AS additions "
@@ -1091,6 +1111,7 @@ public final class Account {
         catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
+        guaranteedBalanceIndex.onAdded(blockchainHeight);
     }
 
     public void payDividends(final long transactionId, ColoredCoinsDividendPayment attachment) {
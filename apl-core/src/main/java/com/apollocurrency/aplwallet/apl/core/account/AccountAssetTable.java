@@ -51,6 +51,21 @@ public class AccountAssetTable extends VersionedEntityDbTable<AccountAsset> {
         super("account_asset",accountAssetDbKeyFactory);
     }
 
+    @Override
+    protected boolean isRowCountTracked() {
+        return true;
+    }
+
+    @Override
+    protected String getHoldingColumn() {
+        return "asset_id";
+    }
+
+    @Override
+    protected long getHoldingId(AccountAsset accountAsset) {
+        return accountAsset.assetId;
+    }
+
     @Override
     protected AccountAsset load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
         return new AccountAsset(rs, dbKey);
@@ -99,10 +114,13 @@ public class AccountAssetTable extends VersionedEntityDbTable<AccountAsset> {
     }
 
     public static int getAssetAccountCount(long assetId) {
-        return accountAssetTable.getCount(new DbClause.LongClause("asset_id", assetId));
+        return accountAssetTable.getHoldingCount(assetId);
     }
 
     public static int getAssetAccountCount(long assetId, int height) {
+        if (height < 0) {
+            return accountAssetTable.getHoldingCount(assetId);
+        }
         return accountAssetTable.getCount(new DbClause.LongClause("asset_id", assetId), height);
     }
 
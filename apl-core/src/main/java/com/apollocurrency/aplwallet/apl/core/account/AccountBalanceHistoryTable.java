@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTable;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.core.db.model.OptionDAO;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Balance and forged balance of every account at every height it was changed, which is never trimmed.
+ * <p>
+ * Maintained only when {@code apl.accountBalanceHistory} is enabled. When enabled on existing blockchain, history is
+ * seeded from account table, so it is complete starting from the min rollback height at that moment, and this height
+ * is kept in option table. Balance at any height not below it is selected by (account_id, height) index in
+ * logarithmic time, regardless of account table trimming. Disabling history deletes it.
+ */
+@Singleton
+public class AccountBalanceHistoryTable extends DerivedDbTable {
+    private static final Logger log = getLogger(AccountBalanceHistoryTable.class);
+    private static final String TABLE_NAME = "account_balance_history";
+    private static final String HEIGHT_OPTION = "accountBalanceHistoryHeight";
+
+    private final boolean enabled;
+    private volatile int completeHeight = -1;
+
+    @Inject
+    public AccountBalanceHistoryTable(PropertiesHolder propertiesHolder) {
+        super(TABLE_NAME, false);
+        this.enabled = propertiesHolder.getBooleanProperty("apl.accountBalanceHistory");
+    }
+
+    /**
+     * Seed history when it was just enabled or delete it when it was disabled
+     * @param minRollbackHeight height from which account table contains complete history
+     */
+    public void start(int minRollbackHeight) {
+        OptionDAO optionDAO = new OptionDAO(databaseManager);
+        String height = optionDAO.get(HEIGHT_OPTION);
+        if (!enabled) {
+            if (height != null) {
+                deleteAll();
+                optionDAO.delete(HEIGHT_OPTION);
+                log.info("Account balance history is disabled and deleted");
+            }
+            return;
+        }
+        if (height != null) {
+            completeHeight = Integer.parseInt(height);
+            return;
+        }
+        long start = System.currentTimeMillis();
+        deleteAll();
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("INSERT INTO account_balance_history (account_id, height, balance, forged_balance) "
+                    + "SELECT id, height, balance, forged_balance FROM account");
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        optionDAO.set(HEIGHT_OPTION, String.valueOf(minRollbackHeight));
+        completeHeight = minRollbackHeight;
+        log.info("Account balance history seeded from account table in {} ms, history is available from height {}",
+                System.currentTimeMillis() - start, minRollbackHeight);
+    }
+
+    /**
+     * @param height blockchain height
+     * @return true when history contains balances at height
+     */
+    public boolean isAvailable(int height) {
+        int completeHeight = this.completeHeight;
+        return completeHeight >= 0 && height >= completeHeight;
+    }
+
+    /**
+     * Record balances of account saved at height, unchanged balances are not recorded
+     */
+    void save(Connection con, Account account, int height) throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        try (PreparedStatement pstmt = con.prepareStatement("SELECT height, balance, forged_balance FROM account_balance_history "
+                + "WHERE account_id = ? AND height <= ? ORDER BY height DESC LIMIT 1")) {
+            pstmt.setLong(1, account.id);
+            pstmt.setInt(2, height);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next() && rs.getLong("balance") == account.balanceATM && rs.getLong("forged_balance") == account.forgedBalanceATM) {
+                    return;
+                }
+            }
+        }
+        try (PreparedStatement pstmt = con.prepareStatement("MERGE INTO account_balance_history "
+                + "(account_id, height, balance, forged_balance) KEY (account_id, height) VALUES (?, ?, ?, ?)")) {
+            int i = 0;
+            pstmt.setLong(++i, account.id);
+            pstmt.setInt(++i, height);
+            pstmt.setLong(++i, account.balanceATM);
+            pstmt.setLong(++i, account.forgedBalanceATM);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @param accountId account id
+     * @param height height available in history
+     * @return account with confirmed balances at height, without public key and effective balance data,
+     * or null when account had no balances
+     */
+    public Account getAccount(long accountId, int height) {
+        if (!isAvailable(height)) {
+            throw new IllegalArgumentException("Balance history as of height " + height + " not available.");
+        }
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT balance, forged_balance FROM account_balance_history "
+                     + "WHERE account_id = ? AND height <= ? ORDER BY height DESC LIMIT 1")) {
+            pstmt.setLong(1, accountId);
+            pstmt.setInt(2, height);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getLong("balance") == 0 && rs.getLong("forged_balance") == 0) {
+                    return null;
+                }
+                Account account = new Account(accountId);
+                account.balanceATM = rs.getLong("balance");
+                account.unconfirmedBalanceATM = account.balanceATM;
+                account.forgedBalanceATM = rs.getLong("forged_balance");
+                account.controls = Collections.emptySet();
+                return account;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private void deleteAll() {
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("TRUNCATE TABLE " + TABLE_NAME);
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+}
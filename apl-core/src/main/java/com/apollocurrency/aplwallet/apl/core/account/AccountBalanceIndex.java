@@ -0,0 +1,310 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionCallback;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * In-memory ranking of accounts with positive balance, ordered by balance descending and account id ascending.
+ * <p>
+ * Accounts are kept in a treap augmented with subtree size and balance sum, so number of ranked accounts, ids and
+ * balance sum of top N accounts are found in O(log n + N) without sorting account table.
+ * Balance changes are collected per db transaction and applied when it is committed, so index always reflects
+ * committed state of the account table. Rollback or truncate of the table drops index on commit. Dropped index
+ * is loaded from db by the first query executed outside of db transaction, until then queries return null
+ * and should fall back to SQL.
+ */
+class AccountBalanceIndex implements TransactionCallback {
+    private static final Logger log = getLogger(AccountBalanceIndex.class);
+
+    private final DatabaseManager databaseManager;
+    private final ThreadLocal<Pending> pending = new ThreadLocal<>();
+    private final Random random = new Random();
+
+    private final Map<Long, Long> balances = new HashMap<>();
+    private Node root;
+    private boolean loaded;
+
+    private static class Pending {
+        private final Map<Long, Long> balances = new HashMap<>();
+        private boolean invalid;
+    }
+
+    private static class Node {
+        private final long balance;
+        private final long accountId;
+        private final int priority;
+        private int size = 1;
+        private long sum;
+        private Node left;
+        private Node right;
+
+        private Node(long balance, long accountId, int priority) {
+            this.balance = balance;
+            this.accountId = accountId;
+            this.priority = priority;
+            this.sum = balance;
+        }
+
+        private void update() {
+            size = 1 + size(left) + size(right);
+            sum = balance + sum(left) + sum(right);
+        }
+
+        /**
+         * @return true when this node is ranked before account with given balance and id
+         */
+        private boolean before(long balance, long accountId) {
+            return this.balance > balance || this.balance == balance && this.accountId < accountId;
+        }
+    }
+
+    AccountBalanceIndex(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Record new balance of the account changed in the current transaction
+     * @param accountId account id
+     * @param balance new balance, 0 for deleted account
+     */
+    void onChanged(long accountId, long balance) {
+        pending().balances.put(accountId, balance);
+    }
+
+    /**
+     * Drop index when the current transaction is committed
+     */
+    void invalidate() {
+        pending().invalid = true;
+    }
+
+    /**
+     * @return number of accounts with positive balance or null when index is not available
+     */
+    synchronized Long getNumberOfAccounts() {
+        return loadIfPossible() ? (long) size(root) : null;
+    }
+
+    /**
+     * @param numberOfAccounts number of top accounts
+     * @return balance sum of top accounts or null when index is not available
+     */
+    synchronized Long getTotalAmountOnTop(int numberOfAccounts) {
+        if (!loadIfPossible()) {
+            return null;
+        }
+        long total = 0;
+        Node node = root;
+        int remaining = numberOfAccounts;
+        while (node != null && remaining > 0) {
+            int leftSize = size(node.left);
+            if (remaining <= leftSize) {
+                node = node.left;
+            } else {
+                total += sum(node.left) + node.balance;
+                remaining -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * @param numberOfAccounts number of top accounts
+     * @return ids of top accounts from richest one or null when index is not available
+     */
+    synchronized long[] getTopAccountIds(int numberOfAccounts) {
+        if (!loadIfPossible()) {
+            return null;
+        }
+        long[] ids = new long[Math.max(0, Math.min(numberOfAccounts, size(root)))];
+        collect(root, ids, 0);
+        return ids;
+    }
+
+    @Override
+    public void commit() {
+        Pending p = pending.get();
+        pending.remove();
+        if (p == null) {
+            return;
+        }
+        synchronized (this) {
+            if (p.invalid) {
+                clear();
+            } else if (loaded) {
+                p.balances.forEach(this::put);
+            }
+        }
+    }
+
+    @Override
+    public void rollback() {
+        pending.remove();
+    }
+
+    private Pending pending() {
+        Pending p = pending.get();
+        if (p == null) {
+            TransactionalDataSource dataSource = databaseManager.getDataSource();
+            if (!dataSource.isInTransaction()) {
+                throw new IllegalStateException("Not in transaction");
+            }
+            p = new Pending();
+            pending.set(p);
+            dataSource.registerCallback(this);
+        }
+        return p;
+    }
+
+    private boolean loadIfPossible() {
+        if (loaded) {
+            return true;
+        }
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        // current transaction may contain changes which are not committed yet
+        if (dataSource.isInTransaction()) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT id, balance FROM account WHERE balance > 0 AND latest = TRUE");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                put(rs.getLong("id"), rs.getLong("balance"));
+            }
+        } catch (SQLException e) {
+            clear();
+            throw new RuntimeException(e.toString(), e);
+        }
+        loaded = true;
+        log.debug("Account balance index loaded for {} accounts in {} ms", balances.size(), System.currentTimeMillis() - start);
+        return true;
+    }
+
+    private void clear() {
+        loaded = false;
+        root = null;
+        balances.clear();
+    }
+
+    private void put(long accountId, long balance) {
+        Long oldBalance = balance > 0 ? balances.put(accountId, balance) : balances.remove(accountId);
+        if (oldBalance != null) {
+            if (oldBalance == balance) {
+                return;
+            }
+            root = remove(root, oldBalance, accountId);
+        }
+        if (balance > 0) {
+            root = insert(root, new Node(balance, accountId, random.nextInt()));
+        }
+    }
+
+    private static Node insert(Node node, Node newNode) {
+        if (node == null) {
+            return newNode;
+        }
+        if (newNode.priority > node.priority) {
+            Node[] parts = split(node, newNode.balance, newNode.accountId);
+            newNode.left = parts[0];
+            newNode.right = parts[1];
+            newNode.update();
+            return newNode;
+        }
+        if (node.before(newNode.balance, newNode.accountId)) {
+            node.right = insert(node.right, newNode);
+        } else {
+            node.left = insert(node.left, newNode);
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node remove(Node node, long balance, long accountId) {
+        if (node == null) {
+            return null;
+        }
+        if (node.balance == balance && node.accountId == accountId) {
+            return merge(node.left, node.right);
+        }
+        if (node.before(balance, accountId)) {
+            node.right = remove(node.right, balance, accountId);
+        } else {
+            node.left = remove(node.left, balance, accountId);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * @return nodes ranked before the key and nodes ranked after it
+     */
+    private static Node[] split(Node node, long balance, long accountId) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (node.before(balance, accountId)) {
+            parts = split(node.right, balance, accountId);
+            node.right = parts[0];
+            parts[0] = node;
+        } else {
+            parts = split(node.left, balance, accountId);
+            node.left = parts[1];
+            parts[1] = node;
+        }
+        node.update();
+        return parts;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null || right == null) {
+            return left == null ? right : left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    private static int collect(Node node, long[] ids, int index) {
+        if (node == null || index >= ids.length) {
+            return index;
+        }
+        index = collect(node.left, ids, index);
+        if (index < ids.length) {
+            ids[index++] = node.accountId;
+        }
+        return collect(node.right, ids, index);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static long sum(Node node) {
+        return node == null ? 0 : node.sum;
+    }
+}
@@ -42,6 +42,21 @@ public class AccountCurrencyTable extends VersionedEntityDbTable<AccountCurrency
         super("account_currency", accountCurrencyDbKeyFactory);
     }
 
+    @Override
+    protected boolean isRowCountTracked() {
+        return true;
+    }
+
+    @Override
+    protected String getHoldingColumn() {
+        return "currency_id";
+    }
+
+    @Override
+    protected long getHoldingId(AccountCurrency accountCurrency) {
+        return accountCurrency.currencyId;
+    }
+
     @Override
     protected AccountCurrency load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
         return new AccountCurrency(rs, dbKey);
@@ -88,10 +103,13 @@ public class AccountCurrencyTable extends VersionedEntityDbTable<AccountCurrency
         return accountCurrencyTable.getManyBy(new DbClause.LongClause("currency_id", currencyId), height, from, to);
     }
     public static int getCurrencyAccountCount(long currencyId) {
-        return accountCurrencyTable.getCount(new DbClause.LongClause("currency_id", currencyId));
+        return accountCurrencyTable.getHoldingCount(currencyId);
     }
 
     public static int getCurrencyAccountCount(long currencyId, int height) {
+        if (height < 0) {
+            return accountCurrencyTable.getHoldingCount(currencyId);
+        }
         return accountCurrencyTable.getCount(new DbClause.LongClause("currency_id", currencyId), height);
     }
 
@@ -20,6 +20,7 @@
 
 package com.apollocurrency.aplwallet.apl.core.account;
 
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import static com.apollocurrency.aplwallet.apl.core.transaction.AccountControl.SET_PHASING_ONLY;
@@ -28,7 +29,6 @@ import static org.slf4j.LoggerFactory.getLogger;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Map;
 
 import com.apollocurrency.aplwallet.apl.core.account.Account.ControlType;
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
@@ -51,6 +51,11 @@ public final class AccountRestrictions {
 
     static final VersionedEntityDbTable<PhasingOnly> phasingControlTable = new VersionedEntityDbTable<PhasingOnly>("account_control_phasing", phasingControlDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected PhasingOnly load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new PhasingOnly(rs, dbKey);
@@ -76,14 +81,14 @@ public final class AccountRestrictions {
         }
     }
 
-    public static boolean isBlockDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public static boolean isBlockDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         Account senderAccount = Account.getAccount(transaction.getSenderId());
         return
                 senderAccount.getControls().contains(ControlType.PHASING_ONLY)
                 && PhasingOnly.get(transaction.getSenderId()).getMaxFees() != 0
                 && transaction.getType() != SET_PHASING_ONLY
                 && TransactionType.isDuplicate(SET_PHASING_ONLY,
-                        Long.toUnsignedString(senderAccount.getId()), duplicates, true);
+                        senderAccount.getId(), duplicates, true);
     }
 
 }
@@ -16,8 +16,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
 
 /**
  *
@@ -38,6 +40,9 @@ public class AccountTable extends VersionedEntityDbTable<Account> {
 
     };
     private static final AccountTable accountTable = new AccountTable();
+
+    private final AccountBalanceIndex balanceIndex;
+    private volatile AccountBalanceHistoryTable balanceHistoryTable;
     
     public static AccountTable getInstance(){
         return accountTable;
@@ -53,6 +58,14 @@ public class AccountTable extends VersionedEntityDbTable<Account> {
     
     public AccountTable() {
         super("account", accountDbKeyFactory);
+        balanceIndex = new AccountBalanceIndex(databaseManager);
+    }
+
+    /**
+     * @param balanceHistoryTable history which records balances of every saved account
+     */
+    void setBalanceHistoryTable(AccountBalanceHistoryTable balanceHistoryTable) {
+        this.balanceHistoryTable = balanceHistoryTable;
     }
 
     @Override
@@ -85,6 +98,37 @@ public class AccountTable extends VersionedEntityDbTable<Account> {
             pstmt.setInt(++i, Account.blockchain.getHeight());
             pstmt.executeUpdate();
         }
+        AccountBalanceHistoryTable balanceHistoryTable = this.balanceHistoryTable;
+        if (balanceHistoryTable != null) {
+            balanceHistoryTable.save(con, account, Account.blockchain.getHeight());
+        }
+        balanceIndex.onChanged(account.id, account.balanceATM);
+    }
+
+    void onDeleted(Account account) {
+        AccountBalanceHistoryTable balanceHistoryTable = this.balanceHistoryTable;
+        if (balanceHistoryTable != null) {
+            // account created at current height is deleted without save, so its emptied balances are recorded here
+            try (Connection con = databaseManager.getDataSource().getConnection()) {
+                balanceHistoryTable.save(con, account, Account.blockchain.getHeight());
+            } catch (SQLException e) {
+                throw new RuntimeException(e.toString(), e);
+            }
+        }
+        balanceIndex.onChanged(account.id, 0);
+    }
+
+    @Override
+    public void rollback(int height) {
+        super.rollback(height);
+        balanceIndex.invalidate();
+    }
+
+    @Override
+    public void truncate() {
+        super.truncate();
+        // also called by full reset, which clears derived tables through truncate
+        balanceIndex.invalidate();
     }
 
     @Override
@@ -122,6 +166,17 @@ public class AccountTable extends VersionedEntityDbTable<Account> {
         }
     }
      public static DbIterator<Account> getTopHolders(Connection con, int numberOfTopAccounts) throws SQLException {
+            long[] topAccountIds = accountTable.balanceIndex.getTopAccountIds(numberOfTopAccounts);
+            if (topAccountIds != null) {
+                List<Account> topHolders = new ArrayList<>(topAccountIds.length);
+                for (long accountId : topAccountIds) {
+                    Account account = accountTable.get(newKey(accountId));
+                    if (account != null) {
+                        topHolders.add(account);
+                    }
+                }
+                return DbIterator.of(topHolders);
+            }
             PreparedStatement pstmt = con.prepareStatement("SELECT * FROM account WHERE balance > 0 AND latest = true " +
                             " ORDER BY balance desc "+ DbUtils.limitsClause(0, numberOfTopAccounts - 1));
             int i = 0;
@@ -130,6 +185,10 @@ public class AccountTable extends VersionedEntityDbTable<Account> {
     }
      
     public static long getTotalAmountOnTopAccounts(Connection con, int numberOfTopAccounts) throws SQLException {
+        Long totalAmount = accountTable.balanceIndex.getTotalAmountOnTop(numberOfTopAccounts);
+        if (totalAmount != null) {
+            return totalAmount;
+        }
         try (
                 PreparedStatement pstmt =
                         con.prepareStatement("SELECT sum(balance) as total_amount FROM (select balance from account WHERE balance > 0 AND latest = true" +
@@ -147,6 +206,10 @@ public class AccountTable extends VersionedEntityDbTable<Account> {
     }  
 
     public static long getTotalNumberOfAccounts(Connection con) throws SQLException {
+        Long numberOfAccounts = accountTable.balanceIndex.getNumberOfAccounts();
+        if (numberOfAccounts != null) {
+            return numberOfAccounts;
+        }
         try (
                 Statement stmt =con.createStatement();
                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS number_of_accounts FROM account WHERE balance > 0 AND latest = true ")
@@ -0,0 +1,238 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
+import com.apollocurrency.aplwallet.apl.core.app.GlobalSync;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * In-memory sums of account_guaranteed_balance additions over the guaranteed balance window
+ * (heights in (height - confirmations, height]) for every account, kept for the current blockchain height.
+ * <p>
+ * When a block is accepted, additions of its height are read from db and added to the sums, while additions
+ * which leave the window are subtracted, so guaranteed balance of any account is a map lookup instead of
+ * SQL aggregation. Index is updated only with committed data: blocks which fail are never added, and index is
+ * dropped when blocks are popped off, rescan begins or additions are made at already indexed height. Dropped index
+ * is rebuilt from db by the first query at the current height which is executed outside of db transaction. Rebuild
+ * holds global read lock, so it waits for the block which is being pushed and reads the snapshot of the current height.
+ * Until then and for other heights {@link #getAdditions(long, int)} returns null and sums should be selected from db.
+ */
+@Singleton
+public class GuaranteedBalanceIndex {
+    private static final Logger log = getLogger(GuaranteedBalanceIndex.class);
+
+    private final DatabaseManager databaseManager;
+    private final Blockchain blockchain;
+    private final GlobalSync globalSync;
+    private final int confirmations;
+
+    private final Map<Long, Long> sums = new HashMap<>();
+    private final ArrayDeque<HeightAdditions> window = new ArrayDeque<>();
+    private int height = -1;
+
+    static class HeightAdditions {
+        private final int height;
+        private final long[] accountIds;
+        private final long[] additions;
+
+        HeightAdditions(int height, long[] accountIds, long[] additions) {
+            this.height = height;
+            this.accountIds = accountIds;
+            this.additions = additions;
+        }
+    }
+
+    @Inject
+    public GuaranteedBalanceIndex(DatabaseManager databaseManager, Blockchain blockchain, GlobalSync globalSync,
+                                  BlockchainConfig blockchainConfig) {
+        this.databaseManager = databaseManager;
+        this.blockchain = blockchain;
+        this.globalSync = globalSync;
+        this.confirmations = blockchainConfig.getGuaranteedBalanceConfirmations();
+    }
+
+    public int getConfirmations() {
+        return confirmations;
+    }
+
+    /**
+     * Sum of additions of the account over the guaranteed balance window ending at height
+     * @param accountId account id
+     * @param height last height of the window
+     * @return sum of additions, 0 when there are no additions, or null when index is not available for height
+     */
+    public Long getAdditions(long accountId, int height) {
+        synchronized (this) {
+            if (this.height == height) {
+                return sums.getOrDefault(accountId, 0L);
+            }
+        }
+        if (!canRebuild(height)) {
+            return null;
+        }
+        // blockchain height is set before the block is committed, so wait until block pushing is finished;
+        // global lock is taken before the monitor, as block pushing holds it while index is updated
+        globalSync.readLock();
+        try {
+            synchronized (this) {
+                if (this.height != height && !rebuildIfPossible(height)) {
+                    return null;
+                }
+                return sums.getOrDefault(accountId, 0L);
+            }
+        } finally {
+            globalSync.readUnlock();
+        }
+    }
+
+    /**
+     * Should be called after additions are stored at height, drops index when this height is already indexed
+     * @param height height of stored additions
+     */
+    public synchronized void onAdded(int height) {
+        if (height <= this.height) {
+            clear();
+        }
+    }
+
+    public synchronized void onBlockAccepted(@Observes @BlockEvent(BlockEventType.AFTER_BLOCK_ACCEPT) Block block) {
+        if (height < 0 || block.getHeight() != height + 1) {
+            clear();
+            return;
+        }
+        try (Connection con = databaseManager.getDataSource().getConnection()) {
+            for (HeightAdditions heightAdditions : load(con, height, block.getHeight())) {
+                add(heightAdditions);
+            }
+            height = block.getHeight();
+            expire();
+        } catch (SQLException e) {
+            log.warn("Unable to update guaranteed balance index at height {}: {}", block.getHeight(), e.toString());
+            clear();
+        }
+    }
+
+    public synchronized void onBlockPopped(@Observes @BlockEvent(BlockEventType.BLOCK_POPPED) Block block) {
+        clear();
+    }
+
+    public synchronized void onRescanBegan(@Observes @BlockEvent(BlockEventType.RESCAN_BEGIN) Block block) {
+        clear();
+    }
+
+    private boolean canRebuild(int height) {
+        // current transaction may contain additions which are not committed yet
+        return height == blockchain.getHeight() && !databaseManager.getDataSource().isInTransaction();
+    }
+
+    private boolean rebuildIfPossible(int height) {
+        if (!canRebuild(height)) {
+            return false;
+        }
+        clear();
+        long start = System.currentTimeMillis();
+        try (Connection con = databaseManager.getDataSource().getConnection()) {
+            for (HeightAdditions heightAdditions : load(con, height - confirmations, height)) {
+                add(heightAdditions);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        this.height = height;
+        log.debug("Guaranteed balance index built at height {} for {} accounts in {} ms", height, sums.size(),
+                System.currentTimeMillis() - start);
+        return true;
+    }
+
+    private void add(HeightAdditions heightAdditions) {
+        for (int i = 0; i < heightAdditions.accountIds.length; i++) {
+            sums.merge(heightAdditions.accountIds[i], heightAdditions.additions[i], Math::addExact);
+        }
+        window.addLast(heightAdditions);
+    }
+
+    private void expire() {
+        while (!window.isEmpty() && window.peekFirst().height <= height - confirmations) {
+            HeightAdditions heightAdditions = window.removeFirst();
+            for (int i = 0; i < heightAdditions.accountIds.length; i++) {
+                long accountId = heightAdditions.accountIds[i];
+                long sum = sums.get(accountId) - heightAdditions.additions[i];
+                if (sum == 0) {
+                    sums.remove(accountId);
+                } else {
+                    sums.put(accountId, sum);
+                }
+            }
+        }
+    }
+
+    private void clear() {
+        height = -1;
+        sums.clear();
+        window.clear();
+    }
+
+    /**
+     * Read additions grouped by height
+     * @param con db connection
+     * @param fromHeight height before the first height to read, exclusive
+     * @param toHeight last height to read, inclusive
+     * @return additions ordered by height
+     * @throws SQLException when additions cannot be read
+     */
+    static ArrayDeque<HeightAdditions> load(Connection con, int fromHeight, int toHeight) throws SQLException {
+        ArrayDeque<HeightAdditions> result = new ArrayDeque<>();
+        try (PreparedStatement pstmt = con.prepareStatement("SELECT account_id, additions, height FROM account_guaranteed_balance "
+                + "WHERE height > ? AND height <= ? ORDER BY height")) {
+            pstmt.setInt(1, fromHeight);
+            pstmt.setInt(2, toHeight);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int currentHeight = -1;
+                long[] accountIds = new long[16];
+                long[] additions = new long[16];
+                int size = 0;
+                while (rs.next()) {
+                    int rowHeight = rs.getInt("height");
+                    if (rowHeight != currentHeight && size > 0) {
+                        result.addLast(new HeightAdditions(currentHeight, Arrays.copyOf(accountIds, size), Arrays.copyOf(additions, size)));
+                        size = 0;
+                    }
+                    currentHeight = rowHeight;
+                    if (size == accountIds.length) {
+                        accountIds = Arrays.copyOf(accountIds, size * 2);
+                        additions = Arrays.copyOf(additions, size * 2);
+                    }
+                    accountIds[size] = rs.getLong("account_id");
+                    additions[size] = rs.getLong("additions");
+                    size++;
+                }
+                if (size > 0) {
+                    result.addLast(new HeightAdditions(currentHeight, Arrays.copyOf(accountIds, size), Arrays.copyOf(additions, size)));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionCallback;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cached numbers of account transactions by type and subtype, as selected from account_transaction table.
+ * <p>
+ * Accounts changed by db transaction are evicted when it is committed, deleted account transactions evict all counts.
+ * Count is cached only when no eviction happened since the version returned by {@link #getVersion()} was read,
+ * so count selected before concurrent commit is never cached after eviction.
+ */
+class AccountTransactionCounts implements TransactionCallback {
+    private static final int MAX_ACCOUNTS = 10_000;
+
+    private final DatabaseManager databaseManager;
+    private final ThreadLocal<Pending> pending = new ThreadLocal<>();
+
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    private long version;
+
+    private static class Pending {
+        private final Set<Long> accounts = new HashSet<>();
+        private boolean invalid;
+    }
+
+    AccountTransactionCounts(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    synchronized Integer get(long accountId, byte type, byte subtype) {
+        Map<Integer, Integer> accountCounts = counts.get(accountId);
+        return accountCounts == null ? null : accountCounts.get(key(type, subtype));
+    }
+
+    /**
+     * Cache count selected after version was read
+     */
+    synchronized void put(long version, long accountId, byte type, byte subtype, int count) {
+        if (this.version != version) {
+            return;
+        }
+        if (counts.size() >= MAX_ACCOUNTS && !counts.containsKey(accountId)) {
+            counts.clear();
+        }
+        counts.computeIfAbsent(accountId, k -> new HashMap<>()).put(key(type, subtype), count);
+    }
+
+    /**
+     * Evict account when the current transaction is committed
+     */
+    void onChanged(long accountId) {
+        Pending p = pending();
+        if (p != null) {
+            p.accounts.add(accountId);
+        } else {
+            evict(accountId);
+        }
+    }
+
+    /**
+     * Evict all accounts when the current transaction is committed
+     */
+    void onDeleted() {
+        Pending p = pending();
+        if (p != null) {
+            p.invalid = true;
+        } else {
+            clear();
+        }
+    }
+
+    @Override
+    public void commit() {
+        Pending p = pending.get();
+        pending.remove();
+        if (p == null) {
+            return;
+        }
+        if (p.invalid) {
+            clear();
+        } else {
+            p.accounts.forEach(this::evict);
+        }
+    }
+
+    @Override
+    public void rollback() {
+        pending.remove();
+    }
+
+    private synchronized void evict(long accountId) {
+        version++;
+        counts.remove(accountId);
+    }
+
+    private synchronized void clear() {
+        version++;
+        counts.clear();
+    }
+
+    private Pending pending() {
+        Pending p = pending.get();
+        if (p == null) {
+            TransactionalDataSource dataSource = databaseManager.getDataSource();
+            if (!dataSource.isInTransaction()) {
+                return null;
+            }
+            p = new Pending();
+            pending.set(p);
+            dataSource.registerCallback(this);
+        }
+        return p;
+    }
+
+    private static int key(byte type, byte subtype) {
+        return (type << 8) | (subtype & 0xFF);
+    }
+}
@@ -107,6 +107,11 @@ public final class Alias {
 
     private static final VersionedEntityDbTable<Alias> aliasTable = new VersionedEntityDbTable<Alias>("alias", aliasDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected Alias load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new Alias(rs, dbKey);
@@ -20,9 +20,12 @@
 
 package com.apollocurrency.aplwallet.apl.core.app;
 
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
 import com.apollocurrency.aplwallet.apl.core.db.BlockDao;
 import com.apollocurrency.aplwallet.apl.core.db.BlockDaoImpl;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
 import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
 import com.apollocurrency.aplwallet.apl.core.db.cdi.Transactional;
 import com.apollocurrency.aplwallet.apl.core.db.dao.TransactionIndexDao;
@@ -43,6 +46,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReference;
+import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.CDI;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -72,6 +76,8 @@ public class BlockchainImpl implements Blockchain {
     }
 
     private final AtomicReference<Block> lastBlock = new AtomicReference<>();
+    private final TransactionIdFilter transactionIdFilter = new TransactionIdFilter(
+            () -> CDI.current().select(DatabaseManager.class).get().getDataSource());
 
     private BlockDao lookupBlockDao() {
         if (blockDao == null) {
@@ -165,6 +171,11 @@ public class BlockchainImpl implements Blockchain {
     @Override
     public void saveBlock(Connection con, Block block) {
         lookupBlockDao().saveBlock(con, block);
+        block.getTransactions().forEach(transaction -> transactionIdFilter.add(transaction.getId()));
+    }
+
+    public void onBlockAccepted(@Observes @BlockEvent(BlockEventType.AFTER_BLOCK_ACCEPT) Block block) {
+        transactionIdFilter.resizeIfNeeded();
     }
 
     @Override
@@ -341,12 +352,18 @@ public class BlockchainImpl implements Blockchain {
     @Override
     @Transactional(readOnly = true)
     public boolean hasTransaction(long transactionId) {
+        if (!transactionIdFilter.mightContain(transactionId)) {
+            return false;
+        }
         return transactionDao.hasTransaction(transactionId) || transactionIndexDao.getByTransactionId(transactionId) != null;
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasTransaction(long transactionId, int height) {
+        if (!transactionIdFilter.mightContain(transactionId)) {
+            return false;
+        }
         boolean hasTransaction = transactionDao.hasTransaction(transactionId, height);
         if (!hasTransaction) {
             Integer transactionHeight = transactionIndexDao.getTransactionHeightByTransactionId(transactionId);
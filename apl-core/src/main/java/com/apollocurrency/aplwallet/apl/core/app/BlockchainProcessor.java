@@ -21,13 +21,12 @@
 package com.apollocurrency.aplwallet.apl.core.app;
 
 import com.apollocurrency.aplwallet.apl.core.peer.Peer;
-import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import com.apollocurrency.aplwallet.apl.util.Filter;
 import org.json.simple.JSONObject;
 
 import java.util.List;
-import java.util.Map;
 import java.util.SortedSet;
 
 public interface BlockchainProcessor {
@@ -57,7 +56,7 @@ public interface BlockchainProcessor {
     void generateBlock(byte[] keySeed, int blockTimestamp, int timeout, int blockVersion) throws BlockNotAcceptedException;
 
     SortedSet<UnconfirmedTransaction> selectUnconfirmedTransactions(
-            Map<TransactionType, Map<String, Integer>> duplicates, Block previousBlock, int blockTimestamp);
+            TransactionDuplicates duplicates, Block previousBlock, int blockTimestamp);
 
     void scan(int height, boolean validate);
 
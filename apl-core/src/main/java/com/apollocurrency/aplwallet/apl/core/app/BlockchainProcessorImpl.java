@@ -27,9 +27,11 @@ import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
 import com.apollocurrency.aplwallet.apl.core.app.observer.events.ScanValidate;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfigUpdater;
+import com.apollocurrency.aplwallet.apl.core.db.BlockSegmentStore;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
 import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
 import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTable;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesExecutor;
 import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesRegistry;
 import com.apollocurrency.aplwallet.apl.core.db.FilteringIterator;
 import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
@@ -42,7 +44,7 @@ import com.apollocurrency.aplwallet.apl.core.phasing.model.PhasingPollResult;
 import com.apollocurrency.aplwallet.apl.core.transaction.Messaging;
 import com.apollocurrency.aplwallet.apl.core.transaction.PrunableTransaction;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionApplier;
-import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionValidator;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.AbstractAppendix;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.Appendix;
@@ -105,6 +107,9 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
    private static final BlockchainConfig blockchainConfig = CDI.current().select(BlockchainConfig.class).get();
    private DexService dexService;
    private  BlockchainConfigUpdater blockchainConfigUpdater;
+    private DerivedStateCheckpointService checkpointService;
+    private BlockSegmentStore blockSegmentStore;
+    private BlockchainStatistics blockchainStatistics;
 
 
     private FullTextSearchService fullTextSearchProvider;
@@ -124,6 +129,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     private int initialScanHeight;
     private volatile int lastRestoreTime = 0;
     private final Set<Long> prunableTransactions = new HashSet<>();
+    // reused by block push and scan, which are done under global write lock
+    private final TransactionDuplicates blockDuplicates = new TransactionDuplicates();
     private BlockValidator validator;
 //    private final Listeners<Block, Event> blockListeners = new Listeners<>();
     private volatile Peer lastBlockchainFeeder;
@@ -135,6 +142,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     private final TransactionValidator transactionValidator;
     private final TransactionApplier transactionApplier;
     private final TrimService trimService;
+    private final DerivedTablesExecutor derivedTablesExecutor;
     private volatile int lastBlockchainFeederHeight;
     private volatile boolean getMoreBlocks = true;
 
@@ -160,6 +168,18 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         if (blockchainConfigUpdater == null) blockchainConfigUpdater = CDI.current().select(BlockchainConfigUpdater.class).get();
         return blockchainConfigUpdater;
     }
+    private DerivedStateCheckpointService lookupCheckpointService() {
+        if (checkpointService == null) checkpointService = CDI.current().select(DerivedStateCheckpointService.class).get();
+        return checkpointService;
+    }
+    private BlockSegmentStore lookupBlockSegmentStore() {
+        if (blockSegmentStore == null) blockSegmentStore = CDI.current().select(BlockSegmentStore.class).get();
+        return blockSegmentStore;
+    }
+    private BlockchainStatistics lookupBlockchainStatistics() {
+        if (blockchainStatistics == null) blockchainStatistics = CDI.current().select(BlockchainStatistics.class).get();
+        return blockchainStatistics;
+    }
     private TransactionalDataSource lookupDataSource() {
         return databaseManager.getDataSource();
     }
@@ -520,7 +540,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                         break download;
                     }
                     nextBlocks.setPeer(peer);
-                    Future<List<BlockImpl>> future = networkService.submit(nextBlocks);
+                    Future<List<BlockImpl>> future = nextBlocks.callAsync(networkService);
                     nextBlocks.setFuture(future);
                 }
                 //
@@ -770,6 +790,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         this.referencedTransactionService = referencedTransactionService;
         this.databaseManager = databaseManager;
         this.dexService = dexService;
+        this.derivedTablesExecutor = new DerivedTablesExecutor(this::lookupDataSource);
 
         ThreadPool.runBeforeStart("BlockchainInit", () -> {
             alreadyInitialized = true;
@@ -780,6 +801,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                 boolean rescan;
                 boolean validate;
                 int height;
+                int appliedHeight;
+                long appliedBlockId;
                 try (Connection con = lookupDataSource().getConnection();
                      Statement stmt = con.createStatement();
                      ResultSet rs = stmt.executeQuery("SELECT * FROM scan")) {
@@ -787,11 +810,20 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                     rescan = rs.getBoolean("rescan");
                     validate = rs.getBoolean("validate");
                     height = rs.getInt("height");
+                    appliedHeight = rs.getInt("applied_height");
+                    appliedBlockId = rs.getLong("applied_block_id");
                 } catch (SQLException e) {
                     throw new RuntimeException(e.toString(), e);
                 }
                 if (rescan) {
-                    scan(height, validate);
+                    Block appliedBlock = appliedHeight >= 0 ? lookupBlockhain().getBlock(appliedBlockId) : null;
+                    int resumeHeight = ScanProgress.getResumeHeight(height, appliedHeight,
+                            appliedBlock == null ? -1 : appliedBlock.getHeight(), lookupBlockhain().getHeight());
+                    if (resumeHeight > 0) {
+                        scan(height, resumeHeight, validate, false);
+                    } else {
+                        scan(height, validate);
+                    }
                 }
             }
         }, false);
@@ -917,8 +949,11 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
             try {
                 setGetMoreBlocks(false);
                 blockchain.deleteAll();
+                lookupBlockSegmentStore().onBlocksDeleted(0);
+                referencedTransactionService.onBlocksDeleted();
                 addGenesisBlock();
             } finally {
+                lookupBlockchainStatistics().onBlocksDeleted();
                 setGetMoreBlocks(true);
             }
         } finally {
@@ -1027,7 +1062,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
 
     @Override
     public List<Transaction> getExpectedTransactions(Filter<Transaction> filter) {
-        Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
+        TransactionDuplicates duplicates = new TransactionDuplicates();
         List<Transaction> result = new ArrayList<>();
         globalSync.readLock();
         try {
@@ -1077,6 +1112,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
             log.info("Genesis block already in database");
             lookupBlockhain().setLastBlock(lastBlock);
             blockchain.deleteBlocksFromHeight(lastBlock.getHeight() + 1);
+            lookupBlockSegmentStore().onBlocksDeleted(lastBlock.getHeight() + 1);
             popOffTo(lastBlock);
             genesisBlockId = blockchain.getBlockIdAtHeight(0);
             log.info("Last block height: " + lastBlock.getHeight());
@@ -1126,7 +1162,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                     throw new BlockOutOfOrderException(msg, block);
                 }
 
-                Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
+                TransactionDuplicates duplicates = blockDuplicates;
+                duplicates.clear();
                 List<Transaction> validPhasedTransactions = new ArrayList<>();
                 List<Transaction> invalidPhasedTransactions = new ArrayList<>();
                 validatePhasedTransactions(previousLastBlock, validPhasedTransactions, invalidPhasedTransactions, duplicates);
@@ -1173,7 +1210,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     }
 
     private void validatePhasedTransactions(Block lastBlock, List<Transaction> validPhasedTransactions, List<Transaction> invalidPhasedTransactions,
-                                            Map<TransactionType, Map<String, Integer>> duplicates) {
+                                            TransactionDuplicates duplicates) {
         int height = lastBlock.getHeight();
 
         List<Transaction> transactions = new ArrayList<>();
@@ -1202,7 +1239,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         }
     }
 
-    private void validateTransactions(Block block, Block previousLastBlock, int curTime, Map<TransactionType, Map<String, Integer>> duplicates,
+    private void validateTransactions(Block block, Block previousLastBlock, int curTime, TransactionDuplicates duplicates,
                                       boolean fullValidation) throws BlockNotAcceptedException {
         long payloadLength = 0;
         long calculatedTotalAmount = 0;
@@ -1272,7 +1309,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     }
 
     private void accept(Block block, List<Transaction> validPhasedTransactions, List<Transaction> invalidPhasedTransactions,
-                        Map<TransactionType, Map<String, Integer>> duplicates) throws TransactionNotAcceptedException {
+                        TransactionDuplicates duplicates) throws TransactionNotAcceptedException {
         try {
             isProcessingBlock = true;
             for (Transaction transaction : block.getTransactions()) {
@@ -1386,8 +1423,15 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     public List<Block> popOffToInTransaction(Block commonBlock) {
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         if (commonBlock.getHeight() < getMinRollbackHeight()) {
-            log.info("Rollback to height " + commonBlock.getHeight() + " not supported, will do a full rescan");
-            popOffWithRescan(commonBlock.getHeight() + 1);
+            int checkpointHeight = lookupCheckpointService().findCheckpoint(commonBlock.getHeight());
+            if (checkpointHeight >= 0) {
+                log.info("Rollback to height " + commonBlock.getHeight() + " not supported, will restore checkpoint at height "
+                        + checkpointHeight + " and scan following blocks");
+                popOffWithCheckpoint(commonBlock.getHeight() + 1, checkpointHeight);
+            } else {
+                log.info("Rollback to height " + commonBlock.getHeight() + " not supported, will do a full rescan");
+                popOffWithRescan(commonBlock.getHeight() + 1);
+            }
             return Collections.emptyList();
         }
         if (!lookupBlockhain().hasBlock(commonBlock.getId())) {
@@ -1405,9 +1449,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                 block = popLastBlock();
             }
             long rollbackStartTime = System.currentTimeMillis();
-            for (DerivedDbTable table : dbTables.getDerivedTables()) {
-                table.rollback(commonBlock.getHeight());
-            }
+            derivedTablesExecutor.rollback(dbTables.getDerivedTables(), commonBlock.getHeight());
             log.debug("Total rollback time: {} ms", System.currentTimeMillis() - rollbackStartTime);
             dataSource.clearCache();
             dataSource.commit(false); // should happen definately, otherwise
@@ -1435,13 +1477,23 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         return previousBlock;
     }
 
+    /**
+     * Delete blocks starting from the block without firing BLOCK_POPPED, deleted blocks are cut from block segment store
+     * @return last remaining block
+     */
+    private Block deleteBlocksFrom(long blockId) {
+        Block lastBlock = blockchain.deleteBlocksFrom(blockId);
+        lookupBlockSegmentStore().onBlocksDeleted(lastBlock.getHeight() + 1);
+        return lastBlock;
+    }
+
     private void popOffWithRescan(int height) {
         globalSync.writeLock();
         try {
             try {
                 scheduleScan(0, false);
                 long blockIdAtHeight = blockchain.getBlockIdAtHeight(height);
-                Block lastBLock = blockchain.deleteBlocksFrom(blockIdAtHeight);
+                Block lastBLock = deleteBlocksFrom(blockIdAtHeight);
                 lookupBlockhain().setLastBlock(lastBLock);
 
                 lookupBlockhainConfigUpdater().rollback(lastBLock.getHeight());
@@ -1454,6 +1506,45 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
         }
     }
 
+    /**
+     * Delete blocks from height, restore derived tables from checkpoint and apply remaining blocks to them.
+     * Full scan is scheduled until checkpoint is restored, then scan is resumed from the checkpoint,
+     * it also recreates full text search indexes. BLOCK_POPPED is not fired for deleted blocks, so in-memory state
+     * derived from them is dropped by RESCAN_BEGIN, as done by scan. Checkpoint is restored in a single transaction.
+     */
+    private void popOffWithCheckpoint(int height, int checkpointHeight) {
+        globalSync.writeLock();
+        try {
+            TransactionalDataSource dataSource = lookupDataSource();
+            scheduleScan(0, false);
+            long blockIdAtHeight = blockchain.getBlockIdAtHeight(height);
+            Block lastBlock = deleteBlocksFrom(blockIdAtHeight);
+            lookupBlockhain().setLastBlock(lastBlock);
+            lookupBlockhainConfigUpdater().rollback(lastBlock.getHeight());
+            dataSource.commit(false);
+            blockEvent.select(literal(BlockEventType.RESCAN_BEGIN)).fire(lastBlock);
+            log.debug("Deleted blocks starting from height {}", height);
+            try {
+                lookupCheckpointService().restoreCheckpoint(checkpointHeight);
+                try (Connection con = dataSource.getConnection();
+                     PreparedStatement pstmt = con.prepareStatement("UPDATE scan SET applied_height = ?, applied_block_id = ?")) {
+                    pstmt.setInt(1, checkpointHeight);
+                    pstmt.setLong(2, blockchain.getBlockIdAtHeight(checkpointHeight));
+                    pstmt.executeUpdate();
+                }
+                dataSource.commit(false);
+            } catch (SQLException | RuntimeException e) {
+                log.error("Unable to restore checkpoint at height " + checkpointHeight + ", will do a full rescan", e);
+                dataSource.rollback(false);
+                scan(0, false);
+                return;
+            }
+            scan(0, checkpointHeight + 1, false, false);
+        } finally {
+            globalSync.writeUnlock();
+        }
+    }
+
     private int getBlockVersion(int previousBlockHeight) {
 
         return 3;
@@ -1466,7 +1557,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
 
 
     public SortedSet<UnconfirmedTransaction> selectUnconfirmedTransactions(
-            Map<TransactionType, Map<String, Integer>> duplicates, Block previousBlock, int blockTimestamp) {
+            TransactionDuplicates duplicates, Block previousBlock, int blockTimestamp) {
 
         List<UnconfirmedTransaction> orderedUnconfirmedTransactions = new ArrayList<>();
         DbIterator<UnconfirmedTransaction> allUnconfirmedTransactions = lookupTransactionProcessor().getAllUnconfirmedTransactions();
@@ -1521,7 +1612,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
 
     public SortedSet<UnconfirmedTransaction> getUnconfirmedTransactions(Block previousBlock, int blockTimestamp) {
         //TODo What is duplicates list for?
-        Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
+        TransactionDuplicates duplicates = new TransactionDuplicates();
         List <Transaction> phasedTransactions = phasingPollService.getFinishingTransactions(lookupBlockhain().getHeight() + 1);
 
         for (Transaction phasedTransaction : phasedTransactions) {
@@ -1592,7 +1683,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     void scheduleScan(int height, boolean validate) {
         TransactionalDataSource dataSource = lookupDataSource();
         try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("UPDATE scan SET rescan = TRUE, height = ?, validate = ?")) {
+             PreparedStatement pstmt = con.prepareStatement("UPDATE scan SET rescan = TRUE, height = ?, validate = ?, "
+                     + "applied_height = -1, applied_block_id = 0")) {
             pstmt.setInt(1, height);
             pstmt.setBoolean(2, validate);
             pstmt.executeUpdate();
@@ -1613,13 +1705,24 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
     }
 
     private void scan(int height, boolean validate, boolean shutdown) {
+        scan(height, height, validate, shutdown);
+    }
+
+    /**
+     * Apply blocks to derived tables
+     * @param height height of the scheduled scan
+     * @param startHeight height of the first applied block, greater than height when interrupted scan is resumed
+     * from the block following the last applied one, derived tables are not rolled back below it; 'blockchain height + 1'
+     * when all blocks were applied by the interrupted scan
+     */
+    private void scan(int height, int startHeight, boolean validate, boolean shutdown) {
         globalSync.writeLock();
         TransactionalDataSource dataSource = lookupDataSource();
         try {
             if (!dataSource.isInTransaction()) {
                 try {
                     dataSource.begin();
-                    scan(height, validate, shutdown);
+                    scan(height, startHeight, validate, shutdown);
                     dataSource.commit();
                 } catch (Exception e) {
                     dataSource.rollback();
@@ -1627,52 +1730,59 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                 }
                 return;
             }
-            scheduleScan(height, validate);
-            if (height > 0 && height < getMinRollbackHeight()) {
-                log.info("Rollback to height less than " + getMinRollbackHeight() + " not supported, will do a full scan");
-                height = 0;
-            }
-            if (height < 0) {
-                height = 0;
+            boolean resume = startHeight > height;
+            if (!resume) {
+                if (height > 0 && height < getMinRollbackHeight()) {
+                    log.info("Rollback to height less than " + getMinRollbackHeight() + " not supported, will do a full scan");
+                    height = 0;
+                }
+                if (height < 0) {
+                    height = 0;
+                }
+                scheduleScan(height, validate);
+                startHeight = height;
+                log.info("Scanning blockchain starting from height " + height + "...");
+            } else {
+                log.info("Continuing scan from height " + startHeight + ", derived tables already contain previous blocks...");
             }
-            log.info("Scanning blockchain starting from height " + height + "...");
             if (validate) {
                 log.debug("Also verifying signatures and validating transactions...");
             }
             try (Connection con = dataSource.getConnection();
-                 PreparedStatement pstmtSelect = con.prepareStatement("SELECT * FROM block WHERE " + (height > 0 ? "height >= ? AND " : "")
+                 PreparedStatement pstmtSelect = con.prepareStatement("SELECT * FROM block WHERE " + (startHeight > 0 ? "height >= ? AND " : "")
                          + " db_id >= ? ORDER BY db_id ASC LIMIT 50000");
-                 PreparedStatement pstmtDone = con.prepareStatement("UPDATE scan SET rescan = FALSE, height = 0, validate = FALSE")) {
+                 PreparedStatement pstmtApplied = con.prepareStatement("UPDATE scan SET applied_height = ?, applied_block_id = ?");
+                 PreparedStatement pstmtDone = con.prepareStatement("UPDATE scan SET rescan = FALSE, height = 0, validate = FALSE, "
+                         + "applied_height = -1, applied_block_id = 0")) {
                 isScanning = true;
                 initialScanHeight = blockchain.getHeight();
-                if (height > blockchain.getHeight() + 1) {
-                    log.info("Rollback height " + (height - 1) + " exceeds current blockchain height of " + blockchain.getHeight() + ", no scan needed");
+                if (startHeight > blockchain.getHeight() + 1) {
+                    log.info("Rollback height " + (startHeight - 1) + " exceeds current blockchain height of " + blockchain.getHeight() + ", no scan needed");
                     pstmtDone.executeUpdate();
                     dataSource.commit(false);
                     return;
                 }
-                if (height == 0) {
+                if (height == 0 && !resume) {
                     log.debug("Dropping all full text search indexes");
                     lookupFullTextSearchProvider().dropAll(con);
                 }
-                for (DerivedDbTable table : dbTables.getDerivedTables()) {
-                    if (height == 0) {
-                        table.truncate();
-                    } else {
-                        table.rollback(height - 1);
-                    }
+                if (startHeight == 0) {
+                    derivedTablesExecutor.truncate(dbTables.getDerivedTables());
+                } else {
+                    derivedTablesExecutor.rollback(dbTables.getDerivedTables(), startHeight - 1);
                 }
                 dataSource.clearCache();
                 dataSource.commit(false);
                 log.debug("Rolled back derived tables");
-                Block currentBlock = blockchain.getBlockAtHeight(height);
+                // resumed scan which applied all blocks is only finished
+                Block currentBlock = startHeight <= blockchain.getHeight() ? blockchain.getBlockAtHeight(startHeight) : blockchain.getLastBlock();
                 blockEvent.select(literal(BlockEventType.RESCAN_BEGIN)).fire(currentBlock);
                 long currentBlockId = currentBlock.getId();
-                if (height == 0) {
+                if (startHeight == 0) {
                     blockchain.setLastBlock(currentBlock); // special case to avoid no last block
                     Genesis.apply();
                 } else {
-                    blockchain.setLastBlock(blockchain.getBlockAtHeight(height - 1));
+                    blockchain.setLastBlock(blockchain.getBlockAtHeight(startHeight - 1));
                 }
                 if (shutdown) {
                     log.info("Scan will be performed at next start");
@@ -1680,8 +1790,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                     return;
                 }
                 int pstmtSelectIndex = 1;
-                if (height > 0) {
-                    pstmtSelect.setInt(pstmtSelectIndex++, height);
+                if (startHeight > 0) {
+                    pstmtSelect.setInt(pstmtSelectIndex++, startHeight);
                 }
                 long dbId = Long.MIN_VALUE;
                 boolean hasMore = true;
@@ -1699,7 +1809,8 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                                     if (currentBlock.getId() != currentBlockId || currentBlock.getHeight() > blockchain.getHeight() + 1) {
                                         throw new AplException.NotValidException("Database blocks in the wrong order!");
                                     }
-                                    Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
+                                    TransactionDuplicates duplicates = blockDuplicates;
+                                    duplicates.clear();
                                     List<Transaction> validPhasedTransactions = new ArrayList<>();
                                     List<Transaction> invalidPhasedTransactions = new ArrayList<>();
                                     validatePhasedTransactions(blockchain.getLastBlock(), validPhasedTransactions, invalidPhasedTransactions, duplicates);
@@ -1729,6 +1840,9 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                                     blockEvent.select(literal(BlockEventType.BEFORE_BLOCK_ACCEPT)).fire(currentBlock);
                                     blockchain.setLastBlock(currentBlock);
                                     accept(currentBlock, validPhasedTransactions, invalidPhasedTransactions, duplicates);
+                                    pstmtApplied.setInt(1, currentBlock.getHeight());
+                                    pstmtApplied.setLong(2, currentBlock.getId());
+                                    pstmtApplied.executeUpdate();
                                     dataSource.clearCache();
                                     dataSource.commit(false);
                                     blockEvent.select(literal(BlockEventType.AFTER_BLOCK_ACCEPT)).fire(currentBlock);
@@ -1739,7 +1853,7 @@ public class BlockchainProcessorImpl implements BlockchainProcessor {
                                 log.debug(e.toString(), e);
                                 log.debug("Applying block " + Long.toUnsignedString(currentBlockId) + " at height "
                                         + (currentBlock == null ? 0 : currentBlock.getHeight()) + " failed, deleting from database");
-                                Block lastBlock = blockchain.deleteBlocksFrom(currentBlockId);
+                                Block lastBlock = deleteBlocksFrom(currentBlockId);
                                 blockchain.setLastBlock(lastBlock);
                                 popOffTo(lastBlock);
                                 break outer;
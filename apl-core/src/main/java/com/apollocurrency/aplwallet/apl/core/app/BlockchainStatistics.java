@@ -0,0 +1,224 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.core.account.Account;
+import com.apollocurrency.aplwallet.apl.core.account.AccountLeaseTable;
+import com.apollocurrency.aplwallet.apl.core.account.PhasingOnly;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
+import com.apollocurrency.aplwallet.apl.core.monetary.Asset;
+import com.apollocurrency.aplwallet.apl.core.monetary.AssetTransfer;
+import com.apollocurrency.aplwallet.apl.core.monetary.Currency;
+import com.apollocurrency.aplwallet.apl.core.monetary.CurrencyBuyOffer;
+import com.apollocurrency.aplwallet.apl.core.monetary.CurrencyTransfer;
+import com.apollocurrency.aplwallet.apl.core.monetary.Exchange;
+import com.apollocurrency.aplwallet.apl.core.monetary.ExchangeRequest;
+import org.slf4j.Logger;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.enterprise.event.Observes;
+import javax.enterprise.event.ObservesAsync;
+import javax.enterprise.inject.spi.CDI;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Counts of blockchain entities reported by getState, kept in memory together with the height at which they were
+ * computed.
+ * <p>
+ * Each count is a full table scan, so counts are computed by the first request and then refreshed in background after
+ * each pushed block, instead of on every request. Refreshes are never run concurrently: blocks pushed during a refresh
+ * cause only one more refresh after it. No refreshes are done before the first request, nor while blockchain is
+ * downloaded or scanned, so counts may lag behind the current height by a few blocks.
+ * <p>
+ * Counts of popped off blocks or of the blockchain before scan or full reset are not reported: BLOCK_POPPED,
+ * RESCAN_END and {@link #onBlocksDeleted()} drop computed counts, and they are computed again by the next request.
+ * BLOCK_POPPED and RESCAN_END are fired inside the db transaction of pop off or scan, so counting is not done by their
+ * observers. Refresh which is running when counts are dropped is repeated.
+ */
+@Singleton
+public class BlockchainStatistics {
+    private static final Logger log = getLogger(BlockchainStatistics.class);
+
+    private final Blockchain blockchain;
+    private BlockchainProcessor blockchainProcessor;
+
+    private volatile Statistics statistics;
+    private boolean refreshing;
+    private boolean refreshRequired;
+
+    public static class Statistics {
+        private final int height;
+        private final Map<String, Integer> counts;
+
+        Statistics(int height, Map<String, Integer> counts) {
+            this.height = height;
+            this.counts = Collections.unmodifiableMap(counts);
+        }
+
+        /**
+         * @return blockchain height before counting
+         */
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * @return counts by getState response keys, in response order
+         */
+        public Map<String, Integer> getCounts() {
+            return counts;
+        }
+    }
+
+    @Inject
+    public BlockchainStatistics(Blockchain blockchain) {
+        this.blockchain = blockchain;
+    }
+
+    /**
+     * @return last computed statistics, computed now by the first call
+     */
+    public Statistics getStatistics() {
+        Statistics statistics = this.statistics;
+        if (statistics == null) {
+            statistics = refresh();
+            if (statistics == null) {
+                statistics = waitForStatistics();
+            }
+            if (statistics == null) {
+                // dropped again right after refresh
+                statistics = compute();
+            }
+        }
+        return statistics;
+    }
+
+    public void onBlockPushed(@ObservesAsync @BlockEvent(BlockEventType.BLOCK_PUSHED) Block block) {
+        if (statistics == null || lookupBlockchainProcessor().isDownloading() || lookupBlockchainProcessor().isScanning()) {
+            return;
+        }
+        refresh();
+    }
+
+    public void onBlockPopped(@Observes @BlockEvent(BlockEventType.BLOCK_POPPED) Block block) {
+        drop();
+    }
+
+    public void onRescanEnd(@Observes @BlockEvent(BlockEventType.RESCAN_END) Block block) {
+        drop();
+    }
+
+    /**
+     * All blocks were deleted from blockchain by full reset
+     */
+    public void onBlocksDeleted() {
+        drop();
+    }
+
+    private synchronized void drop() {
+        statistics = null;
+        if (refreshing) {
+            refreshRequired = true;
+        }
+    }
+
+    /**
+     * @return computed statistics, null when they are computed by other thread
+     */
+    private Statistics refresh() {
+        synchronized (this) {
+            if (refreshing) {
+                refreshRequired = true;
+                return null;
+            }
+            refreshing = true;
+        }
+        try {
+            Statistics computed;
+            boolean again;
+            do {
+                synchronized (this) {
+                    refreshRequired = false;
+                }
+                computed = compute();
+                statistics = computed;
+                synchronized (this) {
+                    again = refreshRequired;
+                }
+            } while (again);
+            return computed;
+        } finally {
+            synchronized (this) {
+                refreshing = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Request which found no statistics while they are computed by other thread waits for them
+     */
+    private synchronized Statistics waitForStatistics() {
+        while (statistics == null && refreshing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return statistics;
+    }
+
+    Statistics compute() {
+        long start = System.currentTimeMillis();
+        int height = blockchain.getHeight();
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        counts.put("numberOfTransactions", blockchain.getTransactionCount());
+        counts.put("numberOfAccounts", Account.getCount());
+        counts.put("numberOfAssets", Asset.getCount());
+        int askCount = Order.Ask.getCount();
+        int bidCount = Order.Bid.getCount();
+        counts.put("numberOfOrders", askCount + bidCount);
+        counts.put("numberOfAskOrders", askCount);
+        counts.put("numberOfBidOrders", bidCount);
+        counts.put("numberOfTrades", Trade.getCount());
+        counts.put("numberOfTransfers", AssetTransfer.getCount());
+        counts.put("numberOfCurrencies", Currency.getCount());
+        counts.put("numberOfOffers", CurrencyBuyOffer.getCount());
+        counts.put("numberOfExchangeRequests", ExchangeRequest.getCount());
+        counts.put("numberOfExchanges", Exchange.getCount());
+        counts.put("numberOfCurrencyTransfers", CurrencyTransfer.getCount());
+        counts.put("numberOfAliases", Alias.getCount());
+        counts.put("numberOfGoods", DigitalGoodsStore.Goods.getCount());
+        counts.put("numberOfPurchases", DigitalGoodsStore.Purchase.getCount());
+        counts.put("numberOfTags", DigitalGoodsStore.Tag.getCount());
+        counts.put("numberOfPolls", Poll.getCount());
+        counts.put("numberOfVotes", Vote.getCount());
+        counts.put("numberOfPrunableMessages", PrunableMessage.getCount());
+        counts.put("numberOfTaggedData", TaggedData.getCount());
+        counts.put("numberOfDataTags", TaggedData.Tag.getTagCount());
+        counts.put("numberOfAccountLeases", AccountLeaseTable.getAccountLeaseCount());
+        counts.put("numberOfActiveAccountLeases", Account.getActiveLeaseCount());
+        counts.put("numberOfShufflings", Shuffling.getCount());
+        counts.put("numberOfActiveShufflings", Shuffling.getActiveCount());
+        counts.put("numberOfPhasingOnlyAccounts", PhasingOnly.getCount());
+        log.trace("Blockchain statistics at height {} computed in {} ms", height, System.currentTimeMillis() - start);
+        return new Statistics(height, counts);
+    }
+
+    private BlockchainProcessor lookupBlockchainProcessor() {
+        if (blockchainProcessor == null) {
+            blockchainProcessor = CDI.current().select(BlockchainProcessor.class).get();
+        }
+        return blockchainProcessor;
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ *  Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
+import com.apollocurrency.aplwallet.apl.core.config.Property;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTable;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesRegistry;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Periodic compressed snapshots of derived tables, which allow to roll back deeper than trimmed derived tables permit.
+ * <p>
+ * Every {@code apl.checkpointFrequency} blocks all rows of non-persistent derived tables are written into {@code <dbDir>/checkpoints/<height>.chk}, only {@code apl.checkpointsToKeep} latest checkpoints are kept.
+ * Checkpoint is written to temporary file and renamed when complete, so only complete checkpoints are restored.
+ * Restored checkpoint replaces derived tables content, blocks above checkpoint height should be applied by scan.
+ * Stored row counts of derived tables are dropped by restore and calculated again when needed.
+ * <p>
+ * Checkpoint is a GZIP compressed stream of typed values: every column value is written as a type tag followed by
+ * the value, only column types used by derived tables are supported, and nothing is deserialized into objects other
+ * than column values.
+ */
+@Singleton
+public class DerivedStateCheckpointService {
+    private static final Logger log = LoggerFactory.getLogger(DerivedStateCheckpointService.class);
+    private static final String CHECKPOINT_SUFFIX = ".chk";
+    private static final String ROW_COUNT_TABLE = "derived_table_count";
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_ARRAY_LENGTH = 1 << 20;
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_SHORT = 3;
+    private static final byte TYPE_BYTE = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_STRING = 6;
+    private static final byte TYPE_BYTES = 7;
+    private static final byte TYPE_DECIMAL = 8;
+    private static final byte TYPE_TIMESTAMP = 9;
+    private static final byte TYPE_ARRAY = 10;
+    private static final int BATCH_SIZE = 1000;
+
+    private final DatabaseManager databaseManager;
+    private final DerivedTablesRegistry dbTablesRegistry;
+    private final Blockchain blockchain;
+    private final int frequency;
+    private final int checkpointsToKeep;
+    private final Path directory;
+
+    @Inject
+    public DerivedStateCheckpointService(DatabaseManager databaseManager,
+                                         DerivedTablesRegistry derivedDbTablesRegistry,
+                                         Blockchain blockchain,
+                                         @Property(value = "apl.checkpointFrequency", defaultValue = "0") int frequency,
+                                         @Property(value = "apl.checkpointsToKeep", defaultValue = "3") int checkpointsToKeep) {
+        this(databaseManager, derivedDbTablesRegistry, blockchain,
+                frequency > 0 && databaseManager.getBaseDbProperties().getDbDir() != null
+                        ? Paths.get(databaseManager.getBaseDbProperties().getDbDir(), "checkpoints") : null,
+                frequency, checkpointsToKeep);
+    }
+
+    /**
+     * @param directory checkpoints directory, null to disable checkpoints
+     */
+    public DerivedStateCheckpointService(DatabaseManager databaseManager, DerivedTablesRegistry derivedDbTablesRegistry,
+                                         Blockchain blockchain, Path directory, int frequency, int checkpointsToKeep) {
+        this.databaseManager = Objects.requireNonNull(databaseManager, "Database manager cannot be null");
+        this.dbTablesRegistry = Objects.requireNonNull(derivedDbTablesRegistry, "Db tables registry cannot be null");
+        this.blockchain = Objects.requireNonNull(blockchain, "Blockchain cannot be null");
+        this.frequency = frequency;
+        this.checkpointsToKeep = Math.max(checkpointsToKeep, 1);
+        this.directory = frequency > 0 ? directory : null;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public void onBlockAccepted(@Observes @BlockEvent(BlockEventType.AFTER_BLOCK_ACCEPT) Block block) {
+        if (isEnabled() && block.getHeight() > 0 && block.getHeight() % frequency == 0) {
+            try {
+                createCheckpoint(block);
+            } catch (RuntimeException e) {
+                log.error("Unable to create checkpoint at height " + block.getHeight(), e);
+            }
+        }
+    }
+
+    /**
+     * Write committed state of derived tables, should be called when block is accepted and no other block is pushed
+     * @param block last accepted block
+     */
+    public void createCheckpoint(Block block) {
+        long start = System.currentTimeMillis();
+        Path path = directory.resolve(block.getHeight() + CHECKPOINT_SUFFIX);
+        Path tempPath = directory.resolve(block.getHeight() + CHECKPOINT_SUFFIX + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath))));
+                 Connection con = databaseManager.getDataSource().getConnection()) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(block.getHeight());
+                out.writeLong(block.getId());
+                for (String table : getTables()) {
+                    writeTable(con, table, out);
+                }
+                out.writeUTF("");
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | SQLException e) {
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+            }
+            throw new RuntimeException(e.toString(), e);
+        }
+        log.info("Created checkpoint at height {} in {} ms", block.getHeight(), System.currentTimeMillis() - start);
+        List<Integer> heights = getCheckpointHeights();
+        for (int i = checkpointsToKeep; i < heights.size(); i++) {
+            try {
+                Files.deleteIfExists(directory.resolve(heights.get(i) + CHECKPOINT_SUFFIX));
+            } catch (IOException e) {
+                log.warn("Unable to delete checkpoint at height {}: {}", heights.get(i), e.toString());
+            }
+        }
+    }
+
+    /**
+     * @param maxHeight max checkpoint height
+     * @return height of the latest checkpoint not above maxHeight which was created for a block of the current chain,
+     * or -1 when there is no such checkpoint
+     */
+    public int findCheckpoint(int maxHeight) {
+        if (!isEnabled()) {
+            return -1;
+        }
+        for (int height : getCheckpointHeights()) {
+            if (height > maxHeight || height > blockchain.getHeight()) {
+                continue;
+            }
+            try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(directory.resolve(height + CHECKPOINT_SUFFIX))))) {
+                if (in.readInt() == FORMAT_VERSION && in.readInt() == height && in.readLong() == blockchain.getBlockIdAtHeight(height)) {
+                    return height;
+                }
+            } catch (IOException e) {
+                log.warn("Unable to read checkpoint at height {}: {}", height, e.toString());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Replace content of derived tables by the checkpoint, should be called in transaction.
+     * Nothing is committed here, so the caller commits or rolls back the whole restore in its transaction.
+     * @param height checkpoint height
+     */
+    public void restoreCheckpoint(int height) {
+        long start = System.currentTimeMillis();
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        if (!dataSource.isInTransaction()) {
+            throw new IllegalStateException("Not in transaction");
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(
+                Files.newInputStream(directory.resolve(height + CHECKPOINT_SUFFIX)))))) {
+            if (in.readInt() != FORMAT_VERSION || in.readInt() != height) {
+                throw new IOException("Invalid checkpoint header");
+            }
+            in.readLong();
+            // TRUNCATE TABLE commits the current transaction, so rows are deleted instead
+            List<String> tables = getTables();
+            try (Connection con = dataSource.getConnection();
+                 Statement stmt = con.createStatement()) {
+                for (String table : tables) {
+                    stmt.executeUpdate("DELETE FROM " + table);
+                }
+                stmt.executeUpdate("DELETE FROM " + ROW_COUNT_TABLE);
+            }
+            String table;
+            while (!(table = in.readUTF()).isEmpty()) {
+                if (!tables.contains(table)) {
+                    throw new IOException("Unexpected table " + table);
+                }
+                readTable(dataSource, table, in);
+            }
+        } catch (IOException | SQLException e) {
+            throw new RuntimeException("Unable to restore checkpoint at height " + height + ": " + e.toString(), e);
+        }
+        // rollback above the last height does not change restored rows, but lets tables drop their in-memory state
+        for (DerivedDbTable derivedTable : dbTablesRegistry.getDerivedTables()) {
+            if (!derivedTable.isPersistent()) {
+                derivedTable.rollback(Integer.MAX_VALUE);
+            }
+        }
+        dataSource.clearCache();
+        log.info("Restored checkpoint at height {} in {} ms", height, System.currentTimeMillis() - start);
+    }
+
+    private List<String> getTables() {
+        List<String> tables = new ArrayList<>();
+        for (DerivedDbTable table : dbTablesRegistry.getDerivedTables()) {
+            if (!table.isPersistent()) {
+                tables.add(table.toString());
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * @return heights of stored checkpoints, latest first
+     */
+    private List<Integer> getCheckpointHeights() {
+        List<Integer> heights = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return heights;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + CHECKPOINT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    heights.add(Integer.parseInt(name.substring(0, name.length() - CHECKPOINT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Unexpected file in checkpoints directory: {}", path);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        heights.sort(Collections.reverseOrder());
+        return heights;
+    }
+
+    private static void writeTable(Connection con, String table, DataOutputStream out) throws SQLException, IOException {
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + table)) {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            out.writeUTF(table);
+            out.writeInt(columnCount);
+            for (int i = 1; i <= columnCount; i++) {
+                out.writeUTF(metaData.getColumnName(i));
+            }
+            while (rs.next()) {
+                out.writeBoolean(true);
+                for (int i = 1; i <= columnCount; i++) {
+                    Object value = rs.getObject(i);
+                    writeValue(out, value instanceof Array ? ((Array) value).getArray() : value);
+                }
+            }
+            out.writeBoolean(false);
+        }
+    }
+
+    private static void readTable(TransactionalDataSource dataSource, String table, DataInputStream in)
+            throws SQLException, IOException {
+        int columnCount = in.readInt();
+        List<String> columns = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            columns.add(in.readUTF());
+        }
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columnCount, "?")) + ")";
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement(sql)) {
+            int rows = 0;
+            while (in.readBoolean()) {
+                for (int i = 1; i <= columnCount; i++) {
+                    pstmt.setObject(i, readValue(in));
+                }
+                pstmt.addBatch();
+                if (++rows % BATCH_SIZE == 0) {
+                    pstmt.executeBatch();
+                }
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+        } else if (value instanceof byte[]) {
+            out.writeByte(TYPE_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(TYPE_DECIMAL);
+            out.writeInt(((BigDecimal) value).scale());
+            writeBytes(out, ((BigDecimal) value).unscaledValue().toByteArray());
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TYPE_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            out.writeByte(TYPE_ARRAY);
+            out.writeInt(array.length);
+            for (Object element : array) {
+                writeValue(out, element);
+            }
+        } else {
+            throw new IOException("Unsupported column value type " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_INT:
+                return in.readInt();
+            case TYPE_SHORT:
+                return in.readShort();
+            case TYPE_BYTE:
+                return in.readByte();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case TYPE_BYTES:
+                return readBytes(in);
+            case TYPE_DECIMAL:
+                int scale = in.readInt();
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case TYPE_TIMESTAMP:
+                Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case TYPE_ARRAY:
+                int length = in.readInt();
+                if (length < 0 || length > MAX_ARRAY_LENGTH) {
+                    throw new IOException("Invalid array length " + length);
+                }
+                Object[] array = new Object[length];
+                for (int i = 0; i < length; i++) {
+                    array[i] = readValue(in);
+                }
+                return array;
+            default:
+                throw new IOException("Unknown column value type " + type);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_ARRAY_LENGTH * 16) {
+            throw new IOException("Invalid value length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -104,6 +104,11 @@ public final class DigitalGoodsStore {
 
         private static final VersionedEntityDbTable<Tag> tagTable = new VersionedEntityDbTable<Tag>("tag", tagDbKeyFactory) {
 
+            @Override
+            protected boolean isRowCountTracked() {
+                return true;
+            }
+
             @Override
             protected Tag load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
                 return new Tag(rs, dbKey);
@@ -228,6 +233,11 @@ public final class DigitalGoodsStore {
 
         private static final VersionedEntityDbTable<Goods> goodsTable = new VersionedEntityDbTable<Goods>("goods", goodsDbKeyFactory, "name,description,tags") {
 
+            @Override
+            protected boolean isRowCountTracked() {
+                return true;
+            }
+
             @Override
             protected Goods load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
                 return new Goods(rs, dbKey);
@@ -441,6 +451,11 @@ public final class DigitalGoodsStore {
 
         private static final VersionedEntityDbTable<Purchase> purchaseTable = new VersionedEntityDbTable<Purchase>("purchase", purchaseDbKeyFactory) {
 
+            @Override
+            protected boolean isRowCountTracked() {
+                return true;
+            }
+
             @Override
             protected Purchase load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
                 return new Purchase(rs, dbKey);
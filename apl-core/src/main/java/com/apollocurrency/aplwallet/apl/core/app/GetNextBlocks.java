@@ -10,9 +10,12 @@ import com.apollocurrency.aplwallet.apl.util.JSON;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -66,6 +69,30 @@ public class GetNextBlocks implements Callable<List<BlockImpl>> {
      */
     @Override
     public List<BlockImpl> call() {
+        JSONStreamAware request = createRequest();
+        long startTime = System.currentTimeMillis();
+        JSONObject response = peer.send(request, blockchainConfig.getChain().getChainId(), 10 * 1024 * 1024, false);
+        responseTime = System.currentTimeMillis() - startTime;
+        return parseResponse(response);
+    }
+
+    /**
+     * Send request without blocking the calling thread
+     *
+     * @param   executor            Executor which parses the returned blocks
+     * @return                      Future of the list of blocks or null if an error occurred
+     */
+    public CompletableFuture<List<BlockImpl>> callAsync(Executor executor) {
+        JSONStreamAware request = createRequest();
+        long startTime = System.currentTimeMillis();
+        return peer.sendAsync(request, blockchainConfig.getChain().getChainId(), 10 * 1024 * 1024)
+                .thenApplyAsync(response -> {
+                    responseTime = System.currentTimeMillis() - startTime;
+                    return parseResponse(response);
+                }, executor);
+    }
+
+    private JSONStreamAware createRequest() {
         requestCount++;
         //
         // Build the block request list
@@ -79,9 +106,10 @@ public class GetNextBlocks implements Callable<List<BlockImpl>> {
         request.put("blockIds", idList);
         request.put("blockId", Long.toUnsignedString(blockIds.get(start)));
         request.put("chainId", blockchainConfig.getChain().getChainId());
-        long startTime = System.currentTimeMillis();
-        JSONObject response = peer.send(JSON.prepareRequest(request), blockchainConfig.getChain().getChainId(), 10 * 1024 * 1024, false);
-        responseTime = System.currentTimeMillis() - startTime;
+        return JSON.prepareRequest(request);
+    }
+
+    private List<BlockImpl> parseResponse(JSONObject response) {
         if (response == null) {
             return null;
         }
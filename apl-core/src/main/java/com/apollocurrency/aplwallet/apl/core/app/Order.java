@@ -221,6 +221,11 @@ public abstract class Order {
 
         private static final VersionedEntityDbTable<Ask> askOrderTable = new VersionedEntityDbTable<Ask>("ask_order", askOrderDbKeyFactory) {
 
+            @Override
+            protected boolean isRowCountTracked() {
+                return true;
+            }
+
             @Override
             protected Ask load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
                 return new Ask(rs, dbKey);
@@ -342,6 +347,11 @@ public abstract class Order {
 
         private static final VersionedEntityDbTable<Bid> bidOrderTable = new VersionedEntityDbTable<Bid>("bid_order", bidOrderDbKeyFactory) {
 
+            @Override
+            protected boolean isRowCountTracked() {
+                return true;
+            }
+
             @Override
             protected Bid load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
                 return new Bid(rs, dbKey);
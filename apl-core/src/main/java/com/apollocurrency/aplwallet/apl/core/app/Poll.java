@@ -101,6 +101,11 @@ public final class Poll extends AbstractPoll {
 
     private final static EntityDbTable<Poll> pollTable = new EntityDbTable<Poll>("poll", pollDbKeyFactory, "name,description") {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected Poll load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new Poll(rs, dbKey);
@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionCallback;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memoized referenced transaction chains of blockchain transactions, keyed by transaction id.
+ * <p>
+ * Chain of the transaction consists of the transaction itself and all transactions referenced by it directly or
+ * indirectly, and it is described by its length and min and max heights of its transactions, so validation of any
+ * transaction which references chain head is done without db queries. Chains are never changed while their
+ * transactions are in blockchain, so all chains are dropped when block is popped off, immediately and once more when
+ * popping db transaction ends. Chain is stored only when no drop happened since the version returned by
+ * {@link #getVersion()} was read, so chain read from db before concurrent pop off is never stored after it. Chain
+ * read inside of db transaction is kept for this transaction only and stored when it is committed, so chain of
+ * transactions which are rolled back is never stored. Chains which cannot be referenced anymore because of the height
+ * span are evicted when the number of chains reaches the limit.
+ */
+class ReferencedTransactionChains implements TransactionCallback {
+    private static final int MAX_CHAINS = 100_000;
+
+    private final DatabaseManager databaseManager;
+    private final ThreadLocal<Pending> pending = new ThreadLocal<>();
+
+    private final Map<Long, Chain> chains = new HashMap<>();
+    private long version;
+
+    private static class Pending {
+        private final Map<Long, Chain> chains = new HashMap<>();
+        private long version;
+        private int minHeight;
+        private boolean popped;
+    }
+
+    static class Chain {
+        private final byte[] fullHash;
+        private final int length;
+        private final int minHeight;
+        private final int maxHeight;
+
+        Chain(byte[] fullHash, int height, Chain referencedChain) {
+            this.fullHash = fullHash;
+            if (referencedChain == null) {
+                this.length = 1;
+                this.minHeight = height;
+                this.maxHeight = height;
+            } else {
+                this.length = referencedChain.length + 1;
+                this.minHeight = Math.min(height, referencedChain.minHeight);
+                this.maxHeight = Math.max(height, referencedChain.maxHeight);
+            }
+        }
+
+        int getLength() {
+            return length;
+        }
+
+        int getMinHeight() {
+            return minHeight;
+        }
+
+        int getMaxHeight() {
+            return maxHeight;
+        }
+    }
+
+    ReferencedTransactionChains(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * @param transactionId id of the chain head
+     * @param fullHash full hash of the chain head
+     * @return chain of the transaction or null when it is not stored
+     */
+    Chain get(long transactionId, byte[] fullHash) {
+        Chain chain;
+        Pending p = pending.get();
+        if (p != null && (chain = p.chains.get(transactionId)) != null) {
+            return Arrays.equals(chain.fullHash, fullHash) ? chain : null;
+        }
+        synchronized (this) {
+            chain = chains.get(transactionId);
+        }
+        return chain != null && Arrays.equals(chain.fullHash, fullHash) ? chain : null;
+    }
+
+    /**
+     * Store chain read from db after version was read, chain read inside of db transaction is stored on commit
+     * @param minHeight min height of chains which still may be referenced
+     */
+    void put(long version, long transactionId, Chain chain, int minHeight) {
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        if (!dataSource.isInTransaction()) {
+            synchronized (this) {
+                if (this.version == version) {
+                    store(transactionId, chain, minHeight);
+                }
+            }
+            return;
+        }
+        // chain read inside of db transaction may include its uncommitted transactions
+        Pending p = pending(dataSource);
+        if (p.version != version) {
+            p.chains.clear();
+            p.version = version;
+        }
+        p.chains.put(transactionId, chain);
+        p.minHeight = minHeight;
+    }
+
+    private void store(long transactionId, Chain chain, int minHeight) {
+        if (chains.size() >= MAX_CHAINS) {
+            chains.values().removeIf(c -> c.minHeight < minHeight);
+            if (chains.size() >= MAX_CHAINS) {
+                chains.clear();
+            }
+        }
+        chains.put(transactionId, chain);
+    }
+
+    /**
+     * Drop all chains now and when the current db transaction ends
+     */
+    void onBlockPopped() {
+        clear();
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        if (dataSource.isInTransaction()) {
+            Pending p = pending(dataSource);
+            p.chains.clear();
+            p.popped = true;
+        }
+    }
+
+    @Override
+    public void commit() {
+        Pending p = pending.get();
+        pending.remove();
+        if (p == null) {
+            return;
+        }
+        synchronized (this) {
+            if (p.popped) {
+                clear();
+            } else if (version == p.version) {
+                p.chains.forEach((transactionId, chain) -> store(transactionId, chain, p.minHeight));
+            }
+        }
+    }
+
+    @Override
+    public void rollback() {
+        Pending p = pending.get();
+        pending.remove();
+        if (p != null && p.popped) {
+            clear();
+        }
+    }
+
+    private Pending pending(TransactionalDataSource dataSource) {
+        Pending p = pending.get();
+        if (p == null) {
+            p = new Pending();
+            p.version = getVersion();
+            pending.set(p);
+            dataSource.registerCallback(this);
+        }
+        return p;
+    }
+
+    synchronized void clear() {
+        version++;
+        chains.clear();
+    }
+}
@@ -4,13 +4,18 @@
 
 package com.apollocurrency.aplwallet.apl.core.app;
 
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
 import com.apollocurrency.aplwallet.apl.core.db.dao.ReferencedTransactionDao;
 import com.apollocurrency.aplwallet.apl.core.db.dao.TransactionIndexDao;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
@@ -22,40 +27,91 @@ public class ReferencedTransactionService {
     private Blockchain blockchain;
     private BlockchainConfig blockchainConfig;
     private int maxReferencedTransactions;
+    private final ReferencedTransactionChains chains;
 
 
     public ReferencedTransactionService(
             ReferencedTransactionDao referencedTransactionDao, TransactionIndexDao transactionIndexDao,
-            Blockchain blockchain, BlockchainConfig blockchainConfig, int maxReferencedTransactions) {
+            Blockchain blockchain, BlockchainConfig blockchainConfig, DatabaseManager databaseManager,
+            int maxReferencedTransactions) {
         this.referencedTransactionDao = referencedTransactionDao;
         this.transactionIndexDao = transactionIndexDao;
         this.blockchain = blockchain;
         this.blockchainConfig = blockchainConfig;
         this.maxReferencedTransactions = maxReferencedTransactions;
+        this.chains = new ReferencedTransactionChains(databaseManager);
     }
 
     @Inject
     public ReferencedTransactionService(
             ReferencedTransactionDao referencedTransactionDao, TransactionIndexDao transactionIndexDao,
-            Blockchain blockchain, BlockchainConfig blockchainConfig) {
-        this(referencedTransactionDao, transactionIndexDao, blockchain, blockchainConfig, DEFAULT_MAX_REFERENCED_TRANSACTIONS);
+            Blockchain blockchain, BlockchainConfig blockchainConfig, DatabaseManager databaseManager) {
+        this(referencedTransactionDao, transactionIndexDao, blockchain, blockchainConfig, databaseManager,
+                DEFAULT_MAX_REFERENCED_TRANSACTIONS);
     }
 
     public boolean hasAllReferencedTransactions(Transaction transaction, int height) {
-
-        int count = 0;
         byte[] hash = hashToBytes(transaction.getReferencedTransactionFullHash());
-        while (hash != null ) {
-            Integer referencedTransactionHeight = blockchain.getTransactionHeight(hash, height);
-            if (referencedTransactionHeight == null
-                    || referencedTransactionHeight >= height
-                    || ++count > maxReferencedTransactions
-                    || height - referencedTransactionHeight > blockchainConfig.getCurrentConfig().getReferencedTransactionHeightSpan()) {
-                return false;
+        if (hash == null) {
+            return true;
+        }
+        int heightSpan = blockchainConfig.getCurrentConfig().getReferencedTransactionHeightSpan();
+        ReferencedTransactionChains.Chain chain = getChain(hash, height, height - heightSpan);
+        return chain != null
+                && chain.getMaxHeight() < height
+                && chain.getLength() <= maxReferencedTransactions
+                && height - chain.getMinHeight() <= heightSpan;
+    }
+
+    /**
+     * Find memoized chain of the transaction or read it from db, reading stops at the first memoized chain
+     * @param hash full hash of the chain head
+     * @param height max height of chain transactions
+     * @param minHeight min height of chains which still may be referenced
+     * @return chain or null when some of chain transactions is not found or chain is longer than allowed
+     */
+    private ReferencedTransactionChains.Chain getChain(byte[] hash, int height, int minHeight) {
+        ReferencedTransactionChains.Chain chain = chains.get(Convert.fullHashToId(hash), hash);
+        if (chain != null) {
+            return chain;
+        }
+        long version = chains.getVersion();
+        List<byte[]> hashes = new ArrayList<>();
+        List<Integer> heights = new ArrayList<>();
+        while (hash != null) {
+            long id = Convert.fullHashToId(hash);
+            chain = chains.get(id, hash);
+            if (chain != null) {
+                break;
+            }
+            Integer transactionHeight = blockchain.getTransactionHeight(hash, height);
+            if (transactionHeight == null || hashes.size() == maxReferencedTransactions) {
+                return null;
             }
-            hash = getReferencedFullHash(Convert.fullHashToId(hash));
+            hashes.add(hash);
+            heights.add(transactionHeight);
+            hash = getReferencedFullHash(id);
         }
-        return true;
+        for (int i = hashes.size() - 1; i >= 0; i--) {
+            chain = new ReferencedTransactionChains.Chain(hashes.get(i), heights.get(i), chain);
+            chains.put(version, Convert.fullHashToId(hashes.get(i)), chain, minHeight);
+        }
+        return chain;
+    }
+
+    public void onBlockPopped(@Observes @BlockEvent(BlockEventType.BLOCK_POPPED) Block block) {
+        chains.onBlockPopped();
+    }
+
+    public void onRescanBegan(@Observes @BlockEvent(BlockEventType.RESCAN_BEGIN) Block block) {
+        chains.clear();
+    }
+
+    /**
+     * All blocks were deleted from blockchain
+     */
+    public void onBlocksDeleted() {
+        chains.clear();
     }
 
     public List<Transaction> getReferencingTransactions(long transactionId, int from, Integer limit) {
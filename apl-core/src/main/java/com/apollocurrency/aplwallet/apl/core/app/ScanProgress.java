@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+/**
+ * Progress of the blockchain scan interrupted by shutdown or crash.
+ * <p>
+ * Scan commits derived tables of every applied block together with the height and id of that block, so derived tables
+ * contain all blocks up to the last applied one and scan continues from the next block, as long as the applied block is
+ * still in the blockchain. When the last block of the blockchain was applied, only the end of the scan is left.
+ */
+final class ScanProgress {
+
+    private ScanProgress() {}
+
+    /**
+     * @param height height of the scheduled scan
+     * @param appliedHeight height of the last block applied by the interrupted scan, negative when no block was applied
+     * @param appliedBlockHeight height of the blockchain block with id of the last applied block, negative when not found
+     * @param chainHeight current blockchain height
+     * @return height of the first block to apply, 'chainHeight + 1' when all blocks were applied and scan only has to be
+     * finished, or -1 when scan should start again from the scheduled height
+     */
+    static int getResumeHeight(int height, int appliedHeight, int appliedBlockHeight, int chainHeight) {
+        if (appliedHeight < 0 || appliedHeight < height || appliedHeight > chainHeight || appliedBlockHeight != appliedHeight) {
+            return -1;
+        }
+        return appliedHeight + 1;
+    }
+}
@@ -182,6 +182,11 @@ public final class Shuffling {
 
     private static final VersionedEntityDbTable<Shuffling> shufflingTable = new VersionedEntityDbTable<Shuffling>("shuffling", shufflingDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected Shuffling load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new Shuffling(rs, dbKey);
@@ -27,6 +27,7 @@ import com.apollocurrency.aplwallet.apl.core.monetary.Currency;
 import com.apollocurrency.aplwallet.apl.core.monetary.CurrencyType;
 import com.apollocurrency.aplwallet.apl.core.monetary.HoldingType;
 import com.apollocurrency.aplwallet.apl.core.monetary.MonetarySystem;
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.AbstractAttachment;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.ShufflingCancellationAttachment;
@@ -44,7 +45,6 @@ import org.json.simple.JSONObject;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 public abstract class ShufflingTransaction extends TransactionType {
@@ -202,7 +202,7 @@ public abstract class ShufflingTransaction extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             ShufflingCreation attachment = (ShufflingCreation) transaction.getAttachment();
             if (attachment.getHoldingType() != HoldingType.CURRENCY) {
                 return false;
@@ -270,13 +270,13 @@ public abstract class ShufflingTransaction extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             ShufflingRegistration attachment = (ShufflingRegistration) transaction.getAttachment();
             Shuffling shuffling = Shuffling.getShuffling(attachment.getShufflingId());
             return TransactionType.isDuplicate(SHUFFLING_REGISTRATION,
-                    Long.toUnsignedString(shuffling.getId()) + "." + Long.toUnsignedString(transaction.getSenderId()), duplicates, true)
+                    shuffling.getId(), transaction.getSenderId(), duplicates, true)
                     || TransactionType.isDuplicate(SHUFFLING_REGISTRATION,
-                    Long.toUnsignedString(shuffling.getId()), duplicates, shuffling.getParticipantCount() - shuffling.getRegistrantCount());
+                    shuffling.getId(), duplicates, shuffling.getParticipantCount() - shuffling.getRegistrantCount());
         }
 
         @Override
@@ -409,10 +409,10 @@ public abstract class ShufflingTransaction extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             ShufflingProcessingAttachment attachment = (ShufflingProcessingAttachment) transaction.getAttachment();
             Shuffling shuffling = Shuffling.getShuffling(attachment.getShufflingId());
-            return TransactionType.isDuplicate(SHUFFLING_PROCESSING, Long.toUnsignedString(shuffling.getId()), duplicates, true);
+            return TransactionType.isDuplicate(SHUFFLING_PROCESSING, shuffling.getId(), duplicates, true);
         }
 
         @Override
@@ -524,10 +524,10 @@ public abstract class ShufflingTransaction extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             ShufflingRecipientsAttachment attachment = (ShufflingRecipientsAttachment) transaction.getAttachment();
             Shuffling shuffling = Shuffling.getShuffling(attachment.getShufflingId());
-            return TransactionType.isDuplicate(SHUFFLING_PROCESSING, Long.toUnsignedString(shuffling.getId()), duplicates, true);
+            return TransactionType.isDuplicate(SHUFFLING_PROCESSING, shuffling.getId(), duplicates, true);
         }
 
         @Override
@@ -608,11 +608,11 @@ public abstract class ShufflingTransaction extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             ShufflingVerificationAttachment attachment = (ShufflingVerificationAttachment) transaction.getAttachment();
             Shuffling shuffling = Shuffling.getShuffling(attachment.getShufflingId());
             return TransactionType.isDuplicate(SHUFFLING_VERIFICATION,
-                    Long.toUnsignedString(shuffling.getId()) + "." + Long.toUnsignedString(transaction.getSenderId()), duplicates, true);
+                    shuffling.getId(), transaction.getSenderId(), duplicates, true);
         }
 
         @Override
@@ -722,11 +722,11 @@ public abstract class ShufflingTransaction extends TransactionType {
         }
 
         @Override
-       public  boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+       public  boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             ShufflingCancellationAttachment attachment = (ShufflingCancellationAttachment) transaction.getAttachment();
             Shuffling shuffling = Shuffling.getShuffling(attachment.getShufflingId());
             return TransactionType.isDuplicate(SHUFFLING_VERIFICATION, // use VERIFICATION for unique type
-                    Long.toUnsignedString(shuffling.getId()) + "." + Long.toUnsignedString(transaction.getSenderId()), duplicates, true);
+                    shuffling.getId(), transaction.getSenderId(), duplicates, true);
         }
 
         @Override
@@ -68,6 +68,11 @@ public final class Trade {
 
     private static final EntityDbTable<Trade> tradeTable = new EntityDbTable<Trade>("trade", tradeDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected Trade load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new Trade(rs, dbKey);
@@ -20,6 +20,7 @@
 
 package com.apollocurrency.aplwallet.apl.core.app;
 
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.AbstractAppendix;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.AbstractAttachment;
@@ -38,7 +39,6 @@ import com.apollocurrency.aplwallet.apl.util.Filter;
 import org.json.simple.JSONObject;
 
 import java.util.List;
-import java.util.Map;
 
 public interface Transaction {
 
@@ -194,7 +194,7 @@ public interface Transaction {
 
     long getECBlockId();
 
-    default boolean attachmentIsDuplicate(Map<TransactionType, Map<String, Integer>> duplicates, boolean atAcceptanceHeight) {
+    default boolean attachmentIsDuplicate(TransactionDuplicates duplicates, boolean atAcceptanceHeight) {
         return false;
     }
 }
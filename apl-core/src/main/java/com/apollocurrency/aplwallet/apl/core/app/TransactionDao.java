@@ -40,6 +40,21 @@ public interface TransactionDao {
 
     void saveTransactions(Connection con, List<Transaction> transactions);
 
+    /**
+     * Delete account transaction index entries of transactions from height, entries are not deleted with
+     * transactions, so they are kept for transactions moved to shards
+     * @param con connection
+     * @param height height of the first deleted block
+     */
+    void deleteAccountTransactions(Connection con, int height);
+
+    /**
+     * Add account transaction index entries of transactions which were moved to shards before the index was created.
+     * Entries of every full shard are merged in one db transaction per shard, so interrupted indexing is repeated
+     * on next start, and completion is kept in option table.
+     */
+    void indexShardAccountTransactions();
+
     int getTransactionCount();
 
     List<Transaction> loadTransactionList(Connection conn, PreparedStatement pstmt) throws SQLException, AplException.NotValidException;
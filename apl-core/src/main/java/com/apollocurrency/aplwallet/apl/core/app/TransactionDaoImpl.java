@@ -21,11 +21,16 @@
 package com.apollocurrency.aplwallet.apl.core.app;
 
 import com.apollocurrency.aplwallet.apl.core.db.BlockDao;
+import com.apollocurrency.aplwallet.apl.core.db.DataSourceLease;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
 import com.apollocurrency.aplwallet.apl.core.db.cdi.Transactional;
 import com.apollocurrency.aplwallet.apl.core.db.dao.BlockIndexDao;
-import com.apollocurrency.aplwallet.apl.core.db.dao.TransactionIndexDao;
+import com.apollocurrency.aplwallet.apl.core.db.model.OptionDAO;
+import com.apollocurrency.aplwallet.apl.core.shard.MigrateState;
 import com.apollocurrency.aplwallet.apl.core.shard.ShardManagement;
+import com.apollocurrency.aplwallet.apl.core.shard.ShardQueryExecutor;
+import com.apollocurrency.aplwallet.apl.core.shard.TransactionShardIndex;
+import com.apollocurrency.aplwallet.apl.core.shard.observer.events.ShardChangeStateEvent;
 import com.apollocurrency.aplwallet.apl.core.rest.service.PhasingAppendixFactory;
 import com.apollocurrency.aplwallet.apl.core.transaction.Payment;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
@@ -44,7 +49,10 @@ import com.apollocurrency.aplwallet.apl.core.db.DbUtils;
 import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
 import com.apollocurrency.aplwallet.apl.util.AplException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.CDI;
 import javax.inject.Inject;
 import java.nio.ByteBuffer;
@@ -62,24 +70,24 @@ import javax.inject.Singleton;
 
 @Singleton
 public class TransactionDaoImpl implements TransactionDao {
+    private static final Logger log = LoggerFactory.getLogger(TransactionDaoImpl.class);
+    private static final byte DIRECTION_SENT = 0;
+    private static final byte DIRECTION_RECEIVED = 1;
+    private static final String SHARDS_INDEXED_OPTION = "accountTransactionShardsIndexed";
+    private static final int INDEX_BATCH_SIZE = 1000;
 
     private final DatabaseManager databaseManager;
     private final BlockDao blockDao;
-    private TransactionIndexDao transactionIndexDao;
     private BlockIndexDao blockIndexDao;
+    private volatile TransactionShardIndex transactionShardIndex;
+    private final AccountTransactionCounts accountTransactionCounts;
 
     @Inject
     public TransactionDaoImpl(BlockDao blockDao, DatabaseManager databaseManager) {
         Objects.requireNonNull(blockDao);
         this.blockDao = blockDao;
         this.databaseManager = databaseManager;
-    }
-
-    private TransactionIndexDao lookupTransactionIndexDao() {
-        if (transactionIndexDao == null) {
-            this.transactionIndexDao = CDI.current().select(TransactionIndexDao.class).get();
-        }
-        return transactionIndexDao;
+        this.accountTransactionCounts = new AccountTransactionCounts(databaseManager);
     }
 
     private BlockIndexDao lookupBlockIndexDao() {
@@ -106,8 +114,8 @@ public class TransactionDaoImpl implements TransactionDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithSharding(transactionId);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithSharding(transactionId);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM transaction WHERE id = ?")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -123,17 +131,47 @@ public class TransactionDaoImpl implements TransactionDao {
         }
     }
 
-    private TransactionalDataSource getDataSourceWithSharding(long transactionId) {
-        TransactionalDataSource dataSource;
-        Long shardId = lookupTransactionIndexDao().getShardIdByTransactionId(transactionId);
+    private DataSourceLease leaseDataSourceWithSharding(long transactionId) {
+        DataSourceLease lease;
+        Long shardId = getTransactionShardIndex().getShardId(transactionId);
         if (shardId != null) {
             // shard data source
-            dataSource = ((ShardManagement)databaseManager).getOrCreateShardDataSourceById(shardId);
+            lease = ((ShardManagement)databaseManager).leaseShardDataSource(shardId);
         } else {
             // default data source
-            dataSource = databaseManager.getDataSource();
+            lease = DataSourceLease.of(databaseManager.getDataSource());
         }
-        return dataSource;
+        return lease;
+    }
+
+    private ShardQueryExecutor lookupShardQueryExecutor() {
+        return ((ShardManagement) databaseManager).getShardQueryExecutor();
+    }
+
+    private TransactionShardIndex getTransactionShardIndex() {
+        TransactionShardIndex index = transactionShardIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = transactionShardIndex;
+                if (index == null) {
+                    try (Connection con = databaseManager.getDataSource().getConnection()) {
+                        index = TransactionShardIndex.load(con);
+                    } catch (SQLException e) {
+                        throw new RuntimeException(e.toString(), e);
+                    }
+                    transactionShardIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Drop in-memory transaction shard index when sharding has updated transaction_shard_index,
+     * index will be reloaded on next lookup
+     */
+    public void onSecondaryIndexUpdated(@Observes @ShardChangeStateEvent(MigrateState.SECONDARY_INDEX_UPDATED) MigrateState state) {
+        transactionShardIndex = null;
     }
 
     @Override
@@ -155,8 +193,8 @@ public class TransactionDaoImpl implements TransactionDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithSharding(transactionId);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithSharding(transactionId);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM transaction WHERE id = ?")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -190,8 +228,8 @@ public class TransactionDaoImpl implements TransactionDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithSharding(transactionId);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithSharding(transactionId);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT height FROM transaction WHERE id = ?")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -221,8 +259,8 @@ public class TransactionDaoImpl implements TransactionDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithSharding(transactionId);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithSharding(transactionId);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT full_hash, height FROM transaction WHERE id = ?")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -244,8 +282,8 @@ public class TransactionDaoImpl implements TransactionDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithSharding(transactionId);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithSharding(transactionId);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT full_hash FROM transaction WHERE id = ?")) {
             pstmt.setLong(1, transactionId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -336,17 +374,17 @@ public class TransactionDaoImpl implements TransactionDao {
         }
     }
 
-    private TransactionalDataSource getDataSourceWithShardingByBlockId(long blockId) {
-        TransactionalDataSource dataSource;
+    private DataSourceLease leaseDataSourceWithShardingByBlockId(long blockId) {
+        DataSourceLease lease;
         Long shardId = lookupBlockIndexDao().getShardIdByBlockId(blockId);
         if (shardId != null) {
             // shard data source
-            dataSource = ((ShardManagement)databaseManager).getOrCreateShardDataSourceById(shardId);
+            lease = ((ShardManagement)databaseManager).leaseShardDataSource(shardId);
         } else {
             // default data source
-            dataSource = databaseManager.getDataSource();
+            lease = DataSourceLease.of(databaseManager.getDataSource());
         }
-        return dataSource;
+        return lease;
     }
 
     @Override
@@ -360,8 +398,8 @@ public class TransactionDaoImpl implements TransactionDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithShardingByBlockId(blockId);
-        try (Connection con = dataSource.getConnection()) {
+        try (DataSourceLease lease = leaseDataSourceWithShardingByBlockId(blockId);
+             Connection con = lease.getDataSource().getConnection()) {
             return findBlockTransactions(con, blockId);
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
@@ -419,9 +457,14 @@ public class TransactionDaoImpl implements TransactionDao {
 
     @Override
     public void saveTransactions(Connection con, List<Transaction> transactions) {
-        try {
+        try (PreparedStatement pstmtAccount = con.prepareStatement("INSERT INTO account_transaction (account_id, height, "
+                + "transaction_index, transaction_id, direction, type, subtype) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
             short index = 0;
             for (Transaction transaction : transactions) {
+                saveAccountTransaction(pstmtAccount, transaction.getSenderId(), transaction, index, DIRECTION_SENT);
+                if (transaction.getRecipientId() != 0 && transaction.getRecipientId() != transaction.getSenderId()) {
+                    saveAccountTransaction(pstmtAccount, transaction.getRecipientId(), transaction, index, DIRECTION_RECEIVED);
+                }
                 try (PreparedStatement pstmt = con.prepareStatement("INSERT INTO transaction (id, deadline, "
                         + "recipient_id, amount, fee, referenced_transaction_full_hash, height, "
                         + "block_id, signature, timestamp, type, subtype, sender_id, attachment_bytes, "
@@ -479,6 +522,93 @@ public class TransactionDaoImpl implements TransactionDao {
         }
     }
 
+    private void saveAccountTransaction(PreparedStatement pstmt, long accountId, Transaction transaction, short index,
+                                        byte direction) throws SQLException {
+        int i = 0;
+        pstmt.setLong(++i, accountId);
+        pstmt.setInt(++i, transaction.getHeight());
+        pstmt.setShort(++i, index);
+        pstmt.setLong(++i, transaction.getId());
+        pstmt.setByte(++i, direction);
+        pstmt.setByte(++i, transaction.getType().getType());
+        pstmt.setByte(++i, transaction.getType().getSubtype());
+        pstmt.executeUpdate();
+        accountTransactionCounts.onChanged(accountId);
+    }
+
+    @Override
+    public void deleteAccountTransactions(Connection con, int height) {
+        try (PreparedStatement pstmt = con.prepareStatement("DELETE FROM account_transaction WHERE height >= ?")) {
+            pstmt.setInt(1, height);
+            pstmt.executeUpdate();
+            accountTransactionCounts.onDeleted();
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    @Override
+    public void indexShardAccountTransactions() {
+        OptionDAO optionDAO = new OptionDAO(databaseManager);
+        if (optionDAO.get(SHARDS_INDEXED_OPTION) != null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        ShardManagement shardManagement = (ShardManagement) databaseManager;
+        TransactionalDataSource dataSource = databaseManager.getDataSource();
+        for (Long shardId : shardManagement.getFullShardIds()) {
+            int count = 0;
+            try (DataSourceLease lease = shardManagement.leaseShardDataSource(shardId);
+                 Connection shardCon = lease.getDataSource().getConnection();
+                 PreparedStatement pstmt = shardCon.prepareStatement("SELECT id, sender_id, recipient_id, height, "
+                         + "transaction_index, type, subtype FROM transaction");
+                 ResultSet rs = pstmt.executeQuery()) {
+                dataSource.begin();
+                try (Connection con = dataSource.getConnection();
+                     PreparedStatement pstmtAccount = con.prepareStatement("MERGE INTO account_transaction (account_id, "
+                             + "height, transaction_index, transaction_id, direction, type, subtype) "
+                             + "KEY (account_id, height, transaction_index) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                    while (rs.next()) {
+                        long senderId = rs.getLong("sender_id");
+                        long recipientId = rs.getLong("recipient_id");
+                        boolean hasRecipient = !rs.wasNull();
+                        addAccountTransaction(pstmtAccount, senderId, rs, DIRECTION_SENT);
+                        if (hasRecipient && recipientId != senderId) {
+                            addAccountTransaction(pstmtAccount, recipientId, rs, DIRECTION_RECEIVED);
+                        }
+                        if (++count % INDEX_BATCH_SIZE == 0) {
+                            pstmtAccount.executeBatch();
+                        }
+                    }
+                    pstmtAccount.executeBatch();
+                    dataSource.commit();
+                } catch (SQLException | RuntimeException e) {
+                    dataSource.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                throw new RuntimeException(e.toString(), e);
+            }
+            log.info("Indexed {} account transactions of shard {}", count, shardId);
+        }
+        accountTransactionCounts.onDeleted();
+        optionDAO.set(SHARDS_INDEXED_OPTION, "true");
+        log.info("Account transactions of shards indexed in {} ms", System.currentTimeMillis() - start);
+    }
+
+    private static void addAccountTransaction(PreparedStatement pstmt, long accountId, ResultSet rs, byte direction)
+            throws SQLException {
+        int i = 0;
+        pstmt.setLong(++i, accountId);
+        pstmt.setInt(++i, rs.getInt("height"));
+        pstmt.setShort(++i, rs.getShort("transaction_index"));
+        pstmt.setLong(++i, rs.getLong("id"));
+        pstmt.setByte(++i, direction);
+        pstmt.setByte(++i, rs.getByte("type"));
+        pstmt.setByte(++i, rs.getByte("subtype"));
+        pstmt.addBatch();
+    }
+
     @Override
     public int getTransactionCount() {
         TransactionalDataSource dataSource = databaseManager.getDataSource();
@@ -590,12 +720,9 @@ public class TransactionDaoImpl implements TransactionDao {
         }
 
         buf.append("ORDER BY block_timestamp DESC, transaction_index DESC");
-        buf.append(DbUtils.limitsClause(from, to));
-        Connection con = null;
-        TransactionalDataSource dataSource = databaseManager.getDataSource();
-        try {
-            con = dataSource.getConnection();
-            PreparedStatement pstmt = con.prepareStatement(buf.toString());
+        String sql = buf.toString();
+        ShardQueryExecutor.StatementFactory statementFactory = (con, fromIndex, toIndex) -> {
+            PreparedStatement pstmt = con.prepareStatement(sql + DbUtils.limitsClause(fromIndex, toIndex));
             int i = 0;
             pstmt.setLong(++i, accountId);
             pstmt.setLong(++i, accountId);
@@ -638,13 +765,21 @@ public class TransactionDaoImpl implements TransactionDao {
             if (withMessage) {
                 pstmt.setInt(++i, prunableExpiration);
             }
-            DbUtils.setLimits(++i, pstmt, from, to);
-            return getTransactions(con, pstmt);
-        }
-        catch (SQLException e) {
-            DbUtils.close(con);
-            throw new RuntimeException(e.toString(), e);
+            DbUtils.setLimits(++i, pstmt, fromIndex, toIndex);
+            return pstmt;
+        };
+        if (executedOnly && !nonPhasedOnly) {
+            // phasing_poll_result is kept in main db only
+            Connection con = null;
+            try {
+                con = databaseManager.getDataSource().getConnection();
+                return getTransactions(con, statementFactory.prepare(con, from, to));
+            } catch (SQLException e) {
+                DbUtils.close(con);
+                throw new RuntimeException(e.toString(), e);
+            }
         }
+        return lookupShardQueryExecutor().query(statementFactory, this::loadTransaction, from, to);
     }
 
     @Override
@@ -657,12 +792,9 @@ public class TransactionDaoImpl implements TransactionDao {
             }
         }
         sqlQuery.append("ORDER BY block_timestamp DESC, transaction_index DESC ");
-        sqlQuery.append(DbUtils.limitsClause(from, to));
-        Connection con = null;
-        TransactionalDataSource dataSource = databaseManager.getDataSource();
-        try {
-            con = dataSource.getConnection();
-            PreparedStatement statement = con.prepareStatement(sqlQuery.toString());
+        String sql = sqlQuery.toString();
+        return lookupShardQueryExecutor().query((con, fromIndex, toIndex) -> {
+            PreparedStatement statement = con.prepareStatement(sql + DbUtils.limitsClause(fromIndex, toIndex));
             int i = 0;
             statement.setByte(++i, Payment.PRIVATE.getType());
             statement.setByte(++i, Payment.PRIVATE.getSubtype());
@@ -672,13 +804,9 @@ public class TransactionDaoImpl implements TransactionDao {
                     statement.setByte(++i, subtype);
                 }
             }
-            DbUtils.setLimits(++i, statement, from, to);
-            return getTransactions(con, statement);
-        }
-        catch (SQLException e) {
-            DbUtils.close(con);
-            throw new RuntimeException(e.toString(), e);
-        }
+            DbUtils.setLimits(++i, statement, fromIndex, toIndex);
+            return statement;
+        }, this::loadTransaction, from, to);
     }
 
     @Override
@@ -698,7 +826,12 @@ public class TransactionDaoImpl implements TransactionDao {
 
     @Override
     public int getTransactionCount(long accountId, byte type, byte subtype) {
-        StringBuilder sqlQuery = new StringBuilder("SELECT COUNT(*) FROM transaction WHERE (type <> ? OR subtype <> ?) AND (sender_id = ? OR recipient_id = ?) ");
+        Integer count = accountTransactionCounts.get(accountId, type, subtype);
+        if (count != null) {
+            return count;
+        }
+        long version = accountTransactionCounts.getVersion();
+        StringBuilder sqlQuery = new StringBuilder("SELECT COUNT(*) FROM account_transaction WHERE account_id = ? AND (type <> ? OR subtype <> ?) ");
         if (type >= 0) {
             sqlQuery.append("AND type = ? ");
             if (subtype >= 0) {
@@ -709,10 +842,9 @@ public class TransactionDaoImpl implements TransactionDao {
         try (Connection con = dataSource.getConnection();
              PreparedStatement statement = con.prepareStatement(sqlQuery.toString())) {
             int i = 0;
+            statement.setLong(++i, accountId);
             statement.setByte(++i, Payment.PRIVATE.getType());
             statement.setByte(++i, Payment.PRIVATE.getSubtype());
-            statement.setLong(++i, accountId);
-            statement.setLong(++i, accountId);
             if (type >= 0) {
                 statement.setByte(++i, type);
                 if (subtype >= 0) {
@@ -721,12 +853,17 @@ public class TransactionDaoImpl implements TransactionDao {
             }
             try (ResultSet rs = statement.executeQuery()) {
                 rs.next();
-                return rs.getInt(1);
+                count = rs.getInt(1);
             }
         }
         catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
+        // count selected inside of db transaction may include its uncommitted changes
+        if (!dataSource.isInTransaction()) {
+            accountTransactionCounts.put(version, accountId, type, subtype, count);
+        }
+        return count;
     }
 
     @Override
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import org.slf4j.Logger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * Bloom filter of ids of all blockchain transactions, both stored in the main db and indexed for shards.
+ * <p>
+ * Filter never misses transaction, so db is queried only when filter reports that transaction may exist. Ids are
+ * added when block is saved, even before commit, and never removed, because popped off transactions only increase
+ * false positive rate. Filter is loaded from db by the first query. When number of added ids exceeds capacity, the next
+ * accepted block, after which no ids can be uncommitted, drops the filter and it is loaded again with doubled capacity.
+ * Transaction ids are already uniformly distributed hashes, so bit positions are derived from id halves without
+ * additional hashing.
+ */
+class TransactionIdFilter {
+    private static final Logger log = getLogger(TransactionIdFilter.class);
+    private static final int MIN_CAPACITY = 1 << 20;
+    private static final int BITS_PER_ID = 10;
+    private static final int HASH_FUNCTIONS = 7;
+
+    private final Supplier<TransactionalDataSource> dataSourceSupplier;
+    private long[] bits;
+    private int capacity;
+    private int size;
+    private boolean loaded;
+
+    TransactionIdFilter(Supplier<TransactionalDataSource> dataSourceSupplier) {
+        this.dataSourceSupplier = dataSourceSupplier;
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * @param transactionId transaction id
+     * @return false when transaction is not in blockchain, true when it may be there
+     */
+    synchronized boolean mightContain(long transactionId) {
+        if (!loaded) {
+            load();
+        }
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = bit(transactionId, i);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    synchronized void add(long transactionId) {
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = bit(transactionId, i);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+    }
+
+    /**
+     * Drop overfilled filter, should be called when no block is being saved
+     */
+    synchronized void resizeIfNeeded() {
+        if (size > capacity) {
+            allocate(capacity * 2);
+        }
+    }
+
+    private long bit(long transactionId, int i) {
+        int h1 = (int) transactionId;
+        int h2 = (int) (transactionId >>> 32);
+        return Math.floorMod(h1 + (long) i * h2, (long) bits.length * Long.SIZE);
+    }
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        try (Connection con = dataSourceSupplier.get().getConnection()) {
+            int count = count(con, "SELECT COUNT(*) FROM transaction") + count(con, "SELECT COUNT(*) FROM transaction_shard_index");
+            // ids added before loading may be not committed yet, so they cannot be dropped
+            if (count > capacity && size == 0) {
+                allocate(Math.max(count * 2, capacity * 2));
+            }
+            addIds(con, "SELECT id FROM transaction");
+            addIds(con, "SELECT transaction_id FROM transaction_shard_index");
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        loaded = true;
+        log.debug("Transaction id filter loaded for {} transactions in {} ms", size, System.currentTimeMillis() - start);
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.bits = new long[(int) (((long) capacity * BITS_PER_ID + Long.SIZE - 1) / Long.SIZE)];
+        this.size = 0;
+        this.loaded = false;
+    }
+
+    private void addIds(Connection con, String sql) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                add(rs.getLong(1));
+            }
+        }
+    }
+
+    private static int count(Connection con, String sql) throws SQLException {
+        try (PreparedStatement pstmt = con.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
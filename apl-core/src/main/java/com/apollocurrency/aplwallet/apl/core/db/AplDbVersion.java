@@ -733,8 +733,41 @@ public class AplDbVersion extends DbVersion {
                 apply("CREATE TABLE IF NOT EXISTS dex_offer (db_id IDENTITY NOT NULL, transaction_id BIGINT NOT NULL, type TINYINT NOT NULL, " +
                         "account_id BIGINT NOT NULL, offer_currency TINYINT NOT NULL, offer_amount BIGINT NOT NULL, pair_currency TINYINT NOT NULL, " +
                         "pair_rate DECIMAL NOT NULL, finish_time INT NOT NULL, status TINYINT NOT NULL, height INT NOT NULL, latest BOOLEAN NOT NULL DEFAULT TRUE)");
-            case 271 :
-                return 271;
+            case 271:
+                apply("CREATE TABLE IF NOT EXISTS derived_table_count (table_name VARCHAR NOT NULL, holding_id BIGINT NOT NULL, "
+                        + "row_count BIGINT NOT NULL)");
+            case 272:
+                apply("CREATE UNIQUE INDEX IF NOT EXISTS derived_table_count_table_name_holding_id_idx ON derived_table_count (table_name, holding_id)");
+            case 273:
+                apply("ALTER TABLE scan ADD COLUMN IF NOT EXISTS applied_height INT NOT NULL DEFAULT -1");
+            case 274:
+                apply("ALTER TABLE scan ADD COLUMN IF NOT EXISTS applied_block_id BIGINT NOT NULL DEFAULT 0");
+            case 275:
+                apply("CREATE TABLE IF NOT EXISTS account_transaction (account_id BIGINT NOT NULL, height INT NOT NULL, "
+                        + "transaction_index SMALLINT NOT NULL, transaction_id BIGINT NOT NULL, direction TINYINT NOT NULL, "
+                        + "type TINYINT NOT NULL, subtype TINYINT NOT NULL)");
+            case 276:
+                apply("CREATE UNIQUE INDEX IF NOT EXISTS account_transaction_account_id_height_idx ON account_transaction "
+                        + "(account_id, height DESC, transaction_index DESC)");
+            case 277:
+                apply("CREATE INDEX IF NOT EXISTS account_transaction_height_idx ON account_transaction (height)");
+            case 278:
+                apply("INSERT INTO account_transaction (account_id, height, transaction_index, transaction_id, direction, type, subtype) "
+                        + "SELECT sender_id, height, transaction_index, id, 0, type, subtype FROM transaction");
+            case 279:
+                apply("INSERT INTO account_transaction (account_id, height, transaction_index, transaction_id, direction, type, subtype) "
+                        + "SELECT recipient_id, height, transaction_index, id, 1, type, subtype FROM transaction "
+                        + "WHERE recipient_id IS NOT NULL AND recipient_id <> sender_id");
+            case 280:
+                apply("CREATE TABLE IF NOT EXISTS account_balance_history (account_id BIGINT NOT NULL, height INT NOT NULL, "
+                        + "balance BIGINT NOT NULL, forged_balance BIGINT NOT NULL)");
+            case 281:
+                apply("CREATE UNIQUE INDEX IF NOT EXISTS account_balance_history_account_id_height_idx ON account_balance_history "
+                        + "(account_id, height DESC)");
+            case 282:
+                apply("CREATE INDEX IF NOT EXISTS account_balance_history_height_idx ON account_balance_history (height)");
+            case 283:
+                return 283;
             default:
                 throw new RuntimeException("Blockchain database inconsistent with code, at update " + nextUpdate
                         + ", probably trying to run older code on newer database");
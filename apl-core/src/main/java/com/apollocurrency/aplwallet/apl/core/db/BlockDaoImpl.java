@@ -51,6 +51,7 @@ import javax.inject.Singleton;
 import com.apollocurrency.aplwallet.apl.core.db.cdi.Transactional;
 import com.apollocurrency.aplwallet.apl.core.db.dao.BlockIndexDao;
 import com.apollocurrency.aplwallet.apl.core.shard.ShardManagement;
+import com.apollocurrency.aplwallet.apl.core.shard.ShardQueryExecutor;
 import org.slf4j.Logger;
 
 @Singleton
@@ -64,6 +65,7 @@ public class BlockDaoImpl implements BlockDao {
     private final Map<Long, Block> blockCache;
     private final SortedMap<Integer, Block> heightMap;
     private final Map<Long, Transaction> transactionCache;
+    private final BlockIdIndex blockIdIndex = new BlockIdIndex();
     private final DerivedTablesRegistry tablesRegistry;
     private DatabaseManager databaseManager;
     private TransactionDao transactionDao;
@@ -99,6 +101,10 @@ public class BlockDaoImpl implements BlockDao {
         return blockIndexDao;
     }
 
+    private ShardQueryExecutor lookupShardQueryExecutor() {
+        return ((ShardManagement) databaseManager).getShardQueryExecutor();
+    }
+
     private void clearBlockCache() {
         synchronized (blockCache) {
             blockCache.clear();
@@ -118,8 +124,8 @@ public class BlockDaoImpl implements BlockDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithSharding(blockId);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithSharding(blockId);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM block WHERE id = ?")) {
             pstmt.setLong(1, blockId);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -134,32 +140,32 @@ public class BlockDaoImpl implements BlockDao {
         }
     }
 
-    private TransactionalDataSource getDataSourceWithSharding(long blockId) {
+    private DataSourceLease leaseDataSourceWithSharding(long blockId) {
 //        databaseManager.getDataSource();
-        TransactionalDataSource dataSource;
+        DataSourceLease lease;
         Long shardId = lookupBlockIndexDao().getShardIdByBlockId(blockId);
         if (shardId != null) {
             // shard data source
-            dataSource = ((ShardManagement)databaseManager).getOrCreateShardDataSourceById(shardId);
+            lease = ((ShardManagement)databaseManager).leaseShardDataSource(shardId);
         } else {
             // default data source
-            dataSource = databaseManager.getDataSource();
+            lease = DataSourceLease.of(databaseManager.getDataSource());
         }
-        return dataSource;
+        return lease;
     }
 
-    private TransactionalDataSource getDataSourceWithShardingByHeight(int blockHeight) {
+    private DataSourceLease leaseDataSourceWithShardingByHeight(int blockHeight) {
 //        databaseManager.getDataSource();
-        TransactionalDataSource dataSource;
+        DataSourceLease lease;
         Long shardId = lookupBlockIndexDao().getShardIdByBlockHeight(blockHeight);
         if (shardId != null) {
             // shard data source
-            dataSource = ((ShardManagement)databaseManager).getOrCreateShardDataSourceById(shardId);
+            lease = ((ShardManagement)databaseManager).leaseShardDataSource(shardId);
         } else {
             // default data source
-            dataSource = databaseManager.getDataSource();
+            lease = DataSourceLease.of(databaseManager.getDataSource());
         }
-        return dataSource;
+        return lease;
     }
 
     @Transactional(readOnly = true)
@@ -179,8 +185,8 @@ public class BlockDaoImpl implements BlockDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithSharding(blockId);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithSharding(blockId);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement(
                      "SELECT height FROM block WHERE id = ? AND (next_block_id <> 0 OR next_block_id IS NULL)")) {
             pstmt.setLong(1, blockId);
@@ -195,6 +201,22 @@ public class BlockDaoImpl implements BlockDao {
     @Transactional(readOnly = true)
     @Override
     public long findBlockIdAtHeight(int height) {
+        long blockId = getBlockIdAtHeight(height);
+        if (blockId == 0) {
+            throw new RuntimeException("Block at height " + height + " not found in database!");
+        }
+        return blockId;
+    }
+
+    /**
+     * @return block id at height or 0 when block is not found
+     */
+    private long getBlockIdAtHeight(int height) {
+        // Check the index
+        long blockId = blockIdIndex.get(height);
+        if (blockId != 0) {
+            return blockId;
+        }
         // Check the cache
         synchronized(blockCache) {
             Block block = heightMap.get(height);
@@ -203,19 +225,33 @@ public class BlockDaoImpl implements BlockDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithShardingByHeight(height);
-        try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("SELECT id FROM block WHERE height = ?")) {
-            pstmt.setInt(1, height);
+        return height < 0 ? 0 : loadBlockIdPage(height);
+    }
+
+    /**
+     * Read ids of the index page which contains height from db which contains height
+     * @return block id at height or 0 when block is not found
+     */
+    private long loadBlockIdPage(int height) {
+        long version = blockIdIndex.getVersion();
+        int pageIndex = height / BlockIdIndex.PAGE_SIZE;
+        int fromHeight = pageIndex * BlockIdIndex.PAGE_SIZE;
+        long[] pageIds = new long[BlockIdIndex.PAGE_SIZE];
+        try (DataSourceLease lease = leaseDataSourceWithShardingByHeight(height);
+             Connection con = lease.getDataSource().getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT id, height FROM block WHERE height >= ? AND height < ?")) {
+            pstmt.setInt(1, fromHeight);
+            pstmt.setInt(2, fromHeight + BlockIdIndex.PAGE_SIZE);
             try (ResultSet rs = pstmt.executeQuery()) {
-                if (!rs.next()) {
-                    throw new RuntimeException("Block at height " + height + " not found in database!");
+                while (rs.next()) {
+                    pageIds[rs.getInt("height") - fromHeight] = rs.getLong("id");
                 }
-                return rs.getLong("id");
             }
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
+        blockIdIndex.putPage(version, pageIndex, pageIds);
+        return pageIds[height - fromHeight];
     }
 
     @Override
@@ -239,8 +275,8 @@ public class BlockDaoImpl implements BlockDao {
             }
         }
         // Search the database
-        TransactionalDataSource dataSource = getDataSourceWithShardingByHeight(height);
-        try (Connection con = dataSource.getConnection();
+        try (DataSourceLease lease = leaseDataSourceWithShardingByHeight(height);
+             Connection con = lease.getDataSource().getConnection();
              PreparedStatement pstmt = con.prepareStatement("SELECT * FROM block WHERE height = ?")) {
             pstmt.setInt(1, height);
             try (ResultSet rs = pstmt.executeQuery()) {
@@ -328,40 +364,29 @@ public class BlockDaoImpl implements BlockDao {
 
     @Override
     public DbIterator<Block> getBlocks(long accountId, int timestamp, int from, int to) {
-        Connection con = null;
-        TransactionalDataSource dataSource = databaseManager.getDataSource();
-        try {
-            con = dataSource.getConnection();
+        return lookupShardQueryExecutor().query((con, fromIndex, toIndex) -> {
             PreparedStatement pstmt = con.prepareStatement("SELECT * FROM block WHERE generator_id = ? "
                     + (timestamp > 0 ? " AND timestamp >= ? " : " ") + "ORDER BY height DESC"
-                    + DbUtils.limitsClause(from, to));
+                    + DbUtils.limitsClause(fromIndex, toIndex));
             int i = 0;
             pstmt.setLong(++i, accountId);
             if (timestamp > 0) {
                 pstmt.setInt(++i, timestamp);
             }
-            DbUtils.setLimits(++i, pstmt, from, to);
-            return getBlocks(con, pstmt);
-        } catch (SQLException e) {
-            DbUtils.close(con);
-            throw new RuntimeException(e.toString(), e);
-        }
+            DbUtils.setLimits(++i, pstmt, fromIndex, toIndex);
+            return pstmt;
+        }, this::loadBlock, from, to);
     }
 
     @Override
     public DbIterator<Block> getBlocks(int from, int to) {
-        Connection con = null;
-        TransactionalDataSource dataSource = databaseManager.getDataSource(); // TODO: YL implement partial fetch from main + shard db
-        try {
-            con = dataSource.getConnection();
+        // heights range selects the page itself, so no row limits
+        return lookupShardQueryExecutor().query((con, fromIndex, toIndex) -> {
             PreparedStatement pstmt = con.prepareStatement("SELECT * FROM block WHERE height <= ? AND height >= ? ORDER BY height DESC");
             pstmt.setInt(1, from);
             pstmt.setInt(2, to);
-            return getBlocks(con, pstmt);
-        } catch (SQLException e) {
-            DbUtils.close(con);
-            throw new RuntimeException(e.toString(), e);
-        }
+            return pstmt;
+        }, this::loadBlock, 0, -1);
     }
 
     @Override
@@ -408,22 +433,33 @@ public class BlockDaoImpl implements BlockDao {
 
     @Override
     public List<Long> getBlockIdsAfter(long blockId, int limit, List<Long> result) {
-        // Search the database
+        // Search the database for the block height and the last height
+        int height;
+        int lastHeight;
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("SELECT id FROM block "
-                     + "WHERE db_id > IFNULL ((SELECT db_id FROM block WHERE id = ?), " + Long.MAX_VALUE + ") "
-                     + "ORDER BY db_id ASC LIMIT ?")) {
+             PreparedStatement pstmt = con.prepareStatement("SELECT height, (SELECT MAX(height) FROM block) AS last_height "
+                     + "FROM block WHERE id = ?")) {
             pstmt.setLong(1, blockId);
-            pstmt.setInt(2, limit);
             try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    result.add(rs.getLong("id"));
+                if (!rs.next()) {
+                    return result;
                 }
+                height = rs.getInt("height");
+                lastHeight = rs.getInt("last_height");
             }
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
+        // Heights of the next blocks are consecutive, so their ids are taken from the index. Blocks popped off
+        // after the last height was read are missing, so ids end at the first missing height
+        for (int i = height + 1; i <= lastHeight && result.size() < limit; i++) {
+            long nextBlockId = getBlockIdAtHeight(i);
+            if (nextBlockId == 0) {
+                break;
+            }
+            result.add(nextBlockId);
+        }
         return result;
     }
 
@@ -461,11 +497,11 @@ public class BlockDaoImpl implements BlockDao {
             try (ResultSet rs = pstmt.executeQuery()) {
                 int index = 0;
                 while (rs.next()) {
-                    Block block = this.loadBlock(con, rs, true);
-                    if (block.getId() != blockList.get(index++)) {
+                    // check id before decoding the whole block with its transactions
+                    if (rs.getLong("id") != blockList.get(index++)) {
                         break;
                     }
-                    result.add(block);
+                    result.add(this.loadBlock(con, rs, true));
                 }
             }
         } catch (SQLException e) {
@@ -632,6 +668,11 @@ public class BlockDaoImpl implements BlockDao {
                 pstmt.executeUpdate();
                 lookupTransactionDao().saveTransactions(con, block.getTransactions());
             }
+            TransactionalDataSource dataSource = databaseManager.getDataSource();
+            if (dataSource.isInTransaction()) {
+                blockIdIndex.add(block.getHeight(), block.getId());
+                dataSource.registerCallback(blockIdIndex);
+            }
             if (block.getPreviousBlockId() != 0) {
                 try (PreparedStatement pstmt = con.prepareStatement("UPDATE block SET next_block_id = ? WHERE id = ?")) {
                     pstmt.setLong(1, block.getId());
@@ -702,11 +743,21 @@ public class BlockDaoImpl implements BlockDao {
             }
             return lastBlock;
         }
+        int deletedHeight = -1;
         try (Connection con = dataSource.getConnection();
              PreparedStatement pstmtSelect = con.prepareStatement("SELECT db_id FROM block WHERE timestamp >= "
                      + "IFNULL ((SELECT timestamp FROM block WHERE id = ?), " + Integer.MAX_VALUE + ") ORDER BY timestamp DESC");
              PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM block WHERE db_id = ?")) {
             try {
+                try (PreparedStatement pstmtHeight = con.prepareStatement("SELECT height FROM block WHERE id = ?")) {
+                    pstmtHeight.setLong(1, blockId);
+                    try (ResultSet rs = pstmtHeight.executeQuery()) {
+                        if (rs.next()) {
+                            deletedHeight = rs.getInt("height");
+                            lookupTransactionDao().deleteAccountTransactions(con, deletedHeight);
+                        }
+                    }
+                }
                 pstmtSelect.setLong(1, blockId);
                 try (ResultSet rs = pstmtSelect.executeQuery()) {
                     dataSource.commit(false);
@@ -733,6 +784,9 @@ public class BlockDaoImpl implements BlockDao {
             throw new RuntimeException(e.toString(), e);
         } finally {
             clearBlockCache();
+            if (deletedHeight >= 0) {
+                blockIdIndex.truncate(deletedHeight);
+            }
         }
     }
 
@@ -757,11 +811,19 @@ public class BlockDaoImpl implements BlockDao {
                 stmt.executeUpdate("SET REFERENTIAL_INTEGRITY FALSE");
                 stmt.executeUpdate("TRUNCATE TABLE transaction");
                 stmt.executeUpdate("TRUNCATE TABLE block");
-                tablesRegistry.getDerivedTables().forEach(table -> {
-                    try {
-                        stmt.executeUpdate("TRUNCATE TABLE " + table.toString());
-                    } catch (SQLException ignore) {}
-                });
+                lookupTransactionDao().deleteAccountTransactions(con, 0);
+                for (DerivedDbTable table : tablesRegistry.getDerivedTables()) {
+                    if (table.isPersistent()) {
+                        // truncate() of persistent table does nothing
+                        try {
+                            stmt.executeUpdate("TRUNCATE TABLE " + table.toString());
+                        } catch (SQLException ignore) {}
+                    } else {
+                        // table resets its row counter and drops in-memory state
+                        table.truncate();
+                    }
+                }
+                stmt.executeUpdate("DELETE FROM derived_table_count");
                 stmt.executeUpdate("SET REFERENTIAL_INTEGRITY TRUE");
                 dataSource.commit(false);
             } catch (SQLException e) {
@@ -772,6 +834,7 @@ public class BlockDaoImpl implements BlockDao {
             throw new RuntimeException(e.toString(), e);
         } finally {
             clearBlockCache();
+            blockIdIndex.clear();
         }
     }
 
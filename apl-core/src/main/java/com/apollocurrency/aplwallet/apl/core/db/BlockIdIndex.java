@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import java.util.Arrays;
+
+/**
+ * Ids of blockchain blocks indexed by height, kept in pages of primitive arrays.
+ * <p>
+ * Page of ids is loaded from main or shard db by the first lookup of any height in it, and ids of new blocks are
+ * added when db transaction which saved them is committed, so height lookup is an array read. Zero id stands for
+ * unknown height. Popped off blocks are truncated. Page read from db is stored only when no truncation happened since
+ * the version returned by {@link #getVersion()} was read, and without heights of blocks saved by db transactions
+ * which are not committed yet, so index never contains ids which are not in committed blockchain.
+ */
+class BlockIdIndex implements TransactionCallback {
+    static final int PAGE_SIZE = 4096;
+
+    private long[][] pages = new long[0][];
+    private long version;
+    private int pendingFromHeight = Integer.MAX_VALUE;
+    private long[] pendingIds = new long[0];
+    private int pendingSize;
+
+    /**
+     * @param height block height
+     * @return block id or 0 when height is not indexed
+     */
+    synchronized long get(int height) {
+        int pageIndex = height / PAGE_SIZE;
+        if (height < 0 || pageIndex >= pages.length || pages[pageIndex] == null) {
+            return 0;
+        }
+        return pages[pageIndex][height % PAGE_SIZE];
+    }
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Store page of ids read from db after version was read
+     * @param pageIds ids of page heights, 0 for heights not found
+     */
+    synchronized void putPage(long version, int pageIndex, long[] pageIds) {
+        if (this.version != version) {
+            return;
+        }
+        int fromHeight = pageIndex * PAGE_SIZE;
+        for (int i = 0; i < pageIds.length && fromHeight + i < pendingFromHeight; i++) {
+            if (pageIds[i] != 0) {
+                set(fromHeight + i, pageIds[i]);
+            }
+        }
+    }
+
+    /**
+     * Add block saved by the current db transaction, it is indexed when transaction is committed
+     */
+    synchronized void add(int height, long blockId) {
+        if (pendingSize == 0 || height < pendingFromHeight) {
+            pendingFromHeight = height;
+            pendingSize = 0;
+        }
+        int index = height - pendingFromHeight;
+        if (index >= pendingIds.length) {
+            pendingIds = Arrays.copyOf(pendingIds, Math.max(index + 1, pendingIds.length * 2));
+        }
+        if (index > pendingSize) {
+            Arrays.fill(pendingIds, pendingSize, index, 0);
+        }
+        pendingIds[index] = blockId;
+        pendingSize = Math.max(pendingSize, index + 1);
+    }
+
+    /**
+     * Drop ids of blocks at height and above
+     */
+    synchronized void truncate(int height) {
+        version++;
+        if (pendingSize > 0 && height <= pendingFromHeight + pendingSize - 1) {
+            pendingSize = Math.max(0, height - pendingFromHeight);
+            if (pendingSize == 0) {
+                pendingFromHeight = Integer.MAX_VALUE;
+            }
+        }
+        int pageIndex = Math.max(height, 0) / PAGE_SIZE;
+        if (pageIndex >= pages.length) {
+            return;
+        }
+        if (pages[pageIndex] != null) {
+            Arrays.fill(pages[pageIndex], Math.max(height, 0) % PAGE_SIZE, PAGE_SIZE, 0);
+        }
+        for (int i = pageIndex + 1; i < pages.length; i++) {
+            pages[i] = null;
+        }
+    }
+
+    synchronized void clear() {
+        version++;
+        pages = new long[0][];
+        pendingSize = 0;
+        pendingFromHeight = Integer.MAX_VALUE;
+    }
+
+    @Override
+    public synchronized void commit() {
+        for (int i = 0; i < pendingSize; i++) {
+            if (pendingIds[i] != 0) {
+                set(pendingFromHeight + i, pendingIds[i]);
+            }
+        }
+        rollback();
+    }
+
+    @Override
+    public synchronized void rollback() {
+        pendingSize = 0;
+        pendingFromHeight = Integer.MAX_VALUE;
+    }
+
+    private void set(int height, long blockId) {
+        int pageIndex = height / PAGE_SIZE;
+        if (pageIndex >= pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(pageIndex + 1, pages.length * 2));
+        }
+        if (pages[pageIndex] == null) {
+            pages[pageIndex] = new long[PAGE_SIZE];
+        }
+        pages[pageIndex][height % PAGE_SIZE] = blockId;
+    }
+}
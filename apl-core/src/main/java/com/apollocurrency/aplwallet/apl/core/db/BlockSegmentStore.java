@@ -0,0 +1,474 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEvent;
+import com.apollocurrency.aplwallet.apl.core.app.observer.events.BlockEventType;
+import com.apollocurrency.aplwallet.apl.util.JSON;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import org.json.simple.JSONAware;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.CDI;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Append-only store of accepted blocks in their peer JSON form, which contains block header and all transaction
+ * bytes, in checksummed segment files.
+ * <p>
+ * Every record consists of header (payload length, height, block id, CRC32 of payload) and UTF-8 payload.
+ * Records are appended in height order into segment files named by the height of their first record, new segment
+ * is started when current one exceeds configured size. Record offsets are kept in memory, so block at height is
+ * read by a single positional read, without SQL and block decoding, and is served to peers as is.
+ * Popped off blocks are cut from the tail. On open, segments are verified and cut at the first incomplete or
+ * corrupted record, missing blocks are copied from db when next block is appended.
+ * Store holds blocks accepted after it was enabled, older blocks are still served from db.
+ * <p>
+ * Store is only a cache of the blockchain, so its failures never fail block processing: when segments cannot be
+ * read or written, error is logged and store is disabled until restart, blocks are served from db then.
+ * Blocks deleted from blockchain are cut from the store on BLOCK_POPPED and by {@link #onBlocksDeleted(int)}.
+ */
+@Singleton
+public class BlockSegmentStore {
+    private static final Logger log = getLogger(BlockSegmentStore.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final int HEADER_SIZE = 20;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final long maxSegmentSize;
+    private Blockchain blockchain;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private boolean opened;
+    private volatile boolean failed;
+
+    private static class Segment {
+        private final int firstHeight;
+        private final Path path;
+        private FileChannel channel;
+        private int[] offsets = new int[1024];
+        private int size;
+        private long length;
+
+        private Segment(int firstHeight, Path path) {
+            this.firstHeight = firstHeight;
+            this.path = path;
+        }
+
+        private int lastHeight() {
+            return firstHeight + size - 1;
+        }
+
+        private void addOffset(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = (int) offset;
+        }
+    }
+
+    /**
+     * Stored block ready to be written into JSON response
+     */
+    private static class StoredBlock implements JSONAware {
+        private final String json;
+
+        private StoredBlock(String json) {
+            this.json = json;
+        }
+
+        @Override
+        public String toJSONString() {
+            return json;
+        }
+    }
+
+    @Inject
+    public BlockSegmentStore(DatabaseManager databaseManager, PropertiesHolder propertiesHolder) {
+        this(propertiesHolder.getBooleanProperty("apl.blockSegmentStore")
+                        && databaseManager.getBaseDbProperties().getDbDir() != null
+                        ? Paths.get(databaseManager.getBaseDbProperties().getDbDir(), "block_segments") : null,
+                propertiesHolder.getIntProperty("apl.blockSegmentSizeMB", 256) * 1024L * 1024L, null);
+    }
+
+    /**
+     * @param directory segments directory, null to disable store
+     * @param maxSegmentSize size of segment file after which next segment is started, in bytes
+     * @param blockchain blockchain to copy missing blocks from, looked up when null
+     */
+    public BlockSegmentStore(Path directory, long maxSegmentSize, Blockchain blockchain) {
+        this.directory = directory;
+        this.maxSegmentSize = Math.min(maxSegmentSize, Integer.MAX_VALUE);
+        this.blockchain = blockchain;
+    }
+
+    private Blockchain lookupBlockchain() {
+        if (blockchain == null) {
+            blockchain = CDI.current().select(Blockchain.class).get();
+        }
+        return blockchain;
+    }
+
+    /**
+     * @return true when store is configured and has not failed
+     */
+    public boolean isEnabled() {
+        return directory != null && !failed;
+    }
+
+    public synchronized int getFirstHeight() {
+        if (!openIfEnabled()) {
+            return -1;
+        }
+        return segments.isEmpty() ? -1 : segments.get(0).firstHeight;
+    }
+
+    public synchronized int getLastHeight() {
+        if (!openIfEnabled()) {
+            return -1;
+        }
+        return segments.isEmpty() ? -1 : segments.get(segments.size() - 1).lastHeight();
+    }
+
+    public void onBlockAccepted(@Observes @BlockEvent(BlockEventType.AFTER_BLOCK_ACCEPT) Block block) {
+        if (isEnabled()) {
+            try {
+                append(block);
+            } catch (RuntimeException e) {
+                disable(e);
+            }
+        }
+    }
+
+    public void onBlockPopped(@Observes @BlockEvent(BlockEventType.BLOCK_POPPED) Block block) {
+        onBlocksDeleted(block.getHeight());
+    }
+
+    /**
+     * Blocks were deleted from blockchain, remove them from store
+     * @param height height of the first deleted block
+     */
+    public void onBlocksDeleted(int height) {
+        if (isEnabled()) {
+            try {
+                truncate(height);
+            } catch (RuntimeException e) {
+                disable(e);
+            }
+        }
+    }
+
+    /**
+     * Append block, missing blocks between the last stored block and this one are copied from blockchain.
+     * Block which is already stored is skipped, another block at the same height replaces stored blocks from that height.
+     * @param block accepted block
+     */
+    public synchronized void append(Block block) {
+        open();
+        int lastHeight = lastHeight();
+        if (block.getHeight() <= lastHeight) {
+            if (readId(block.getHeight()) == block.getId()) {
+                return;
+            }
+            truncate(block.getHeight());
+            lastHeight = lastHeight();
+        }
+        if (lastHeight >= 0) {
+            for (int height = lastHeight + 1; height < block.getHeight(); height++) {
+                write(lookupBlockchain().getBlockAtHeight(height));
+            }
+        }
+        write(block);
+    }
+
+    /**
+     * Remove blocks from height
+     * @param height height of the first removed block
+     */
+    public synchronized void truncate(int height) {
+        open();
+        try {
+            while (!segments.isEmpty()) {
+                Segment segment = segments.get(segments.size() - 1);
+                if (height > segment.lastHeight()) {
+                    break;
+                }
+                if (height <= segment.firstHeight) {
+                    segment.channel.close();
+                    Files.deleteIfExists(segment.path);
+                    segments.remove(segments.size() - 1);
+                } else {
+                    int index = height - segment.firstHeight;
+                    segment.length = segment.offsets[index];
+                    segment.size = index;
+                    segment.channel.truncate(segment.length);
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to truncate block segments from height " + height + ": " + e.toString(), e);
+        }
+    }
+
+    /**
+     * Read stored blocks following the block at height
+     * @param height height of the block after which blocks are requested
+     * @param limit max number of blocks
+     * @return stored blocks, may be incomplete when blocks are not stored
+     */
+    public synchronized List<JSONAware> getBlocksAfter(int height, int limit) {
+        return getBlocksAfter(height, limit, null);
+    }
+
+    /**
+     * Read stored blocks following the block at height while their ids match
+     * @param height height of the block after which blocks are requested
+     * @param blockIds expected ids of the following blocks
+     * @return stored blocks, may be incomplete when blocks are not stored
+     */
+    public synchronized List<JSONAware> getBlocksAfter(int height, List<Long> blockIds) {
+        return getBlocksAfter(height, blockIds.size(), blockIds);
+    }
+
+    private List<JSONAware> getBlocksAfter(int height, int limit, List<Long> blockIds) {
+        if (!openIfEnabled()) {
+            return Collections.emptyList();
+        }
+        if (segments.isEmpty() || height + 1 < segments.get(0).firstHeight) {
+            return Collections.emptyList();
+        }
+        List<JSONAware> result = new ArrayList<>();
+        try {
+            for (int h = height + 1; h <= lastHeight() && result.size() < limit; h++) {
+                Segment segment = findSegment(h);
+                ByteBuffer header = readFully(segment.channel, ByteBuffer.allocate(HEADER_SIZE), segment.offsets[h - segment.firstHeight]);
+                int payloadSize = header.getInt(0);
+                long blockId = header.getLong(8);
+                if (blockIds != null && blockIds.get(result.size()) != blockId) {
+                    break;
+                }
+                ByteBuffer payload = readFully(segment.channel, ByteBuffer.allocate(payloadSize),
+                        segment.offsets[h - segment.firstHeight] + HEADER_SIZE);
+                result.add(new StoredBlock(new String(payload.array(), StandardCharsets.UTF_8)));
+            }
+        } catch (IOException e) {
+            disable(new RuntimeException("Unable to read block segments: " + e.toString(), e));
+            return Collections.emptyList();
+        }
+        return result;
+    }
+
+    /**
+     * Open store for reading, store which cannot be opened is disabled
+     * @return true when store is opened
+     */
+    private boolean openIfEnabled() {
+        if (!isEnabled()) {
+            return false;
+        }
+        try {
+            open();
+            return true;
+        } catch (RuntimeException e) {
+            disable(e);
+            return false;
+        }
+    }
+
+    /**
+     * Disable store and delete its segments, since blocks deleted from blockchain are not cut from disabled store
+     */
+    private synchronized void disable(RuntimeException e) {
+        log.error("Block segment store is disabled, blocks will be served from db", e);
+        failed = true;
+        close();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException exc) {
+            log.warn("Unable to delete block segments in {}: {}", directory, exc.toString());
+        }
+    }
+
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            try {
+                segment.channel.close();
+            } catch (IOException e) {
+                log.warn("Unable to close {}: {}", segment.path, e.toString());
+            }
+        }
+        segments.clear();
+        opened = false;
+    }
+
+    private void write(Block block) {
+        byte[] payload = JSON.toJSONString(block.getJSONObject()).getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        record.putInt(payload.length).putInt(block.getHeight()).putLong(block.getId()).putInt((int) crc.getValue()).put(payload);
+        record.flip();
+        try {
+            Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.length + record.remaining() > maxSegmentSize && segment.size > 0) {
+                segment = new Segment(block.getHeight(), directory.resolve(String.format("%010d", block.getHeight()) + SEGMENT_SUFFIX));
+                segment.channel = FileChannel.open(segment.path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                segments.add(segment);
+            }
+            long offset = segment.length;
+            while (record.hasRemaining()) {
+                offset += segment.channel.write(record, offset);
+            }
+            segment.addOffset(segment.length);
+            segment.length = offset;
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to write block at height " + block.getHeight() + " into segment: " + e.toString(), e);
+        }
+    }
+
+    private long readId(int height) {
+        Segment segment = findSegment(height);
+        try {
+            return readFully(segment.channel, ByteBuffer.allocate(HEADER_SIZE), segment.offsets[height - segment.firstHeight]).getLong(8);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to read block segments: " + e.toString(), e);
+        }
+    }
+
+    private int lastHeight() {
+        return segments.isEmpty() ? -1 : segments.get(segments.size() - 1).lastHeight();
+    }
+
+    private Segment findSegment(int height) {
+        int low = 0;
+        int high = segments.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (segments.get(mid).firstHeight <= height) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return segments.get(low);
+    }
+
+    private void open() {
+        if (opened) {
+            return;
+        }
+        if (!isEnabled()) {
+            throw new IllegalStateException("Block segment store is disabled");
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(directory);
+            List<Path> paths = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+                stream.forEach(paths::add);
+            }
+            paths.sort(null);
+            boolean valid = true;
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                int firstHeight = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                if (!valid || !segments.isEmpty() && firstHeight != lastHeight() + 1) {
+                    log.warn("Block segment {} does not follow previous segments, deleting", path);
+                    valid = false;
+                    Files.delete(path);
+                    continue;
+                }
+                Segment segment = new Segment(firstHeight, path);
+                segment.channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                valid = load(segment);
+                if (segment.size == 0) {
+                    segment.channel.close();
+                    Files.delete(path);
+                } else {
+                    segments.add(segment);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw new RuntimeException("Unable to open block segments in " + directory + ": " + e.toString(), e);
+        }
+        opened = true;
+        log.info("Block segment store opened with blocks from {} to {} in {} ms", getFirstHeight(), lastHeight(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Read record offsets of the segment, verify records and cut segment at the first invalid one
+     * @return true when all records of the segment are valid
+     */
+    private boolean load(Segment segment) throws IOException {
+        long fileSize = segment.channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        CRC32 crc = new CRC32();
+        while (offset + HEADER_SIZE <= fileSize) {
+            header.clear();
+            readFully(segment.channel, header, offset);
+            int payloadSize = header.getInt(0);
+            int height = header.getInt(4);
+            if (payloadSize < 0 || payloadSize > MAX_PAYLOAD_SIZE || height != segment.firstHeight + segment.size
+                    || offset + HEADER_SIZE + payloadSize > fileSize) {
+                break;
+            }
+            ByteBuffer payload = readFully(segment.channel, ByteBuffer.allocate(payloadSize), offset + HEADER_SIZE);
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != header.getInt(16)) {
+                break;
+            }
+            segment.addOffset(offset);
+            offset += HEADER_SIZE + payloadSize;
+        }
+        segment.length = offset;
+        if (offset < fileSize) {
+            log.warn("Block segment {} is cut at height {}: incomplete or corrupted record", segment.path, segment.firstHeight + segment.size);
+            segment.channel.truncate(offset);
+            return false;
+        }
+        return true;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, offset);
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment at " + offset);
+            }
+            offset += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
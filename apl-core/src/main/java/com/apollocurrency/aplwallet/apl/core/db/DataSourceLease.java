@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Data source borrowed for reading. Shard data source is not closed by
+ * {@link com.apollocurrency.aplwallet.apl.core.shard.ShardManagement#closeIdleShards()} while it is leased, so
+ * connections can be taken from it at any time until the lease is closed.
+ */
+public final class DataSourceLease implements AutoCloseable {
+    private final TransactionalDataSource dataSource;
+    private final Runnable release;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * @param dataSource leased data source
+     * @param release called once when lease is closed
+     */
+    public DataSourceLease(TransactionalDataSource dataSource, Runnable release) {
+        this.dataSource = dataSource;
+        this.release = release;
+    }
+
+    /**
+     * Lease of the data source which is never closed while application is running, like main db
+     * @param dataSource data source
+     * @return lease which releases nothing
+     */
+    public static DataSourceLease of(TransactionalDataSource dataSource) {
+        return new DataSourceLease(dataSource, () -> {});
+    }
+
+    public TransactionalDataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+}
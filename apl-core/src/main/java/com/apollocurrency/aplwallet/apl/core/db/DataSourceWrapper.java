@@ -109,6 +109,7 @@ public class DataSourceWrapper implements DataSource {
 
     private HikariDataSource dataSource;
     private HikariPoolMXBean jmxBean;
+    private HikariDataSource readOnlyDataSource;
 //    private JdbcConnectionPool dataSource;
     private volatile int maxActiveConnections;
     private final String dbUrl;
@@ -136,7 +137,11 @@ public class DataSourceWrapper implements DataSource {
             dbUrl = String.format("jdbc:%s:file:%s;%s", dbProperties.getDbType(), dbProperties.getDbDir() + "/" + dbFileName, dbProperties.getDbParams());
         }
         if (!dbUrl.contains("MV_STORE=")) {
-            dbUrl += ";MV_STORE=FALSE";
+            dbUrl += ";MV_STORE=" + (dbProperties.isMvStore() ? "TRUE" : "FALSE");
+        }
+        // compression is supported by MVStore only
+        if (dbProperties.isCompress() && H2StorageMigrator.isMvStore(dbUrl) && !dbUrl.contains("COMPRESS=")) {
+            dbUrl += ";COMPRESS=TRUE";
         }
         if (!dbUrl.contains("CACHE_SIZE=")) {
             dbUrl += ";CACHE_SIZE=" + maxCacheSize;
@@ -157,6 +162,7 @@ public class DataSourceWrapper implements DataSource {
      */
     public Jdbi init(DbVersion dbVersion) {
         log.debug("Database jdbc url set to {} username {}", dbUrl, dbUsername);
+        new H2StorageMigrator(dbUrl, dbUsername, dbPassword).migrateIfNeeded();
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(dbUrl);
         config.setUsername(dbUsername);
@@ -206,14 +212,61 @@ public class DataSourceWrapper implements DataSource {
         return jdbi;
     }
 
+    /**
+     * Create separate size-limited pool of read-only connections, used by API queries.
+     * Every statement executed on such connection is cancelled by database after query timeout.
+     * @param maxConnections max number of read-only connections
+     * @param connectionTimeout max time to wait for a free connection, in milliseconds
+     * @param queryTimeout statement timeout, in milliseconds, 0 - no timeout
+     */
+    protected void initReadOnlyPool(int maxConnections, long connectionTimeout, int queryTimeout) {
+        requireInitialization();
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl(dbUrl);
+        config.setUsername(dbUsername);
+        config.setPassword(dbPassword);
+        config.setMaximumPoolSize(maxConnections);
+        config.setConnectionTimeout(connectionTimeout);
+        config.setReadOnly(true);
+        config.setPoolName(dataSource.getPoolName() + "-readonly");
+        if (queryTimeout > 0) {
+            config.setConnectionInitSql("SET QUERY_TIMEOUT " + queryTimeout);
+        }
+        log.debug("Creating read-only DataSource pool, size = {}, path = {}", maxConnections, dbUrl);
+        readOnlyDataSource = new HikariDataSource(config);
+    }
+
+    /**
+     * Return connection from the read-only pool or from the main pool when read-only pool was not created
+     * @return db connection with autoCommit = true
+     * @throws SQLException when no connection is available within timeout
+     */
+    protected Connection getReadOnlyConnection() throws SQLException {
+        Connection con = readOnlyDataSource == null ? getPooledConnection() : readOnlyDataSource.getConnection();
+        con.setAutoCommit(true);
+        return con;
+    }
+
     public void shutdown() {
+        shutdown(true);
+    }
+
+    /**
+     * Close database and connection pools
+     * @param compact true to compact database file on close, which may take a long time for big databases
+     */
+    public void shutdown(boolean compact) {
         if (!initialized) {
             return;
         }
+        if (readOnlyDataSource != null) {
+            readOnlyDataSource.close();
+            readOnlyDataSource = null;
+        }
         try {
             Connection con = dataSource.getConnection();
             Statement stmt = con.createStatement();
-            stmt.execute("SHUTDOWN COMPACT");
+            stmt.execute(compact ? "SHUTDOWN COMPACT" : "SHUTDOWN");
             shutdown = true;
             initialized = false;
             dataSource.close();
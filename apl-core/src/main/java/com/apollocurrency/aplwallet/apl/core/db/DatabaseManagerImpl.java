@@ -6,8 +6,11 @@ package com.apollocurrency.aplwallet.apl.core.db;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import com.apollocurrency.aplwallet.apl.core.shard.DataTransferManagementReceiver;
+import com.apollocurrency.aplwallet.apl.core.shard.MigrateState;
 import com.apollocurrency.aplwallet.apl.core.shard.ShardManagement;
-import com.apollocurrency.aplwallet.apl.core.shard.ShardNameHelper;
+import com.apollocurrency.aplwallet.apl.core.shard.ShardQueryExecutor;
+import com.apollocurrency.aplwallet.apl.core.shard.observer.events.ShardChangeStateEvent;
 import com.apollocurrency.aplwallet.apl.util.injectable.DbProperties;
 import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
 import org.jdbi.v3.core.Jdbi;
@@ -24,10 +27,12 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import javax.enterprise.event.Observes;
 import javax.enterprise.inject.Produces;
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -44,7 +49,14 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
     private PropertiesHolder propertiesHolder;
     private TransactionalDataSource currentTransactionalDataSource; // main/shard database
     private Map<Long, TransactionalDataSource> connectedShardDataSourceMap = new ConcurrentHashMap<>(); // secondary shards
+    private Map<Long, Long> shardLastAccessMap = new ConcurrentHashMap<>(); // shards opened for reading, id -> last access time
+    private final Map<Long, Integer> shardLeaseMap = new HashMap<>(); // leased shards, id -> number of leases, guarded by this
+    private int maxOpenShards = 8;
+    private long shardIdleTimeout = 300_000; // ms
+    private int shardCacheSize = 4096; // kB
     private Jdbi jdbi;
+    private volatile List<Long> fullShardIds; // cached ids of full shards, newest first
+    private ShardQueryExecutor shardQueryExecutor;
 
     /**
      * Create, initialize and return main database source.
@@ -71,6 +83,18 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
         // init internal data source stuff only one time till next shutdown() will be called
         currentTransactionalDataSource = new TransactionalDataSource(baseDbProperties, propertiesHolder);
         jdbi = currentTransactionalDataSource.init(new AplDbVersion());
+        int shardQueryThreads = 4;
+        int maxParallelShardRows = 100;
+        if (propertiesHolder != null) {
+            shardQueryThreads = propertiesHolder.getIntProperty("apl.shardQueryThreads", shardQueryThreads);
+            // pages up to the API records limit are loaded in parallel, larger ones are streamed
+            maxParallelShardRows = propertiesHolder.getIntProperty("apl.maxAPIRecords", maxParallelShardRows);
+            maxOpenShards = Math.max(1, propertiesHolder.getIntProperty("apl.maxOpenShards", maxOpenShards));
+            shardIdleTimeout = propertiesHolder.getIntProperty("apl.shardIdleTimeout", 300) * 1000L;
+            shardCacheSize = propertiesHolder.getIntProperty("apl.shardCacheKB", shardCacheSize);
+        }
+        shardQueryExecutor = new ShardQueryExecutor(this::getDataSource, this::getFullShardIds,
+                this::leaseShardDataSource, shardQueryThreads, maxParallelShardRows);
 //        openAllShards(); // it's not needed in most cases, because any shard opened 'lazy' by shardId
     }
 
@@ -81,22 +105,11 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
         List<Long> shardList = findAllShards(currentTransactionalDataSource);
         log.debug("Found [{}] shards...", shardList.size());
         for (Long shardId : shardList) {
-            String shardName = ShardNameHelper.getShardNameByShardId(shardId); // shard's file name formatted from Id
-            DbProperties shardDbProperties = null;
-            try {
-                // create copy instance, change file name, nullify dbUrl intentionally!
-                shardDbProperties = baseDbProperties.deepCopy().dbFileName(shardName).dbUrl(null);
-            } catch (CloneNotSupportedException e) {
-                log.error("Db props clone error", e);
-            }
             try {
-                TransactionalDataSource shardDb = new TransactionalDataSource(shardDbProperties, propertiesHolder);
-                shardDb.init(new ShardInitTableSchemaVersion());
-                connectedShardDataSourceMap.put(shardId, shardDb);
+                getOrCreateShardDataSourceById(shardId);
             } catch (Exception e) {
-                log.error("Error opening shard db by name = " + shardName, e);
+                log.error("Error opening shard db by id = " + shardId, e);
             }
-            log.debug("Prepared '{}' shard...", shardName);
         }
     }
 
@@ -140,6 +153,7 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
                 new ShardDataSourceCreateHelper(this, shardId).createUninitializedDataSource();
         TransactionalDataSource shardDb = shardDataSourceCreateHelper.getShardDb();
         shardDb.init(new ShardInitTableSchemaVersion());
+        shardLastAccessMap.remove(shardDataSourceCreateHelper.getShardId());
         connectedShardDataSourceMap.put(shardDataSourceCreateHelper.getShardId(), shardDb);
         log.debug("new SHARD '{}' is CREATED", shardDataSourceCreateHelper.getShardName());
         return shardDb;
@@ -155,6 +169,7 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
                 new ShardDataSourceCreateHelper(this, shardId).createUninitializedDataSource();
         TransactionalDataSource shardDb = shardDataSourceCreateHelper.getShardDb();
         shardId = shardDataSourceCreateHelper.getShardId();
+        shardLastAccessMap.remove(shardId);
         if (connectedShardDataSourceMap.containsKey(shardId)) {
             TransactionalDataSource dataSource = connectedShardDataSourceMap.get(shardId);
             if (dataSource != null && !dataSource.isShutdown()) {
@@ -203,10 +218,85 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
      */
     @Override
     public TransactionalDataSource getOrCreateShardDataSourceById(Long shardId) {
-        if (shardId != null && connectedShardDataSourceMap.containsKey(shardId)) {
-            return connectedShardDataSourceMap.get(shardId);
+        if (shardId == null) {
+            return createAndAddShard(null);
+        }
+        return openShard(shardId);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized DataSourceLease leaseShardDataSource(Long shardId) {
+        Objects.requireNonNull(shardId, "shardId is NULL");
+        TransactionalDataSource dataSource = openShard(shardId);
+        shardLeaseMap.merge(shardId, 1, Integer::sum);
+        return new DataSourceLease(dataSource, () -> releaseShard(shardId));
+    }
+
+    private synchronized void releaseShard(Long shardId) {
+        shardLeaseMap.computeIfPresent(shardId, (id, leases) -> leases > 1 ? leases - 1 : null);
+        shardLastAccessMap.computeIfPresent(shardId, (id, time) -> System.currentTimeMillis());
+    }
+
+    /**
+     * Return opened shard or open existing shard for reading with reduced cache size. Least recently used shards
+     * are closed to keep number of shards opened for reading within limit.
+     */
+    private synchronized TransactionalDataSource openShard(Long shardId) {
+        TransactionalDataSource dataSource = connectedShardDataSourceMap.get(shardId);
+        if (dataSource != null) {
+            shardLastAccessMap.computeIfPresent(shardId, (id, time) -> System.currentTimeMillis());
         } else {
-            return createAndAddShard(shardId);
+            closeShards(maxOpenShards - 1, 0);
+            ShardDataSourceCreateHelper shardDataSourceCreateHelper =
+                    new ShardDataSourceCreateHelper(this, shardId, shardCacheSize).createUninitializedDataSource();
+            dataSource = shardDataSourceCreateHelper.getShardDb();
+            dataSource.init(new ShardInitTableSchemaVersion());
+            shardLastAccessMap.put(shardId, System.currentTimeMillis());
+            connectedShardDataSourceMap.put(shardId, dataSource);
+            log.debug("SHARD '{}' is OPENED", shardDataSourceCreateHelper.getShardName());
+        }
+        return dataSource;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void closeIdleShards() {
+        closeShards(maxOpenShards, System.currentTimeMillis() - shardIdleTimeout);
+    }
+
+    /**
+     * Close least recently used shards opened for reading. Shards which are being created by sharding process,
+     * leased shards and shards with borrowed connections are never closed. Leases are taken and released under
+     * the same lock, so shard cannot be closed between its lookup and connection borrowing by lease holder.
+     * @param maxOpen number of shards to leave opened
+     * @param notUsedSince close also shards which were not accessed since that time, in ms
+     */
+    private synchronized void closeShards(int maxOpen, long notUsedSince) {
+        List<Map.Entry<Long, Long>> shards = new ArrayList<>(shardLastAccessMap.entrySet());
+        shards.sort(Map.Entry.comparingByValue());
+        int open = shards.size();
+        for (Map.Entry<Long, Long> shard : shards) {
+            if (open <= maxOpen && shard.getValue() >= notUsedSince) {
+                break;
+            }
+            Long shardId = shard.getKey();
+            TransactionalDataSource dataSource = connectedShardDataSourceMap.get(shardId);
+            if (shardLeaseMap.containsKey(shardId)
+                    || dataSource != null && dataSource.getJmxBean() != null && dataSource.getJmxBean().getActiveConnections() > 0) {
+                continue;
+            }
+            shardLastAccessMap.remove(shardId);
+            connectedShardDataSourceMap.remove(shardId);
+            if (dataSource != null) {
+                dataSource.shutdown(false);
+            }
+            open--;
+            log.debug("SHARD '{}' is CLOSED", shardId);
         }
     }
 
@@ -223,6 +313,50 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Long> getFullShardIds() {
+        List<Long> shardIds = fullShardIds;
+        if (shardIds == null) {
+            shardIds = findFullShards(getDataSource());
+            fullShardIds = shardIds;
+        }
+        return shardIds;
+    }
+
+    private List<Long> findFullShards(TransactionalDataSource transactionalDataSource) {
+        List<Long> result = new ArrayList<>();
+        try (Connection con = transactionalDataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT shard_id FROM shard WHERE shard_state = ? ORDER BY shard_id DESC")) {
+            pstmt.setLong(1, DataTransferManagementReceiver.SHARD_PERCENTAGE_FULL);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    result.add(rs.getLong("shard_id"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Forget cached list of full shards when sharding is finished, it will be read again on next request
+     */
+    public void onShardingCompleted(@Observes @ShardChangeStateEvent(MigrateState.COMPLETED) MigrateState state) {
+        fullShardIds = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ShardQueryExecutor getShardQueryExecutor() {
+        return shardQueryExecutor;
+    }
+
     @Override
     public DbProperties getBaseDbProperties() {
         return baseDbProperties;
@@ -241,12 +375,15 @@ public class DatabaseManagerImpl implements ShardManagement, DatabaseManager {
     public void shutdown() {
         if (connectedShardDataSourceMap.size() > 0) {
             connectedShardDataSourceMap.values().stream().forEach(DataSourceWrapper::shutdown);
+            connectedShardDataSourceMap.clear();
+            shardLastAccessMap.clear();
         }
         if (currentTransactionalDataSource != null) {
             currentTransactionalDataSource.shutdown();
             currentTransactionalDataSource = null;
             jdbi = null;
         }
+        fullShardIds = null;
     }
 
     /**
@@ -19,7 +19,13 @@ public class DbConnectionWrapper extends FilteredConnection {
     public DbConnectionWrapper(Connection con, FilteredFactoryImpl factory, ThreadLocal<DbConnectionWrapper> localConnection,
                                ThreadLocal<Map<String, Map<DbKey,Object>>> transactionCaches,
                                ThreadLocal<Set<TransactionCallback>> transactionCallback) {
-        super(con, factory);
+        this(con, factory, localConnection, transactionCaches, transactionCallback, 0);
+    }
+
+    public DbConnectionWrapper(Connection con, FilteredFactoryImpl factory, ThreadLocal<DbConnectionWrapper> localConnection,
+                               ThreadLocal<Map<String, Map<DbKey,Object>>> transactionCaches,
+                               ThreadLocal<Set<TransactionCallback>> transactionCallback, int statementCacheSize) {
+        super(con, factory, statementCacheSize);
         this.localConnection = localConnection;
         this.transactionCaches = transactionCaches;
         this.transactionCallback = transactionCallback;
@@ -43,8 +49,11 @@ public class DbConnectionWrapper extends FilteredConnection {
                 throw new IllegalStateException("Not in transaction");
             }
             try {
-                con.doCommit();
                 Set<TransactionCallback> callbacks = transactionCallback.get();
+                if (callbacks != null) {
+                    callbacks.forEach(TransactionCallback::beforeCommit);
+                }
+                con.doCommit();
                 if (callbacks != null) {
                     callbacks.forEach(TransactionCallback::commit);
                     transactionCallback.set(null);
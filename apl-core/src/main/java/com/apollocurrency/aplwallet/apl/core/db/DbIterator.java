@@ -25,37 +25,122 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+/**
+ * Iterator over rows of the query result. Rows are read from the result set and decoded by
+ * {@link ResultSetReader} one by one, only when requested, so closing the iterator early
+ * leaves the rest of the result untouched. Fetch size is set on the statement before execution,
+ * by default to the value of {@link #getDefaultFetchSize()}.
+ */
 public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoCloseable {
 
     public interface ResultSetReader<T> {
         T get(Connection con, ResultSet rs) throws Exception;
     }
 
+    private static volatile int defaultFetchSize = 0;
+
     private final Connection con;
     private final PreparedStatement pstmt;
     private final ResultSetReader<T> rsReader;
     private final ResultSet rs;
+    private final Iterator<T> rows;
+    private final AutoCloseable rowsResource;
 
     private boolean hasNext;
+    private boolean advanced;
     private boolean iterated;
 
     public DbIterator(Connection con, PreparedStatement pstmt, ResultSetReader<T> rsReader) {
+        this(con, pstmt, rsReader, defaultFetchSize);
+    }
+
+    /**
+     * Execute query and create iterator over its result
+     * @param con connection, closed together with the iterator
+     * @param pstmt statement with all parameters set, closed together with the iterator
+     * @param rsReader row decoder
+     * @param fetchSize number of rows to fetch from the database at once, 0 to leave the driver default
+     */
+    public DbIterator(Connection con, PreparedStatement pstmt, ResultSetReader<T> rsReader, int fetchSize) {
         this.con = con;
         this.pstmt = pstmt;
         this.rsReader = rsReader;
+        this.rows = null;
+        this.rowsResource = null;
         try {
+            if (fetchSize > 0) {
+                pstmt.setFetchSize(fetchSize);
+            }
             this.rs = pstmt.executeQuery();
-            this.hasNext = rs.next();
         } catch (SQLException e) {
             DbUtils.close(pstmt, con);
             throw new RuntimeException(e.toString(), e);
         }
     }
 
+    private DbIterator(Iterator<T> rows, AutoCloseable rowsResource) {
+        this.con = null;
+        this.pstmt = null;
+        this.rsReader = null;
+        this.rs = null;
+        this.rows = rows;
+        this.rowsResource = rowsResource;
+    }
+
+    /**
+     * Create iterator over rows which were already read, e.g. merged from several databases
+     * @param rows loaded rows
+     * @param <T> row type
+     * @return iterator which holds no database resources
+     */
+    public static <T> DbIterator<T> of(List<T> rows) {
+        return new DbIterator<>(rows.iterator(), null);
+    }
+
+    /**
+     * Create iterator over rows which are read lazily by other iterator, e.g. from several databases one by one
+     * @param rows row iterator
+     * @param rowsResource resource of the row iterator, closed together with this iterator and when rows are exhausted
+     * @param <T> row type
+     * @return iterator which closes rows resource
+     */
+    public static <T> DbIterator<T> of(Iterator<T> rows, AutoCloseable rowsResource) {
+        return new DbIterator<>(rows, rowsResource);
+    }
+
+    public static int getDefaultFetchSize() {
+        return defaultFetchSize;
+    }
+
+    public static void setDefaultFetchSize(int fetchSize) {
+        defaultFetchSize = Math.max(fetchSize, 0);
+    }
+
+    private void advance() {
+        if (!advanced) {
+            try {
+                hasNext = rs.next();
+                advanced = true;
+            } catch (SQLException e) {
+                DbUtils.close(rs, pstmt, con);
+                throw new RuntimeException(e.toString(), e);
+            }
+        }
+    }
+
     @Override
     public boolean hasNext() {
+        if (rows != null) {
+            boolean rowsHasNext = rows.hasNext();
+            if (!rowsHasNext) {
+                DbUtils.close(rowsResource);
+            }
+            return rowsHasNext;
+        }
+        advance();
         if (! hasNext) {
             DbUtils.close(rs, pstmt, con);
         }
@@ -64,13 +149,17 @@ public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoClosea
 
     @Override
     public T next() {
+        if (rows != null) {
+            return rows.next();
+        }
+        advance();
         if (! hasNext) {
             DbUtils.close(rs, pstmt, con);
             throw new NoSuchElementException();
         }
         try {
             T result = rsReader.get(con, rs);
-            hasNext = rs.next();
+            advanced = false;
             return result;
         } catch (Exception e) {
             DbUtils.close(rs, pstmt, con);
@@ -85,6 +174,10 @@ public final class DbIterator<T> implements Iterator<T>, Iterable<T>, AutoClosea
 
     @Override
     public void close() {
+        if (rows != null) {
+            DbUtils.close(rowsResource);
+            return;
+        }
         DbUtils.close(rs, pstmt, con);
     }
 
@@ -5,6 +5,8 @@ import static org.slf4j.LoggerFactory.getLogger;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
 
 import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
 import com.apollocurrency.aplwallet.apl.core.app.BlockchainImpl;
@@ -14,15 +16,26 @@ import org.slf4j.Logger;
 
 public class DbPreparedStatementWrapper extends FilteredPreparedStatement {
     private static final Logger log = getLogger(DbPreparedStatementWrapper.class);
-    
+    private static final int MAX_LOGGED_BYTES = 32;
+
     @Inject // it does not work, need to investigate why
     private static Blockchain blockchain;
 
     private long stmtThreshold;
+    /**
+     * Bind parameters, kept for slow statement logging
+     */
+    private Object[] params;
+
     //TODO: Make injection work and delete this
-    private void checkCDI(){
-        if(blockchain==null){
-            blockchain  = CDI.current().select(BlockchainImpl.class).get();
+    private int getHeight(){
+        try {
+            if(blockchain==null){
+                blockchain  = CDI.current().select(BlockchainImpl.class).get();
+            }
+            return blockchain.getHeight();
+        } catch (IllegalStateException e) {
+            return -1; // no CDI container, e.g. in unit tests
         }
     }
     public DbPreparedStatementWrapper(PreparedStatement stmt, String sql, long stmtThreshold) {
@@ -32,43 +45,146 @@ public class DbPreparedStatementWrapper extends FilteredPreparedStatement {
 
     @Override
     public boolean execute() throws SQLException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         boolean b = super.execute();
-        long elapsed = System.currentTimeMillis() - start;
-        if (elapsed > stmtThreshold && blockchain != null) {
-            checkCDI();
-            logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s",
-                    (double)elapsed/1000.0, blockchain.getHeight(), getSQL()));
-        }
+        afterExecute(System.nanoTime() - start);
         return b;
     }
 
     @Override
     public ResultSet executeQuery() throws SQLException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         ResultSet r = super.executeQuery();
-        long elapsed = System.currentTimeMillis() - start;
-        if (elapsed > stmtThreshold && blockchain != null) {
-            checkCDI();
-            logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s",
-                    (double)elapsed/1000.0, blockchain.getHeight(), getSQL()));
-        }
+        afterExecute(System.nanoTime() - start);
         return r;
     }
 
     @Override
     public int executeUpdate() throws SQLException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         int c = super.executeUpdate();
-        long elapsed = System.currentTimeMillis() - start;
-        if (elapsed > stmtThreshold && blockchain != null) {
-            checkCDI();
-            logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s",
-                    (double)elapsed/1000.0, blockchain.getHeight(), getSQL()));
-        }
+        afterExecute(System.nanoTime() - start);
         return c;
     }
 
+    private void afterExecute(long elapsedNanos) {
+        SqlStatistics.getInstance().record(getSQL(), elapsedNanos);
+        long elapsed = elapsedNanos / 1_000_000;
+        if (elapsed > stmtThreshold) {
+            logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s\nparameters: %s",
+                    (double)elapsed/1000.0, getHeight(), getSQL(), formatParams()));
+        }
+    }
+
+    private void setParam(int parameterIndex, Object value) {
+        if (parameterIndex < 1) {
+            return;
+        }
+        if (params == null) {
+            params = new Object[Math.max(8, parameterIndex)];
+        } else if (params.length < parameterIndex) {
+            params = Arrays.copyOf(params, Math.max(params.length * 2, parameterIndex));
+        }
+        params[parameterIndex - 1] = value;
+    }
+
+    private String formatParams() {
+        if (params == null) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder("[");
+        int last = params.length - 1;
+        while (last >= 0 && params[last] == null) {
+            last--;
+        }
+        for (int i = 0; i <= last; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object value = params[i];
+            if (value instanceof byte[]) {
+                byte[] bytes = (byte[]) value;
+                sb.append("bytes[").append(bytes.length).append(']');
+                if (bytes.length <= MAX_LOGGED_BYTES) {
+                    sb.append(Arrays.toString(bytes));
+                }
+            } else if (value instanceof Object[]) {
+                sb.append(Arrays.toString((Object[]) value));
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    @Override
+    public void clearParameters() throws SQLException {
+        super.clearParameters();
+        if (params != null) {
+            Arrays.fill(params, null);
+        }
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) throws SQLException {
+        super.setNull(parameterIndex, sqlType);
+        setParam(parameterIndex, "NULL");
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) throws SQLException {
+        super.setBoolean(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) throws SQLException {
+        super.setByte(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) throws SQLException {
+        super.setShort(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) throws SQLException {
+        super.setInt(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) throws SQLException {
+        super.setLong(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) throws SQLException {
+        super.setString(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) throws SQLException {
+        super.setBytes(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) throws SQLException {
+        super.setTimestamp(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) throws SQLException {
+        super.setObject(parameterIndex, x);
+        setParam(parameterIndex, x);
+    }
+
     private static void logThreshold(String msg) {
         StringBuilder sb = new StringBuilder(512);
         sb.append(msg).append('\n');
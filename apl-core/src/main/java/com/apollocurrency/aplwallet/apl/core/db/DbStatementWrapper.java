@@ -31,35 +31,34 @@ public class DbStatementWrapper extends FilteredStatement {
 
     @Override
     public boolean execute(String sql) throws SQLException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         boolean b = super.execute(sql);
-        long elapsed = System.currentTimeMillis() - start;
-        if (elapsed > stmtThreshold)
-            logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s",
-                    (double)elapsed/1000.0, lookupBlockchain().getHeight(), sql));
+        afterExecute(sql, System.nanoTime() - start);
         return b;
     }
 
     @Override
     public ResultSet executeQuery(String sql) throws SQLException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         ResultSet r = super.executeQuery(sql);
-        long elapsed = System.currentTimeMillis() - start;
-        if (elapsed > stmtThreshold)
-            logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s",
-                    (double)elapsed/1000.0, lookupBlockchain().getHeight(), sql));
+        afterExecute(sql, System.nanoTime() - start);
         return r;
     }
 
     @Override
     public int executeUpdate(String sql) throws SQLException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         int c = super.executeUpdate(sql);
-        long elapsed = System.currentTimeMillis() - start;
+        afterExecute(sql, System.nanoTime() - start);
+        return c;
+    }
+
+    private void afterExecute(String sql, long elapsedNanos) {
+        SqlStatistics.getInstance().record(sql, elapsedNanos);
+        long elapsed = elapsedNanos / 1_000_000;
         if (elapsed > stmtThreshold)
             logThreshold(String.format("SQL statement required %.3f seconds at height %d:\n%s",
                     (double)elapsed/1000.0, lookupBlockchain().getHeight(), sql));
-        return c;
     }
 
     private static void logThreshold(String msg) {
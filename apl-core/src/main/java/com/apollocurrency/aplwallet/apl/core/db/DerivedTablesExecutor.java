@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.slf4j.Logger;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Rolls back or truncates derived tables.
+ * <p>
+ * All tables are processed one after another in the calling thread's transaction, so pop-off and rescan remain
+ * atomic: transaction is neither committed here nor split between connections, and changes of all tables are
+ * committed or rolled back by the caller together with its own changes. Time spent in every table is logged,
+ * so the slowest tables can be found.
+ */
+public class DerivedTablesExecutor {
+    private static final Logger log = getLogger(DerivedTablesExecutor.class);
+
+    private final Supplier<TransactionalDataSource> dataSource;
+
+    /**
+     * @param dataSource supplies main db data source
+     */
+    public DerivedTablesExecutor(Supplier<TransactionalDataSource> dataSource) {
+        this.dataSource = Objects.requireNonNull(dataSource, "dataSource is NULL");
+    }
+
+    /**
+     * Delete rows above height from all tables, should be called in transaction
+     * @param tables derived tables
+     * @param height height to roll back to
+     */
+    public void rollback(Collection<DerivedDbTable> tables, int height) {
+        execute(tables, table -> table.rollback(height), "rolled back to height " + height);
+    }
+
+    /**
+     * Delete all rows from all tables, should be called in transaction
+     * @param tables derived tables
+     */
+    public void truncate(Collection<DerivedDbTable> tables) {
+        execute(tables, DerivedDbTable::truncate, "truncated");
+    }
+
+    private void execute(Collection<DerivedDbTable> tables, Consumer<DerivedDbTable> operation, String operationName) {
+        if (!dataSource.get().isInTransaction()) {
+            throw new IllegalStateException("Not in transaction");
+        }
+        long start = System.currentTimeMillis();
+        for (DerivedDbTable table : tables) {
+            long tableStart = System.currentTimeMillis();
+            operation.accept(table);
+            log.debug("Table {} {} in {} ms", table, operationName, System.currentTimeMillis() - tableStart);
+        }
+        log.debug("{} derived tables {} in {} ms", tables.size(), operationName, System.currentTimeMillis() - start);
+    }
+}
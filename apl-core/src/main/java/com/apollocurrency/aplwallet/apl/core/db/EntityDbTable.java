@@ -45,6 +45,14 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
     protected final KeyFactory<T> dbKeyFactory;
     private final String defaultSort;
     private final String fullTextSearchColumns;
+    // SQL which does not depend on call arguments is built once per table
+    private String getSql;
+    private String getAtHeightSql;
+    private String countSql;
+    private String rowCountSql;
+    private String updateLatestSql;
+    private String existsSql;
+    private volatile TableRowCounter rowCounter;
     private static Blockchain blockchain;
     private static BlockchainProcessor blockchainProcessor;
     private static FullTextSearchService fullText;
@@ -67,6 +75,7 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
         this.multiversion = multiversion;
         this.defaultSort = " ORDER BY " + (multiversion ? dbKeyFactory.getPKColumns() : " height DESC, db_id DESC ");
         this.fullTextSearchColumns = fullTextSearchColumns;
+        buildSql();
     }
 
     EntityDbTable(String table, KeyFactory<T> dbKeyFactory, boolean multiversion, String fullTextSearchColumns) {
@@ -79,6 +88,19 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
          this.dbKeyFactory = dbKeyFactory;
          this.defaultSort = "";
          this.fullTextSearchColumns = "";
+         buildSql();
+    }
+
+    private void buildSql() {
+        getSql = "SELECT * FROM " + table + dbKeyFactory.getPKClause()
+                + (multiversion ? " AND latest = TRUE LIMIT 1" : "");
+        getAtHeightSql = "SELECT * FROM " + table + dbKeyFactory.getPKClause()
+                + " AND height <= ?" + (multiversion ? " AND (latest = TRUE OR EXISTS ("
+                + "SELECT 1 FROM " + table + dbKeyFactory.getPKClause() + " AND height > ?)) ORDER BY height DESC LIMIT 1" : "");
+        countSql = "SELECT COUNT(*) FROM " + table + (multiversion ? " WHERE latest = TRUE" : "");
+        rowCountSql = "SELECT COUNT(*) FROM " + table;
+        updateLatestSql = "UPDATE " + table + " SET latest = FALSE " + dbKeyFactory.getPKClause() + " AND latest = TRUE LIMIT 1";
+        existsSql = "SELECT 1 FROM " + table + dbKeyFactory.getPKClause() + " LIMIT 1";
     }
 
     protected abstract T load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException;
@@ -89,6 +111,46 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
         return defaultSort;
     }
 
+    /**
+     * Override to return true, when rows of the table are added and removed only by {@link #insert(Object)},
+     * {@link VersionedEntityDbTable#delete(Object)}, {@link #rollback(int)} and {@link #truncate()}.
+     * Then {@link #getCount()} and {@link #getHoldingCount(long)} read counters maintained by these methods
+     * instead of counting rows.
+     * @return true to maintain row counters
+     */
+    protected boolean isRowCountTracked() {
+        return false;
+    }
+
+    /**
+     * @return column of the holding for {@link #getHoldingCount(long)}, null when counts are not grouped
+     */
+    protected String getHoldingColumn() {
+        return null;
+    }
+
+    /**
+     * @param t entity
+     * @return holding id of the entity, stored in {@link #getHoldingColumn()}
+     */
+    protected long getHoldingId(T t) {
+        return TableRowCounter.TOTAL;
+    }
+
+    private TableRowCounter getRowCounter() {
+        if (rowCounter == null && isRowCountTracked()) {
+            rowCounter = new TableRowCounter(databaseManager, table, getHoldingColumn(), multiversion);
+        }
+        return rowCounter;
+    }
+
+    void countChanged(T t, int delta) {
+        TableRowCounter counter = getRowCounter();
+        if (counter != null) {
+            counter.change(getHoldingColumn() == null ? TableRowCounter.TOTAL : getHoldingId(t), delta);
+        }
+    }
+
     protected void clearCache() {
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         dataSource.clearCache(table);
@@ -139,8 +201,7 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
             }
         }
         try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("SELECT * FROM " + table + dbKeyFactory.getPKClause()
-             + (multiversion ? " AND latest = TRUE LIMIT 1" : ""))) {
+             PreparedStatement pstmt = con.prepareStatement(getSql)) {
             dbKey.setPK(pstmt);
             return get(con, pstmt, cache);
         } catch (SQLException e) {
@@ -155,9 +216,7 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
         checkAvailable(height);
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("SELECT * FROM " + table + dbKeyFactory.getPKClause()
-                     + " AND height <= ?" + (multiversion ? " AND (latest = TRUE OR EXISTS ("
-                     + "SELECT 1 FROM " + table + dbKeyFactory.getPKClause() + " AND height > ?)) ORDER BY height DESC LIMIT 1" : ""))) {
+             PreparedStatement pstmt = con.prepareStatement(getAtHeightSql)) {
             int i = dbKey.setPK(pstmt);
             pstmt.setInt(i, height);
             if (multiversion) {
@@ -390,16 +449,38 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
     }
 
     public final int getCount() {
+        TableRowCounter counter = getRowCounter();
+        if (counter != null) {
+            Integer count = counter.get(TableRowCounter.TOTAL);
+            if (count != null) {
+                return count;
+            }
+        }
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("SELECT COUNT(*) FROM " + table
-                     + (multiversion ? " WHERE latest = TRUE" : ""))) {
+             PreparedStatement pstmt = con.prepareStatement(countSql)) {
             return getCount(pstmt);
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
     }
 
+    /**
+     * Number of rows of the holding, the same as getCount(new DbClause.LongClause(getHoldingColumn(), holdingId))
+     * @param holdingId holding id
+     * @return number of rows
+     */
+    public final int getHoldingCount(long holdingId) {
+        TableRowCounter counter = getRowCounter();
+        if (counter != null && getHoldingColumn() != null) {
+            Integer count = counter.get(holdingId);
+            if (count != null) {
+                return count;
+            }
+        }
+        return getCount(new DbClause.LongClause(getHoldingColumn(), holdingId));
+    }
+
     public final int getCount(DbClause dbClause) {
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
@@ -446,7 +527,7 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
     public final int getRowCount() {
         TransactionalDataSource dataSource = databaseManager.getDataSource();
         try (Connection con = dataSource.getConnection();
-             PreparedStatement pstmt = con.prepareStatement("SELECT COUNT(*) FROM " + table)) {
+             PreparedStatement pstmt = con.prepareStatement(rowCountSql)) {
             return getCount(pstmt);
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
@@ -478,14 +559,24 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
                     + "that was read outside the current transaction");
         }
         try (Connection con = dataSource.getConnection()) {
+            boolean exists = false;
             if (multiversion) {
-                try (PreparedStatement pstmt = con.prepareStatement("UPDATE " + table
-                        + " SET latest = FALSE " + dbKeyFactory.getPKClause() + " AND latest = TRUE LIMIT 1")) {
+                try (PreparedStatement pstmt = con.prepareStatement(updateLatestSql)) {
+                    dbKey.setPK(pstmt);
+                    exists = pstmt.executeUpdate() > 0;
+                }
+            } else if (getRowCounter() != null) {
+                try (PreparedStatement pstmt = con.prepareStatement(existsSql)) {
                     dbKey.setPK(pstmt);
-                    pstmt.executeUpdate();
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        exists = rs.next();
+                    }
                 }
             }
             save(con, t);
+            if (!exists) {
+                countChanged(t, 1);
+            }
         } catch (SQLException e) {
             throw new RuntimeException(e.toString(), e);
         }
@@ -493,14 +584,30 @@ public abstract class EntityDbTable<T> extends DerivedDbTable {
 
     @Override
     public void rollback(int height) {
+        TableRowCounter counter = getRowCounter();
+        if (counter != null) {
+            counter.beforeRollback(height);
+        }
         if (multiversion) {
             TransactionalDataSource dataSource = databaseManager.getDataSource();
-            VersionedEntityDbTable.rollback(dataSource, table, height, dbKeyFactory);
+            int restored = VersionedEntityDbTable.rollback(dataSource, table, height, dbKeyFactory);
+            if (counter != null) {
+                counter.change(TableRowCounter.TOTAL, restored);
+            }
         } else {
             super.rollback(height);
         }
     }
 
+    @Override
+    public void truncate() {
+        super.truncate();
+        TableRowCounter counter = getRowCounter();
+        if (counter != null) {
+            counter.reset();
+        }
+    }
+
     @Override
     public void trim(int height, TransactionalDataSource dataSource) {
         if (multiversion) {
@@ -45,15 +45,27 @@ import java.util.concurrent.Executor;
  * The wrapper forwards all methods to the wrapped connection.  The supplied factory is
  * used to create wrappers for statements and prepared statements that are created for
  * this connection.
+ *
+ * When created with a positive statement cache size, prepared statements created by
+ * {@link #prepareStatement(String)} are kept in a per-connection LRU cache keyed by SQL text
+ * and are reused instead of being parsed again by the database. Cached statements are closed
+ * together with the wrapper, so the cache pays off only for wrappers which live long, like
+ * the transaction connection of {@link TransactionalDataSource}.
  */
 public class FilteredConnection implements Connection {
 
     private final Connection con;
     private final FilteredFactory factory;
+    private final PreparedStatementCache statementCache;
 
     public FilteredConnection(Connection con, FilteredFactory factory) {
+        this(con, factory, 0);
+    }
+
+    public FilteredConnection(Connection con, FilteredFactory factory, int statementCacheSize) {
         this.con = con;
         this.factory = factory;
+        this.statementCache = statementCacheSize > 0 ? new PreparedStatementCache(statementCacheSize) : null;
     }
 
     @Override
@@ -63,7 +75,18 @@ public class FilteredConnection implements Connection {
 
     @Override
     public PreparedStatement prepareStatement(String sql) throws SQLException {
-        return factory.createPreparedStatement(con.prepareStatement(sql), sql);
+        if (statementCache == null) {
+            return factory.createPreparedStatement(con.prepareStatement(sql), sql);
+        }
+        PreparedStatement stmt = statementCache.take(sql);
+        if (stmt == null) {
+            stmt = con.prepareStatement(sql);
+        }
+        PreparedStatement filtered = factory.createPreparedStatement(stmt, sql);
+        if (filtered instanceof FilteredPreparedStatement) {
+            ((FilteredPreparedStatement) filtered).setStatementCache(statementCache);
+        }
+        return filtered;
     }
 
     @Override
@@ -98,6 +121,9 @@ public class FilteredConnection implements Connection {
 
     @Override
     public void close() throws SQLException {
+        if (statementCache != null) {
+            statementCache.clear();
+        }
         con.close();
     }
 
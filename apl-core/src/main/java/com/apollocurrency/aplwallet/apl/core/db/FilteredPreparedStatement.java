@@ -47,6 +47,12 @@ public class FilteredPreparedStatement extends FilteredStatement implements Prep
 
     private final PreparedStatement stmt;
     private final String sql;
+    private PreparedStatementCache statementCache;
+    private boolean reusable = true;
+    private boolean closed;
+    private int defaultMaxRows = -1;
+    private int defaultFetchSize = -1;
+    private int defaultQueryTimeout = -1;
 
     public FilteredPreparedStatement(PreparedStatement stmt, String sql) {
         super(stmt);
@@ -58,6 +64,84 @@ public class FilteredPreparedStatement extends FilteredStatement implements Prep
         return sql;
     }
 
+    /**
+     * Set cache to which the wrapped statement will be returned on close instead of being closed
+     * @param statementCache owning connection statement cache
+     */
+    void setStatementCache(PreparedStatementCache statementCache) {
+        this.statementCache = statementCache;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (statementCache != null && reusable && restoreDefaults() && statementCache.release(sql, stmt)) {
+            return;
+        }
+        super.close();
+    }
+
+    private boolean restoreDefaults() {
+        try {
+            if (defaultMaxRows >= 0) {
+                stmt.setMaxRows(defaultMaxRows);
+            }
+            if (defaultFetchSize >= 0) {
+                stmt.setFetchSize(defaultFetchSize);
+            }
+            if (defaultQueryTimeout >= 0) {
+                stmt.setQueryTimeout(defaultQueryTimeout);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return closed || super.isClosed();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        if (defaultMaxRows < 0) {
+            defaultMaxRows = stmt.getMaxRows();
+        }
+        super.setMaxRows(max);
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        if (defaultFetchSize < 0) {
+            defaultFetchSize = stmt.getFetchSize();
+        }
+        super.setFetchSize(rows);
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        if (defaultQueryTimeout < 0) {
+            defaultQueryTimeout = stmt.getQueryTimeout();
+        }
+        super.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        reusable = false;
+        super.setMaxFieldSize(max);
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        reusable = false;
+        super.closeOnCompletion();
+    }
+
     @Override
     public ResultSet executeQuery() throws SQLException {
         return stmt.executeQuery();
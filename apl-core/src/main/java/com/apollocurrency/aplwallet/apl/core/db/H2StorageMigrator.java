@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Converts H2 database file between PageStore (.h2.db) and MVStore (.mv.db) storage engines.
+ * <p>
+ * H2 creates new empty database when storage engine is set explicitly in the url and only file of another engine
+ * exists. To keep data, database is exported into compressed sql script, imported into new file of the
+ * required engine and old file is renamed to '.bak'. Nothing is done for in-memory and server databases, for
+ * databases which already have file of the required engine and for new databases.
+ */
+public class H2StorageMigrator {
+    private static final Logger log = getLogger(H2StorageMigrator.class);
+    public static final String PAGE_STORE_SUFFIX = ".h2.db";
+    public static final String MV_STORE_SUFFIX = ".mv.db";
+    private static final String BACKUP_SUFFIX = ".bak";
+    private static final String SCRIPT_SUFFIX = ".migration.sql";
+
+    private final String dbUrl;
+    private final String user;
+    private final String password;
+
+    /**
+     * @param dbUrl full url of the database, including MV_STORE setting
+     * @param user database user
+     * @param password database password
+     */
+    public H2StorageMigrator(String dbUrl, String user, String password) {
+        this.dbUrl = dbUrl;
+        this.user = user;
+        this.password = password;
+    }
+
+    /**
+     * Convert existing database file into storage engine specified by url, when required
+     * @return true when database was converted
+     */
+    public boolean migrateIfNeeded() {
+        String dbPath = getDbPath(dbUrl);
+        if (dbPath == null) {
+            return false;
+        }
+        boolean mvStore = isMvStore(dbUrl);
+        Path target = Paths.get(dbPath + (mvStore ? MV_STORE_SUFFIX : PAGE_STORE_SUFFIX));
+        Path source = Paths.get(dbPath + (mvStore ? PAGE_STORE_SUFFIX : MV_STORE_SUFFIX));
+        if (Files.exists(target) || !Files.exists(source)) {
+            return false;
+        }
+        String sourceUrl = dbUrl.substring(0, dbUrl.indexOf(';') < 0 ? dbUrl.length() : dbUrl.indexOf(';'))
+                + ";MV_STORE=" + !mvStore;
+        Path script = Paths.get(dbPath + SCRIPT_SUFFIX);
+        log.info("Converting database '{}' to {} storage, it may take a while...", dbPath, mvStore ? "MVStore" : "PageStore");
+        long start = System.currentTimeMillis();
+        try {
+            try (Connection con = DriverManager.getConnection(sourceUrl, user, password);
+                 Statement stmt = con.createStatement()) {
+                stmt.execute("SCRIPT TO '" + script + "' COMPRESSION DEFLATE");
+                stmt.execute("SHUTDOWN");
+            }
+            try (Connection con = DriverManager.getConnection(dbUrl, user, password);
+                 Statement stmt = con.createStatement()) {
+                stmt.execute("RUNSCRIPT FROM '" + script + "' COMPRESSION DEFLATE");
+                stmt.execute("SHUTDOWN COMPACT");
+            }
+            Files.move(source, Paths.get(source + BACKUP_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+        } catch (SQLException | IOException e) {
+            deleteQuietly(target);
+            throw new RuntimeException("Unable to convert database " + dbPath + ": " + e.toString(), e);
+        } finally {
+            deleteQuietly(script);
+        }
+        log.info("Database '{}' converted in {} ms, old file is kept as '{}'", dbPath,
+                System.currentTimeMillis() - start, source + BACKUP_SUFFIX);
+        return true;
+    }
+
+    /**
+     * Extract path of the database file without suffix from embedded file database url
+     * @param dbUrl h2 database url
+     * @return database path or null for in-memory, server and other non-file databases
+     */
+    static String getDbPath(String dbUrl) {
+        String prefix = "jdbc:h2:";
+        if (dbUrl == null || !dbUrl.startsWith(prefix)) {
+            return null;
+        }
+        String path = dbUrl.substring(prefix.length());
+        int paramsIndex = path.indexOf(';');
+        if (paramsIndex >= 0) {
+            path = path.substring(0, paramsIndex);
+        }
+        if (path.startsWith("file:")) {
+            path = path.substring("file:".length());
+        } else if (path.matches("^[a-zA-Z]{2,}:.*")) {
+            return null; // mem:, tcp:, ssl:, zip:, etc.
+        }
+        return path.isEmpty() ? null : path;
+    }
+
+    static boolean isMvStore(String dbUrl) {
+        return dbUrl.toUpperCase().contains(";MV_STORE=TRUE");
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Unable to delete {}: {}", path, e.toString());
+        }
+    }
+}
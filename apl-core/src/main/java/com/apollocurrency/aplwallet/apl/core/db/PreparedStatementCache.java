@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-connection LRU cache of prepared statements keyed by SQL text.
+ *
+ * A statement is removed from the cache while in use and put back when its
+ * {@link FilteredPreparedStatement} wrapper is closed, so nested queries with the same SQL
+ * never share one statement. Like the connection itself, the cache is not thread-safe.
+ * Only transaction connections have the cache, see {@link TransactionalDataSource#getConnection()}.
+ */
+class PreparedStatementCache {
+
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+
+    PreparedStatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > PreparedStatementCache.this.maxSize) {
+                    DbUtils.close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Take a cached statement out of the cache
+     * @param sql SQL text
+     * @return cached statement or null when nothing is cached for that SQL
+     */
+    PreparedStatement take(String sql) {
+        return statements.remove(sql);
+    }
+
+    /**
+     * Return statement to the cache
+     * @param sql SQL text
+     * @param stmt statement to keep
+     * @return true when statement was cached, false when caller should close it
+     */
+    boolean release(String sql, PreparedStatement stmt) {
+        if (statements.containsKey(sql)) {
+            return false;
+        }
+        try {
+            if (stmt.isClosed()) {
+                return false;
+            }
+            stmt.clearParameters();
+            stmt.clearWarnings();
+        } catch (SQLException e) {
+            return false;
+        }
+        statements.put(sql, stmt);
+        return true;
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    /**
+     * Close all cached statements, should be called before closing connection
+     */
+    void clear() {
+        statements.values().forEach(DbUtils::close);
+        statements.clear();
+    }
+}
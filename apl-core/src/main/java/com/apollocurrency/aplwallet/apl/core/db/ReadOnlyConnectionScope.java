@@ -0,0 +1,41 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+/**
+ * Marks the current thread as executing read-only queries, e.g. API requests.
+ * While the scope is active, {@link TransactionalDataSource#getConnection()} outside of a
+ * transaction returns connections from the separate read-only pool (when configured), so API load
+ * can never exhaust connections needed by block processing.
+ * Scopes may be nested, usage:
+ * <pre>
+ *     ReadOnlyConnectionScope.enter();
+ *     try {
+ *         ...
+ *     } finally {
+ *         ReadOnlyConnectionScope.exit();
+ *     }
+ * </pre>
+ */
+public final class ReadOnlyConnectionScope {
+    private static final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+    public static void enter() {
+        depth.get()[0]++;
+    }
+
+    public static void exit() {
+        int[] d = depth.get();
+        if (d[0] > 0) {
+            d[0]--;
+        }
+    }
+
+    public static boolean isActive() {
+        return depth.get()[0] > 0;
+    }
+
+    private ReadOnlyConnectionScope() {} // never
+}
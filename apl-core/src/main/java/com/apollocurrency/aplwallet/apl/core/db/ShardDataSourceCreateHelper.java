@@ -13,6 +13,7 @@ import java.sql.SQLException;
 
 import com.apollocurrency.aplwallet.apl.core.shard.ShardNameHelper;
 import com.apollocurrency.aplwallet.apl.util.injectable.DbProperties;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
 import org.slf4j.Logger;
 
 /**
@@ -27,6 +28,7 @@ public class ShardDataSourceCreateHelper {
     private Long shardId;
     private String shardName;
     private TransactionalDataSource shardDb;
+    private int maxCacheSize; // kB, 0 - same as main db
 
     public ShardDataSourceCreateHelper(DatabaseManager databaseManager) {
         this.databaseManager = databaseManager;
@@ -37,6 +39,17 @@ public class ShardDataSourceCreateHelper {
         this.shardId = shardId;
     }
 
+    /**
+     * Create helper for shard data source with own H2 cache size
+     * @param databaseManager database manager
+     * @param shardId shard id, can be NULL then last shardId is selected from 'SHARD' table
+     * @param maxCacheSize H2 cache size in kB, 0 to use the same cache size as main db
+     */
+    public ShardDataSourceCreateHelper(DatabaseManager databaseManager, Long shardId, int maxCacheSize) {
+        this(databaseManager, shardId);
+        this.maxCacheSize = maxCacheSize;
+    }
+
     public Long getShardId() {
         return shardId;
     }
@@ -67,6 +80,16 @@ public class ShardDataSourceCreateHelper {
                     .dbFileName(shardName) // change file name
                     .dbUrl(null)  // nullify dbUrl intentionally!;
                     .dbIdentity(shardId); // put shard related info
+            if (maxCacheSize > 0) {
+                shardDbProperties.maxCacheSize(maxCacheSize);
+            }
+            PropertiesHolder propertiesHolder = databaseManager.getPropertiesHolder();
+            if (propertiesHolder != null) {
+                // shards are not changed after creation, so they may use compressed storage
+                boolean mvStore = propertiesHolder.getBooleanProperty("apl.shardDbMvStore", shardDbProperties.isMvStore());
+                shardDbProperties.mvStore(mvStore)
+                        .compress(mvStore && propertiesHolder.getBooleanProperty("apl.shardDbCompress"));
+            }
         } catch (CloneNotSupportedException e) {
             log.error("DbProperties cloning error", e);
         }
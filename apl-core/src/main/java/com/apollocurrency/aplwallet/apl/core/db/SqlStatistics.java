@@ -0,0 +1,230 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Process-wide latency statistics of the SQL statements executed through the statement wrappers
+ * and the Jdbi DAOs.
+ * <p>
+ * Statements are grouped by normalized SQL text (literals replaced by '?', whitespace collapsed)
+ * and by the first table the statement refers to. Each group keeps execution count, total and max time
+ * and a log2 histogram of latencies in microseconds, from which percentiles are estimated.
+ * Recording costs a couple of map lookups and counter increments, so statistics may be left
+ * enabled in production.
+ */
+public final class SqlStatistics {
+    /**
+     * Number of histogram buckets, bucket i holds latencies in [2^(i-1), 2^i) microseconds
+     */
+    private static final int BUCKETS = 32;
+    private static final String OTHER = "OTHER";
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TABLE = Pattern.compile("\\b(?:FROM|INTO|UPDATE|TABLE)\\s+([\\w.]+)", Pattern.CASE_INSENSITIVE);
+
+    private final Map<String, Entry> bySql = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byTable = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byRawSql = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    private volatile int maxStatements = 1000;
+
+    private static class SqlStatisticsHolder {
+        private static final SqlStatistics INSTANCE = new SqlStatistics();
+    }
+
+    public static SqlStatistics getInstance() {
+        return SqlStatisticsHolder.INSTANCE;
+    }
+
+    SqlStatistics() {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Limit number of distinct statements to track, statements above limit are counted as 'OTHER'
+     * @param maxStatements max number of tracked normalized statements
+     */
+    public void setMaxStatements(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    /**
+     * Record one statement execution
+     * @param sql SQL text as passed to the driver
+     * @param elapsedNanos execution time in nanoseconds
+     */
+    public void record(String sql, long elapsedNanos) {
+        if (!enabled || sql == null) {
+            return;
+        }
+        Entry entry = byRawSql.get(sql);
+        if (entry == null) {
+            entry = lookup(sql);
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        entry.add(micros);
+        entry.tableEntry.add(micros);
+    }
+
+    private Entry lookup(String sql) {
+        String normalized = normalize(sql);
+        Entry entry = bySql.get(normalized);
+        if (entry == null) {
+            if (bySql.size() >= maxStatements) {
+                entry = bySql.computeIfAbsent(OTHER, k -> new Entry(OTHER, tableEntry(OTHER)));
+            } else {
+                entry = bySql.computeIfAbsent(normalized, k -> new Entry(k, tableEntry(extractTable(k))));
+            }
+        }
+        if (byRawSql.size() < maxStatements * 2) {
+            byRawSql.put(sql, entry);
+        }
+        return entry;
+    }
+
+    private Entry tableEntry(String table) {
+        return byTable.computeIfAbsent(table, k -> new Entry(k, null));
+    }
+
+    /**
+     * Statistics grouped by normalized SQL, sorted by total execution time descending
+     * @param limit max number of returned statements
+     * @return list of statement statistics
+     */
+    public List<Entry> getStatementStatistics(int limit) {
+        return sorted(bySql, limit);
+    }
+
+    /**
+     * Statistics grouped by table, sorted by total execution time descending
+     * @param limit max number of returned tables
+     * @return list of table statistics
+     */
+    public List<Entry> getTableStatistics(int limit) {
+        return sorted(byTable, limit);
+    }
+
+    private static List<Entry> sorted(Map<String, Entry> map, int limit) {
+        List<Entry> result = new ArrayList<>(map.values());
+        result.sort(Comparator.comparingLong(Entry::getTotalMicros).reversed());
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    public void reset() {
+        byRawSql.clear();
+        bySql.clear();
+        byTable.clear();
+    }
+
+    static String normalize(String sql) {
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim();
+    }
+
+    static String extractTable(String sql) {
+        Matcher matcher = TABLE.matcher(sql);
+        return matcher.find() ? matcher.group(1).toLowerCase() : OTHER;
+    }
+
+    /**
+     * Execution statistics of a single statement or table
+     */
+    public static class Entry {
+        private final String name;
+        private final Entry tableEntry;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalMicros = new LongAdder();
+        private final AtomicLong maxMicros = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Entry(String name, Entry tableEntry) {
+            this.name = name;
+            this.tableEntry = tableEntry;
+        }
+
+        void add(long micros) {
+            count.increment();
+            totalMicros.add(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+            histogram.incrementAndGet(bucket);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getTable() {
+            return tableEntry == null ? name : tableEntry.name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalMicros() {
+            return totalMicros.sum();
+        }
+
+        public long getMaxMicros() {
+            return maxMicros.get();
+        }
+
+        public long getAvgMicros() {
+            long n = getCount();
+            return n == 0 ? 0 : getTotalMicros() / n;
+        }
+
+        /**
+         * Estimate latency percentile as upper bound of the histogram bucket
+         * @param percentile value between 0 and 100
+         * @return estimated latency in microseconds
+         */
+        public long getPercentileMicros(double percentile) {
+            long[] buckets = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = histogram.get(i);
+                total += buckets[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(total * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(i == 0 ? 0 : (1L << i) - 1, getMaxMicros());
+                }
+            }
+            return getMaxMicros();
+        }
+    }
+}
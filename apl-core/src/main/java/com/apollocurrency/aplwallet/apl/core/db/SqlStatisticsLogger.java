@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.jdbi.v3.core.statement.SqlLogger;
+import org.jdbi.v3.core.statement.StatementContext;
+import org.slf4j.Logger;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Jdbi statement logger which feeds {@link SqlStatistics} and logs slow Jdbi DAO statements
+ * together with their bindings
+ */
+public class SqlStatisticsLogger implements SqlLogger {
+    private static final Logger log = getLogger(SqlStatisticsLogger.class);
+
+    private final long stmtThreshold;
+
+    public SqlStatisticsLogger(long stmtThreshold) {
+        this.stmtThreshold = stmtThreshold;
+    }
+
+    @Override
+    public void logAfterExecution(StatementContext context) {
+        record(context);
+    }
+
+    @Override
+    public void logException(StatementContext context, SQLException ex) {
+        record(context);
+    }
+
+    private void record(StatementContext context) {
+        Instant start = context.getExecutionMoment();
+        Instant end = context.getCompletionMoment() != null ? context.getCompletionMoment() : context.getExceptionMoment();
+        if (start == null || end == null) {
+            return;
+        }
+        long elapsedNanos = Duration.between(start, end).toNanos();
+        SqlStatistics.getInstance().record(context.getRenderedSql(), elapsedNanos);
+        long elapsed = elapsedNanos / 1_000_000;
+        if (elapsed > stmtThreshold) {
+            log.debug(String.format("SQL statement required %.3f seconds:\n%s\nparameters: %s",
+                    (double) elapsed / 1000.0, context.getRenderedSql(), context.getBinding()));
+        }
+    }
+}
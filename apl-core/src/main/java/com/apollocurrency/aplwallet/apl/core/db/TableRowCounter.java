@@ -0,0 +1,222 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Number of the latest rows of the derived table, in total and grouped by holding, stored in derived_table_count table.
+ * <p>
+ * Table changes are accumulated per db transaction as count deltas and written to derived_table_count just before
+ * the transaction is committed, so stored counts are always consistent with table rows. Reading stored count is
+ * a primary key lookup. Count which is not stored yet is calculated and stored by the first transaction
+ * which changes it, until then {@link #get(long)} returns null and count should be selected from the table itself.
+ */
+class TableRowCounter implements TransactionCallback {
+    static final long TOTAL = 0;
+
+    private final DatabaseManager databaseManager;
+    private final String table;
+    private final String holdingColumn;
+    private final String latestClause;
+    private final ThreadLocal<Pending> pending = new ThreadLocal<>();
+
+    private static class Pending {
+        private long total;
+        private boolean reset;
+        private final Map<Long, Long> holdings = new HashMap<>();
+        private final Set<Long> invalidHoldings = new HashSet<>();
+    }
+
+    /**
+     * @param databaseManager database manager
+     * @param table derived table name
+     * @param holdingColumn column to group counts by, null when only total count is tracked
+     * @param multiversion true when only rows with latest = TRUE are counted
+     */
+    TableRowCounter(DatabaseManager databaseManager, String table, String holdingColumn, boolean multiversion) {
+        this.databaseManager = databaseManager;
+        this.table = table;
+        this.holdingColumn = holdingColumn;
+        this.latestClause = multiversion ? " AND latest = TRUE" : "";
+    }
+
+    /**
+     * Stored count including changes of the current transaction
+     * @param holdingId holding id or {@link #TOTAL}
+     * @return number of rows or null when count is not known
+     */
+    Integer get(long holdingId) {
+        Pending p = pending.get();
+        long delta = 0;
+        if (p != null) {
+            if (p.reset && holdingId == TOTAL) {
+                return (int) p.total;
+            }
+            if (p.reset || p.invalidHoldings.contains(holdingId)) {
+                return null;
+            }
+            delta = holdingId == TOTAL ? p.total : p.holdings.getOrDefault(holdingId, 0L);
+        }
+        try (Connection con = databaseManager.getDataSource().getConnection();
+             PreparedStatement pstmt = con.prepareStatement(
+                     "SELECT row_count FROM derived_table_count WHERE table_name = ? AND holding_id = ?")) {
+            pstmt.setString(1, table);
+            pstmt.setLong(2, holdingId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? (int) (rs.getLong(1) + delta) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Count rows added or removed by the current transaction
+     * @param holdingId holding of the changed row, ignored when counts are not grouped
+     * @param delta number of added rows, negative for removed rows
+     */
+    void change(long holdingId, long delta) {
+        Pending p = pending();
+        p.total += delta;
+        if (holdingColumn != null && !p.reset && !p.invalidHoldings.contains(holdingId)) {
+            p.holdings.merge(holdingId, delta, Long::sum);
+        }
+    }
+
+    /**
+     * Count rows which will be removed by rollback to height, should be called before rollback
+     * @param height rollback height
+     */
+    void beforeRollback(int height) {
+        Pending p = pending();
+        try (Connection con = databaseManager.getDataSource().getConnection()) {
+            try (PreparedStatement pstmt = con.prepareStatement("SELECT COUNT(*) FROM " + table
+                    + " WHERE height > ?" + latestClause)) {
+                pstmt.setInt(1, height);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    rs.next();
+                    p.total -= rs.getLong(1);
+                }
+            }
+            if (holdingColumn != null && !p.reset) {
+                // rollback revives previous versions of rows, so holding counts are recalculated
+                try (PreparedStatement pstmt = con.prepareStatement("SELECT DISTINCT " + holdingColumn + " FROM " + table
+                        + " WHERE height > ?")) {
+                    pstmt.setInt(1, height);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            long holdingId = rs.getLong(1);
+                            p.holdings.remove(holdingId);
+                            p.invalidHoldings.add(holdingId);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Table was truncated in the current transaction
+     */
+    void reset() {
+        Pending p = pending();
+        p.total = 0;
+        p.reset = true;
+        p.holdings.clear();
+        p.invalidHoldings.clear();
+    }
+
+    private Pending pending() {
+        Pending p = pending.get();
+        if (p == null) {
+            TransactionalDataSource dataSource = databaseManager.getDataSource();
+            if (!dataSource.isInTransaction()) {
+                throw new IllegalStateException("Not in transaction");
+            }
+            p = new Pending();
+            pending.set(p);
+            dataSource.registerCallback(this);
+        }
+        return p;
+    }
+
+    @Override
+    public void beforeCommit() {
+        Pending p = pending.get();
+        if (p == null) {
+            return;
+        }
+        try (Connection con = databaseManager.getDataSource().getConnection()) {
+            if (p.reset) {
+                try (PreparedStatement pstmt = con.prepareStatement("DELETE FROM derived_table_count WHERE table_name = ?")) {
+                    pstmt.setString(1, table);
+                    pstmt.executeUpdate();
+                }
+            }
+            store(con, TOTAL, p.total);
+            for (Map.Entry<Long, Long> entry : p.holdings.entrySet()) {
+                store(con, entry.getKey(), entry.getValue());
+            }
+            if (!p.invalidHoldings.isEmpty()) {
+                try (PreparedStatement pstmt = con.prepareStatement(
+                        "DELETE FROM derived_table_count WHERE table_name = ? AND holding_id = ?")) {
+                    for (Long holdingId : p.invalidHoldings) {
+                        pstmt.setString(1, table);
+                        pstmt.setLong(2, holdingId);
+                        pstmt.executeUpdate();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    private void store(Connection con, long holdingId, long delta) throws SQLException {
+        if (delta == 0) {
+            return;
+        }
+        try (PreparedStatement pstmt = con.prepareStatement("UPDATE derived_table_count SET row_count = row_count + ? "
+                + "WHERE table_name = ? AND holding_id = ?")) {
+            pstmt.setLong(1, delta);
+            pstmt.setString(2, table);
+            pstmt.setLong(3, holdingId);
+            if (pstmt.executeUpdate() > 0) {
+                return;
+            }
+        }
+        // count is not stored yet, select it in the current transaction, so it already includes delta
+        try (PreparedStatement pstmt = con.prepareStatement("INSERT INTO derived_table_count (table_name, holding_id, row_count) "
+                + "SELECT ?, ?, COUNT(*) FROM " + table + " WHERE " + (holdingId == TOTAL ? "TRUE" : holdingColumn + " = ?")
+                + latestClause)) {
+            pstmt.setString(1, table);
+            pstmt.setLong(2, holdingId);
+            if (holdingId != TOTAL) {
+                pstmt.setLong(3, holdingId);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void commit() {
+        pending.remove();
+    }
+
+    @Override
+    public void rollback() {
+        pending.remove();
+    }
+}
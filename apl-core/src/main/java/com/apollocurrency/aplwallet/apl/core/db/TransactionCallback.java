@@ -5,6 +5,12 @@ package com.apollocurrency.aplwallet.apl.core.db;
  */
 public interface TransactionCallback {
 
+    /**
+     * Transaction is about to be committed, changes made here are committed together with the transaction
+     */
+    default void beforeCommit() {
+    }
+
     /**
      * Transaction has been committed
      */
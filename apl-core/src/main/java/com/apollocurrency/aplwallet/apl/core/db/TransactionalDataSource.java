@@ -25,6 +25,8 @@ import static org.slf4j.LoggerFactory.getLogger;
 import com.apollocurrency.aplwallet.apl.util.injectable.DbProperties;
 import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
 import net.sf.log4jdbc.ConnectionSpy;
+import org.jdbi.v3.core.Jdbi;
+import org.jdbi.v3.core.statement.SqlStatements;
 import org.slf4j.Logger;
 
 import java.sql.Connection;
@@ -53,6 +55,10 @@ public class TransactionalDataSource extends DataSourceWrapper implements TableC
     private long txThreshold;
     private long txInterval;
     private boolean enableSqlLogs;
+    private int statementCacheSize;
+    private int readOnlyConnections;
+    private int readOnlyConnectionTimeout;
+    private int readOnlyQueryTimeout;
 
     private final ThreadLocal<DbConnectionWrapper> localConnection = new ThreadLocal<>();
     private final ThreadLocal<Map<String,Map<DbKey,Object>>> transactionCaches = new ThreadLocal<>();
@@ -77,11 +83,24 @@ public class TransactionalDataSource extends DataSourceWrapper implements TableC
                 propertiesHolder.getIntProperty("apl.statementLogThreshold", 1000),
                 propertiesHolder.getIntProperty("apl.transactionLogThreshold", 5000),
                 propertiesHolder.getIntProperty("apl.transactionLogInterval", 15) * 60 * 1000,
-                propertiesHolder.getBooleanProperty("apl.enableSqlLogs"));
+                propertiesHolder.getBooleanProperty("apl.enableSqlLogs"),
+                propertiesHolder.getIntProperty("apl.statementCacheSize", 256));
+        SqlStatistics.getInstance().setEnabled(propertiesHolder.getBooleanProperty("apl.enableSqlStatistics", true));
+        SqlStatistics.getInstance().setMaxStatements(propertiesHolder.getIntProperty("apl.sqlStatisticsMaxStatements", 1000));
+        DbIterator.setDefaultFetchSize(propertiesHolder.getIntProperty("apl.dbFetchSize", 100));
+        this.readOnlyConnections = propertiesHolder.getIntProperty("apl.apiMaxDbConnections", 10);
+        this.readOnlyConnectionTimeout = propertiesHolder.getIntProperty("apl.apiDbConnectionTimeout", 10) * 1000;
+        this.readOnlyQueryTimeout = propertiesHolder.getIntProperty("apl.apiQueryTimeout", 30) * 1000;
     }
 
     public TransactionalDataSource(DbProperties dbProperties, int stmtThreshold, int txThreshold, int txInterval, boolean enableSqlLogs) {
+        this(dbProperties, stmtThreshold, txThreshold, txInterval, enableSqlLogs, 0);
+    }
+
+    public TransactionalDataSource(DbProperties dbProperties, int stmtThreshold, int txThreshold, int txInterval, boolean enableSqlLogs,
+                                   int statementCacheSize) {
         super(dbProperties);
+        this.statementCacheSize = statementCacheSize;
         this.stmtThreshold = stmtThreshold;
         this.txThreshold = txThreshold;
         this.txInterval = txInterval;
@@ -91,8 +110,26 @@ public class TransactionalDataSource extends DataSourceWrapper implements TableC
     }
 
 
+    /**
+     * {@inheritDoc}
+     * Jdbi statements are additionally timed into {@link SqlStatistics}.
+     * For the main db separate read-only pool is created when configured.
+     */
+    @Override
+    public Jdbi init(DbVersion dbVersion) {
+        Jdbi jdbi = super.init(dbVersion);
+        jdbi.getConfig(SqlStatements.class).setSqlLogger(new SqlStatisticsLogger(stmtThreshold));
+        if (readOnlyConnections > 0 && !dbIdentity.isPresent()) {
+            initReadOnlyPool(readOnlyConnections, readOnlyConnectionTimeout, readOnlyQueryTimeout);
+        }
+        return jdbi;
+    }
+
     /**
      * Return Connection from ThreadLocal or create new one. AUTO COMMIT = TRUE for such db connection.
+     * New connection is taken from the read-only pool when {@link ReadOnlyConnectionScope} is active.
+     * Prepared statements are cached only by the transaction connection, which lives until the end of transaction,
+     * connection outside of transaction is closed after a few statements and would never reuse them.
      * @return db connection with autoCommit = true
      * @throws SQLException possible ini exception
      */
@@ -102,7 +139,8 @@ public class TransactionalDataSource extends DataSourceWrapper implements TableC
         if (con != null /*&& !con.isClosed() && !super.getConnection().isClosed()*/) {
             return enableSqlLogs ? new ConnectionSpy(con) : con;
         }
-        DbConnectionWrapper realConnection = new DbConnectionWrapper(super.getConnection(), factory,
+        Connection pooledConnection = ReadOnlyConnectionScope.isActive() ? getReadOnlyConnection() : super.getConnection();
+        DbConnectionWrapper realConnection = new DbConnectionWrapper(pooledConnection, factory,
                 localConnection, transactionCaches, transactionCallback);
         return enableSqlLogs ? new ConnectionSpy(realConnection) : realConnection;
     }
@@ -139,7 +177,8 @@ public class TransactionalDataSource extends DataSourceWrapper implements TableC
         try {
             Connection con = getPooledConnection();
             con.setAutoCommit(false);
-            DbConnectionWrapper wcon = new DbConnectionWrapper(con, factory, localConnection, transactionCaches, transactionCallback);
+            DbConnectionWrapper wcon = new DbConnectionWrapper(con, factory, localConnection, transactionCaches, transactionCallback,
+                    statementCacheSize);
             wcon.txStart = System.currentTimeMillis();
             localConnection.set(wcon);
             transactionCaches.set(new HashMap<>());
@@ -167,6 +206,10 @@ public class TransactionalDataSource extends DataSourceWrapper implements TableC
             throw new IllegalStateException("Not in transaction");
         }
         try {
+            Set<TransactionCallback> callbacks = transactionCallback.get();
+            if (callbacks != null) {
+                callbacks.forEach(TransactionCallback::beforeCommit);
+            }
             con.doCommit();
             cleanupTransactionCallback(TransactionCallback::commit);
         } catch (SQLException e) {
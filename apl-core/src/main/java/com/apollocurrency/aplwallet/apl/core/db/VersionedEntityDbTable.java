@@ -76,15 +76,22 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
                     try (PreparedStatement pstmt = con.prepareStatement("UPDATE " + table
                             + " SET latest = FALSE " + dbKeyFactory.getPKClause() + " AND latest = TRUE LIMIT 1")) {
                         dbKey.setPK(pstmt);
-                        pstmt.executeUpdate();
+                        boolean existed = pstmt.executeUpdate() > 0;
                         save(con, t);
                         pstmt.executeUpdate(); // delete after the save
+                        if (existed) {
+                            countChanged(t, -1);
+                        }
                     }
                     return true;
                 } else {
                     try (PreparedStatement pstmtDelete = con.prepareStatement("DELETE FROM " + table + dbKeyFactory.getPKClause())) {
                         dbKey.setPK(pstmtDelete);
-                        return pstmtDelete.executeUpdate() > 0;
+                        boolean deleted = pstmtDelete.executeUpdate() > 0;
+                        if (deleted) {
+                            countChanged(t, -1);
+                        }
+                        return deleted;
                     }
                 }
             }
@@ -99,11 +106,16 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
         }
     }
 
-    static void rollback(final TransactionalDataSource db, final String table, final int height, final KeyFactory dbKeyFactory) {
+    /**
+     * Delete rows above height and restore latest versions of the rolled back entities
+     * @return number of entities which became latest again
+     */
+    static int rollback(final TransactionalDataSource db, final String table, final int height, final KeyFactory dbKeyFactory) {
         if (!db.isInTransaction()) {
             throw new IllegalStateException("Not in transaction");
         }
         long startTime = System.currentTimeMillis();
+        int restored = 0;
         try (Connection con = db.getConnection();
              PreparedStatement pstmtSelectToDelete = con.prepareStatement("SELECT DISTINCT " + dbKeyFactory.getPKColumns()
                      + " FROM " + table + " WHERE height > ?");
@@ -135,7 +147,7 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
                 int i = 1;
                 i = dbKey.setPK(pstmtSetLatest, i);
                 i = dbKey.setPK(pstmtSetLatest, i);
-                pstmtSetLatest.executeUpdate();
+                restored += pstmtSetLatest.executeUpdate();
                 //DatabaseManager.getCache(table).remove(dbKey);
             }
         }
@@ -143,6 +155,7 @@ public abstract class VersionedEntityDbTable<T> extends EntityDbTable<T> {
             throw new RuntimeException(e.toString(), e);
         }
         LOG.trace("Rollback for table {} took {} ms", table, System.currentTimeMillis() - startTime);
+        return restored;
     }
 
     static void trim(final TransactionalDataSource dataSource, final String table, final int height, final KeyFactory dbKeyFactory) {
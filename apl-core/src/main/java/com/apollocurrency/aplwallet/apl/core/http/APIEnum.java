@@ -184,6 +184,7 @@ import com.apollocurrency.aplwallet.apl.core.http.get.GetSharedKey;
 import com.apollocurrency.aplwallet.apl.core.http.get.GetShufflers;
 import com.apollocurrency.aplwallet.apl.core.http.get.GetShuffling;
 import com.apollocurrency.aplwallet.apl.core.http.get.GetShufflingParticipants;
+import com.apollocurrency.aplwallet.apl.core.http.get.GetSqlStatistics;
 import com.apollocurrency.aplwallet.apl.core.http.get.GetStackTraces;
 import com.apollocurrency.aplwallet.apl.core.http.get.GetState;
 import com.apollocurrency.aplwallet.apl.core.http.get.GetTaggedData;
@@ -592,6 +593,7 @@ public enum APIEnum {
     CONFIRM_2FA("confirm2FA", new Confirm2FA()),
     GET_GENESIS_BALANCES("getGenesisBalances", new GetGenesisBalances()),
     DELETE_KEY("deleteKey", new DeleteKey()),
+    GET_SQL_STATISTICS("getSqlStatistics", new GetSqlStatistics()),
     ;
     private static final Map<String, APIEnum> apiByName = new HashMap<>();
 
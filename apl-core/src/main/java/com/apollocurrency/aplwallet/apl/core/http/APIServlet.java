@@ -34,6 +34,7 @@ import com.apollocurrency.aplwallet.apl.core.app.Helper2FA;
 import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
 import com.apollocurrency.aplwallet.apl.core.app.BlockchainImpl;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.ReadOnlyConnectionScope;
 import com.apollocurrency.aplwallet.apl.core.app.GlobalSync;
 import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
 import com.apollocurrency.aplwallet.apl.util.AplException;
@@ -193,7 +194,17 @@ public final class APIServlet extends HttpServlet {
                         response = REQUIRED_LAST_BLOCK_NOT_FOUND;
                         return;
                     }
-                    response = apiRequestHandler.processRequest(req, resp);
+                    boolean readOnly = apiRequestHandler.useReadOnlyConnections();
+                    if (readOnly) {
+                        ReadOnlyConnectionScope.enter();
+                    }
+                    try {
+                        response = apiRequestHandler.processRequest(req, resp);
+                    } finally {
+                        if (readOnly) {
+                            ReadOnlyConnectionScope.exit();
+                        }
+                    }
                     logRequestTime = apiRequestHandler.logRequestTime();
                     if (requireLastBlockId == 0 && requireBlockId != 0 && response instanceof JSONObject) {
                         ((JSONObject) response).put("lastBlock", blockchain.getLastBlock().getStringId());
@@ -111,6 +111,15 @@ public abstract class AbstractAPIRequestHandler {
         return false;
     }
 
+    /**
+     * Run request with db connections taken from the separate read-only pool,
+     * by default for all requests which do not require POST
+     * @return true if request only reads from db
+     */
+    protected boolean useReadOnlyConnections() {
+        return !requirePost();
+    }
+
 //    protected boolean startDbTransaction() {
 //        return false;
 //    }
@@ -21,12 +21,14 @@
 package com.apollocurrency.aplwallet.apl.core.http.get;
 
 import com.apollocurrency.aplwallet.apl.core.account.Account;
+import com.apollocurrency.aplwallet.apl.core.account.AccountBalanceHistoryTable;
 import com.apollocurrency.aplwallet.apl.core.http.APITag;
 import com.apollocurrency.aplwallet.apl.core.http.AbstractAPIRequestHandler;
 import com.apollocurrency.aplwallet.apl.core.http.JSONData;
 import com.apollocurrency.aplwallet.apl.core.http.ParameterParser;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import javax.enterprise.inject.Vetoed;
+import javax.enterprise.inject.spi.CDI;
 import org.json.simple.JSONStreamAware;
 
 import javax.servlet.http.HttpServletRequest;
@@ -34,6 +36,13 @@ import javax.servlet.http.HttpServletRequest;
 @Vetoed
 public final class GetBalance extends AbstractAPIRequestHandler {
 
+    private AccountBalanceHistoryTable balanceHistoryTable;
+
+    private AccountBalanceHistoryTable lookupBalanceHistoryTable() {
+        if (balanceHistoryTable == null) balanceHistoryTable = CDI.current().select(AccountBalanceHistoryTable.class).get();
+        return balanceHistoryTable;
+    }
+
     public GetBalance() {
         super(new APITag[] {APITag.ACCOUNTS}, "account", "includeEffectiveBalance", "height");
     }
@@ -46,6 +55,12 @@ public final class GetBalance extends AbstractAPIRequestHandler {
         if (height < 0) {
             height = lookupBlockchain().getHeight();
         }
+        AccountBalanceHistoryTable balanceHistoryTable = lookupBalanceHistoryTable();
+        if (height < lookupBlockchainProcessor().getMinRollbackHeight() && balanceHistoryTable.isAvailable(height)) {
+            // trimmed height, effective balance is not available
+            Account account = balanceHistoryTable.getAccount(accountId, height);
+            return JSONData.accountBalance(account, false, height);
+        }
         Account account = Account.getAccount(accountId, height);
         return JSONData.accountBalance(account, includeEffectiveBalance, height);
     }
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.http.get;
+
+import com.apollocurrency.aplwallet.apl.core.db.SqlStatistics;
+import com.apollocurrency.aplwallet.apl.core.http.APITag;
+import com.apollocurrency.aplwallet.apl.core.http.AbstractAPIRequestHandler;
+import com.apollocurrency.aplwallet.apl.core.http.ParameterException;
+import com.apollocurrency.aplwallet.apl.core.http.ParameterParser;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+
+import java.util.List;
+import javax.enterprise.inject.Vetoed;
+import javax.servlet.http.HttpServletRequest;
+
+@Vetoed
+public final class GetSqlStatistics extends AbstractAPIRequestHandler {
+
+    public GetSqlStatistics() {
+        super(new APITag[] {APITag.DEBUG}, "count", "byTable", "reset");
+    }
+
+    /**
+     * Return execution count, total, average, max time and latency percentiles (in microseconds)
+     * of SQL statements grouped by normalized statement text or by table, most expensive first
+     *
+     * @param   req                 API request
+     * @return                      API response
+     */
+    @Override
+    public JSONStreamAware processRequest(HttpServletRequest req) throws ParameterException {
+        int count = ParameterParser.getInt(req, "count", 1, Integer.MAX_VALUE, false);
+        if (count == 0) {
+            count = 50;
+        }
+        boolean byTable = "true".equalsIgnoreCase(req.getParameter("byTable"));
+        SqlStatistics statistics = SqlStatistics.getInstance();
+        List<SqlStatistics.Entry> entries = byTable ? statistics.getTableStatistics(count) : statistics.getStatementStatistics(count);
+        JSONArray entriesJSON = new JSONArray();
+        for (SqlStatistics.Entry entry : entries) {
+            JSONObject entryJSON = new JSONObject();
+            entryJSON.put(byTable ? "table" : "sql", entry.getName());
+            if (!byTable) {
+                entryJSON.put("table", entry.getTable());
+            }
+            entryJSON.put("count", entry.getCount());
+            entryJSON.put("totalMicros", entry.getTotalMicros());
+            entryJSON.put("avgMicros", entry.getAvgMicros());
+            entryJSON.put("maxMicros", entry.getMaxMicros());
+            entryJSON.put("p50Micros", entry.getPercentileMicros(50));
+            entryJSON.put("p95Micros", entry.getPercentileMicros(95));
+            entryJSON.put("p99Micros", entry.getPercentileMicros(99));
+            entriesJSON.add(entryJSON);
+        }
+        if ("true".equalsIgnoreCase(req.getParameter("reset"))) {
+            statistics.reset();
+        }
+        JSONObject response = new JSONObject();
+        response.put("enabled", statistics.isEnabled());
+        response.put("statistics", entriesJSON);
+        return response;
+    }
+
+    @Override
+    protected boolean requirePassword() {
+        return true;
+    }
+
+    @Override
+    protected boolean allowRequiredBlockParameters() {
+        return false;
+    }
+
+    @Override
+    protected boolean requireBlockchain() {
+        return false;
+    }
+
+}
@@ -20,29 +20,12 @@
 
 package com.apollocurrency.aplwallet.apl.core.http.get;
 
-import com.apollocurrency.aplwallet.apl.core.account.Account;
-import com.apollocurrency.aplwallet.apl.core.account.AccountLeaseTable;
-import com.apollocurrency.aplwallet.apl.core.account.PhasingOnly;
-import com.apollocurrency.aplwallet.apl.core.app.Alias;
-import com.apollocurrency.aplwallet.apl.core.monetary.Asset;
-import com.apollocurrency.aplwallet.apl.core.monetary.AssetTransfer;
-import com.apollocurrency.aplwallet.apl.core.monetary.Currency;
-import com.apollocurrency.aplwallet.apl.core.monetary.CurrencyBuyOffer;
-import com.apollocurrency.aplwallet.apl.core.monetary.CurrencyTransfer;
-import com.apollocurrency.aplwallet.apl.core.app.DigitalGoodsStore;
-import com.apollocurrency.aplwallet.apl.core.monetary.Exchange;
-import com.apollocurrency.aplwallet.apl.core.monetary.ExchangeRequest;
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainStatistics;
 import com.apollocurrency.aplwallet.apl.core.app.Generator;
-import com.apollocurrency.aplwallet.apl.core.app.Order;
-import com.apollocurrency.aplwallet.apl.core.app.Poll;
-import com.apollocurrency.aplwallet.apl.core.app.PrunableMessage;
-import com.apollocurrency.aplwallet.apl.core.app.Shuffling;
-import com.apollocurrency.aplwallet.apl.core.app.TaggedData;
-import com.apollocurrency.aplwallet.apl.core.app.Trade;
-import com.apollocurrency.aplwallet.apl.core.app.Vote;
 import com.apollocurrency.aplwallet.apl.core.http.API;
 import com.apollocurrency.aplwallet.apl.core.http.APITag;
 import com.apollocurrency.aplwallet.apl.core.http.AbstractAPIRequestHandler;
+import com.apollocurrency.aplwallet.apl.core.peer.PeerMessageCompression;
 import com.apollocurrency.aplwallet.apl.core.peer.Peers;
 import com.apollocurrency.aplwallet.apl.util.UPnP;
 import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
@@ -57,6 +40,7 @@ import javax.enterprise.inject.spi.CDI;
 public final class GetState extends AbstractAPIRequestHandler {
     private static PropertiesHolder propertiesHolder = CDI.current().select(PropertiesHolder.class).get(); 
     private UPnP upnp = CDI.current().select(UPnP.class).get();
+    private BlockchainStatistics blockchainStatistics = CDI.current().select(BlockchainStatistics.class).get();
     
     public GetState() {
         super(new APITag[] {APITag.INFO}, "includeCounts", "adminPassword");
@@ -68,38 +52,17 @@ public final class GetState extends AbstractAPIRequestHandler {
         JSONObject response = new GetBlockchainStatus().processRequest(req);
 
         if ("true".equalsIgnoreCase(req.getParameter("includeCounts")) && API.checkPassword(req)) {
-            response.put("numberOfTransactions", lookupBlockchain().getTransactionCount());
-            response.put("numberOfAccounts", Account.getCount());
-            response.put("numberOfAssets", Asset.getCount());
-            int askCount = Order.Ask.getCount();
-            int bidCount = Order.Bid.getCount();
-            response.put("numberOfOrders", askCount + bidCount);
-            response.put("numberOfAskOrders", askCount);
-            response.put("numberOfBidOrders", bidCount);
-            response.put("numberOfTrades", Trade.getCount());
-            response.put("numberOfTransfers", AssetTransfer.getCount());
-	        response.put("numberOfCurrencies", Currency.getCount());
-    	    response.put("numberOfOffers", CurrencyBuyOffer.getCount());
-            response.put("numberOfExchangeRequests", ExchangeRequest.getCount());
-        	response.put("numberOfExchanges", Exchange.getCount());
-        	response.put("numberOfCurrencyTransfers", CurrencyTransfer.getCount());
-            response.put("numberOfAliases", Alias.getCount());
-            response.put("numberOfGoods", DigitalGoodsStore.Goods.getCount());
-            response.put("numberOfPurchases", DigitalGoodsStore.Purchase.getCount());
-            response.put("numberOfTags", DigitalGoodsStore.Tag.getCount());
-            response.put("numberOfPolls", Poll.getCount());
-            response.put("numberOfVotes", Vote.getCount());
-            response.put("numberOfPrunableMessages", PrunableMessage.getCount());
-            response.put("numberOfTaggedData", TaggedData.getCount());
-            response.put("numberOfDataTags", TaggedData.Tag.getTagCount());
-            response.put("numberOfAccountLeases", AccountLeaseTable.getAccountLeaseCount());
-            response.put("numberOfActiveAccountLeases", Account.getActiveLeaseCount());
-            response.put("numberOfShufflings", Shuffling.getCount());
-            response.put("numberOfActiveShufflings", Shuffling.getActiveCount());
-            response.put("numberOfPhasingOnlyAccounts", PhasingOnly.getCount());
+            BlockchainStatistics.Statistics statistics = blockchainStatistics.getStatistics();
+            if (statistics != null) {
+                response.putAll(statistics.getCounts());
+                response.put("countsHeight", statistics.getHeight());
+            }
         }
         response.put("numberOfPeers", Peers.getAllPeers().size());
         response.put("numberOfActivePeers", Peers.getActivePeers().size());
+        response.put("numberOfCompressedPeerMessages", PeerMessageCompression.getCompressedMessages());
+        response.put("peerMessageBytesBeforeCompression", PeerMessageCompression.getUncompressedBytes());
+        response.put("peerMessageBytesAfterCompression", PeerMessageCompression.getCompressedBytes());
         response.put("numberOfUnlockedAccounts", Generator.getAllGenerators().size());
         response.put("availableProcessors", Runtime.getRuntime().availableProcessors());
         response.put("maxMemory", Runtime.getRuntime().maxMemory());
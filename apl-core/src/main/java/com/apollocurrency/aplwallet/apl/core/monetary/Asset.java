@@ -60,6 +60,11 @@ public final class Asset {
 
     private static final VersionedEntityDbTable<Asset> assetTable = new VersionedEntityDbTable<Asset>("asset", assetDbKeyFactory, "name,description") {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected Asset load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new Asset(rs, dbKey);
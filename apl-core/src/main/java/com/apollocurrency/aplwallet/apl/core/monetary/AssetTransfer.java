@@ -63,6 +63,11 @@ public final class AssetTransfer {
 
     private static final EntityDbTable<AssetTransfer> assetTransferTable = new EntityDbTable<AssetTransfer>("asset_transfer", transferDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected AssetTransfer load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new AssetTransfer(rs, dbKey);
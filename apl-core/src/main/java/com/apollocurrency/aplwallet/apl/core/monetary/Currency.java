@@ -72,6 +72,11 @@ public final class Currency {
     };
 
     private static final VersionedEntityDbTable<Currency> currencyTable = new VersionedEntityDbTable<Currency>("currency", currencyDbKeyFactory, "code,name,description") {
+
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
  
         @Override
         protected Currency load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
@@ -46,6 +46,11 @@ public final class CurrencySellOffer extends CurrencyExchangeOffer {
 
     private static final VersionedEntityDbTable<CurrencySellOffer> sellOfferTable = new VersionedEntityDbTable<CurrencySellOffer>("sell_offer", sellOfferDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected CurrencySellOffer load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new CurrencySellOffer(rs, dbKey);
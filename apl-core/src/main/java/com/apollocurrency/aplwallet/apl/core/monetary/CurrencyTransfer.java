@@ -70,6 +70,11 @@ public final class CurrencyTransfer {
 
     private static final EntityDbTable<CurrencyTransfer> currencyTransferTable = new EntityDbTable<CurrencyTransfer>("currency_transfer", currencyTransferDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected CurrencyTransfer load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new CurrencyTransfer(rs, dbKey);
@@ -70,6 +70,11 @@ public final class Exchange {
 
     private static final EntityDbTable<Exchange> exchangeTable = new EntityDbTable<Exchange>("exchange", exchangeDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected Exchange load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new Exchange(rs, dbKey);
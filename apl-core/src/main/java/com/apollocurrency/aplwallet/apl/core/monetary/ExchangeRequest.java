@@ -53,6 +53,11 @@ public final class ExchangeRequest {
 
     private static final EntityDbTable<ExchangeRequest> exchangeRequestTable = new EntityDbTable<ExchangeRequest>("exchange_request", exchangeRequestDbKeyFactory) {
 
+        @Override
+        protected boolean isRowCountTracked() {
+            return true;
+        }
+
         @Override
         protected ExchangeRequest load(Connection con, ResultSet rs, DbKey dbKey) throws SQLException {
             return new ExchangeRequest(rs, dbKey);
@@ -9,12 +9,12 @@ import com.apollocurrency.aplwallet.apl.core.account.LedgerEvent;
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
 import com.apollocurrency.aplwallet.apl.core.app.mint.CurrencyMint;
 import com.apollocurrency.aplwallet.apl.core.app.mint.CurrencyMinting;
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.MonetarySystemCurrencyMinting;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import com.apollocurrency.aplwallet.apl.util.Constants;
 import java.nio.ByteBuffer;
-import java.util.Map;
 import org.json.simple.JSONObject;
 
 /**
@@ -90,15 +90,15 @@ class MSCurrencyMinting extends MonetarySystem {
     }
 
     @Override
-    public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         MonetarySystemCurrencyMinting attachment = (MonetarySystemCurrencyMinting) transaction.getAttachment();
-        return TransactionType.isDuplicate(CURRENCY_MINTING, attachment.getCurrencyId() + ":" + transaction.getSenderId(), duplicates, true) || super.isDuplicate(transaction, duplicates);
+        return TransactionType.isDuplicate(CURRENCY_MINTING, attachment.getCurrencyId(), transaction.getSenderId(), duplicates, true) || super.isDuplicate(transaction, duplicates);
     }
 
     @Override
-    public boolean isUnconfirmedDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isUnconfirmedDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         MonetarySystemCurrencyMinting attachment = (MonetarySystemCurrencyMinting) transaction.getAttachment();
-        return TransactionType.isDuplicate(CURRENCY_MINTING, attachment.getCurrencyId() + ":" + transaction.getSenderId(), duplicates, true);
+        return TransactionType.isDuplicate(CURRENCY_MINTING, attachment.getCurrencyId(), transaction.getSenderId(), duplicates, true);
     }
 
     @Override
@@ -6,11 +6,10 @@ package com.apollocurrency.aplwallet.apl.core.monetary;
 import com.apollocurrency.aplwallet.apl.core.account.Account;
 import com.apollocurrency.aplwallet.apl.core.account.LedgerEvent;
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
-import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.MonetarySystemExchangeBuyAttachment;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import java.nio.ByteBuffer;
-import java.util.Map;
 import org.json.simple.JSONObject;
 
 /**
@@ -48,7 +47,7 @@ class MSExchangeBuy extends MonetarySystemExchange {
     }
 
     @Override
-    public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         return super.isDuplicate(transaction, duplicates);
     }
 
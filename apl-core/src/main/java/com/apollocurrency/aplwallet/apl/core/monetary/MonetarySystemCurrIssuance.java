@@ -8,12 +8,12 @@ import com.apollocurrency.aplwallet.apl.core.account.AccountLedger;
 import com.apollocurrency.aplwallet.apl.core.account.LedgerEvent;
 import com.apollocurrency.aplwallet.apl.core.app.Fee;
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.MonetarySystemCurrencyIssuance;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import com.apollocurrency.aplwallet.apl.util.Constants;
 import java.nio.ByteBuffer;
-import java.util.Map;
 import org.json.simple.JSONObject;
 
 /**
@@ -94,7 +94,7 @@ class MonetarySystemCurrIssuance extends MonetarySystem {
     }
 
     @Override
-    public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         MonetarySystemCurrencyIssuance attachment = (MonetarySystemCurrencyIssuance) transaction.getAttachment();
         String nameLower = attachment.getName().toLowerCase();
         String codeLower = attachment.getCode().toLowerCase();
@@ -106,7 +106,7 @@ class MonetarySystemCurrIssuance extends MonetarySystem {
     }
 
     @Override
-    public boolean isBlockDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isBlockDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         return isDuplicate(CURRENCY_ISSUANCE, getName(), duplicates, true);
     }
 
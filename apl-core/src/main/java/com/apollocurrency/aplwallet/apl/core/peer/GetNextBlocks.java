@@ -22,15 +22,18 @@ package com.apollocurrency.aplwallet.apl.core.peer;
 
 import com.apollocurrency.aplwallet.apl.core.app.Block;
 import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
+import com.apollocurrency.aplwallet.apl.core.db.BlockSegmentStore;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
 import com.apollocurrency.aplwallet.apl.util.JSON;
 import org.json.simple.JSONArray;
+import org.json.simple.JSONAware;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONStreamAware;
 
 import java.util.ArrayList;
 import java.util.List;
 import javax.enterprise.inject.Vetoed;
+import javax.enterprise.inject.spi.CDI;
 
 @Vetoed
 final class GetNextBlocks extends PeerRequestHandler {
@@ -42,8 +45,16 @@ final class GetNextBlocks extends PeerRequestHandler {
         TOO_MANY_BLOCKS_REQUESTED = JSON.prepare(response);
     }
 
+    private BlockSegmentStore blockSegmentStore;
+
     public GetNextBlocks() {}
 
+    private BlockSegmentStore lookupBlockSegmentStore() {
+        if (blockSegmentStore == null) {
+            blockSegmentStore = CDI.current().select(BlockSegmentStore.class).get();
+        }
+        return blockSegmentStore;
+    }
 
     @Override
     JSONStreamAware processRequest(JSONObject request, Peer peer) {
@@ -60,20 +71,64 @@ final class GetNextBlocks extends PeerRequestHandler {
             }
             List<Long> idList = new ArrayList<>();
             stringList.forEach(stringId -> idList.add(Convert.parseUnsignedLong(stringId)));
-            blocks = blockchain.getBlocksAfter(blockId, idList);
+            List<JSONAware> storedBlocks = getStoredBlocksAfter(blockchain, blockId, idList, idList.size());
+            if (storedBlocks != null) {
+                nextBlocksArray.addAll(storedBlocks);
+            } else {
+                blocks = blockchain.getBlocksAfter(blockId, idList);
+                blocks.forEach(block -> nextBlocksArray.add(block.getJSONObject()));
+            }
         } else {
             long limit = Convert.parseLong(request.get("limit"));
             if (limit > 36) {
                 return TOO_MANY_BLOCKS_REQUESTED;
             }
-            blocks = blockchain.getBlocksAfter(blockId, limit > 0 ? (int)limit : 36);
+            int blockLimit = limit > 0 ? (int)limit : 36;
+            List<JSONAware> storedBlocks = getStoredBlocksAfter(blockchain, blockId, null, blockLimit);
+            if (storedBlocks != null) {
+                nextBlocksArray.addAll(storedBlocks);
+            } else {
+                blocks = blockchain.getBlocksAfter(blockId, blockLimit);
+                blocks.forEach(block -> nextBlocksArray.add(block.getJSONObject()));
+            }
         }
-        blocks.forEach(block -> nextBlocksArray.add(block.getJSONObject()));
         response.put("nextBlocks", nextBlocksArray);
 
         return response;
     }
 
+    /**
+     * Read requested blocks from block segment store. Store may still hold blocks which were deleted from blockchain
+     * concurrently, so only blocks up to the current height with ids of the blockchain blocks are served.
+     * @return stored blocks or null when store is disabled or does not contain all requested blocks
+     */
+    private List<JSONAware> getStoredBlocksAfter(Blockchain blockchain, long blockId, List<Long> idList, int limit) {
+        BlockSegmentStore store = lookupBlockSegmentStore();
+        if (!store.isEnabled()) {
+            return null;
+        }
+        Block block = blockchain.getBlock(blockId);
+        if (block == null || store.getFirstHeight() < 0 || block.getHeight() + 1 < store.getFirstHeight()) {
+            return null;
+        }
+        int count = Math.min(limit, blockchain.getHeight() - block.getHeight());
+        List<Long> blockIds = new ArrayList<>(Math.max(count, 0));
+        try {
+            for (int height = block.getHeight() + 1; blockIds.size() < count; height++) {
+                long id = blockchain.getBlockIdAtHeight(height);
+                if (idList != null && idList.get(blockIds.size()) != id) {
+                    break;
+                }
+                blockIds.add(id);
+            }
+        } catch (RuntimeException e) {
+            // blocks were popped off concurrently
+            return null;
+        }
+        List<JSONAware> storedBlocks = store.getBlocksAfter(block.getHeight(), blockIds);
+        return storedBlocks.size() == blockIds.size() ? storedBlocks : null;
+    }
+
     @Override
     boolean rejectWhileDownloading() {
         return true;
@@ -24,6 +24,7 @@ import com.apollocurrency.aplwallet.apl.core.http.APIEnum;
 import com.apollocurrency.aplwallet.apl.util.Version;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import org.json.simple.JSONObject;
 import org.json.simple.JSONStreamAware;
@@ -135,4 +136,10 @@ public interface Peer extends Comparable<Peer> {
 
     JSONObject send(JSONStreamAware request, UUID chainId, int maxResponseSize, boolean firstConnect);
 
+    /**
+     * Send request without blocking the calling thread
+     * @return future of the response, which is completed with null when request fails, like {@link #send}
+     */
+    CompletableFuture<JSONObject> sendAsync(JSONStreamAware request, UUID chainId, int maxResponseSize);
+
 }
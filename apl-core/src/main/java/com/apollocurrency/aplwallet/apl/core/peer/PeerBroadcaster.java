@@ -0,0 +1,262 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.json.simple.JSONObject;
+import org.json.simple.JSONStreamAware;
+import org.slf4j.Logger;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous fan-out of blocks and transactions to peers.
+ * <p>
+ * Message is sent to the configured number of peers at once, and every failed send is replaced by the send to the next
+ * candidate peer, until the required number of peers accepted the message or candidates are exhausted, so slow peer
+ * delays only its own sends. Every peer has its own queue with at most one request in flight. Message with the same key
+ * as the message which is already queued or in flight for the peer is not sent to it again, and the peer counts as
+ * reached by the message, so the message is not redirected to other peers. When blocks go first, new blocks are sent
+ * ahead of queued transactions. Messages which reached enough peers are dropped from queues without sending.
+ * Propagation time of every message, from its submission until it was accepted by enough peers, is logged.
+ * <p>
+ * Queue is drained in a loop while responses are already completed when requests are sent, and response which
+ * completes later continues the queue on the executor, so long queues of quickly failing sends do not grow the stack.
+ */
+class PeerBroadcaster {
+    private static final Logger LOG = getLogger(PeerBroadcaster.class);
+
+    static final int PRIORITY_BLOCK = 0;
+    static final int PRIORITY_TRANSACTIONS = 1;
+
+    private final int sendToPeersLimit;
+    private final int maxQueueSize;
+    private final int maxResponseSize;
+    private final Executor executor;
+    private final Comparator<Message> order;
+    private final ConcurrentMap<String, PeerQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private enum OfferResult {
+        QUEUED, DUPLICATE, REJECTED
+    }
+
+    /**
+     * @param sendToPeersLimit number of peers which should accept every message
+     * @param maxQueueSize max number of messages queued for one peer
+     * @param blocksFirst true to send blocks ahead of queued transactions
+     * @param maxResponseSize max size of peer response
+     * @param executor runs sends which follow asynchronously completed responses
+     */
+    PeerBroadcaster(int sendToPeersLimit, int maxQueueSize, boolean blocksFirst, int maxResponseSize, Executor executor) {
+        this.sendToPeersLimit = sendToPeersLimit;
+        this.maxQueueSize = maxQueueSize;
+        this.maxResponseSize = maxResponseSize;
+        this.executor = executor;
+        Comparator<Message> fifo = Comparator.comparingLong(message -> message.sequence);
+        this.order = blocksFirst ? Comparator.<Message>comparingInt(message -> message.priority).thenComparing(fifo) : fifo;
+    }
+
+    /**
+     * Send message to peers asynchronously
+     * @param key message key, same messages queued for the same peer are sent only once
+     * @param priority {@link #PRIORITY_BLOCK} or {@link #PRIORITY_TRANSACTIONS}
+     * @param request prepared request
+     * @param peers candidate peers in the order they should be tried
+     * @param chainId chain id of the request
+     */
+    void broadcast(String key, int priority, JSONStreamAware request, List<Peer> peers, UUID chainId) {
+        Message message = new Message(key, priority, request, peers, chainId);
+        for (int i = 0; i < sendToPeersLimit; i++) {
+            if (!message.sendToNextPeer()) {
+                break;
+            }
+        }
+        message.checkFinished();
+    }
+
+    private class Message {
+        private final String key;
+        private final int priority;
+        private final long sequence = PeerBroadcaster.this.sequence.incrementAndGet();
+        private final JSONStreamAware request;
+        private final List<Peer> peers;
+        private final UUID chainId;
+        private final long startTime = System.currentTimeMillis();
+        private int nextPeerIndex;
+        private int pending;
+        private int successful;
+        private int duplicates;
+        private boolean finished;
+
+        private Message(String key, int priority, JSONStreamAware request, List<Peer> peers, UUID chainId) {
+            this.key = key;
+            this.priority = priority;
+            this.request = request;
+            this.peers = peers;
+            this.chainId = chainId;
+        }
+
+        /**
+         * Queue message for the next candidate peer which accepts it to its queue, or stop at the peer which already
+         * has message with the same key
+         * @return false when there are no more candidates
+         */
+        private boolean sendToNextPeer() {
+            while (true) {
+                Peer peer;
+                synchronized (this) {
+                    if (finished || nextPeerIndex >= peers.size()) {
+                        return false;
+                    }
+                    peer = peers.get(nextPeerIndex++);
+                    pending++;
+                }
+                OfferResult result = offer(peer, this);
+                if (result == OfferResult.QUEUED) {
+                    return true;
+                }
+                synchronized (this) {
+                    pending--;
+                    if (result == OfferResult.DUPLICATE) {
+                        duplicates++;
+                        return true;
+                    }
+                }
+            }
+        }
+
+        private synchronized boolean isFinished() {
+            return finished;
+        }
+
+        private void onSent(boolean success) {
+            boolean sendToNextPeer;
+            synchronized (this) {
+                pending--;
+                if (success) {
+                    successful++;
+                }
+                sendToNextPeer = !success && !finished;
+            }
+            if (sendToNextPeer) {
+                sendToNextPeer();
+            }
+            checkFinished();
+        }
+
+        private void checkFinished() {
+            synchronized (this) {
+                if (finished || successful + duplicates < sendToPeersLimit && pending > 0) {
+                    return;
+                }
+                finished = true;
+            }
+            LOG.debug("{} propagated to {} peers of {} in {} ms, {} peers had it queued", key, successful, sendToPeersLimit,
+                    System.currentTimeMillis() - startTime, duplicates);
+        }
+    }
+
+    private class PeerQueue {
+        private final Peer peer;
+        private final PriorityQueue<Message> messages = new PriorityQueue<>(order);
+        private final Set<String> keys = new HashSet<>();
+        private boolean sending;
+        private boolean closed;
+
+        private PeerQueue(Peer peer) {
+            this.peer = peer;
+        }
+    }
+
+    private OfferResult offer(Peer peer, Message message) {
+        while (true) {
+            PeerQueue queue = queues.computeIfAbsent(peer.getHost(), host -> new PeerQueue(peer));
+            synchronized (queue) {
+                if (queue.closed) {
+                    continue;
+                }
+                if (queue.keys.contains(message.key)) {
+                    return OfferResult.DUPLICATE;
+                }
+                if (queue.messages.size() >= maxQueueSize) {
+                    return OfferResult.REJECTED;
+                }
+                queue.messages.add(message);
+                queue.keys.add(message.key);
+                if (queue.sending) {
+                    return OfferResult.QUEUED;
+                }
+                queue.sending = true;
+            }
+            sendNext(queue);
+            return OfferResult.QUEUED;
+        }
+    }
+
+    /**
+     * Send queued messages one by one until the queue is empty or response is not completed yet
+     */
+    private void sendNext(PeerQueue queue) {
+        while (true) {
+            Message message = poll(queue);
+            if (message == null) {
+                return;
+            }
+            CompletableFuture<JSONObject> future = queue.peer.sendAsync(message.request, message.chainId, maxResponseSize);
+            if (!future.isDone()) {
+                // completion which races with the check above is dispatched too, so it never runs on this stack
+                future.whenCompleteAsync((response, e) -> {
+                    onSent(queue, message, isAccepted(response, e));
+                    sendNext(queue);
+                }, executor);
+                return;
+            }
+            onSent(queue, message, future.handle(PeerBroadcaster::isAccepted).join());
+        }
+    }
+
+    /**
+     * @return next message to send, null when queue is empty and closed
+     */
+    private Message poll(PeerQueue queue) {
+        synchronized (queue) {
+            Message message;
+            while ((message = queue.messages.poll()) != null) {
+                if (!message.isFinished()) {
+                    // key is kept until message is sent
+                    return message;
+                }
+                queue.keys.remove(message.key);
+            }
+            queue.sending = false;
+            queue.closed = true;
+            queues.remove(queue.peer.getHost(), queue);
+            return null;
+        }
+    }
+
+    private void onSent(PeerQueue queue, Message message, boolean accepted) {
+        synchronized (queue) {
+            queue.keys.remove(message.key);
+        }
+        message.onSent(accepted);
+    }
+
+    private static boolean isAccepted(JSONObject response, Throwable e) {
+        return e == null && response != null && response.get("error") == null;
+    }
+}
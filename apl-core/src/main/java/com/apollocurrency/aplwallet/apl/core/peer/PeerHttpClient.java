@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.util.AplException;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpProxy;
+import org.eclipse.jetty.client.Socks4Proxy;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.client.util.StringContentProvider;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.http.HttpMethod;
+import org.eclipse.jetty.http.HttpStatus;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking HTTP transport of peer requests.
+ * <p>
+ * Single client keeps pool of persistent connections for every peer, so requests to the same peer reuse its
+ * connections until they are idle longer than idle timeout, and no thread waits for the response: request completes
+ * its future from the client selector threads. Gzip responses are decoded by the client. System HTTP or SOCKS proxy is
+ * used when it is configured.
+ * <p>
+ * Response which exceeds max size is the only failure reported as {@link AplException.AplIOException}, so that it can
+ * be told apart from failures of the request itself, like invalid url, which are not caused by the peer.
+ */
+class PeerHttpClient {
+    private static final Logger LOG = getLogger(PeerHttpClient.class);
+
+    private final HttpClient httpClient;
+    private final int readTimeout;
+
+    /**
+     * Non-200 response status
+     */
+    static class HttpStatusException extends IOException {
+        private final int status;
+
+        HttpStatusException(int status) {
+            super("Peer responded with HTTP " + status);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * @param connectTimeout connect timeout, milliseconds
+     * @param readTimeout timeout of the whole request, milliseconds
+     * @param idleTimeout idle timeout of pooled connections, milliseconds
+     * @param maxConnectionsPerPeer max number of connections to each peer
+     * @param maxThreads max number of client threads, which run selectors and response listeners
+     */
+    PeerHttpClient(int connectTimeout, int readTimeout, int idleTimeout, int maxConnectionsPerPeer, int maxThreads) {
+        this.readTimeout = readTimeout;
+        QueuedThreadPool executor = new QueuedThreadPool(maxThreads, Math.min(2, maxThreads));
+        executor.setName("PeerHttpClient");
+        executor.setDaemon(true);
+        httpClient = new HttpClient();
+        httpClient.setExecutor(executor);
+        httpClient.setConnectTimeout(connectTimeout);
+        httpClient.setIdleTimeout(idleTimeout);
+        httpClient.setMaxConnectionsPerDestination(maxConnectionsPerPeer);
+        httpClient.setFollowRedirects(false);
+        String proxyHost = System.getProperty("http.proxyHost");
+        if (proxyHost != null) {
+            httpClient.getProxyConfiguration().getProxies().add(new HttpProxy(proxyHost, Integer.getInteger("http.proxyPort", 80)));
+        } else if ((proxyHost = System.getProperty("socksProxyHost")) != null) {
+            httpClient.getProxyConfiguration().getProxies().add(new Socks4Proxy(proxyHost, Integer.getInteger("socksProxyPort", 1080)));
+        }
+    }
+
+    void start() {
+        try {
+            httpClient.start();
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to start peer HTTP client", e);
+        }
+    }
+
+    void shutdown() {
+        try {
+            httpClient.stop();
+        } catch (Exception e) {
+            LOG.debug("Unable to stop peer HTTP client", e);
+        }
+    }
+
+    /**
+     * Post request to the peer
+     * @param url peer API url
+     * @param request request JSON
+     * @param maxResponseSize max size of decoded response
+     * @return future of the response, completed exceptionally with {@link AplException.AplIOException} when response
+     * exceeds max size, with {@link HttpStatusException} for non-200 response or with other exception when request fails,
+     * including invalid url
+     */
+    CompletableFuture<String> post(String url, String request, int maxResponseSize) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            httpClient.newRequest(url)
+                    .method(HttpMethod.POST)
+                    .content(new StringContentProvider("text/plain; charset=UTF-8", request, StandardCharsets.UTF_8))
+                    .timeout(readTimeout, TimeUnit.MILLISECONDS)
+                    .send(new ResponseListener(future, maxResponseSize));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Buffers response up to max size. Size is checked before the buffer does it, since buffer aborts the response
+     * with IllegalArgumentException, which is not distinguishable from other request failures.
+     */
+    private static class ResponseListener extends BufferingResponseListener {
+        private final CompletableFuture<String> future;
+        private final int maxResponseSize;
+        private long size;
+
+        private ResponseListener(CompletableFuture<String> future, int maxResponseSize) {
+            super(maxResponseSize);
+            this.future = future;
+            this.maxResponseSize = maxResponseSize;
+        }
+
+        @Override
+        public void onHeaders(Response response) {
+            long length = response.getHeaders().getLongField(HttpHeader.CONTENT_LENGTH.asString());
+            if (length > maxResponseSize) {
+                response.abort(new AplException.AplIOException("Maximum size exceeded: " + length));
+                return;
+            }
+            super.onHeaders(response);
+        }
+
+        @Override
+        public void onContent(Response response, ByteBuffer content) {
+            // decoded content of gzip response may exceed its content length
+            size += content.remaining();
+            if (size > maxResponseSize) {
+                response.abort(new AplException.AplIOException("Maximum size exceeded: " + size));
+                return;
+            }
+            super.onContent(response, content);
+        }
+
+        @Override
+        public void onComplete(Result result) {
+            if (result.isFailed()) {
+                future.completeExceptionally(result.getFailure());
+            } else if (result.getResponse().getStatus() != HttpStatus.OK_200) {
+                future.completeExceptionally(new HttpStatusException(result.getResponse().getStatus()));
+            } else {
+                future.complete(getContentAsString("UTF-8"));
+            }
+        }
+    }
+}
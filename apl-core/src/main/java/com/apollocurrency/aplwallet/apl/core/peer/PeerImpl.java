@@ -34,9 +34,6 @@ import com.apollocurrency.aplwallet.apl.core.http.API;
 import com.apollocurrency.aplwallet.apl.core.http.APIEnum;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
 import com.apollocurrency.aplwallet.apl.util.AplException;
-import com.apollocurrency.aplwallet.apl.util.CountingInputReader;
-import com.apollocurrency.aplwallet.apl.util.CountingInputStream;
-import com.apollocurrency.aplwallet.apl.util.CountingOutputWriter;
 import com.apollocurrency.aplwallet.apl.util.JSON;
 import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
 import org.json.simple.JSONObject;
@@ -45,23 +42,13 @@ import org.json.simple.JSONValue;
 import org.json.simple.parser.ParseException;
 import org.slf4j.Logger;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
 import java.io.StringWriter;
-import java.io.Writer;
-import java.net.HttpURLConnection;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.net.UnknownHostException;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -71,8 +58,11 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.zip.GZIPInputStream;
 import javax.enterprise.inject.spi.CDI;
 
 public final class PeerImpl implements Peer {
@@ -493,6 +483,53 @@ public final class PeerImpl implements Peer {
 
     @Override
     public JSONObject send(final JSONStreamAware request, UUID targetChainId, int maxResponseSize, boolean firstConnect) {
+        logRequest(request, firstConnect);
+        if (!firstConnect && !targetChainId.equals(this.chainId.get()) ) {
+            LOG.debug("Unable to send request to peer {} with chainId {}, expected {}",host, this.chainId.get() == null ? "null" : this.chainId.get(),
+                    targetChainId);
+            connect(targetChainId);
+            return null;
+        }
+        //
+        // Create a new WebSocket session if we don't have one
+        //
+        if (useWebSocket && !webSocket.isOpen()) {
+            String wsConnectString = "ws://" + host + ":" + getPort() + "/apl";
+            LOG.debug("Connecting to '{}'...", wsConnectString);
+            useWebSocket = webSocket.startClient(URI.create(wsConnectString));
+            LOG.trace("Connected '{}'... ? = {}", wsConnectString, useWebSocket);
+        }
+        if (useWebSocket) {
+            return sendWebSocket(request, targetChainId, maxResponseSize, false);
+        }
+        try {
+            return sendHttp(request, targetChainId, maxResponseSize, false).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // response future is never completed exceptionally
+            throw new RuntimeException(e.toString(), e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<JSONObject> sendAsync(JSONStreamAware request, UUID targetChainId, int maxResponseSize) {
+        logRequest(request, false);
+        if (!targetChainId.equals(this.chainId.get())) {
+            LOG.debug("Unable to send request to peer {} with chainId {}, expected {}",host, this.chainId.get() == null ? "null" : this.chainId.get(),
+                    targetChainId);
+            Peers.peersService.submit(() -> connect(targetChainId));
+            return CompletableFuture.completedFuture(null);
+        }
+        if (useWebSocket) {
+            // WebSocket session is opened and used by blocking calls
+            return CompletableFuture.supplyAsync(() -> send(request, targetChainId, maxResponseSize, false), Peers.peersService);
+        }
+        return sendHttp(request, targetChainId, maxResponseSize, true);
+    }
+
+    private void logRequest(JSONStreamAware request, boolean firstConnect) {
         if (LOG.isTraceEnabled()) {
             StringWriter out = new StringWriter();
             String reqAsString = null;
@@ -504,160 +541,125 @@ public final class PeerImpl implements Peer {
             }
             LOG.trace("SEND() Request = '{}'\n, host='{}', firstConnect='{}'", reqAsString, host, firstConnect);
         }
-        if (!firstConnect && !targetChainId.equals(this.chainId.get()) ) {
-            LOG.debug("Unable to send request to peer {} with chainId {}, expected {}",host, this.chainId.get() == null ? "null" : this.chainId.get(),
-                    targetChainId);
-            connect(targetChainId);
-            return null;
-        }
-        JSONObject response = null;
-        String log = "";
-        boolean showLog = false;
-        HttpURLConnection connection = null;
-        int communicationLoggingMask = Peers.communicationLoggingMask;
+    }
 
+    private JSONObject sendWebSocket(JSONStreamAware request, UUID targetChainId, int maxResponseSize, boolean async) {
+        StringBuilder log = new StringBuilder();
+        int communicationLoggingMask = Peers.communicationLoggingMask;
         try {
             //
-            // Create a new WebSocket session if we don't have one
-            //
-            if (useWebSocket && !webSocket.isOpen()) {
-                String wsConnectString = "ws://" + host + ":" + getPort() + "/apl";
-                LOG.debug("Connecting to '{}'...", wsConnectString);
-                useWebSocket = webSocket.startClient(URI.create(wsConnectString));
-                LOG.trace("Connected '{}'... ? = {}", wsConnectString, useWebSocket);
-            }
-            //
-            // Send the request and process the response
+            // Send the request using the WebSocket session
             //
-            if (useWebSocket) {
-                //
-                // Send the request using the WebSocket session
-                //
-                StringWriter wsWriter = new StringWriter(1000);
-                request.writeJSONString(wsWriter);
-                String wsRequest = wsWriter.toString();
-                if (communicationLoggingMask != 0)
-                    log = "WebSocket " + host + ": " + wsRequest;
-                String wsResponse = webSocket.doPost(wsRequest);
-                LOG.trace("WS Response = '{}'", (wsResponse != null && wsResponse.length() > 350 ? wsResponse.length() : wsResponse));
-                updateUploadedVolume(wsRequest.length());
-                if (maxResponseSize > 0) {
-                    if ((communicationLoggingMask & Peers.LOGGING_MASK_200_RESPONSES) != 0) {
-                        log += " >>> " + wsResponse;
-                        showLog = true;
-                    }
-                    if (wsResponse.length() > maxResponseSize)
-                        throw new AplException.AplIOException("Maximum size exceeded: " + wsResponse.length());
-                    response = (JSONObject)JSONValue.parseWithException(wsResponse);
-                    updateDownloadedVolume(wsResponse.length());
-                }
-            } else {
-                //
-                // Send the request using HTTP
-                //
-                String urlString = "http://" + host + ":" + getPort() + "/apl";
-                URL url = new URL(urlString);
-                LOG.debug("Connecting to URL = {}...", urlString);
-                if (communicationLoggingMask != 0)
-                    log = "\"" + url.toString() + "\": " + JSON.toString(request);
-                connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("POST");
-                connection.setDoOutput(true);
-                connection.setConnectTimeout(Peers.connectTimeout);
-                connection.setReadTimeout(Peers.readTimeout);
-                connection.setRequestProperty("Accept-Encoding", "gzip");
-                connection.setRequestProperty("Content-Type", "text/plain; charset=UTF-8");
-                try (Writer writer = new BufferedWriter(new OutputStreamWriter(connection.getOutputStream(), "UTF-8"))) {
-                    CountingOutputWriter cow = new CountingOutputWriter(writer);
-                    request.writeJSONString(cow);
-                    updateUploadedVolume(cow.getCount());
+            StringWriter wsWriter = new StringWriter(1000);
+            request.writeJSONString(wsWriter);
+            String wsRequest = wsWriter.toString();
+            if (communicationLoggingMask != 0)
+                log.append("WebSocket ").append(host).append(": ").append(wsRequest);
+            String wsResponse = webSocket.doPost(wsRequest);
+            LOG.trace("WS Response = '{}'", (wsResponse != null && wsResponse.length() > 350 ? wsResponse.length() : wsResponse));
+            updateUploadedVolume(wsRequest.length());
+            JSONObject response = null;
+            if (maxResponseSize > 0) {
+                if ((communicationLoggingMask & Peers.LOGGING_MASK_200_RESPONSES) != 0) {
+                    log.append(" >>> ").append(wsResponse);
+                    LOG.info(log.toString());
                 }
-                if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                if (wsResponse.length() > maxResponseSize)
+                    throw new AplException.AplIOException("Maximum size exceeded: " + wsResponse.length());
+                response = (JSONObject)JSONValue.parseWithException(wsResponse);
+                updateDownloadedVolume(wsResponse.length());
+            }
+            return checkResponse(request, targetChainId, response, async);
+        } catch (IOException | ParseException | RuntimeException e) {
+            handleSendFailure(e, log);
+            return null;
+        }
+    }
+
+    /**
+     * Send the request using HTTP
+     * @return future of the response, which is never completed exceptionally
+     */
+    private CompletableFuture<JSONObject> sendHttp(JSONStreamAware request, UUID targetChainId, int maxResponseSize, boolean async) {
+        StringBuilder log = new StringBuilder();
+        int communicationLoggingMask = Peers.communicationLoggingMask;
+        String url = "http://" + host + ":" + getPort() + "/apl";
+        LOG.debug("Connecting to URL = {}...", url);
+        String requestString = JSON.toString(request);
+        if (communicationLoggingMask != 0)
+            log.append("\"").append(url).append("\": ").append(requestString);
+        updateUploadedVolume(requestString.length());
+        // response is read even when it is not needed, so that connection can be reused
+        return Peers.httpClient.post(url, requestString, maxResponseSize > 0 ? maxResponseSize : Peers.MAX_RESPONSE_SIZE)
+                .thenApply(responseValue -> {
+                    JSONObject response = null;
                     if (maxResponseSize > 0) {
                         if ((communicationLoggingMask & Peers.LOGGING_MASK_200_RESPONSES) != 0) {
-                            CountingInputStream cis = new CountingInputStream(connection.getInputStream(), maxResponseSize);
-                            InputStream responseStream = cis;
-                            if ("gzip".equals(connection.getHeaderField("Content-Encoding")))
-                                responseStream = new GZIPInputStream(cis);
-                            ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-                            byte[] buffer = new byte[1024];
-                            int numberOfBytes;
-                            try (InputStream inputStream = responseStream) {
-                                while ((numberOfBytes = inputStream.read(buffer, 0, buffer.length)) > 0)
-                                    byteArrayOutputStream.write(buffer, 0, numberOfBytes);
-                            }
-                            String responseValue = byteArrayOutputStream.toString("UTF-8");
-                            if (responseValue.length() > 0 && responseStream instanceof GZIPInputStream)
-                                log += String.format("[length: %d, compression ratio: %.2f]",
-                                              cis.getCount(), (double)cis.getCount()/(double) responseValue.length());
-                            log += " >>> " + responseValue;
-                            showLog = true;
+                            log.append(" >>> ").append(responseValue);
+                            LOG.info(log.toString());
+                        }
+                        try {
                             response = (JSONObject) JSONValue.parseWithException(responseValue);
-                            updateDownloadedVolume(responseValue.length());
-                        } else {
-                            InputStream responseStream = connection.getInputStream();
-                            if ("gzip".equals(connection.getHeaderField("Content-Encoding")))
-                                responseStream = new GZIPInputStream(responseStream);
-                            try (Reader reader = new BufferedReader(new InputStreamReader(responseStream, "UTF-8"))) {
-                                CountingInputReader cir = new CountingInputReader(reader, maxResponseSize);
-                                response = (JSONObject)JSONValue.parseWithException(cir);
-                                updateDownloadedVolume(cir.getCount());
-                            }
+                        } catch (ParseException e) {
+                            throw new CompletionException(e);
                         }
+                        updateDownloadedVolume(responseValue.length());
                     }
+                    return checkResponse(request, targetChainId, response, async);
+                })
+                .exceptionally(e -> {
+                    handleSendFailure(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e, log);
+                    return null;
+                });
+    }
+
+    /**
+     * Check for an error response
+     */
+    private JSONObject checkResponse(JSONStreamAware request, UUID targetChainId, JSONObject response, boolean async) {
+        if (response != null && response.get("error") != null) {
+            LOG.debug("ERROR RESPONSE = {}", response);
+            deactivate();
+            if (Errors.SEQUENCE_ERROR.equals(response.get("error")) && request != Peers.getMyPeerInfoRequest()) {
+                LOG.debug("Sequence error, reconnecting to " + host);
+                if (async) {
+                    Peers.peersService.submit(() -> connect(targetChainId));
                 } else {
-                    if ((communicationLoggingMask & Peers.LOGGING_MASK_NON200_RESPONSES) != 0) {
-                        log += " >>> Peer responded with HTTP " + connection.getResponseCode() + " code!";
-                        showLog = true;
-                    }
-                    LOG.debug("Peer " + host + " responded with HTTP " + connection.getResponseCode());
-                    deactivate();
-                    connection.disconnect();
-                }
-            }
-            //
-            // Check for an error response
-            //
-            if (response != null && response.get("error") != null) {
-                LOG.debug("ERROR RESPONSE = {}", response);
-                deactivate();
-                if (Errors.SEQUENCE_ERROR.equals(response.get("error")) && request != Peers.getMyPeerInfoRequest()) {
-                    LOG.debug("Sequence error, reconnecting to " + host);
                     connect(targetChainId);
-                } else {
-                    LOG.debug("Peer " + host + " version " + version + " returned error: " +
-                            response.toJSONString() + ", request was: " + JSON.toString(request) +
-                            ", disconnecting");
-                    if (connection != null) {
-                        connection.disconnect();
-                    }
                 }
+            } else {
+                LOG.debug("Peer " + host + " version " + version + " returned error: " +
+                        response.toJSONString() + ", request was: " + JSON.toString(request) +
+                        ", disconnecting");
             }
-        } catch (AplException.AplIOException e) {
-            blacklist(e);
-            if (connection != null) {
-                connection.disconnect();
-            }
-        } catch (RuntimeException|ParseException|IOException e) {
-            if (!(e instanceof UnknownHostException || e instanceof SocketTimeoutException ||
-                                        e instanceof SocketException || Errors.END_OF_FILE.equals(e.getMessage()))) {
-                LOG.debug(String.format("Error sending request to peer %s: %s",
-                                       host, e.getMessage()!=null ? e.getMessage() : e.toString()));
-            }
-            if ((communicationLoggingMask & Peers.LOGGING_MASK_EXCEPTIONS) != 0) {
-                log += " >>> " + e.toString();
-                showLog = true;
+        }
+        return response;
+    }
+
+    private void handleSendFailure(Throwable e, StringBuilder log) {
+        int communicationLoggingMask = Peers.communicationLoggingMask;
+        if (e instanceof AplException.AplIOException) {
+            blacklist((Exception) e);
+            return;
+        }
+        if (e instanceof PeerHttpClient.HttpStatusException) {
+            if ((communicationLoggingMask & Peers.LOGGING_MASK_NON200_RESPONSES) != 0) {
+                LOG.info(log.append(" >>> Peer responded with HTTP ")
+                        .append(((PeerHttpClient.HttpStatusException) e).getStatus()).append(" code!").toString());
             }
+            LOG.debug(e.getMessage() + ", peer " + host);
             deactivate();
-            if (connection != null) {
-                connection.disconnect();
-            }
+            return;
         }
-        if (showLog) {
-            LOG.info(log);
+        if (!(e instanceof UnknownHostException || e instanceof SocketTimeoutException || e instanceof TimeoutException ||
+                                    e instanceof SocketException || Errors.END_OF_FILE.equals(e.getMessage()))) {
+            LOG.debug(String.format("Error sending request to peer %s: %s",
+                                   host, e.getMessage()!=null ? e.getMessage() : e.toString()));
         }
-
-        return response;
+        if ((communicationLoggingMask & Peers.LOGGING_MASK_EXCEPTIONS) != 0) {
+            LOG.info(log.append(" >>> ").append(e.toString()).toString());
+        }
+        deactivate();
     }
 
     @Override
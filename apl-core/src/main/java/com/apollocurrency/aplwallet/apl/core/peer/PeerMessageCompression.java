@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of WebSocket peer messages.
+ * <p>
+ * Peer messages are small JSON documents which repeat the same keys and request types, so every message compressed
+ * alone finds few repeated strings in itself. When both peers support it, message is deflated with the preset
+ * dictionary of common peer protocol strings, so these strings are encoded as back references to the dictionary
+ * even in the first bytes of the message. Dictionary is identified by its checksum in the compressed data, so message
+ * compressed with a different dictionary is rejected instead of being decoded wrongly. Otherwise plain GZIP is used.
+ * Sizes of sent messages before and after compression are counted.
+ */
+public final class PeerMessageCompression {
+
+    /**
+     * Common strings of peer messages, the most frequent ones at the end since deflate encodes near back references
+     * shorter. Changing the dictionary requires new WebSocket message version.
+     */
+    private static final byte[] DICTIONARY = (
+            "{\"requestType\":\"getCumulativeDifficulty\"}{\"requestType\":\"getMilestoneBlockIds\"," +
+            "\"lastBlockId\":\"\",\"lastMilestoneBlockId\":\"\"}{\"milestoneBlockIds\":[\"\"],\"last\":true}" +
+            "{\"requestType\":\"getNextBlockIds\",\"limit\":1440}{\"nextBlockIds\":[\"\"]}" +
+            "{\"requestType\":\"getUnconfirmedTransactions\",\"exclude\":[\"\"]}{\"unconfirmedTransactions\":[]}" +
+            "{\"requestType\":\"getTransactions\",\"transactionIds\":[\"\"]}" +
+            "{\"requestType\":\"getPeers\"}{\"peers\":[\"\"],\"services\":[\"\"]}{\"requestType\":\"addPeers\"," +
+            "\"myPeers\":[\"\"],\"myServices\":[\"\"]}" +
+            "{\"requestType\":\"getInfo\",\"announcedAddress\":\"\",\"application\":\"Apollo\",\"version\":\"\"," +
+            "\"platform\":\"\",\"shareAddress\":true,\"apiPort\":7876,\"apiSSLPort\":7876,\"disabledAPIs\":\"\"," +
+            "\"apiServerIdleTimeout\":30000,\"blockchainState\":\"UP_TO_DATE\",\"services\":\"\",\"hallmark\":\"\"}" +
+            "{\"cumulativeDifficulty\":\"\",\"blockchainHeight\":}{\"error\":\"\",\"cause\":\"\"}" +
+            "\"referencedTransactionFullHash\":\"\",\"attachment\":{\"version.OrdinaryPayment\":0," +
+            "\"version.ArbitraryMessage\":1,\"message\":\"\",\"messageIsText\":true,\"version.PublicKeyAnnouncement\":1," +
+            "\"recipientPublicKey\":\"\",\"version.EncryptedMessage\":1,\"encryptedMessage\":{\"data\":\"\"," +
+            "\"nonce\":\"\",\"isText\":true,\"isCompressed\":true},\"version.Phasing\":1}" +
+            "{\"requestType\":\"processBlock\",\"version\":3,\"timestamp\":,\"previousBlock\":\"\"," +
+            "\"totalAmountATM\":0,\"totalFeeATM\":0,\"payloadLength\":0,\"payloadHash\":\"\"," +
+            "\"generatorPublicKey\":\"\",\"generationSignature\":\"\",\"previousBlockHash\":\"\"," +
+            "\"blockSignature\":\"\",\"timeout\":0,\"transactions\":[]," +
+            "{\"requestType\":\"getNextBlocks\",\"blockId\":\"\",\"blockIds\":[\"\"],\"limit\":36}{\"nextBlocks\":[{" +
+            "{\"requestType\":\"processTransactions\",\"transactions\":[{\"type\":0,\"subtype\":0,\"timestamp\":," +
+            "\"deadline\":1440,\"senderPublicKey\":\"\",\"recipient\":\"\",\"amountATM\":,\"feeATM\":100000000," +
+            "\"ecBlockHeight\":,\"ecBlockId\":\"\",\"signature\":\"\",\"version\":1}]," +
+            "\"chainId\":\"\"}"
+    ).getBytes(StandardCharsets.UTF_8);
+
+    private static final AtomicLong compressedMessages = new AtomicLong();
+    private static final AtomicLong uncompressedBytes = new AtomicLong();
+    private static final AtomicLong compressedBytes = new AtomicLong();
+
+    private PeerMessageCompression() {}
+
+    /**
+     * Compress message
+     *
+     * @param   bytes               Message bytes
+     * @param   useDictionary       TRUE to deflate with the preset dictionary, FALSE to use GZIP
+     * @return                      Compressed message bytes
+     * @throws  IOException         I/O error occurred
+     */
+    static byte[] compress(byte[] bytes, boolean useDictionary) throws IOException {
+        byte[] compressed;
+        if (useDictionary) {
+            Deflater deflater = new Deflater();
+            try {
+                deflater.setDictionary(DICTIONARY);
+                deflater.setInput(bytes);
+                deflater.finish();
+                ByteArrayOutputStream outStream = new ByteArrayOutputStream(bytes.length / 2 + 64);
+                byte[] buf = new byte[1024];
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(buf);
+                    outStream.write(buf, 0, count);
+                }
+                compressed = outStream.toByteArray();
+            } finally {
+                deflater.end();
+            }
+        } else {
+            ByteArrayOutputStream outStream = new ByteArrayOutputStream(bytes.length);
+            try (GZIPOutputStream gzipStream = new GZIPOutputStream(outStream)) {
+                gzipStream.write(bytes);
+            }
+            compressed = outStream.toByteArray();
+        }
+        compressedMessages.incrementAndGet();
+        uncompressedBytes.addAndGet(bytes.length);
+        compressedBytes.addAndGet(compressed.length);
+        return compressed;
+    }
+
+    /**
+     * Uncompress message
+     *
+     * @param   bytes               Compressed message bytes
+     * @param   length              Uncompressed message length
+     * @param   useDictionary       TRUE if message was deflated with the preset dictionary, FALSE if GZIP was used
+     * @return                      Message bytes
+     * @throws  IOException         I/O error occurred
+     */
+    static byte[] uncompress(byte[] bytes, int length, boolean useDictionary) throws IOException {
+        byte[] msgBytes = new byte[length];
+        int offset = 0;
+        if (useDictionary) {
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(bytes);
+                while (offset < msgBytes.length) {
+                    int count = inflater.inflate(msgBytes, offset, msgBytes.length - offset);
+                    if (count == 0) {
+                        if (inflater.needsDictionary()) {
+                            inflater.setDictionary(DICTIONARY);
+                        } else if (inflater.finished() || inflater.needsInput()) {
+                            throw new EOFException("End-of-data reading compressed data");
+                        }
+                    }
+                    offset += count;
+                }
+            } catch (DataFormatException | IllegalArgumentException exc) {
+                throw new IOException("Invalid compressed data", exc);
+            } finally {
+                inflater.end();
+            }
+        } else {
+            ByteArrayInputStream inStream = new ByteArrayInputStream(bytes);
+            try (GZIPInputStream gzipStream = new GZIPInputStream(inStream, 1024)) {
+                while (offset < msgBytes.length) {
+                    int count = gzipStream.read(msgBytes, offset, msgBytes.length - offset);
+                    if (count < 0) {
+                        throw new EOFException("End-of-data reading compressed data");
+                    }
+                    offset += count;
+                }
+            }
+        }
+        return msgBytes;
+    }
+
+    /**
+     * @return number of compressed messages sent
+     */
+    public static long getCompressedMessages() {
+        return compressedMessages.get();
+    }
+
+    /**
+     * @return size of compressed messages before compression
+     */
+    public static long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    /**
+     * @return size of compressed messages after compression
+     */
+    public static long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+}
@@ -34,9 +34,6 @@ import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
 import org.slf4j.Logger;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.ProtocolException;
@@ -53,8 +50,6 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.ReentrantLock;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * PeerWebSocket represents an HTTP/HTTPS upgraded connection
@@ -66,8 +61,14 @@ public class PeerWebSocket {
     /** Compressed message flag */
     private static final int FLAG_COMPRESSED = 1;
 
+    /** Compressed with the preset dictionary flag */
+    private static final int FLAG_DICTIONARY = 2;
+
     /** Our WebSocket message version */
-    private static final int VERSION = 1;
+    private static final int VERSION = 2;
+
+    /** First WebSocket message version which supports the preset dictionary */
+    private static final int VERSION_DICTIONARY = 2;
 
     /** Create the WebSocket client */
     private static WebSocketClient peerClient;
@@ -87,6 +88,9 @@ public class PeerWebSocket {
     /** Negotiated WebSocket message version */
     private int version = VERSION;
 
+    /** WebSocket message version of the last message received from the peer */
+    private volatile int remoteVersion = 1;
+
     /** Thread pool for server request processing */
     private static final ExecutorService threadPool = new QueuedThreadPool(
                 Runtime.getRuntime().availableProcessors(),
@@ -246,11 +250,11 @@ public class PeerWebSocket {
             int flags = 0;
             if (Peers.isGzipEnabled && requestLength >= Peers.MIN_COMPRESS_SIZE) {
                 flags |= FLAG_COMPRESSED;
-                ByteArrayOutputStream outStream = new ByteArrayOutputStream(requestLength);
-                try (GZIPOutputStream gzipStream = new GZIPOutputStream(outStream)) {
-                    gzipStream.write(requestBytes);
+                boolean useDictionary = useDictionary();
+                if (useDictionary) {
+                    flags |= FLAG_DICTIONARY;
                 }
-                requestBytes = outStream.toByteArray();
+                requestBytes = PeerMessageCompression.compress(requestBytes, useDictionary);
             }
             ByteBuffer buf = ByteBuffer.allocate(requestBytes.length + 20);
             buf.putInt(version)
@@ -300,11 +304,11 @@ public class PeerWebSocket {
                 int flags = 0;
                 if (Peers.isGzipEnabled && responseLength >= Peers.MIN_COMPRESS_SIZE) {
                     flags |= FLAG_COMPRESSED;
-                    ByteArrayOutputStream outStream = new ByteArrayOutputStream(responseLength);
-                    try (GZIPOutputStream gzipStream = new GZIPOutputStream(outStream)) {
-                        gzipStream.write(responseBytes);
+                    boolean useDictionary = useDictionary();
+                    if (useDictionary) {
+                        flags |= FLAG_DICTIONARY;
                     }
-                    responseBytes = outStream.toByteArray();
+                    responseBytes = PeerMessageCompression.compress(responseBytes, useDictionary);
                 }
                 ByteBuffer buf = ByteBuffer.allocate(responseBytes.length + 20);
                 buf.putInt(version)
@@ -337,25 +341,15 @@ public class PeerWebSocket {
         lock.lock();
         try {
             ByteBuffer buf = ByteBuffer.wrap(inbuf, off, len);
-            version = Math.min(buf.getInt(), VERSION);
+            remoteVersion = buf.getInt();
+            version = Math.min(remoteVersion, VERSION);
             Long requestId = buf.getLong();
             int flags = buf.getInt();
             int length = buf.getInt();
             byte[] msgBytes = new byte[buf.remaining()];
             buf.get(msgBytes);
             if ((flags&FLAG_COMPRESSED) != 0) {
-                ByteArrayInputStream inStream = new ByteArrayInputStream(msgBytes);
-                try (GZIPInputStream gzipStream = new GZIPInputStream(inStream, 1024)) {
-                    msgBytes = new byte[length];
-                    int offset = 0;
-                    while (offset < msgBytes.length) {
-                        int count = gzipStream.read(msgBytes, offset, msgBytes.length - offset);
-                        if (count < 0) {
-                            throw new EOFException("End-of-data reading compressed data");
-                        }
-                        offset += count;
-                    }
-                }
+                msgBytes = PeerMessageCompression.uncompress(msgBytes, length, (flags&FLAG_DICTIONARY) != 0);
             }
             String message = new String(msgBytes, "UTF-8");
             if (peerServlet != null) {
@@ -373,6 +367,17 @@ public class PeerWebSocket {
         }
     }
 
+    /**
+     * Check if messages can be compressed with the preset dictionary.  The dictionary
+     * is used only after a message from the peer has shown that it supports it, so the
+     * first request to the peer is always compressed with GZIP.
+     *
+     * @return                      TRUE if the preset dictionary can be used
+     */
+    private boolean useDictionary() {
+        return Peers.usePeerCompressionDictionary && remoteVersion >= VERSION_DICTIONARY;
+    }
+
     /**
      * WebSocket session has been closed
      *
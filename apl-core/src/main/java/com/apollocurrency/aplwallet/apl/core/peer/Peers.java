@@ -71,7 +71,6 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -119,6 +118,8 @@ public final class Peers {
     static int webSocketIdleTimeout;
     static final boolean useProxy = System.getProperty("socksProxyHost") != null || System.getProperty("http.proxyHost") != null;
     static boolean isGzipEnabled;
+    static boolean usePeerCompressionDictionary;
+    static PeerHttpClient httpClient;
 
 
     private static String myHallmark;
@@ -133,6 +134,7 @@ public final class Peers {
     private static int pushThreshold;
     private static int pullThreshold;
     private static int sendToPeersLimit;
+    private static PeerBroadcaster broadcaster;
     private static boolean usePeersDb;
     private static boolean savePeers;
     static boolean ignorePeerAnnouncedAddress;
@@ -333,15 +335,23 @@ public final class Peers {
         minNumberOfKnownPeers = propertiesHolder.getIntProperty("apl.minNumberOfKnownPeers");
         connectTimeout = propertiesHolder.getIntProperty("apl.connectTimeout");
         readTimeout = propertiesHolder.getIntProperty("apl.readTimeout");
+        httpClient = new PeerHttpClient(connectTimeout, readTimeout,
+                propertiesHolder.getIntProperty("apl.peerHttpIdleTimeout", 60000),
+                propertiesHolder.getIntProperty("apl.peerHttpMaxConnectionsPerPeer", 4),
+                propertiesHolder.getIntProperty("apl.peerHttpMaxThreads", 16));
+        httpClient.start();
         enableHallmarkProtection = propertiesHolder.getBooleanProperty("apl.enableHallmarkProtection") && !propertiesHolder.isLightClient();
         pushThreshold = propertiesHolder.getIntProperty("apl.pushThreshold");
         pullThreshold = propertiesHolder.getIntProperty("apl.pullThreshold");
         useWebSockets = propertiesHolder.getBooleanProperty("apl.useWebSockets");
         webSocketIdleTimeout = propertiesHolder.getIntProperty("apl.webSocketIdleTimeout");
         isGzipEnabled = propertiesHolder.getBooleanProperty("apl.enablePeerServerGZIPFilter");
+        usePeerCompressionDictionary = propertiesHolder.getBooleanProperty("apl.usePeerCompressionDictionary", true);
         blacklistingPeriod = propertiesHolder.getIntProperty("apl.blacklistingPeriod") / 1000;
         communicationLoggingMask = propertiesHolder.getIntProperty("apl.communicationLoggingMask");
         sendToPeersLimit = propertiesHolder.getIntProperty("apl.sendToPeersLimit");
+        broadcaster = new PeerBroadcaster(sendToPeersLimit, propertiesHolder.getIntProperty("apl.peerSendQueueSize", 100),
+                propertiesHolder.getBooleanProperty("apl.broadcastBlocksFirst", true), MAX_RESPONSE_SIZE, sendingService);
         usePeersDb = propertiesHolder.getBooleanProperty("apl.usePeersDb") && ! propertiesHolder.isOffline();
         savePeers = usePeersDb && propertiesHolder.getBooleanProperty("apl.savePeers");
         getMorePeers = propertiesHolder.getBooleanProperty("apl.getMorePeers");
@@ -397,6 +407,9 @@ public final class Peers {
         peerHttpServer.shutdown();
         ThreadPool.shutdownExecutor("sendingService", sendingService, 2);
         ThreadPool.shutdownExecutor("peersService", peersService, 5);
+        if (httpClient != null) {
+            httpClient.shutdown();
+        }
     }
 
     public static void suspend() {
@@ -610,7 +623,7 @@ public final class Peers {
     public static void sendToSomePeers(Block block) {
         JSONObject request = block.getJSONObject();
         request.put("requestType", "processBlock");
-        sendToSomePeers(request);
+        sendToSomePeers("block " + block.getStringId(), PeerBroadcaster.PRIORITY_BLOCK, request);
     }
 
     private static final int sendTransactionsBatchSize = 10;
@@ -620,28 +633,30 @@ public final class Peers {
         while (nextBatchStart < transactions.size()) {
             JSONObject request = new JSONObject();
             JSONArray transactionsData = new JSONArray();
+            StringBuilder key = new StringBuilder("transactions");
             for (int i = nextBatchStart; i < nextBatchStart + sendTransactionsBatchSize && i < transactions.size(); i++) {
                 transactionsData.add(transactions.get(i).getJSONObject());
+                key.append(' ').append(transactions.get(i).getStringId());
             }
             request.put("requestType", "processTransactions");
             request.put("transactions", transactionsData);
-            sendToSomePeers(request);
+            sendToSomePeers(key.toString(), PeerBroadcaster.PRIORITY_TRANSACTIONS, request);
             nextBatchStart += sendTransactionsBatchSize;
         }
     }
 
-    private static void sendToSomePeers(final JSONObject request) {
+    private static void sendToSomePeers(String key, int priority, final JSONObject request) {
         if (shutdown || suspend) {
             String errorMessage = String.format("Cannot send request to peers. Peer server was %s", suspend ? "suspended" : "shutdown");
             LOG.error(errorMessage);
             throw new RuntimeException(errorMessage);
         }
         sendingService.submit(() -> {
-            request.put("chainId", blockchainConfig.getChain().getChainId());
+            UUID chainId = blockchainConfig.getChain().getChainId();
+            request.put("chainId", chainId);
             final JSONStreamAware jsonRequest = JSON.prepareRequest(request);
 
-            int successful = 0;
-            List<Future<JSONObject>> expectedResponses = new ArrayList<>();
+            List<Peer> candidates = new ArrayList<>();
             for (final Peer peer : peers.values()) {
 
                 if (Peers.enableHallmarkProtection && peer.getWeight() < Peers.pushThreshold) {
@@ -650,30 +665,11 @@ public final class Peers {
 
                 if (!peer.isBlacklisted() && peer.getState() == Peer.State.CONNECTED && peer.getAnnouncedAddress() != null
                         && peer.getBlockchainState() != Peer.BlockchainState.LIGHT_CLIENT) {
-                    Future<JSONObject> futureResponse = peersService.submit(() -> peer.send(jsonRequest,
-                            blockchainConfig.getChain().getChainId()));
-                    expectedResponses.add(futureResponse);
-                }
-                if (expectedResponses.size() >= Peers.sendToPeersLimit - successful) {
-                    for (Future<JSONObject> future : expectedResponses) {
-                        try {
-                            JSONObject response = future.get();
-                            if (response != null && response.get("error") == null) {
-                                successful += 1;
-                            }
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
-                        } catch (ExecutionException e) {
-                            LOG.debug("Error in sendToSomePeers", e);
-                        }
-
-                    }
-                    expectedResponses.clear();
-                }
-                if (successful >= Peers.sendToPeersLimit) {
-                    return;
+                    candidates.add(peer);
                 }
             }
+            // sends are queued per peer and completed asynchronously, sending thread does not wait for responses
+            broadcaster.broadcast(key, priority, jsonRequest, candidates, chainId);
         });
     }
 
@@ -1079,7 +1075,7 @@ public final class Peers {
                         request.put("peers", myPeers);
                         request.put("services", myServices);            // Separate array for backwards compatibility
                         request.put("chainId", blockchainConfig.getChain().getChainId());
-                        peer.send(JSON.prepareRequest(request), blockchainConfig.getChain().getChainId(), 0, false);
+                        peer.sendAsync(JSON.prepareRequest(request), blockchainConfig.getChain().getChainId(), 0);
                     }
                     
                 } catch (Exception e) {
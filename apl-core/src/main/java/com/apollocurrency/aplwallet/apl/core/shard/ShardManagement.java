@@ -6,6 +6,7 @@ package com.apollocurrency.aplwallet.apl.core.shard;
 
 import java.util.List;
 
+import com.apollocurrency.aplwallet.apl.core.db.DataSourceLease;
 import com.apollocurrency.aplwallet.apl.core.db.DbVersion;
 import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
 
@@ -35,6 +36,16 @@ public interface ShardManagement {
      */
     TransactionalDataSource getOrCreateShardDataSourceById(Long shardId);
 
+    /**
+     * Borrow data source of existing shard for reading, shard is opened when it is closed. Leased shard is not closed
+     * by {@link #closeIdleShards()} until the lease is closed, so readers should take connections only from leased
+     * shard data sources and close the lease after connections.
+     *
+     * @param shardId shard Id
+     * @return lease of opened shard data source
+     */
+    DataSourceLease leaseShardDataSource(Long shardId);
+
     /**
      * That is preferred way to retrieve cached shard data source or create it fully or partially initialized.
      * The initialization schema is specified by dbVersion implementation class.
@@ -74,4 +85,24 @@ public interface ShardManagement {
      */
     TransactionalDataSource createAndAddShard(Long shardId, DbVersion dbVersion);
 
+    /**
+     * Close shard data sources which were opened for reading and were not used for a while.
+     * Shards are reopened on next access.
+     */
+    void closeIdleShards();
+
+    /**
+     * Return ids of all full shards, from newest shard to oldest
+     *
+     * @return list of shard ids
+     */
+    List<Long> getFullShardIds();
+
+    /**
+     * Executor for read queries which should run over main db and all full shards
+     *
+     * @return shared shard query executor
+     */
+    ShardQueryExecutor getShardQueryExecutor();
+
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard;
+
+import com.apollocurrency.aplwallet.apl.core.db.DataSourceLease;
+import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
+import com.apollocurrency.aplwallet.apl.core.db.DbUtils;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the same read query against main db and every full shard db and merges the results into one page.
+ * <p>
+ * Data sources are expected in order main db, newest shard, ..., oldest shard. Sharded tables keep disjoint
+ * height ranges, so for queries ordered by height (or block timestamp) descending all rows of one data source
+ * precede rows of the next one and results are merged by concatenation. Each data source is asked for the first
+ * 'to + 1' rows only. Main db is always queried in the calling thread, so the current transaction is respected.
+ * <p>
+ * Pages of at most 'maxParallelRows' rows, which is the API limit of records, are loaded in parallel: shard queries
+ * are executed on a bounded pool, and as soon as leading data sources fill the requested page, shard queries which
+ * have not started yet are cancelled. Larger pages and queries without upper bound are never loaded into memory:
+ * data sources are read one by one while result is iterated, and next data source is queried only when the previous
+ * one is exhausted. Shard data source is leased only when its query starts, so closed shards are not reopened for
+ * queries which are cancelled or not reached, and the lease is held until the shard query is finished, so the shard
+ * is not closed as idle while it is read.
+ */
+public class ShardQueryExecutor {
+
+    /**
+     * Creates query for one data source
+     */
+    @FunctionalInterface
+    public interface StatementFactory {
+        /**
+         * @param con connection to the data source
+         * @param from index of the first row to select, inclusive
+         * @param to index of the last row to select, inclusive, negative for no limit
+         * @return statement with all parameters set
+         * @throws SQLException when statement cannot be prepared
+         */
+        PreparedStatement prepare(Connection con, int from, int to) throws SQLException;
+    }
+
+    private final Supplier<TransactionalDataSource> mainDataSource;
+    private final Supplier<List<Long>> shardIds;
+    private final Function<Long, DataSourceLease> shardDataSource;
+    private final ThreadPoolExecutor executor;
+    private final int maxParallelRows;
+
+    /**
+     * @param mainDataSource supplies main db data source
+     * @param shardIds supplies ids of full shards from newest to oldest
+     * @param shardDataSource leases opened data source of the shard by id
+     * @param threads max number of shard queries executed simultaneously
+     * @param maxParallelRows max number of rows in the page which is loaded from data sources in parallel
+     */
+    public ShardQueryExecutor(Supplier<TransactionalDataSource> mainDataSource, Supplier<List<Long>> shardIds,
+                              Function<Long, DataSourceLease> shardDataSource, int threads, int maxParallelRows) {
+        this.mainDataSource = Objects.requireNonNull(mainDataSource, "mainDataSource is NULL");
+        this.shardIds = Objects.requireNonNull(shardIds, "shardIds is NULL");
+        this.shardDataSource = Objects.requireNonNull(shardDataSource, "shardDataSource is NULL");
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "ShardQueryExecutor-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.maxParallelRows = maxParallelRows;
+    }
+
+    /**
+     * Select rows [from, to] of the query result merged over main db and all full shards.
+     * When there are no shards, the result is streamed from main db as usual.
+     * @param factory creates statement for one data source
+     * @param reader row decoder
+     * @param from index of the first row to return, inclusive
+     * @param to index of the last row to return, inclusive, negative for no limit
+     * @param <T> row type
+     * @return iterator over selected rows
+     */
+    public <T> DbIterator<T> query(StatementFactory factory, DbIterator.ResultSetReader<T> reader, int from, int to) {
+        List<Long> shards = shardIds.get();
+        if (shards.isEmpty()) {
+            Connection con = null;
+            try {
+                con = mainDataSource.get().getConnection();
+                return new DbIterator<>(con, factory.prepare(con, from, to), reader);
+            } catch (SQLException e) {
+                DbUtils.close(con);
+                throw new RuntimeException(e.toString(), e);
+            }
+        }
+        int last = to >= 0 && to >= from && to < Integer.MAX_VALUE ? to : -1;
+        if (last >= 0 && last < maxParallelRows) {
+            return DbIterator.of(queryAll(shards, factory, reader, from, last));
+        }
+        SequentialRows<T> rows = new SequentialRows<>(shards, factory, reader, Math.max(from, 0), last);
+        return DbIterator.of(rows, rows);
+    }
+
+    /**
+     * Load page of at most 'last + 1' rows from all data sources in parallel
+     */
+    private <T> List<T> queryAll(List<Long> shards, StatementFactory factory, DbIterator.ResultSetReader<T> reader, int from, int last) {
+        List<Future<List<T>>> futures = new ArrayList<>(shards.size());
+        for (Long shardId : shards) {
+            futures.add(executor.submit(() -> {
+                try (DataSourceLease lease = shardDataSource.apply(shardId)) {
+                    return load(lease.getDataSource(), factory, reader, last);
+                }
+            }));
+        }
+        List<T> rows = new ArrayList<>();
+        try {
+            rows.addAll(load(mainDataSource.get(), factory, reader, last));
+            for (Future<List<T>> future : futures) {
+                if (rows.size() > last) {
+                    break;
+                }
+                rows.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e.toString(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause().toString(), e.getCause());
+        } catch (Exception e) {
+            throw new RuntimeException(e.toString(), e);
+        } finally {
+            // do not interrupt running queries, H2 closes db file on interrupt
+            futures.forEach(future -> future.cancel(false));
+        }
+        int fromIndex = Math.min(Math.max(from, 0), rows.size());
+        int toIndex = Math.min(last + 1, rows.size());
+        return new ArrayList<>(rows.subList(fromIndex, toIndex));
+    }
+
+    private static <T> List<T> load(TransactionalDataSource dataSource, StatementFactory factory,
+                                    DbIterator.ResultSetReader<T> reader, int last) throws Exception {
+        List<T> rows = new ArrayList<>();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = factory.prepare(con, 0, last);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rows.add(reader.get(con, rs));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Rows of main db and then of every shard, read lazily from one data source at a time
+     */
+    private class SequentialRows<T> implements Iterator<T>, AutoCloseable {
+        private final List<Long> shards;
+        private final StatementFactory factory;
+        private final DbIterator.ResultSetReader<T> reader;
+        private final int from;
+        private final int last;
+        private DbIterator<T> current;
+        private DataSourceLease currentLease;
+        private int nextSource;
+        private int position;
+
+        private SequentialRows(List<Long> shards, StatementFactory factory, DbIterator.ResultSetReader<T> reader, int from, int last) {
+            this.shards = shards;
+            this.factory = factory;
+            this.reader = reader;
+            this.from = from;
+            this.last = last;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (last < 0 || position <= last) {
+                if (current != null && current.hasNext()) {
+                    if (position >= from) {
+                        return true;
+                    }
+                    current.next();
+                    position++;
+                } else if (!openNextSource()) {
+                    return false;
+                }
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            position++;
+            return current.next();
+        }
+
+        private boolean openNextSource() {
+            close();
+            if (nextSource > shards.size()) {
+                return false;
+            }
+            currentLease = nextSource == 0 ? DataSourceLease.of(mainDataSource.get()) : shardDataSource.apply(shards.get(nextSource - 1));
+            nextSource++;
+            Connection con = null;
+            try {
+                con = currentLease.getDataSource().getConnection();
+                current = new DbIterator<>(con, factory.prepare(con, 0, last < 0 ? -1 : last - position), reader);
+                return true;
+            } catch (SQLException e) {
+                DbUtils.close(con);
+                throw new RuntimeException(e.toString(), e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (currentLease != null) {
+                currentLease.close();
+                currentLease = null;
+            }
+        }
+    }
+}
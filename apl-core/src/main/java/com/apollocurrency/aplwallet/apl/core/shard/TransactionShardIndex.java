@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable in-memory copy of the transaction_shard_index table joined with block_index.
+ * <p>
+ * Transaction ids are kept in a sorted primitive array with a parallel array of shard slots,
+ * so resolving shard of the transaction is a binary search without any SQL and costs about 12 bytes
+ * per sharded transaction. Transactions which are absent from index are stored in main db.
+ * Index does not track changes of underlying tables and should be reloaded after sharding.
+ */
+public class TransactionShardIndex {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final TransactionShardIndex EMPTY = new TransactionShardIndex(new long[0], new int[0], new long[0]);
+
+    private final long[] transactionIds;
+    private final int[] shardSlots;
+    private final long[] shardIds;
+
+    TransactionShardIndex(long[] transactionIds, int[] shardSlots, long[] shardIds) {
+        this.transactionIds = transactionIds;
+        this.shardSlots = shardSlots;
+        this.shardIds = shardIds;
+    }
+
+    public static TransactionShardIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Read whole index from main db
+     * @param con connection to main db
+     * @return loaded index
+     * @throws SQLException when index tables cannot be read
+     */
+    public static TransactionShardIndex load(Connection con) throws SQLException {
+        long[] ids = new long[INITIAL_CAPACITY];
+        int[] slots = new int[INITIAL_CAPACITY];
+        Map<Long, Integer> shardSlotMap = new HashMap<>();
+        int size = 0;
+        try (PreparedStatement pstmt = con.prepareStatement(
+                "SELECT t.transaction_id, b.shard_id FROM transaction_shard_index t " +
+                "JOIN block_index b ON t.block_id = b.block_id ORDER BY t.transaction_id")) {
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    long transactionId = rs.getLong(1);
+                    if (size > 0 && ids[size - 1] == transactionId) {
+                        continue;
+                    }
+                    if (size == ids.length) {
+                        ids = Arrays.copyOf(ids, size * 2);
+                        slots = Arrays.copyOf(slots, size * 2);
+                    }
+                    ids[size] = transactionId;
+                    slots[size] = shardSlotMap.computeIfAbsent(rs.getLong(2), k -> shardSlotMap.size());
+                    size++;
+                }
+            }
+        }
+        if (size == 0) {
+            return EMPTY;
+        }
+        long[] shards = new long[shardSlotMap.size()];
+        shardSlotMap.forEach((shardId, slot) -> shards[slot] = shardId);
+        return new TransactionShardIndex(Arrays.copyOf(ids, size), Arrays.copyOf(slots, size), shards);
+    }
+
+    /**
+     * Find shard which stores transaction
+     * @param transactionId transaction id
+     * @return shard id or null when transaction is not sharded
+     */
+    public Long getShardId(long transactionId) {
+        int index = Arrays.binarySearch(transactionIds, transactionId);
+        return index < 0 ? null : shardIds[shardSlots[index]];
+    }
+
+    public int size() {
+        return transactionIds.length;
+    }
+}
@@ -18,7 +18,6 @@ import com.apollocurrency.aplwallet.apl.core.transaction.messages.SetPhasingOnly
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import com.apollocurrency.aplwallet.apl.util.Constants;
 import java.nio.ByteBuffer;
-import java.util.Map;
 import org.json.simple.JSONObject;
 
 /**
@@ -159,8 +158,8 @@ public abstract class AccountControl extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
-            return TransactionType.isDuplicate(SET_PHASING_ONLY, Long.toUnsignedString(transaction.getSenderId()), duplicates, true);
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
+            return TransactionType.isDuplicate(SET_PHASING_ONLY, transaction.getSenderId(), duplicates, true);
         }
 
         @Override
@@ -13,7 +13,6 @@ import com.apollocurrency.aplwallet.apl.core.transaction.messages.ColoredCoinsDi
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import com.apollocurrency.aplwallet.apl.util.Constants;
 import java.nio.ByteBuffer;
-import java.util.Map;
 import org.json.simple.JSONObject;
 
 /**
@@ -109,9 +108,9 @@ class CCCoinsDividentPayment extends ColoredCoins {
     }
 
     @Override
-    public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         ColoredCoinsDividendPayment attachment = (ColoredCoinsDividendPayment) transaction.getAttachment();
-        return isDuplicate(ColoredCoins.DIVIDEND_PAYMENT, Long.toUnsignedString(attachment.getAssetId()), duplicates, true);
+        return isDuplicate(ColoredCoins.DIVIDEND_PAYMENT, attachment.getAssetId(), duplicates, true);
     }
 
     @Override
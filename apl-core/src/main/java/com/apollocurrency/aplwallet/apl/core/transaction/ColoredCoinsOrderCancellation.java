@@ -6,7 +6,6 @@ package com.apollocurrency.aplwallet.apl.core.transaction;
 import com.apollocurrency.aplwallet.apl.core.account.Account;
 import com.apollocurrency.aplwallet.apl.core.app.Transaction;
 import com.apollocurrency.aplwallet.apl.core.transaction.messages.ColoredCoinsOrderCancellationAttachment;
-import java.util.Map;
 
 /**
  *
@@ -24,9 +23,9 @@ public abstract class ColoredCoinsOrderCancellation extends ColoredCoins {
     }
 
     @Override
-    public boolean isUnconfirmedDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isUnconfirmedDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         ColoredCoinsOrderCancellationAttachment attachment = (ColoredCoinsOrderCancellationAttachment) transaction.getAttachment();
-        return TransactionType.isDuplicate(ColoredCoins.ASK_ORDER_CANCELLATION, Long.toUnsignedString(attachment.getOrderId()), duplicates, true);
+        return TransactionType.isDuplicate(ColoredCoins.ASK_ORDER_CANCELLATION, attachment.getOrderId(), duplicates, true);
     }
 
     @Override
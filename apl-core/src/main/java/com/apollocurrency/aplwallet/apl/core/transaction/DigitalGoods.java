@@ -25,7 +25,6 @@ import com.apollocurrency.aplwallet.apl.core.transaction.messages.UnencryptedDig
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import com.apollocurrency.aplwallet.apl.util.Constants;
 import java.nio.ByteBuffer;
-import java.util.Map;
 import org.apache.tika.Tika;
 import org.apache.tika.mime.MediaType;
 import org.json.simple.JSONObject;
@@ -133,7 +132,7 @@ public abstract class DigitalGoods extends TransactionType {
         }
 
         @Override
-        public boolean isBlockDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isBlockDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             return isDuplicate(DigitalGoods.LISTING, getName(), duplicates, true);
         }
 
@@ -192,9 +191,9 @@ public abstract class DigitalGoods extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             DigitalGoodsDelisting attachment = (DigitalGoodsDelisting) transaction.getAttachment();
-            return isDuplicate(DigitalGoods.DELISTING, Long.toUnsignedString(attachment.getGoodsId()), duplicates, true);
+            return isDuplicate(DigitalGoods.DELISTING, attachment.getGoodsId(), duplicates, true);
         }
 
         @Override
@@ -252,10 +251,10 @@ public abstract class DigitalGoods extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             DigitalGoodsPriceChange attachment = (DigitalGoodsPriceChange) transaction.getAttachment();
             // not a bug, uniqueness is based on DigitalGoods.DELISTING
-            return isDuplicate(DigitalGoods.DELISTING, Long.toUnsignedString(attachment.getGoodsId()), duplicates, true);
+            return isDuplicate(DigitalGoods.DELISTING, attachment.getGoodsId(), duplicates, true);
         }
 
         @Override
@@ -313,10 +312,10 @@ public abstract class DigitalGoods extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             DigitalGoodsQuantityChange attachment = (DigitalGoodsQuantityChange) transaction.getAttachment();
             // not a bug, uniqueness is based on DigitalGoods.DELISTING
-            return isDuplicate(DigitalGoods.DELISTING, Long.toUnsignedString(attachment.getGoodsId()), duplicates, true);
+            return isDuplicate(DigitalGoods.DELISTING, attachment.getGoodsId(), duplicates, true);
         }
 
         @Override
@@ -399,10 +398,10 @@ public abstract class DigitalGoods extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             DigitalGoodsPurchase attachment = (DigitalGoodsPurchase) transaction.getAttachment();
             // not a bug, uniqueness is based on DigitalGoods.DELISTING
-            return isDuplicate(DigitalGoods.DELISTING, Long.toUnsignedString(attachment.getGoodsId()), duplicates, false);
+            return isDuplicate(DigitalGoods.DELISTING, attachment.getGoodsId(), duplicates, false);
         }
 
         @Override
@@ -484,9 +483,9 @@ public abstract class DigitalGoods extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             DigitalGoodsDelivery attachment = (DigitalGoodsDelivery) transaction.getAttachment();
-            return isDuplicate(DigitalGoods.DELIVERY, Long.toUnsignedString(attachment.getPurchaseId()), duplicates, true);
+            return isDuplicate(DigitalGoods.DELIVERY, attachment.getPurchaseId(), duplicates, true);
         }
 
         @Override
@@ -626,9 +625,9 @@ public abstract class DigitalGoods extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             DigitalGoodsRefund attachment = (DigitalGoodsRefund) transaction.getAttachment();
-            return isDuplicate(DigitalGoods.REFUND, Long.toUnsignedString(attachment.getPurchaseId()), duplicates, true);
+            return isDuplicate(DigitalGoods.REFUND, attachment.getPurchaseId(), duplicates, true);
         }
 
         @Override
@@ -37,7 +37,6 @@ import org.json.simple.JSONObject;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import javax.enterprise.inject.spi.CDI;
 
 /**
@@ -165,13 +164,13 @@ public abstract class Messaging extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             MessagingAliasAssignment attachment = (MessagingAliasAssignment) transaction.getAttachment();
             return isDuplicate(Messaging.ALIAS_ASSIGNMENT, attachment.getAliasName().toLowerCase(), duplicates, true);
         }
 
         @Override
-        public boolean isBlockDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isBlockDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             return Alias.getAlias(((MessagingAliasAssignment) transaction.getAttachment()).getAliasName()) == null && isDuplicate(Messaging.ALIAS_ASSIGNMENT, "", duplicates, true);
         }
 
@@ -236,7 +235,7 @@ public abstract class Messaging extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             MessagingAliasSell attachment = (MessagingAliasSell) transaction.getAttachment();
             // not a bug, uniqueness is based on Messaging.ALIAS_ASSIGNMENT
             return isDuplicate(Messaging.ALIAS_ASSIGNMENT, attachment.getAliasName().toLowerCase(), duplicates, true);
@@ -323,7 +322,7 @@ public abstract class Messaging extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             MessagingAliasBuy attachment = (MessagingAliasBuy) transaction.getAttachment();
             // not a bug, uniqueness is based on Messaging.ALIAS_ASSIGNMENT
             return isDuplicate(Messaging.ALIAS_ASSIGNMENT, attachment.getAliasName().toLowerCase(), duplicates, true);
@@ -395,7 +394,7 @@ public abstract class Messaging extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(final Transaction transaction, final Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(final Transaction transaction, final TransactionDuplicates duplicates) {
             MessagingAliasDelete attachment = (MessagingAliasDelete) transaction.getAttachment();
             // not a bug, uniqueness is based on Messaging.ALIAS_ASSIGNMENT
             return isDuplicate(Messaging.ALIAS_ASSIGNMENT, attachment.getAliasName().toLowerCase(), duplicates, true);
@@ -514,7 +513,7 @@ public abstract class Messaging extends TransactionType {
         }
 
         @Override
-        public boolean isBlockDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isBlockDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             return isDuplicate(Messaging.POLL_CREATION, getName(), duplicates, true);
         }
 
@@ -593,10 +592,9 @@ public abstract class Messaging extends TransactionType {
         }
 
         @Override
-        public boolean isDuplicate(final Transaction transaction, final Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isDuplicate(final Transaction transaction, final TransactionDuplicates duplicates) {
             MessagingVoteCasting attachment = (MessagingVoteCasting) transaction.getAttachment();
-            String key = Long.toUnsignedString(attachment.getPollId()) + ":" + Long.toUnsignedString(transaction.getSenderId());
-            return isDuplicate(Messaging.VOTE_CASTING, key, duplicates, true);
+            return isDuplicate(Messaging.VOTE_CASTING, attachment.getPollId(), transaction.getSenderId(), duplicates, true);
         }
 
         @Override
@@ -775,7 +773,7 @@ public abstract class Messaging extends TransactionType {
         }
 
         @Override
-        public boolean isBlockDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+        public boolean isBlockDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
             return isDuplicate(Messaging.ACCOUNT_INFO, getName(), duplicates, true);
         }
 
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.transaction;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Duplicate keys of transactions selected into the same block or unconfirmed pool, which limit number of transactions
+ * with the same key.
+ * <p>
+ * Keys belong to the transaction type which is passed with them, and key of each kind (string, id or pair of ids)
+ * is compared only with keys of the same kind. Id keys are kept in open addressing table of primitive arrays, so
+ * they are checked without boxing and string building. {@link #clear()} keeps allocated tables, so instance can be
+ * reused for the next block.
+ */
+public class TransactionDuplicates {
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int ID_KEY = 1;
+    private static final int ID_PAIR_KEY = 2;
+
+    private final Map<TransactionType, Map<String, Integer>> stringKeys = new HashMap<>();
+    // 0 for free slot
+    private int[] codes = new int[INITIAL_CAPACITY];
+    private long[] keys1 = new long[INITIAL_CAPACITY];
+    private long[] keys2 = new long[INITIAL_CAPACITY];
+    private int[] counts = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Count transaction with the key and check whether it exceeds max count
+     * @param type transaction type which owns the key
+     * @param key string key
+     * @param maxCount max number of transactions with the key, 0 when the key is exclusive
+     * @return true when number of transactions with the key, including this one, exceeds max count
+     */
+    public boolean isDuplicate(TransactionType type, String key, int maxCount) {
+        Map<String, Integer> typeDuplicates = stringKeys.computeIfAbsent(type, t -> new HashMap<>());
+        Integer currentCount = typeDuplicates.get(key);
+        if (currentCount == null) {
+            typeDuplicates.put(key, maxCount > 0 ? 1 : 0);
+            return false;
+        }
+        if (currentCount == 0) {
+            return true;
+        }
+        if (currentCount < maxCount) {
+            typeDuplicates.put(key, currentCount + 1);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Same as {@link #isDuplicate(TransactionType, String, int)} for id key
+     */
+    public boolean isDuplicate(TransactionType type, long key, int maxCount) {
+        return isDuplicate(code(type, ID_KEY), key, 0, maxCount);
+    }
+
+    /**
+     * Same as {@link #isDuplicate(TransactionType, String, int)} for key which consists of two ids
+     */
+    public boolean isDuplicate(TransactionType type, long key1, long key2, int maxCount) {
+        return isDuplicate(code(type, ID_PAIR_KEY), key1, key2, maxCount);
+    }
+
+    public void clear() {
+        stringKeys.values().forEach(Map::clear);
+        if (size > 0) {
+            Arrays.fill(codes, 0);
+            size = 0;
+        }
+    }
+
+    private boolean isDuplicate(int code, long key1, long key2, int maxCount) {
+        int mask = codes.length - 1;
+        int slot = hash(code, key1, key2) & mask;
+        while (codes[slot] != 0) {
+            if (codes[slot] == code && keys1[slot] == key1 && keys2[slot] == key2) {
+                int currentCount = counts[slot];
+                if (currentCount == 0) {
+                    return true;
+                }
+                if (currentCount < maxCount) {
+                    counts[slot] = currentCount + 1;
+                    return false;
+                }
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        codes[slot] = code;
+        keys1[slot] = key1;
+        keys2[slot] = key2;
+        counts[slot] = maxCount > 0 ? 1 : 0;
+        if (++size * 2 > codes.length) {
+            resize();
+        }
+        return false;
+    }
+
+    private void resize() {
+        int[] oldCodes = codes;
+        long[] oldKeys1 = keys1;
+        long[] oldKeys2 = keys2;
+        int[] oldCounts = counts;
+        int capacity = oldCodes.length * 2;
+        codes = new int[capacity];
+        keys1 = new long[capacity];
+        keys2 = new long[capacity];
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldCodes.length; i++) {
+            if (oldCodes[i] != 0) {
+                int slot = hash(oldCodes[i], oldKeys1[i], oldKeys2[i]) & mask;
+                while (codes[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                codes[slot] = oldCodes[i];
+                keys1[slot] = oldKeys1[i];
+                keys2[slot] = oldKeys2[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int code(TransactionType type, int kind) {
+        return kind << 16 | (type.getType() & 0xFF) << 8 | type.getSubtype() & 0xFF;
+    }
+
+    private static int hash(int code, long key1, long key2) {
+        long h = key1 * 0x9E3779B97F4A7C15L + key2 * 0xC2B2AE3D27D4EB4FL + code;
+        h ^= h >>> 32;
+        return (int) (h ^ h >>> 16);
+    }
+}
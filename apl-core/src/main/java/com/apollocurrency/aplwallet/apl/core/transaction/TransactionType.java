@@ -40,8 +40,6 @@ import org.slf4j.Logger;
 
 import javax.enterprise.inject.spi.CDI;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -301,42 +299,37 @@ public abstract class TransactionType {
 
     public abstract void undoAttachmentUnconfirmed(Transaction transaction, Account senderAccount);
 
-    public boolean isDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         return false;
     }
 
     // isBlockDuplicate and isDuplicate share the same duplicates map, but isBlockDuplicate check is done first
-    public boolean isBlockDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isBlockDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         return false;
     }
 
-    public boolean isUnconfirmedDuplicate(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public boolean isUnconfirmedDuplicate(Transaction transaction, TransactionDuplicates duplicates) {
         return false;
     }
 
-    public static boolean isDuplicate(TransactionType uniqueType, String key, Map<TransactionType, Map<String, Integer>> duplicates, boolean exclusive) {
+    public static boolean isDuplicate(TransactionType uniqueType, String key, TransactionDuplicates duplicates, boolean exclusive) {
         return isDuplicate(uniqueType, key, duplicates, exclusive ? 0 : Integer.MAX_VALUE);
     }
 
-    public static boolean isDuplicate(TransactionType uniqueType, String key, Map<TransactionType, Map<String, Integer>> duplicates, int maxCount) {
-        Map<String,Integer> typeDuplicates = duplicates.get(uniqueType);
-        if (typeDuplicates == null) {
-            typeDuplicates = new HashMap<>();
-            duplicates.put(uniqueType, typeDuplicates);
-        }
-        Integer currentCount = typeDuplicates.get(key);
-        if (currentCount == null) {
-            typeDuplicates.put(key, maxCount > 0 ? 1 : 0);
-            return false;
-        }
-        if (currentCount == 0) {
-            return true;
-        }
-        if (currentCount < maxCount) {
-            typeDuplicates.put(key, currentCount + 1);
-            return false;
-        }
-        return true;
+    public static boolean isDuplicate(TransactionType uniqueType, String key, TransactionDuplicates duplicates, int maxCount) {
+        return duplicates.isDuplicate(uniqueType, key, maxCount);
+    }
+
+    public static boolean isDuplicate(TransactionType uniqueType, long key, TransactionDuplicates duplicates, boolean exclusive) {
+        return duplicates.isDuplicate(uniqueType, key, exclusive ? 0 : Integer.MAX_VALUE);
+    }
+
+    public static boolean isDuplicate(TransactionType uniqueType, long key, TransactionDuplicates duplicates, int maxCount) {
+        return duplicates.isDuplicate(uniqueType, key, maxCount);
+    }
+
+    public static boolean isDuplicate(TransactionType uniqueType, long key1, long key2, TransactionDuplicates duplicates, boolean exclusive) {
+        return duplicates.isDuplicate(uniqueType, key1, key2, exclusive ? 0 : Integer.MAX_VALUE);
     }
 
     public boolean isPruned(long transactionId) {
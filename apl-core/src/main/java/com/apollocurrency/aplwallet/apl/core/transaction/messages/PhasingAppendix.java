@@ -20,7 +20,7 @@ import com.apollocurrency.aplwallet.apl.core.http.ParameterException;
 import com.apollocurrency.aplwallet.apl.core.phasing.PhasingPollService;
 import com.apollocurrency.aplwallet.apl.core.phasing.model.PhasingParams;
 import com.apollocurrency.aplwallet.apl.core.phasing.model.PhasingPoll;
-import com.apollocurrency.aplwallet.apl.core.transaction.TransactionType;
+import com.apollocurrency.aplwallet.apl.core.transaction.TransactionDuplicates;
 import com.apollocurrency.aplwallet.apl.crypto.Convert;
 import com.apollocurrency.aplwallet.apl.util.AplException;
 import com.apollocurrency.aplwallet.apl.util.Constants;
@@ -32,7 +32,6 @@ import javax.enterprise.inject.spi.CDI;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -347,7 +346,7 @@ public class PhasingAppendix extends AbstractAppendix {
         }
     }
 
-    public void tryCountVotes(Transaction transaction, Map<TransactionType, Map<String, Integer>> duplicates) {
+    public void tryCountVotes(Transaction transaction, TransactionDuplicates duplicates) {
         PhasingPoll poll = phasingPollService.getPoll(transaction.getId());
         long result = phasingPollService.countVotes(poll);
         if (result >= poll.getQuorum()) {
@@ -0,0 +1,197 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTablesRegistryImpl;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.core.db.fulltext.FullTextConfigImpl;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import org.jboss.weld.junit.MockBean;
+import org.jboss.weld.junit5.EnableWeld;
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldSetup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+@EnableWeld
+class AccountBalanceHistoryTableTest {
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator.from(FullTextConfigImpl.class, DerivedDbTablesRegistryImpl.class)
+            .addBeans(MockBean.of(extension.getDatabaseManger(), DatabaseManager.class))
+            .build();
+
+    private TransactionalDataSource dataSource;
+    private AccountBalanceHistoryTable table;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DELETE FROM account");
+            stmt.execute("DELETE FROM account_balance_history");
+            stmt.execute("DELETE FROM option");
+        }
+        insertAccount(1, 100, 5);
+        insertAccount(2, 50, 8);
+        table = new AccountBalanceHistoryTable(properties(true));
+        table.start(5);
+    }
+
+    @Test
+    void testSeedFromAccountTable() {
+        assertTrue(table.isAvailable(5));
+        assertTrue(table.isAvailable(1000));
+        assertFalse(table.isAvailable(4));
+        assertEquals(100, table.getAccount(1, 5).getBalanceATM());
+        assertNull(table.getAccount(2, 7));
+        assertEquals(50, table.getAccount(2, 8).getBalanceATM());
+    }
+
+    @Test
+    void testBalanceAtHeight() throws SQLException {
+        save(1, 200, 10);
+        save(1, 300, 20);
+
+        assertEquals(100, table.getAccount(1, 9).getBalanceATM());
+        assertEquals(200, table.getAccount(1, 10).getBalanceATM());
+        assertEquals(200, table.getAccount(1, 19).getBalanceATM());
+        assertEquals(300, table.getAccount(1, 25).getBalanceATM());
+        assertEquals(300, table.getAccount(1, 25).getUnconfirmedBalanceATM());
+        assertEquals(3, countRows(1));
+    }
+
+    @Test
+    void testUnchangedBalanceIsNotRecorded() throws SQLException {
+        save(1, 100, 10);
+
+        assertEquals(1, countRows(1));
+    }
+
+    @Test
+    void testZeroBalanceIsMissingAccount() throws SQLException {
+        save(1, 0, 10);
+
+        assertNull(table.getAccount(1, 10));
+        assertEquals(100, table.getAccount(1, 9).getBalanceATM());
+    }
+
+    @Test
+    void testAccountEmptiedAtCreationHeight() throws SQLException {
+        save(3, 200, 10);
+        save(3, 0, 10);
+
+        assertNull(table.getAccount(3, 10));
+        assertNull(table.getAccount(3, 20));
+        assertEquals(1, countRows(3));
+    }
+
+    @Test
+    void testHistoryIsNotTrimmed() throws SQLException {
+        save(1, 200, 10);
+        save(1, 300, 20);
+
+        table.trim(20, dataSource);
+
+        assertEquals(100, table.getAccount(1, 9).getBalanceATM());
+        assertEquals(200, table.getAccount(1, 15).getBalanceATM());
+    }
+
+    @Test
+    void testRollback() throws SQLException {
+        save(1, 200, 10);
+        save(1, 300, 20);
+
+        dataSource.begin();
+        table.rollback(15);
+        dataSource.commit();
+
+        assertEquals(200, table.getAccount(1, 25).getBalanceATM());
+        assertEquals(2, countRows(1));
+    }
+
+    @Test
+    void testUnavailableHeightIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> table.getAccount(1, 4));
+    }
+
+    @Test
+    void testStartKeepsHeightOfSeededHistory() {
+        AccountBalanceHistoryTable restarted = new AccountBalanceHistoryTable(properties(true));
+        restarted.start(50);
+
+        assertTrue(restarted.isAvailable(5));
+    }
+
+    @Test
+    void testDisabledHistoryIsDeleted() throws SQLException {
+        AccountBalanceHistoryTable disabled = new AccountBalanceHistoryTable(properties(false));
+        disabled.start(50);
+
+        assertFalse(disabled.isAvailable(50));
+        assertEquals(0, countRows(1));
+        AccountBalanceHistoryTable enabled = new AccountBalanceHistoryTable(properties(true));
+        enabled.start(50);
+        assertFalse(enabled.isAvailable(49));
+        assertTrue(enabled.isAvailable(50));
+    }
+
+    private void save(long id, long balance, int height) throws SQLException {
+        Account account = new Account(id);
+        account.balanceATM = balance;
+        try (Connection con = dataSource.getConnection()) {
+            table.save(con, account, height);
+        }
+    }
+
+    private int countRows(long id) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("SELECT COUNT(*) FROM account_balance_history WHERE account_id = ?")) {
+            pstmt.setLong(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private void insertAccount(long id, long balance, int height) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("INSERT INTO account (id, balance, unconfirmed_balance, "
+                     + "forged_balance, height, latest) VALUES (?, ?, ?, 0, ?, TRUE)")) {
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, balance);
+            pstmt.setLong(3, balance);
+            pstmt.setInt(4, height);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static PropertiesHolder properties(boolean enabled) {
+        PropertiesHolder propertiesHolder = mock(PropertiesHolder.class);
+        doReturn(enabled).when(propertiesHolder).getBooleanProperty("apl.accountBalanceHistory");
+        return propertiesHolder;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+class AccountBalanceIndexTest {
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    private TransactionalDataSource dataSource;
+    private AccountBalanceIndex index;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DELETE FROM account");
+        }
+        insertAccount(1, 500);
+        insertAccount(2, 100);
+        insertAccount(3, 300);
+        insertAccount(4, 300);
+        insertAccount(5, 0);
+        index = new AccountBalanceIndex(extension.getDatabaseManger());
+    }
+
+    @Test
+    void testLoad() {
+        assertEquals(4, index.getNumberOfAccounts().longValue());
+        assertArrayEquals(new long[] {1, 3, 4}, index.getTopAccountIds(3));
+        assertArrayEquals(new long[] {1, 3, 4, 2}, index.getTopAccountIds(10));
+        assertEquals(800, index.getTotalAmountOnTop(2).longValue());
+        assertEquals(1200, index.getTotalAmountOnTop(100).longValue());
+    }
+
+    @Test
+    void testChangesAppliedOnCommit() {
+        index.getNumberOfAccounts();
+
+        dataSource.begin();
+        index.onChanged(2, 1000);
+        index.onChanged(1, 0);
+        index.onChanged(6, 50);
+        assertNull(index.getNumberOfAccounts());
+        dataSource.commit();
+
+        assertArrayEquals(new long[] {2, 3, 4, 6}, index.getTopAccountIds(10));
+        assertEquals(1650, index.getTotalAmountOnTop(4).longValue());
+    }
+
+    @Test
+    void testChangesDiscardedOnRollback() {
+        index.getNumberOfAccounts();
+
+        dataSource.begin();
+        index.onChanged(2, 1000);
+        dataSource.rollback();
+
+        assertArrayEquals(new long[] {1, 3, 4, 2}, index.getTopAccountIds(10));
+    }
+
+    @Test
+    void testInvalidate() throws SQLException {
+        index.getNumberOfAccounts();
+
+        dataSource.begin();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DELETE FROM account WHERE id = 1");
+        }
+        index.invalidate();
+        dataSource.commit();
+
+        assertArrayEquals(new long[] {3, 4, 2}, index.getTopAccountIds(10));
+    }
+
+    @Test
+    void testRandomChanges() {
+        index.getNumberOfAccounts();
+        Map<Long, Long> expected = new HashMap<>(Map.of(1L, 500L, 2L, 100L, 3L, 300L, 4L, 300L));
+        Random random = new Random(0);
+        for (int i = 0; i < 50; i++) {
+            dataSource.begin();
+            for (int j = 0; j < 100; j++) {
+                long accountId = random.nextInt(300);
+                long balance = random.nextInt(4) == 0 ? 0 : random.nextInt(1000);
+                index.onChanged(accountId, balance);
+                if (balance > 0) {
+                    expected.put(accountId, balance);
+                } else {
+                    expected.remove(accountId);
+                }
+            }
+            dataSource.commit();
+        }
+        List<Long> ranking = expected.entrySet().stream()
+                .sorted(Comparator.<Map.Entry<Long, Long>>comparingLong(Map.Entry::getValue).reversed()
+                        .thenComparingLong(Map.Entry::getKey))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+
+        assertEquals(expected.size(), index.getNumberOfAccounts().longValue());
+        assertArrayEquals(ranking.stream().mapToLong(Long::longValue).toArray(), index.getTopAccountIds(ranking.size()));
+        assertEquals(ranking.stream().limit(10).mapToLong(expected::get).sum(), index.getTotalAmountOnTop(10).longValue());
+    }
+
+    private void insertAccount(long id, long balance) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("INSERT INTO account (id, balance, unconfirmed_balance, forged_balance, "
+                     + "height, latest) VALUES (?, ?, ?, 0, 1, TRUE)")) {
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, balance);
+            pstmt.setLong(3, balance);
+            pstmt.executeUpdate();
+        }
+    }
+}
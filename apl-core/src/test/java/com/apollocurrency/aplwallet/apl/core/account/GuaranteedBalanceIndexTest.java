@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.account;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
+import com.apollocurrency.aplwallet.apl.core.app.GlobalSync;
+import com.apollocurrency.aplwallet.apl.core.app.GlobalSyncImpl;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class GuaranteedBalanceIndexTest {
+    private static final long ACCOUNT_1 = 1;
+    private static final long ACCOUNT_2 = 2;
+
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    private Blockchain blockchain = mock(Blockchain.class);
+    private GlobalSync globalSync = new GlobalSyncImpl();
+    private BlockchainConfig blockchainConfig = mock(BlockchainConfig.class);
+    private TransactionalDataSource dataSource;
+    private GuaranteedBalanceIndex index;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DELETE FROM account_guaranteed_balance");
+        }
+        addAdditions(ACCOUNT_1, 100, 10);   // out of window
+        addAdditions(ACCOUNT_1, 200, 11);
+        addAdditions(ACCOUNT_2, 300, 11);
+        addAdditions(ACCOUNT_1, 400, 15);
+        doReturn(5).when(blockchainConfig).getGuaranteedBalanceConfirmations();
+        doReturn(15).when(blockchain).getHeight();
+        index = new GuaranteedBalanceIndex(extension.getDatabaseManger(), blockchain, globalSync, blockchainConfig);
+    }
+
+    @Test
+    void testBuildAtCurrentHeight() {
+        assertNull(index.getAdditions(ACCOUNT_1, 14));
+
+        assertEquals(600, index.getAdditions(ACCOUNT_1, 15).longValue());
+        assertEquals(300, index.getAdditions(ACCOUNT_2, 15).longValue());
+        assertEquals(0, index.getAdditions(3, 15).longValue());
+    }
+
+    @Test
+    void testBlockAccepted() throws SQLException {
+        index.getAdditions(ACCOUNT_1, 15);
+        addAdditions(ACCOUNT_2, 50, 16);
+        doReturn(16).when(blockchain).getHeight();
+
+        index.onBlockAccepted(block(16));
+
+        assertEquals(400, index.getAdditions(ACCOUNT_1, 16).longValue());
+        assertEquals(50, index.getAdditions(ACCOUNT_2, 16).longValue());
+    }
+
+    @Test
+    void testNotBuiltInTransaction() {
+        dataSource.begin();
+        try {
+            assertNull(index.getAdditions(ACCOUNT_1, 15));
+        } finally {
+            dataSource.commit();
+        }
+        assertEquals(600, index.getAdditions(ACCOUNT_1, 15).longValue());
+    }
+
+    @Test
+    void testBuiltAfterPushedBlockIsCommitted() throws Exception {
+        CompletableFuture<Long> additions;
+        globalSync.writeLock();
+        try {
+            // new height is already visible, while its additions are not committed yet
+            doReturn(16).when(blockchain).getHeight();
+            additions = CompletableFuture.supplyAsync(() -> index.getAdditions(ACCOUNT_2, 16));
+            Thread.sleep(200);
+            assertFalse(additions.isDone());
+            addAdditions(ACCOUNT_2, 50, 16);
+        } finally {
+            globalSync.writeUnlock();
+        }
+
+        assertEquals(50, additions.get(5, TimeUnit.SECONDS).longValue());
+    }
+
+    @Test
+    void testDroppedOnChangesAtIndexedHeight() throws SQLException {
+        index.getAdditions(ACCOUNT_1, 15);
+        addAdditions(ACCOUNT_2, 50, 15);
+        index.onAdded(15);
+
+        assertEquals(350, index.getAdditions(ACCOUNT_2, 15).longValue());
+    }
+
+    @Test
+    void testDroppedOnBlockPopped() throws SQLException {
+        index.getAdditions(ACCOUNT_1, 15);
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DELETE FROM account_guaranteed_balance WHERE height > 14");
+        }
+        doReturn(14).when(blockchain).getHeight();
+
+        index.onBlockPopped(block(15));
+
+        assertNull(index.getAdditions(ACCOUNT_1, 15));
+        assertEquals(200, index.getAdditions(ACCOUNT_1, 14).longValue());
+    }
+
+    private Block block(int height) {
+        Block block = mock(Block.class);
+        doReturn(height).when(block).getHeight();
+        return block;
+    }
+
+    private void addAdditions(long accountId, long additions, int height) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement(
+                     "INSERT INTO account_guaranteed_balance (account_id, additions, height) VALUES (?, ?, ?)")) {
+            pstmt.setLong(1, accountId);
+            pstmt.setLong(2, additions);
+            pstmt.setInt(3, height);
+            pstmt.executeUpdate();
+        }
+    }
+}
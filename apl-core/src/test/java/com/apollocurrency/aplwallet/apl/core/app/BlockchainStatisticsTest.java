@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+class BlockchainStatisticsTest {
+    private Block block = mock(Block.class);
+    private BlockchainStatistics blockchainStatistics;
+    private int computed;
+
+    @BeforeEach
+    void setUp() {
+        blockchainStatistics = spy(new BlockchainStatistics(mock(Blockchain.class)));
+        doAnswer(invocation -> statistics(++computed)).when(blockchainStatistics).compute();
+    }
+
+    @Test
+    void testStatisticsAreComputedOnce() {
+        BlockchainStatistics.Statistics statistics = blockchainStatistics.getStatistics();
+
+        assertSame(statistics, blockchainStatistics.getStatistics());
+        assertEquals(1, statistics.getHeight());
+        verify(blockchainStatistics, times(1)).compute();
+    }
+
+    @Test
+    void testBlockPoppedDropsStatistics() {
+        blockchainStatistics.getStatistics();
+
+        blockchainStatistics.onBlockPopped(block);
+        blockchainStatistics.onBlockPopped(block);
+
+        assertEquals(2, blockchainStatistics.getStatistics().getHeight());
+        assertEquals(2, blockchainStatistics.getStatistics().getHeight());
+        verify(blockchainStatistics, times(2)).compute();
+    }
+
+    @Test
+    void testRescanEndDropsStatistics() {
+        blockchainStatistics.getStatistics();
+
+        blockchainStatistics.onRescanEnd(block);
+
+        assertEquals(2, blockchainStatistics.getStatistics().getHeight());
+        verify(blockchainStatistics, times(2)).compute();
+    }
+
+    @Test
+    void testBlocksDeletedDropsStatistics() {
+        blockchainStatistics.getStatistics();
+
+        blockchainStatistics.onBlocksDeleted();
+
+        assertEquals(2, blockchainStatistics.getStatistics().getHeight());
+        verify(blockchainStatistics, times(2)).compute();
+    }
+
+    @Test
+    void testBlockPoppedWhileComputingRepeatsRefresh() {
+        doAnswer(invocation -> {
+            if (++computed == 1) {
+                // counts of the popped block are already read
+                blockchainStatistics.onBlockPopped(block);
+            }
+            return statistics(computed);
+        }).when(blockchainStatistics).compute();
+
+        assertEquals(2, blockchainStatistics.getStatistics().getHeight());
+        assertEquals(2, blockchainStatistics.getStatistics().getHeight());
+        verify(blockchainStatistics, times(2)).compute();
+    }
+
+    private static BlockchainStatistics.Statistics statistics(int height) {
+        return new BlockchainStatistics.Statistics(height, Map.of("numberOfTransactions", height));
+    }
+}
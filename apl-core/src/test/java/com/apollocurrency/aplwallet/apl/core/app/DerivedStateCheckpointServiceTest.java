@@ -0,0 +1,187 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTable;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedTablesRegistry;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.crypto.Convert;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import com.apollocurrency.aplwallet.apl.extension.TemporaryFolderExtension;
+import org.jboss.weld.junit.MockBean;
+import org.jboss.weld.junit5.EnableWeld;
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldSetup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@EnableWeld
+class DerivedStateCheckpointServiceTest {
+    private static final String TABLE = "checkpoint_test";
+
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+    @RegisterExtension
+    TemporaryFolderExtension temporaryFolder = new TemporaryFolderExtension();
+
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator.from().addBeans(MockBean.of(extension.getDatabaseManger(), DatabaseManager.class)).build();
+
+    private TransactionalDataSource dataSource;
+    private Blockchain blockchain = mock(Blockchain.class);
+    private DerivedStateCheckpointService service;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + TABLE);
+            stmt.execute("CREATE TABLE " + TABLE + " (db_id IDENTITY, id BIGINT NOT NULL, name VARCHAR, data VARBINARY, "
+                    + "flag BOOLEAN, amount DECIMAL(20, 2), small SMALLINT, tiny TINYINT, created TIMESTAMP, ids ARRAY, "
+                    + "height INT NOT NULL)");
+        }
+        insert(1, "first", new byte[] {1, 2, 3}, true, new BigDecimal("12.50"), (short) 7, (byte) 3,
+                new Timestamp(1_500_000_000_000L), new Object[] {10L, 20L}, 1);
+        insert(2, null, null, null, null, null, null, null, null, 2);
+        DerivedDbTable table = new DerivedDbTable(TABLE, false) {};
+        DerivedTablesRegistry registry = mock(DerivedTablesRegistry.class);
+        doReturn(List.of(table)).when(registry).getDerivedTables();
+        doReturn(10).when(blockchain).getHeight();
+        doReturn(1000L).when(blockchain).getBlockIdAtHeight(10);
+        service = new DerivedStateCheckpointService(extension.getDatabaseManger(), registry, blockchain,
+                temporaryFolder.getRoot().toPath().resolve("checkpoints"), 10, 3);
+    }
+
+    @Test
+    void testCreateAndRestoreCheckpoint() throws SQLException {
+        List<List<Object>> rows = selectAll();
+        service.createCheckpoint(block(1000L, 10));
+        assertEquals(10, service.findCheckpoint(20));
+        modifyTable();
+        assertNotEquals(rows, selectAll());
+
+        dataSource.begin();
+        try {
+            service.restoreCheckpoint(10);
+            dataSource.commit();
+        } catch (RuntimeException e) {
+            dataSource.rollback();
+            throw e;
+        }
+
+        assertEquals(rows, selectAll());
+    }
+
+    @Test
+    void testRestoreIsRolledBackWithCallerTransaction() throws SQLException {
+        service.createCheckpoint(block(1000L, 10));
+        modifyTable();
+        List<List<Object>> modifiedRows = selectAll();
+
+        dataSource.begin();
+        try {
+            service.restoreCheckpoint(10);
+        } finally {
+            dataSource.rollback();
+        }
+
+        assertEquals(modifiedRows, selectAll());
+    }
+
+    @Test
+    void testRestoreRequiresTransaction() {
+        service.createCheckpoint(block(1000L, 10));
+
+        assertThrows(IllegalStateException.class, () -> service.restoreCheckpoint(10));
+    }
+
+    @Test
+    void testCheckpointOfAnotherChainIsNotFound() {
+        service.createCheckpoint(block(999L, 10));
+
+        assertEquals(-1, service.findCheckpoint(20));
+    }
+
+    private void modifyTable() throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + TABLE + " WHERE id = 1");
+        }
+        insert(3, "third", new byte[] {4}, false, BigDecimal.ONE, (short) 1, (byte) 1, new Timestamp(0), new Object[] {30L}, 11);
+    }
+
+    private void insert(long id, String name, byte[] data, Boolean flag, BigDecimal amount, Short small, Byte tiny,
+                        Timestamp created, Object[] ids, int height) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("INSERT INTO " + TABLE
+                     + " (id, name, data, flag, amount, small, tiny, created, ids, height) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            pstmt.setLong(1, id);
+            pstmt.setObject(2, name);
+            pstmt.setObject(3, data);
+            pstmt.setObject(4, flag);
+            pstmt.setObject(5, amount);
+            pstmt.setObject(6, small);
+            pstmt.setObject(7, tiny);
+            pstmt.setObject(8, created);
+            pstmt.setObject(9, ids);
+            pstmt.setInt(10, height);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private List<List<Object>> selectAll() throws SQLException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM " + TABLE + " ORDER BY db_id")) {
+            int columnCount = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                List<Object> row = new ArrayList<>();
+                for (int i = 1; i <= columnCount; i++) {
+                    Object value = rs.getObject(i);
+                    if (value instanceof Array) {
+                        value = ((Array) value).getArray();
+                    }
+                    if (value instanceof byte[]) {
+                        value = Convert.toHexString((byte[]) value);
+                    } else if (value instanceof Object[]) {
+                        value = Arrays.asList((Object[]) value);
+                    }
+                    row.add(value);
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static Block block(long id, int height) {
+        Block block = mock(Block.class);
+        doReturn(id).when(block).getId();
+        doReturn(height).when(block).getHeight();
+        return block;
+    }
+}
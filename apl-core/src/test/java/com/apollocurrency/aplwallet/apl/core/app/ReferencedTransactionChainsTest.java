@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+class ReferencedTransactionChainsTest {
+    private static final byte[] HASH = {1, 2, 3};
+
+    private TransactionalDataSource dataSource = mock(TransactionalDataSource.class);
+    private ReferencedTransactionChains chains;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseManager databaseManager = mock(DatabaseManager.class);
+        doReturn(dataSource).when(databaseManager).getDataSource();
+        chains = new ReferencedTransactionChains(databaseManager);
+    }
+
+    @Test
+    void testChainIsStored() {
+        ReferencedTransactionChains.Chain chain = new ReferencedTransactionChains.Chain(HASH, 10, null);
+
+        chains.put(chains.getVersion(), 1, chain, 0);
+
+        assertSame(chain, chains.get(1, HASH));
+        assertNull(chains.get(1, new byte[] {4}));
+    }
+
+    @Test
+    void testChainReadInTransactionIsStoredOnCommit() {
+        ReferencedTransactionChains.Chain chain = new ReferencedTransactionChains.Chain(HASH, 10, null);
+        doReturn(true).when(dataSource).isInTransaction();
+
+        chains.put(chains.getVersion(), 1, chain, 0);
+
+        verify(dataSource).registerCallback(chains);
+        assertSame(chain, chains.get(1, HASH));
+        assertNull(getInOtherThread());
+        chains.commit();
+        assertSame(chain, getInOtherThread());
+    }
+
+    @Test
+    void testChainReadInTransactionIsNotStoredOnRollback() {
+        doReturn(true).when(dataSource).isInTransaction();
+        chains.put(chains.getVersion(), 1, new ReferencedTransactionChains.Chain(HASH, 10, null), 0);
+
+        chains.rollback();
+
+        assertNull(chains.get(1, HASH));
+    }
+
+    @Test
+    void testChainReadInTransactionBeforeClearIsNotStored() {
+        doReturn(true).when(dataSource).isInTransaction();
+        chains.put(chains.getVersion(), 1, new ReferencedTransactionChains.Chain(HASH, 10, null), 0);
+
+        chains.clear();
+        chains.commit();
+
+        assertNull(chains.get(1, HASH));
+    }
+
+    @Test
+    void testChainReadBeforePopOffIsNotStored() {
+        long version = chains.getVersion();
+        chains.onBlockPopped();
+
+        chains.put(version, 1, new ReferencedTransactionChains.Chain(HASH, 10, null), 0);
+
+        assertNull(chains.get(1, HASH));
+    }
+
+    @Test
+    void testChainReadInPoppingTransactionIsNotStored() {
+        doReturn(true).when(dataSource).isInTransaction();
+        chains.onBlockPopped();
+        chains.put(chains.getVersion(), 1, new ReferencedTransactionChains.Chain(HASH, 10, null), 0);
+
+        chains.commit();
+
+        assertNull(chains.get(1, HASH));
+    }
+
+    @Test
+    void testChainsDroppedWhenPoppingTransactionEnds() {
+        doReturn(true).when(dataSource).isInTransaction();
+        chains.onBlockPopped();
+        verify(dataSource).registerCallback(chains);
+        doReturn(false).when(dataSource).isInTransaction();
+        chains.put(chains.getVersion(), 1, new ReferencedTransactionChains.Chain(HASH, 10, null), 0);
+
+        chains.commit();
+
+        assertNull(chains.get(1, HASH));
+    }
+
+    private ReferencedTransactionChains.Chain getInOtherThread() {
+        return CompletableFuture.supplyAsync(() -> chains.get(1, HASH)).join();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class ScanProgressTest {
+
+    @Test
+    void testResumeAfterAppliedBlock() {
+        assertEquals(51, ScanProgress.getResumeHeight(10, 50, 50, 100));
+        assertEquals(2, ScanProgress.getResumeHeight(0, 1, 1, 100));
+    }
+
+    @Test
+    void testResumeAfterFirstAppliedBlock() {
+        assertEquals(11, ScanProgress.getResumeHeight(10, 10, 10, 100));
+        assertEquals(1, ScanProgress.getResumeHeight(0, 0, 0, 100));
+    }
+
+    @Test
+    void testAllBlocksApplied() {
+        assertEquals(101, ScanProgress.getResumeHeight(10, 100, 100, 100));
+    }
+
+    @Test
+    void testRestartWhenNoBlockApplied() {
+        assertEquals(-1, ScanProgress.getResumeHeight(10, -1, -1, 100));
+        assertEquals(-1, ScanProgress.getResumeHeight(0, -1, -1, 100));
+    }
+
+    @Test
+    void testRestartWhenAppliedBlockIsNotInBlockchain() {
+        assertEquals(-1, ScanProgress.getResumeHeight(10, 50, -1, 100));
+        assertEquals(-1, ScanProgress.getResumeHeight(10, 50, 49, 100));
+        assertEquals(-1, ScanProgress.getResumeHeight(10, 101, 101, 100));
+    }
+
+    @Test
+    void testRestartWhenAppliedBlockIsBelowScheduledHeight() {
+        assertEquals(-1, ScanProgress.getResumeHeight(60, 50, 50, 100));
+    }
+}
@@ -10,6 +10,13 @@ import static org.mockito.Mockito.mock;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
@@ -18,8 +25,11 @@ import com.apollocurrency.aplwallet.apl.core.db.BlockDao;
 import com.apollocurrency.aplwallet.apl.core.db.BlockDaoImpl;
 import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
 import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTablesRegistryImpl;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
 import com.apollocurrency.aplwallet.apl.core.db.cdi.transaction.JdbiHandleFactory;
 import com.apollocurrency.aplwallet.apl.core.db.dao.TransactionIndexDao;
+import com.apollocurrency.aplwallet.apl.core.db.model.OptionDAO;
+import com.apollocurrency.aplwallet.apl.core.shard.ShardManagement;
 import com.apollocurrency.aplwallet.apl.data.BlockTestData;
 import com.apollocurrency.aplwallet.apl.data.DbTestData;
 import com.apollocurrency.aplwallet.apl.data.TransactionTestData;
@@ -153,5 +163,61 @@ class TransactionDaoTest {
         assertEquals(8, count);
     }
 
+    @Test
+    void getTransactionCountForRecipientAndAllTypes() {
+        assertEquals(1, dao.getTransactionCount(457571885748888948L, (byte)-1, (byte)-1));
+        assertEquals(12, dao.getTransactionCount(9211698109297098287L, (byte)-1, (byte)-1));
+        assertEquals(2, dao.getTransactionCount(9211698109297098287L, (byte)8, (byte)-1));
+    }
+
+    @Test
+    void indexShardAccountTransactions() throws SQLException {
+        long recipientId = 457571885748888948L;
+        TransactionalDataSource shardDataSource = ((ShardManagement) extension.getDatabaseManger()).createAndAddShard(1L);
+        TransactionalDataSource dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Connection shardCon = shardDataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            copyTransactions(con, shardCon, "recipient_id = " + recipientId);
+            stmt.executeUpdate("DELETE FROM account_transaction WHERE transaction_id IN "
+                    + "(SELECT id FROM transaction WHERE recipient_id = " + recipientId + ")");
+            stmt.executeUpdate("UPDATE shard SET shard_state = 100 WHERE shard_id = 1");
+        }
+        assertEquals(0, dao.getTransactionCount(recipientId, (byte)-1, (byte)-1));
+        assertEquals(11, dao.getTransactionCount(9211698109297098287L, (byte)-1, (byte)-1));
+
+        dao.indexShardAccountTransactions();
+
+        assertEquals(1, dao.getTransactionCount(recipientId, (byte)-1, (byte)-1));
+        assertEquals(12, dao.getTransactionCount(9211698109297098287L, (byte)-1, (byte)-1));
+        // entries which already exist are not duplicated when indexing is repeated
+        new OptionDAO(extension.getDatabaseManger()).delete("accountTransactionShardsIndexed");
+        dao.indexShardAccountTransactions();
+        assertEquals(1, dao.getTransactionCount(recipientId, (byte)-1, (byte)-1));
+        assertEquals(12, dao.getTransactionCount(9211698109297098287L, (byte)-1, (byte)-1));
+    }
+
+    private static void copyTransactions(Connection con, Connection shardCon, String condition) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (Statement stmt = shardCon.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT * FROM transaction WHERE 1 = 0")) {
+            for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                columns.add(rs.getMetaData().getColumnName(i));
+            }
+        }
+        String columnList = String.join(", ", columns);
+        try (Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT " + columnList + " FROM transaction WHERE " + condition);
+             PreparedStatement pstmt = shardCon.prepareStatement("INSERT INTO transaction (" + columnList + ") VALUES ("
+                     + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")")) {
+            while (rs.next()) {
+                for (int i = 1; i <= columns.size(); i++) {
+                    pstmt.setObject(i, rs.getObject(i));
+                }
+                pstmt.executeUpdate();
+            }
+        }
+    }
+
 
 }
\ No newline at end of file
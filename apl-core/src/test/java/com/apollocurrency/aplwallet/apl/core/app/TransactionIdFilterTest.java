@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.app;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.apollocurrency.aplwallet.apl.data.TransactionTestData;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.Random;
+
+class TransactionIdFilterTest {
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    private TransactionIdFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new TransactionIdFilter(() -> extension.getDatabaseManger().getDataSource());
+    }
+
+    @Test
+    void testContainsMainAndShardTransactions() {
+        TransactionTestData td = new TransactionTestData();
+
+        assertTrue(filter.mightContain(td.TRANSACTION_0.getId()));
+        assertTrue(filter.mightContain(td.TRANSACTION_12.getId()));
+        assertTrue(filter.mightContain(100));
+        assertTrue(filter.mightContain(103));
+    }
+
+    @Test
+    void testContainsIdsAddedBeforeAndAfterLoading() {
+        filter.add(-1L);
+        assertTrue(filter.mightContain(-1L));
+
+        filter.add(Long.MIN_VALUE);
+        filter.resizeIfNeeded();
+        assertTrue(filter.mightContain(Long.MIN_VALUE));
+    }
+
+    @Test
+    void testRejectsMostOfUnknownIds() {
+        Random random = new Random(1);
+        int positives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                positives++;
+            }
+        }
+        assertTrue(positives < 100, "False positives: " + positives);
+    }
+}
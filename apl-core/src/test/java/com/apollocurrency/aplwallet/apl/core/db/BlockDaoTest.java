@@ -12,11 +12,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 import javax.inject.Inject;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -71,6 +77,8 @@ class BlockDaoTest {
     private  JdbiHandleFactory jdbiHandleFactory;
     @Inject
     private BlockDao blockDao;
+    @Inject
+    private DerivedTablesRegistry tablesRegistry;
     private BlockTestData testData;
 
     private Path createPath(String fileName) {
@@ -116,6 +124,43 @@ class BlockDaoTest {
         assertTrue(isBlock);
     }
 
+    @Test
+    void deleteAllResetsDerivedTables() throws SQLException {
+        DerivedDbTable table = mock(DerivedDbTable.class);
+        tablesRegistry.registerDerivedTable(table);
+        TransactionalDataSource dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("INSERT INTO derived_table_count (table_name, holding_id, row_count) VALUES ('account', 0, 10)");
+        }
+
+        blockDao.deleteAll();
+
+        verify(table).truncate();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM derived_table_count")) {
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+        assertEquals(0L, blockDao.getBlockCount(GENESIS_BLOCK_HEIGHT, BlockTestData.BLOCK_11_HEIGHT + 1).longValue());
+    }
+
+    @Test
+    void getBlockIdsAfterEndsAtMissingHeight() {
+        // test blocks are not consecutive, as if blocks after BLOCK_10 were popped off while ids were read
+        List<Long> result = blockDao.getBlockIdsAfter(BlockTestData.BLOCK_10_ID, 10, new ArrayList<>());
+
+        assertEquals(List.of(), result);
+    }
+
+    @Test
+    void getBlockIdsAfterLastBlock() {
+        List<Long> result = blockDao.getBlockIdsAfter(BLOCK_11_ID, 10, new ArrayList<>());
+
+        assertEquals(List.of(), result);
+    }
+
     @Test
     void findLastBlockTimestamp() {
         Block block = blockDao.findLastBlock(BLOCK_7_TIMESTAMP);
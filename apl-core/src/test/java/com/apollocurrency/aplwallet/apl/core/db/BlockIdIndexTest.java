@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class BlockIdIndexTest {
+    private BlockIdIndex index = new BlockIdIndex();
+
+    @Test
+    void testPutPage() {
+        long[] pageIds = new long[BlockIdIndex.PAGE_SIZE];
+        pageIds[0] = 10;
+        pageIds[BlockIdIndex.PAGE_SIZE - 1] = 20;
+
+        index.putPage(index.getVersion(), 1, pageIds);
+
+        assertEquals(10, index.get(BlockIdIndex.PAGE_SIZE));
+        assertEquals(20, index.get(2 * BlockIdIndex.PAGE_SIZE - 1));
+        assertEquals(0, index.get(0));
+        assertEquals(0, index.get(2 * BlockIdIndex.PAGE_SIZE));
+    }
+
+    @Test
+    void testPageReadBeforeTruncationIsNotStored() {
+        long version = index.getVersion();
+        index.truncate(0);
+        long[] pageIds = new long[BlockIdIndex.PAGE_SIZE];
+        pageIds[5] = 10;
+
+        index.putPage(version, 0, pageIds);
+
+        assertEquals(0, index.get(5));
+    }
+
+    @Test
+    void testBlockIsIndexedOnlyAfterCommit() {
+        index.add(5, 10);
+        long[] pageIds = new long[BlockIdIndex.PAGE_SIZE];
+        pageIds[4] = 9;
+        pageIds[5] = 10;
+        index.putPage(index.getVersion(), 0, pageIds);
+
+        assertEquals(9, index.get(4));
+        assertEquals(0, index.get(5));
+
+        index.commit();
+
+        assertEquals(10, index.get(5));
+    }
+
+    @Test
+    void testRolledBackBlockIsNotIndexed() {
+        index.add(5, 10);
+        index.rollback();
+
+        assertEquals(0, index.get(5));
+    }
+
+    @Test
+    void testTruncate() {
+        index.add(5, 10);
+        index.add(6, 11);
+        index.add(BlockIdIndex.PAGE_SIZE + 1, 12);
+        index.commit();
+
+        index.truncate(6);
+
+        assertEquals(10, index.get(5));
+        assertEquals(0, index.get(6));
+        assertEquals(0, index.get(BlockIdIndex.PAGE_SIZE + 1));
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+import com.apollocurrency.aplwallet.apl.core.app.Block;
+import com.apollocurrency.aplwallet.apl.core.app.Blockchain;
+import com.apollocurrency.aplwallet.apl.extension.TemporaryFolderExtension;
+import org.json.simple.JSONAware;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class BlockSegmentStoreTest {
+    @RegisterExtension
+    TemporaryFolderExtension temporaryFolder = new TemporaryFolderExtension();
+
+    private Blockchain blockchain = mock(Blockchain.class);
+    private Path directory;
+    private BlockSegmentStore store;
+
+    @BeforeEach
+    void setUp() {
+        directory = temporaryFolder.getRoot().toPath().resolve("block_segments");
+        store = new BlockSegmentStore(directory, 200, blockchain);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    void testAppendAndRead() {
+        for (int height = 10; height <= 20; height++) {
+            store.append(block(height, height));
+        }
+
+        assertEquals(10, store.getFirstHeight());
+        assertEquals(20, store.getLastHeight());
+        assertEquals(List.of(heightJson(11, 11), heightJson(12, 12), heightJson(13, 13)), json(store.getBlocksAfter(10, 3)));
+        assertEquals(List.of(heightJson(19, 19), heightJson(20, 20)), json(store.getBlocksAfter(18, 36)));
+        assertEquals(List.of(), json(store.getBlocksAfter(5, 3)));
+        assertEquals(List.of(heightJson(15, 15)), json(store.getBlocksAfter(14, List.of(15L, 99L, 17L))));
+    }
+
+    @Test
+    void testMissingBlocksCopiedFromBlockchain() {
+        store.append(block(1, 1));
+        doReturn(block(2, 2)).when(blockchain).getBlockAtHeight(2);
+        doReturn(block(3, 3)).when(blockchain).getBlockAtHeight(3);
+
+        store.append(block(4, 4));
+
+        assertEquals(List.of(heightJson(2, 2), heightJson(3, 3), heightJson(4, 4)), json(store.getBlocksAfter(1, 36)));
+    }
+
+    @Test
+    void testForkReplacesStoredBlocks() {
+        for (int height = 1; height <= 10; height++) {
+            store.append(block(height, height));
+        }
+        store.append(block(5, 5));
+        assertEquals(10, store.getLastHeight());
+
+        store.append(block(105, 6));
+
+        assertEquals(6, store.getLastHeight());
+        assertEquals(List.of(heightJson(5, 5), heightJson(105, 6)), json(store.getBlocksAfter(4, 36)));
+    }
+
+    @Test
+    void testTruncate() {
+        for (int height = 1; height <= 30; height++) {
+            store.append(block(height, height));
+        }
+
+        store.truncate(3);
+
+        assertEquals(2, store.getLastHeight());
+        store.append(block(3, 3));
+        assertEquals(List.of(heightJson(2, 2), heightJson(3, 3)), json(store.getBlocksAfter(1, 36)));
+    }
+
+    @Test
+    void testDeletedBlocksCut() {
+        for (int height = 1; height <= 10; height++) {
+            store.onBlockAccepted(block(height, height));
+        }
+
+        store.onBlocksDeleted(6);
+
+        assertEquals(5, store.getLastHeight());
+        assertEquals(List.of(heightJson(5, 5)), json(store.getBlocksAfter(4, 36)));
+    }
+
+    @Test
+    void testWriteFailureDisablesStore() throws IOException {
+        store.onBlockAccepted(block(1, 1));
+        doThrow(new RuntimeException("Test")).when(blockchain).getBlockAtHeight(2);
+
+        store.onBlockAccepted(block(3, 3));
+
+        assertFalse(store.isEnabled());
+        assertEquals(-1, store.getLastHeight());
+        assertEquals(List.of(), json(store.getBlocksAfter(0, 36)));
+        assertEquals(0, Files.list(directory).count());
+        store.onBlockAccepted(block(4, 4));
+        store.onBlocksDeleted(4);
+        assertFalse(store.isEnabled());
+    }
+
+    @Test
+    void testCorruptedTailCutOnOpen() throws IOException {
+        for (int height = 1; height <= 30; height++) {
+            store.append(block(height, height));
+        }
+        store.close();
+        List<Path> segments = Files.list(directory).sorted().collect(Collectors.toList());
+        Path corruptedSegment = segments.get(segments.size() - 2);
+        try (RandomAccessFile file = new RandomAccessFile(corruptedSegment.toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            file.write('x');
+        }
+
+        BlockSegmentStore reopened = new BlockSegmentStore(directory, 200, blockchain);
+        try {
+            int lastHeight = reopened.getLastHeight();
+            assertEquals(1, reopened.getFirstHeight());
+            assertEquals(lastHeight - 1, reopened.getBlocksAfter(1, 100).size());
+            assertEquals(segments.size() - 1, Files.list(directory).count());
+            reopened.append(block(lastHeight + 1, lastHeight + 1));
+            assertEquals(List.of(heightJson(lastHeight + 1, lastHeight + 1)), json(reopened.getBlocksAfter(lastHeight, 36)));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private static List<String> json(List<JSONAware> blocks) {
+        return blocks.stream().map(JSONAware::toJSONString).collect(Collectors.toList());
+    }
+
+    private static String heightJson(long id, int height) {
+        return blockJson(id, height).toJSONString();
+    }
+
+    private static JSONObject blockJson(long id, int height) {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("height", height);
+        return json;
+    }
+
+    private static Block block(long id, int height) {
+        Block block = mock(Block.class);
+        doReturn(id).when(block).getId();
+        doReturn(height).when(block).getHeight();
+        doReturn(blockJson(id, height)).when(block).getJSONObject();
+        return block;
+    }
+}
@@ -4,7 +4,11 @@
 
 package com.apollocurrency.aplwallet.apl.core.db;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.apollocurrency.aplwallet.apl.extension.TemporaryFolderExtension;
 import com.apollocurrency.aplwallet.apl.core.shard.ShardManagement;
@@ -22,6 +26,7 @@ import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.Properties;
 
 
 class DatabaseManagerTest {
@@ -132,4 +137,51 @@ class DatabaseManagerTest {
         assertNotNull(temporaryDb.getConnection());
     }
 
-}
\ No newline at end of file
+    @Test
+    void closeLeastRecentlyUsedShard() throws Exception {
+        databaseManager.shutdown();
+        Properties properties = new Properties();
+        properties.put("apl.maxOpenShards", "1");
+        PropertiesHolder holder = new PropertiesHolder();
+        holder.init(properties);
+        databaseManager = new DatabaseManagerImpl(baseDbProperties, holder);
+        ShardManagement shardManagement = (ShardManagement) databaseManager;
+
+        TransactionalDataSource shard1 = shardManagement.getOrCreateShardDataSourceById(1L);
+        assertSame(shard1, shardManagement.getOrCreateShardDataSourceById(1L));
+        TransactionalDataSource shard2 = shardManagement.getOrCreateShardDataSourceById(2L);
+
+        assertTrue(shard1.isShutdown());
+        assertFalse(shard2.isShutdown());
+        TransactionalDataSource reopenedShard1 = shardManagement.getOrCreateShardDataSourceById(1L);
+        assertNotSame(shard1, reopenedShard1);
+        assertNotNull(reopenedShard1.getConnection());
+        assertTrue(shard2.isShutdown());
+    }
+
+    @Test
+    void leasedShardIsNotClosed() throws Exception {
+        databaseManager.shutdown();
+        Properties properties = new Properties();
+        properties.put("apl.maxOpenShards", "1");
+        PropertiesHolder holder = new PropertiesHolder();
+        holder.init(properties);
+        databaseManager = new DatabaseManagerImpl(baseDbProperties, holder);
+        ShardManagement shardManagement = (ShardManagement) databaseManager;
+
+        TransactionalDataSource shard1;
+        try (DataSourceLease lease = shardManagement.leaseShardDataSource(1L)) {
+            shard1 = lease.getDataSource();
+            TransactionalDataSource shard2 = shardManagement.getOrCreateShardDataSourceById(2L);
+            shardManagement.closeIdleShards();
+
+            assertFalse(shard1.isShutdown());
+            assertTrue(shard2.isShutdown());
+            assertSame(shard1, shardManagement.getOrCreateShardDataSourceById(1L));
+            assertNotNull(shard1.getConnection());
+        }
+        shardManagement.getOrCreateShardDataSourceById(3L);
+
+        assertTrue(shard1.isShutdown());
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+public class DbIteratorTest {
+    private Connection con;
+    private PreparedStatement pstmt;
+    private ResultSet rs;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        con = mock(Connection.class);
+        pstmt = mock(PreparedStatement.class);
+        rs = mock(ResultSet.class);
+        when(pstmt.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, false);
+        when(rs.getLong(1)).thenReturn(1L, 2L);
+    }
+
+    @Test
+    void testRowsReadOnDemand() throws SQLException {
+        DbIterator<Long> iterator = new DbIterator<>(con, pstmt, (c, r) -> r.getLong(1), 10);
+
+        verify(pstmt).setFetchSize(10);
+        verify(rs, never()).next();
+        assertTrue(iterator.hasNext());
+        assertTrue(iterator.hasNext());
+        verify(rs, times(1)).next();
+        assertEquals(1L, iterator.next());
+        verify(rs, times(1)).next();
+        assertEquals(2L, iterator.next());
+        assertFalse(iterator.hasNext());
+        assertThrows(NoSuchElementException.class, iterator::next);
+
+        verify(rs, times(3)).next();
+        verify(rs).close();
+        verify(pstmt).close();
+        verify(con).close();
+    }
+
+    @Test
+    void testEarlyCloseDoesNotReadRemainingRows() throws SQLException {
+        try (DbIterator<Long> iterator = new DbIterator<>(con, pstmt, (c, r) -> r.getLong(1), 0)) {
+            assertEquals(1L, iterator.next());
+        }
+
+        verify(pstmt, never()).setFetchSize(0);
+        verify(rs, times(1)).next();
+        verify(rs, times(1)).getLong(1);
+        verify(rs).close();
+    }
+}
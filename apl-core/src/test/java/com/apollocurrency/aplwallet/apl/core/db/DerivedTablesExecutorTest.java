@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class DerivedTablesExecutorTest {
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    private TransactionalDataSource dataSource;
+    private List<DerivedDbTable> tables = new ArrayList<>();
+    private Set<Thread> threads = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = extension.getDatabaseManger().getDataSource();
+        for (int i = 0; i < 8; i++) {
+            DerivedDbTable table = mock(DerivedDbTable.class);
+            doAnswer(invocation -> {
+                assertTrue(dataSource.isInTransaction());
+                threads.add(Thread.currentThread());
+                return null;
+            }).when(table).rollback(anyInt());
+            tables.add(table);
+        }
+    }
+
+    @Test
+    void testRollbackInCallerTransaction() {
+        DerivedTablesExecutor executor = new DerivedTablesExecutor(() -> dataSource);
+        dataSource.begin();
+        try {
+            executor.rollback(tables, 10);
+            assertTrue(dataSource.isInTransaction());
+        } finally {
+            dataSource.commit();
+        }
+
+        tables.forEach(table -> verify(table).rollback(10));
+        assertEquals(Set.of(Thread.currentThread()), threads);
+    }
+
+    @Test
+    void testRollbackFailureLeavesCallerTransactionOpen() {
+        DerivedTablesExecutor executor = new DerivedTablesExecutor(() -> dataSource);
+        doThrow(new IllegalStateException("Test")).when(tables.get(3)).rollback(10);
+        dataSource.begin();
+        try {
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> executor.rollback(tables, 10));
+            assertEquals("Test", e.getMessage());
+            assertTrue(dataSource.isInTransaction());
+        } finally {
+            dataSource.rollback();
+        }
+
+        tables.subList(0, 4).forEach(table -> verify(table).rollback(10));
+        tables.subList(4, tables.size()).forEach(table -> verify(table, never()).rollback(anyInt()));
+    }
+
+    @Test
+    void testRollbackOutsideTransactionIsRejected() {
+        DerivedTablesExecutor executor = new DerivedTablesExecutor(() -> dataSource);
+
+        assertThrows(IllegalStateException.class, () -> executor.rollback(tables, 10));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+public class FilteredConnectionStatementCacheTest {
+    private static final String SQL = "SELECT * FROM block WHERE height = ?";
+
+    private Connection con;
+    private FilteredConnection filteredConnection;
+
+    private FilteredFactory factory = new FilteredFactory() {
+        @Override
+        public Statement createStatement(Statement stmt) {
+            return new FilteredStatement(stmt);
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(PreparedStatement stmt, String sql) {
+            return new FilteredPreparedStatement(stmt, sql);
+        }
+    };
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        con = mock(Connection.class);
+        when(con.prepareStatement(SQL)).thenAnswer(invocation -> mock(PreparedStatement.class));
+        filteredConnection = new FilteredConnection(con, factory, 2);
+    }
+
+    @Test
+    void testStatementReusedAfterClose() throws SQLException {
+        PreparedStatement raw = mock(PreparedStatement.class);
+        when(con.prepareStatement(SQL)).thenReturn(raw);
+        PreparedStatement first = filteredConnection.prepareStatement(SQL);
+        first.close();
+        assertTrue(first.isClosed());
+
+        PreparedStatement second = filteredConnection.prepareStatement(SQL);
+
+        verify(con, times(1)).prepareStatement(SQL);
+        verify(raw, never()).close();
+        verify(raw).clearParameters();
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void testNestedStatementsAreNotShared() throws SQLException {
+        PreparedStatement outer = filteredConnection.prepareStatement(SQL);
+        PreparedStatement inner = filteredConnection.prepareStatement(SQL);
+
+        verify(con, times(2)).prepareStatement(SQL);
+        inner.close();
+        outer.close();
+        PreparedStatement cached = filteredConnection.prepareStatement(SQL);
+
+        verify(con, times(2)).prepareStatement(SQL);
+        assertNotSame(outer, cached);
+    }
+
+    @Test
+    void testEldestStatementClosedOnOverflow() throws SQLException {
+        PreparedStatement first = mock(PreparedStatement.class);
+        when(con.prepareStatement("SELECT 1")).thenReturn(first);
+        when(con.prepareStatement("SELECT 2")).thenReturn(mock(PreparedStatement.class));
+        when(con.prepareStatement("SELECT 3")).thenReturn(mock(PreparedStatement.class));
+
+        filteredConnection.prepareStatement("SELECT 1").close();
+        filteredConnection.prepareStatement("SELECT 2").close();
+        verify(first, never()).close();
+        filteredConnection.prepareStatement("SELECT 3").close();
+
+        verify(first).close();
+    }
+
+    @Test
+    void testCachedStatementsClosedWithConnection() throws SQLException {
+        PreparedStatement stmt = mock(PreparedStatement.class);
+        when(con.prepareStatement("SELECT 1")).thenReturn(stmt);
+        filteredConnection.prepareStatement("SELECT 1").close();
+
+        filteredConnection.close();
+
+        verify(stmt).close();
+        verify(con).close();
+    }
+
+    @Test
+    void testStatementReusedAcrossTransactionConnectionCloseAndReopen() throws SQLException {
+        PreparedStatement raw = mock(PreparedStatement.class);
+        when(con.prepareStatement(SQL)).thenReturn(raw);
+        ThreadLocal<DbConnectionWrapper> localConnection = new ThreadLocal<>();
+        DbConnectionWrapper transactionConnection = new DbConnectionWrapper(con, new FilteredFactoryImpl(1000),
+                localConnection, new ThreadLocal<>(), new ThreadLocal<>(), 2);
+        localConnection.set(transactionConnection);
+
+        // TransactionalDataSource.getConnection() returns the transaction connection of the thread
+        Connection first = localConnection.get();
+        first.prepareStatement(SQL).close();
+        first.close();
+        Connection second = localConnection.get();
+        second.prepareStatement(SQL).close();
+        second.close();
+
+        verify(con, times(1)).prepareStatement(SQL);
+        verify(raw, never()).close();
+        verify(con, never()).close();
+
+        // end of transaction
+        localConnection.set(null);
+        transactionConnection.close();
+
+        verify(raw).close();
+        verify(con).close();
+    }
+
+    @Test
+    void testNoCachingWhenDisabled() throws SQLException {
+        PreparedStatement raw = mock(PreparedStatement.class);
+        when(con.prepareStatement(SQL)).thenReturn(raw);
+        FilteredConnection noCache = new FilteredConnection(con, factory);
+        noCache.prepareStatement(SQL).close();
+        noCache.prepareStatement(SQL).close();
+
+        verify(con, times(2)).prepareStatement(SQL);
+        verify(raw, times(2)).close();
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.extension.TemporaryFolderExtension;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.slf4j.Logger;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+public class H2StorageMigratorTest {
+    private static final Logger log = getLogger(H2StorageMigratorTest.class);
+
+    @RegisterExtension
+    TemporaryFolderExtension temporaryFolderExtension = new TemporaryFolderExtension();
+
+    @Test
+    void testGetDbPath() {
+        assertEquals("/tmp/apl", H2StorageMigrator.getDbPath("jdbc:h2:file:/tmp/apl;MV_STORE=TRUE"));
+        assertEquals("./apl_db/apl", H2StorageMigrator.getDbPath("jdbc:h2:./apl_db/apl"));
+        assertEquals("C:/apl/apl", H2StorageMigrator.getDbPath("jdbc:h2:file:C:/apl/apl;CACHE_SIZE=1024"));
+        assertNull(H2StorageMigrator.getDbPath("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1"));
+        assertNull(H2StorageMigrator.getDbPath("jdbc:h2:tcp://localhost/~/apl"));
+    }
+
+    @Test
+    void testMigratePageStoreToMvStore() throws SQLException {
+        String dbPath = new File(temporaryFolderExtension.getRoot(), "apl").getAbsolutePath();
+        try (Connection con = DriverManager.getConnection("jdbc:h2:file:" + dbPath + ";MV_STORE=FALSE", "sa", "sa");
+             Statement stmt = con.createStatement()) {
+            stmt.execute("CREATE TABLE block (id BIGINT NOT NULL, height INT NOT NULL)");
+            stmt.execute("INSERT INTO block VALUES (-1, 1), (2, 2)");
+            stmt.execute("SHUTDOWN");
+        }
+        String mvStoreUrl = "jdbc:h2:file:" + dbPath + ";MV_STORE=TRUE;COMPRESS=TRUE";
+
+        assertTrue(new H2StorageMigrator(mvStoreUrl, "sa", "sa").migrateIfNeeded());
+
+        assertTrue(Files.exists(Paths.get(dbPath + H2StorageMigrator.MV_STORE_SUFFIX)));
+        assertFalse(Files.exists(Paths.get(dbPath + H2StorageMigrator.PAGE_STORE_SUFFIX)));
+        assertTrue(Files.exists(Paths.get(dbPath + H2StorageMigrator.PAGE_STORE_SUFFIX + ".bak")));
+        assertFalse(Files.exists(Paths.get(dbPath + ".migration.sql")));
+        try (Connection con = DriverManager.getConnection(mvStoreUrl, "sa", "sa");
+             Statement stmt = con.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SUM(id), MAX(height) FROM block")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getLong(1));
+            assertEquals(2, rs.getInt(2));
+            stmt.execute("SHUTDOWN");
+        }
+        assertFalse(new H2StorageMigrator(mvStoreUrl, "sa", "sa").migrateIfNeeded());
+    }
+
+    @Test
+    void testNothingToMigrateForNewDb() {
+        String dbPath = new File(temporaryFolderExtension.getRoot(), "apl").getAbsolutePath();
+
+        assertFalse(new H2StorageMigrator("jdbc:h2:file:" + dbPath + ";MV_STORE=TRUE", "sa", "sa").migrateIfNeeded());
+        assertFalse(new H2StorageMigrator("jdbc:h2:mem:apl;MV_STORE=TRUE", "sa", "sa").migrateIfNeeded());
+    }
+
+    /**
+     * Compare storage engines on simplified block, transaction and account tables: block apply is approximated by
+     * inserting block with transactions and updating balances of their senders and recipients in one db transaction,
+     * API load - by typical account history and block selects.
+     */
+    @Test
+    @Disabled
+    void testStorageEnginePerformance() throws SQLException {
+        String[] engines = {"MV_STORE=FALSE", "MV_STORE=TRUE", "MV_STORE=TRUE;COMPRESS=TRUE"};
+        for (String engine : engines) {
+            String dbPath = new File(temporaryFolderExtension.getRoot(), "bench" + engine.length()).getAbsolutePath();
+            String url = "jdbc:h2:file:" + dbPath + ";MVCC=TRUE;" + engine;
+            try (Connection con = DriverManager.getConnection(url, "sa", "sa")) {
+                long applyTime = applyBlocks(con, 20_000, 20, 10_000);
+                long queryTime = queryHistory(con, 20_000, 10_000);
+                try (Statement stmt = con.createStatement()) {
+                    stmt.execute("SHUTDOWN COMPACT");
+                }
+                Path file = Paths.get(dbPath + (engine.contains("MV_STORE=TRUE")
+                        ? H2StorageMigrator.MV_STORE_SUFFIX : H2StorageMigrator.PAGE_STORE_SUFFIX));
+                log.info("{}: block apply {} ms, queries {} ms, file size {} kB", engine, applyTime, queryTime,
+                        file.toFile().length() / 1024);
+            }
+        }
+    }
+
+    private long applyBlocks(Connection con, int blocks, int txPerBlock, int accounts) throws SQLException {
+        try (Statement stmt = con.createStatement()) {
+            stmt.execute("CREATE TABLE block (db_id IDENTITY, id BIGINT NOT NULL, height INT NOT NULL, "
+                    + "timestamp INT NOT NULL, generator_id BIGINT NOT NULL, block_signature BINARY(64) NOT NULL)");
+            stmt.execute("CREATE UNIQUE INDEX block_height_idx ON block (height)");
+            stmt.execute("CREATE INDEX block_generator_id_idx ON block (generator_id)");
+            stmt.execute("CREATE TABLE transaction (db_id IDENTITY, id BIGINT NOT NULL, height INT NOT NULL, "
+                    + "sender_id BIGINT NOT NULL, recipient_id BIGINT, amount BIGINT NOT NULL, "
+                    + "signature BINARY(64) NOT NULL, attachment_bytes VARBINARY)");
+            stmt.execute("CREATE UNIQUE INDEX transaction_id_idx ON transaction (id)");
+            stmt.execute("CREATE INDEX transaction_sender_id_idx ON transaction (sender_id, height DESC)");
+            stmt.execute("CREATE INDEX transaction_recipient_id_idx ON transaction (recipient_id, height DESC)");
+            stmt.execute("CREATE TABLE account (db_id IDENTITY, id BIGINT NOT NULL, balance BIGINT NOT NULL, "
+                    + "height INT NOT NULL, latest BOOLEAN NOT NULL DEFAULT TRUE)");
+            stmt.execute("CREATE UNIQUE INDEX account_id_height_idx ON account (id, height DESC)");
+        }
+        Random random = new Random(0);
+        byte[] signature = new byte[64];
+        byte[] attachment = new byte[128];
+        con.setAutoCommit(false);
+        long start = System.currentTimeMillis();
+        try (PreparedStatement blockStmt = con.prepareStatement(
+                "INSERT INTO block (id, height, timestamp, generator_id, block_signature) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement txStmt = con.prepareStatement("INSERT INTO transaction "
+                     + "(id, height, sender_id, recipient_id, amount, signature, attachment_bytes) VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement accountStmt = con.prepareStatement(
+                     "MERGE INTO account (id, balance, height, latest) KEY (id, height) VALUES (?, ?, ?, TRUE)")) {
+            for (int height = 1; height <= blocks; height++) {
+                random.nextBytes(signature);
+                blockStmt.setLong(1, random.nextLong());
+                blockStmt.setInt(2, height);
+                blockStmt.setInt(3, height * 10);
+                blockStmt.setLong(4, random.nextInt(accounts));
+                blockStmt.setBytes(5, signature);
+                blockStmt.executeUpdate();
+                for (int i = 0; i < txPerBlock; i++) {
+                    long sender = random.nextInt(accounts);
+                    long recipient = random.nextInt(accounts);
+                    random.nextBytes(attachment);
+                    txStmt.setLong(1, random.nextLong());
+                    txStmt.setInt(2, height);
+                    txStmt.setLong(3, sender);
+                    txStmt.setLong(4, recipient);
+                    txStmt.setLong(5, random.nextInt(1_000_000));
+                    txStmt.setBytes(6, signature);
+                    txStmt.setBytes(7, attachment);
+                    txStmt.addBatch();
+                    for (long account : new long[] {sender, recipient}) {
+                        accountStmt.setLong(1, account);
+                        accountStmt.setLong(2, random.nextInt(1_000_000));
+                        accountStmt.setInt(3, height);
+                        accountStmt.addBatch();
+                    }
+                }
+                txStmt.executeBatch();
+                accountStmt.executeBatch();
+                con.commit();
+            }
+        } finally {
+            con.setAutoCommit(true);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private long queryHistory(Connection con, int blocks, int accounts) throws SQLException {
+        Random random = new Random(1);
+        long start = System.currentTimeMillis();
+        try (PreparedStatement txStmt = con.prepareStatement("SELECT * FROM transaction WHERE sender_id = ? "
+                + "UNION ALL SELECT * FROM transaction WHERE recipient_id = ? ORDER BY height DESC LIMIT 10");
+             PreparedStatement blockStmt = con.prepareStatement(
+                     "SELECT * FROM block WHERE generator_id = ? ORDER BY height DESC LIMIT 10");
+             PreparedStatement heightStmt = con.prepareStatement("SELECT * FROM block WHERE height = ?")) {
+            for (int i = 0; i < 10_000; i++) {
+                long account = random.nextInt(accounts);
+                txStmt.setLong(1, account);
+                txStmt.setLong(2, account);
+                consume(txStmt);
+                blockStmt.setLong(1, account);
+                consume(blockStmt);
+                heightStmt.setInt(1, 1 + random.nextInt(blocks));
+                consume(heightStmt);
+            }
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static void consume(PreparedStatement pstmt) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rs.getLong("id");
+            }
+        }
+    }
+}
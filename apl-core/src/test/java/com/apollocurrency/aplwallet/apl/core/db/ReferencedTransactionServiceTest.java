@@ -102,6 +102,20 @@ public class ReferencedTransactionServiceTest {
 
         assertTrue(hasAll);
     }
+    @Test
+    void testHasAllReferencedTransactionsCheckedByMemoizedChain() {
+        TransactionTestData td = new TransactionTestData();
+        doReturn(1000).when(config).getReferencedTransactionHeightSpan();
+        assertTrue(service.hasAllReferencedTransactions(td.TRANSACTION_0, 1000));
+
+        doReturn(0).when(config).getReferencedTransactionHeightSpan();
+        assertFalse(service.hasAllReferencedTransactions(td.TRANSACTION_0, 1000));
+
+        doReturn(1000).when(config).getReferencedTransactionHeightSpan();
+        assertTrue(service.hasAllReferencedTransactions(td.TRANSACTION_0, 1000));
+        assertFalse(service.hasAllReferencedTransactions(td.TRANSACTION_0, 1));
+    }
+
     @Test
     void testHasNotAllReferencedTransactionsWhenHeightIsNotEnough() {
         TransactionTestData td = new TransactionTestData();
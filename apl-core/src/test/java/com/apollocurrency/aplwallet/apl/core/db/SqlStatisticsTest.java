@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class SqlStatisticsTest {
+
+    @Test
+    void testNormalize() {
+        assertEquals("SELECT * FROM block WHERE height = ? AND id = ? AND name = ? LIMIT ?",
+                SqlStatistics.normalize("SELECT *  FROM block\n WHERE height = 100 AND id = -5 AND name = 'it''s' LIMIT 1"));
+        assertEquals("SELECT * FROM shard_2 WHERE x1 = ?", SqlStatistics.normalize("SELECT * FROM shard_2 WHERE x1 = ?"));
+    }
+
+    @Test
+    void testExtractTable() {
+        assertEquals("account", SqlStatistics.extractTable("SELECT * FROM Account WHERE id = ?"));
+        assertEquals("trade", SqlStatistics.extractTable("INSERT INTO trade (id) VALUES (?)"));
+        assertEquals("alias", SqlStatistics.extractTable("UPDATE alias SET latest = FALSE"));
+        assertEquals("OTHER", SqlStatistics.extractTable("SET DEFAULT_LOCK_TIMEOUT 100"));
+    }
+
+    @Test
+    void testRecordGroupsByNormalizedSqlAndTable() {
+        SqlStatistics statistics = new SqlStatistics();
+        statistics.record("SELECT * FROM block WHERE height = 1", TimeUnit.MICROSECONDS.toNanos(10));
+        statistics.record("SELECT * FROM block WHERE height = 2", TimeUnit.MICROSECONDS.toNanos(30));
+        statistics.record("DELETE FROM block WHERE height > ?", TimeUnit.MICROSECONDS.toNanos(1000));
+
+        List<SqlStatistics.Entry> statements = statistics.getStatementStatistics(10);
+        assertEquals(2, statements.size());
+        assertEquals("DELETE FROM block WHERE height > ?", statements.get(0).getName());
+        SqlStatistics.Entry select = statements.get(1);
+        assertEquals(2, select.getCount());
+        assertEquals(40, select.getTotalMicros());
+        assertEquals(30, select.getMaxMicros());
+        assertEquals("block", select.getTable());
+
+        List<SqlStatistics.Entry> tables = statistics.getTableStatistics(10);
+        assertEquals(1, tables.size());
+        assertEquals(3, tables.get(0).getCount());
+        assertEquals(1040, tables.get(0).getTotalMicros());
+    }
+
+    @Test
+    void testPercentiles() {
+        SqlStatistics statistics = new SqlStatistics();
+        for (int i = 0; i < 99; i++) {
+            statistics.record("SELECT 1", TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        statistics.record("SELECT 1", TimeUnit.MICROSECONDS.toNanos(100_000));
+        SqlStatistics.Entry entry = statistics.getStatementStatistics(1).get(0);
+        long p50 = entry.getPercentileMicros(50);
+        assertTrue(p50 >= 100 && p50 < 200, "p50 = " + p50);
+        assertEquals(100_000, entry.getPercentileMicros(100));
+    }
+
+    @Test
+    void testMaxStatements() {
+        SqlStatistics statistics = new SqlStatistics();
+        statistics.setMaxStatements(1);
+        statistics.record("SELECT * FROM block", 1000);
+        statistics.record("SELECT * FROM transaction", 1000);
+        List<SqlStatistics.Entry> statements = statistics.getStatementStatistics(10);
+        assertEquals(2, statements.size());
+        assertTrue(statements.stream().anyMatch(e -> e.getName().equals("OTHER")));
+    }
+}
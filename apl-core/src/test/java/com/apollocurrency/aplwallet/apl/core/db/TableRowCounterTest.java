@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+class TableRowCounterTest {
+    private static final long HOLDING = 100;
+
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    private TransactionalDataSource dataSource;
+    private TableRowCounter counter;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS counted");
+            stmt.execute("CREATE TABLE counted (db_id IDENTITY, id BIGINT NOT NULL, holding_id BIGINT NOT NULL, "
+                    + "height INT NOT NULL, latest BOOLEAN NOT NULL DEFAULT TRUE)");
+            stmt.execute("INSERT INTO counted (id, holding_id, height) VALUES (1, 100, 1), (2, 100, 1), (3, 200, 1)");
+        }
+        counter = new TableRowCounter(extension.getDatabaseManger(), "counted", "holding_id", true);
+    }
+
+    @Test
+    void testCountStoredOnCommit() throws SQLException {
+        assertNull(counter.get(TableRowCounter.TOTAL));
+
+        dataSource.begin();
+        insert(4, HOLDING, 2);
+        counter.change(HOLDING, 1);
+        assertNull(counter.get(TableRowCounter.TOTAL));
+        dataSource.commit();
+
+        assertEquals(4, counter.get(TableRowCounter.TOTAL).intValue());
+        assertEquals(3, counter.get(HOLDING).intValue());
+        assertNull(counter.get(200));
+
+        dataSource.begin();
+        insert(5, HOLDING, 3);
+        counter.change(HOLDING, 1);
+        assertEquals(5, counter.get(TableRowCounter.TOTAL).intValue());
+        dataSource.commit();
+
+        assertEquals(5, counter.get(TableRowCounter.TOTAL).intValue());
+        assertEquals(4, counter.get(HOLDING).intValue());
+    }
+
+    @Test
+    void testCountStoredOnConnectionCommit() throws SQLException {
+        Connection con = dataSource.begin();
+        try {
+            insert(4, HOLDING, 2);
+            counter.change(HOLDING, 1);
+            con.commit();
+
+            assertEquals(4, counter.get(TableRowCounter.TOTAL).intValue());
+            assertEquals(3, counter.get(HOLDING).intValue());
+
+            insert(5, HOLDING, 3);
+            counter.change(HOLDING, 1);
+            con.commit();
+        } finally {
+            dataSource.commit();
+        }
+
+        assertEquals(5, counter.get(TableRowCounter.TOTAL).intValue());
+        assertEquals(4, counter.get(HOLDING).intValue());
+    }
+
+    @Test
+    void testChangesDiscardedOnRollback() throws SQLException {
+        dataSource.begin();
+        insert(4, HOLDING, 2);
+        counter.change(HOLDING, 1);
+        dataSource.commit();
+
+        dataSource.begin();
+        insert(5, HOLDING, 3);
+        counter.change(HOLDING, 1);
+        dataSource.rollback();
+
+        assertEquals(4, counter.get(TableRowCounter.TOTAL).intValue());
+        assertEquals(3, counter.get(HOLDING).intValue());
+    }
+
+    @Test
+    void testBeforeRollback() throws SQLException {
+        dataSource.begin();
+        insert(4, HOLDING, 2);
+        insert(5, 200, 2);
+        counter.change(HOLDING, 1);
+        counter.change(200, 1);
+        dataSource.commit();
+
+        dataSource.begin();
+        counter.beforeRollback(1);
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("DELETE FROM counted WHERE height > 1");
+        }
+        dataSource.commit();
+
+        assertEquals(3, counter.get(TableRowCounter.TOTAL).intValue());
+        assertNull(counter.get(HOLDING));
+    }
+
+    @Test
+    void testReset() throws SQLException {
+        dataSource.begin();
+        insert(4, HOLDING, 2);
+        counter.change(HOLDING, 1);
+        dataSource.commit();
+
+        dataSource.begin();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.executeUpdate("TRUNCATE TABLE counted");
+        }
+        counter.reset();
+        insert(1, HOLDING, 1);
+        counter.change(HOLDING, 1);
+        assertEquals(1, counter.get(TableRowCounter.TOTAL).intValue());
+        dataSource.commit();
+
+        assertEquals(1, counter.get(TableRowCounter.TOTAL).intValue());
+        assertNull(counter.get(HOLDING));
+    }
+
+    private void insert(long id, long holdingId, int height) throws SQLException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstmt = con.prepareStatement("INSERT INTO counted (id, holding_id, height) VALUES (?, ?, ?)")) {
+            pstmt.setLong(1, id);
+            pstmt.setLong(2, holdingId);
+            pstmt.setInt(3, height);
+            pstmt.executeUpdate();
+        }
+    }
+}
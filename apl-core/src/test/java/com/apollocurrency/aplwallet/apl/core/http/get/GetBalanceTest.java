@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.http.get;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.apollocurrency.aplwallet.apl.core.account.AccountBalanceHistoryTable;
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainImpl;
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainProcessorImpl;
+import com.apollocurrency.aplwallet.apl.core.app.EpochTime;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.core.db.DatabaseManager;
+import com.apollocurrency.aplwallet.apl.core.db.DerivedDbTablesRegistryImpl;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import com.apollocurrency.aplwallet.apl.core.db.fulltext.FullTextConfigImpl;
+import com.apollocurrency.aplwallet.apl.core.http.ParameterException;
+import com.apollocurrency.aplwallet.apl.core.phasing.PhasingPollService;
+import com.apollocurrency.aplwallet.apl.extension.DbExtension;
+import com.apollocurrency.aplwallet.apl.util.AplException;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import org.jboss.weld.junit.MockBean;
+import org.jboss.weld.junit5.EnableWeld;
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldSetup;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+@EnableWeld
+class GetBalanceTest {
+    private static final long ACCOUNT_ID = 100;
+
+    @RegisterExtension
+    DbExtension extension = new DbExtension();
+
+    private PropertiesHolder propertiesHolder = mockPropertiesHolder();
+    private BlockchainImpl blockchain = mock(BlockchainImpl.class);
+
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator.from(AccountBalanceHistoryTable.class, FullTextConfigImpl.class,
+            DerivedDbTablesRegistryImpl.class)
+            .addBeans(MockBean.of(propertiesHolder, PropertiesHolder.class))
+            .addBeans(MockBean.of(extension.getDatabaseManger(), DatabaseManager.class))
+            .addBeans(MockBean.of(blockchain, BlockchainImpl.class))
+            .addBeans(MockBean.of(mock(BlockchainConfig.class), BlockchainConfig.class))
+            .addBeans(MockBean.of(mock(EpochTime.class), EpochTime.class))
+            .addBeans(MockBean.of(mock(PhasingPollService.class), PhasingPollService.class))
+            // processor is mocked in running container, since its static fields are looked up in CDI
+            .addBeans(MockBean.builder().types(BlockchainProcessorImpl.class).create(ctx -> {
+                BlockchainProcessorImpl blockchainProcessor = mock(BlockchainProcessorImpl.class);
+                doReturn(100).when(blockchainProcessor).getMinRollbackHeight();
+                return blockchainProcessor;
+            }).build())
+            .build();
+
+    @Inject
+    AccountBalanceHistoryTable balanceHistoryTable;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        TransactionalDataSource dataSource = extension.getDatabaseManger().getDataSource();
+        try (Connection con = dataSource.getConnection();
+             Statement stmt = con.createStatement()) {
+            stmt.execute("DELETE FROM account_balance_history");
+            stmt.execute("DELETE FROM option");
+            stmt.execute("INSERT INTO account_balance_history (account_id, height, balance, forged_balance) VALUES "
+                    + "(" + ACCOUNT_ID + ", 10, 500, 20), (" + ACCOUNT_ID + ", 50, 700, 30)");
+            // history was seeded at height 10 and is complete from it
+            stmt.execute("INSERT INTO option (name, value) VALUES ('accountBalanceHistoryHeight', '10')");
+        }
+        doReturn(1000).when(blockchain).getHeight();
+        balanceHistoryTable.start(100);
+    }
+
+    @Test
+    void testTrimmedHeightFromHistory() throws AplException {
+        JSONObject response = (JSONObject) new GetBalance().processRequest(request(String.valueOf(ACCOUNT_ID), "60", "true"));
+
+        assertEquals("700", response.get("balanceATM"));
+        assertEquals("700", response.get("unconfirmedBalanceATM"));
+        assertEquals("30", response.get("forgedBalanceATM"));
+        assertFalse(response.containsKey("effectiveBalanceAPL"));
+        assertFalse(response.containsKey("guaranteedBalanceATM"));
+    }
+
+    @Test
+    void testHistoryBalanceAtHeight() throws AplException {
+        JSONObject response = (JSONObject) new GetBalance().processRequest(request(String.valueOf(ACCOUNT_ID), "49", null));
+
+        assertEquals("500", response.get("balanceATM"));
+        assertEquals("20", response.get("forgedBalanceATM"));
+    }
+
+    @Test
+    void testUnknownAccountInHistory() throws AplException {
+        JSONObject response = (JSONObject) new GetBalance().processRequest(request("200", "60", null));
+
+        assertEquals("0", response.get("balanceATM"));
+        assertEquals("0", response.get("forgedBalanceATM"));
+    }
+
+    @Test
+    void testHeightAboveBlockchainIsRejected() {
+        assertThrows(ParameterException.class, () -> new GetBalance().processRequest(request(String.valueOf(ACCOUNT_ID), "1001", null)));
+    }
+
+    private static HttpServletRequest request(String account, String height, String includeEffectiveBalance) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        doReturn(account).when(request).getParameter("account");
+        doReturn(height).when(request).getParameter("height");
+        doReturn(includeEffectiveBalance).when(request).getParameter("includeEffectiveBalance");
+        return request;
+    }
+
+    private static PropertiesHolder mockPropertiesHolder() {
+        PropertiesHolder propertiesHolder = mock(PropertiesHolder.class);
+        doReturn(true).when(propertiesHolder).getBooleanProperty("apl.accountBalanceHistory");
+        return propertiesHolder;
+    }
+}
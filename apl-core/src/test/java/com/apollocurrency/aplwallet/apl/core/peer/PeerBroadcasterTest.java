@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+class PeerBroadcasterTest {
+    private static final UUID CHAIN_ID = UUID.fromString("b5d7b697-f359-4ce5-a619-fa34b6fb01a5");
+
+    private final TestPeer peer1 = new TestPeer("peer1");
+    private final TestPeer peer2 = new TestPeer("peer2");
+
+    @Test
+    void testOneRequestInFlightPerPeer() {
+        PeerBroadcaster broadcaster = broadcaster(1, 10, true);
+
+        for (int i = 1; i <= 3; i++) {
+            broadcast(broadcaster, "tx" + i, PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        }
+
+        assertEquals(List.of("tx1"), peer1.sent);
+        peer1.respond(accepted());
+        assertEquals(List.of("tx1", "tx2"), peer1.sent);
+        peer1.respond(accepted());
+        peer1.respond(accepted());
+        assertEquals(List.of("tx1", "tx2", "tx3"), peer1.sent);
+    }
+
+    @Test
+    void testBlocksFirst() {
+        PeerBroadcaster broadcaster = broadcaster(1, 10, true);
+
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "tx2", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "block1", PeerBroadcaster.PRIORITY_BLOCK, peer1);
+        broadcast(broadcaster, "tx3", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "block2", PeerBroadcaster.PRIORITY_BLOCK, peer1);
+        respondAll(peer1);
+
+        assertEquals(List.of("tx1", "block1", "block2", "tx2", "tx3"), peer1.sent);
+    }
+
+    @Test
+    void testSubmissionOrderWhenBlocksAreNotFirst() {
+        PeerBroadcaster broadcaster = broadcaster(1, 10, false);
+
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "tx2", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "block1", PeerBroadcaster.PRIORITY_BLOCK, peer1);
+        broadcast(broadcaster, "tx3", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        respondAll(peer1);
+
+        assertEquals(List.of("tx1", "tx2", "block1", "tx3"), peer1.sent);
+    }
+
+    @Test
+    void testQueuedDuplicateIsSuppressed() {
+        PeerBroadcaster broadcaster = broadcaster(1, 10, true);
+
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "tx2", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "tx2", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1, peer2);
+        respondAll(peer1);
+
+        assertEquals(List.of("tx1", "tx2"), peer1.sent);
+        assertEquals(List.of(), peer2.sent);
+    }
+
+    @Test
+    void testDuplicateInFlightIsSuppressed() {
+        PeerBroadcaster broadcaster = broadcaster(1, 10, true);
+
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1, peer2);
+        respondAll(peer1);
+
+        assertEquals(List.of("tx1"), peer1.sent);
+        assertEquals(List.of(), peer2.sent);
+    }
+
+    @Test
+    void testSentKeyIsSentAgain() {
+        PeerBroadcaster broadcaster = broadcaster(1, 10, true);
+
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        peer1.respond(accepted());
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+
+        assertEquals(List.of("tx1", "tx1"), peer1.sent);
+    }
+
+    @Test
+    void testFailedSendIsRedirected() {
+        PeerBroadcaster broadcaster = broadcaster(1, 10, true);
+
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1, peer2);
+        assertEquals(List.of(), peer2.sent);
+        JSONObject error = new JSONObject();
+        error.put("error", "Blockchain download in progress");
+        peer1.respond(error);
+
+        assertEquals(List.of("tx1"), peer2.sent);
+        peer2.respond(accepted());
+        broadcast(broadcaster, "tx2", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1, peer2);
+        peer1.fail();
+
+        assertEquals(List.of("tx1", "tx2"), peer2.sent);
+    }
+
+    @Test
+    void testFullQueueIsRedirected() {
+        PeerBroadcaster broadcaster = broadcaster(1, 1, true);
+
+        broadcast(broadcaster, "tx1", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "tx2", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        broadcast(broadcaster, "tx3", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1, peer2);
+        respondAll(peer1);
+
+        assertEquals(List.of("tx1", "tx2"), peer1.sent);
+        assertEquals(List.of("tx3"), peer2.sent);
+    }
+
+    @Test
+    void testCompletedResponsesDoNotGrowStack() {
+        int count = 100_000;
+        PeerBroadcaster broadcaster = broadcaster(1, count, true);
+        broadcast(broadcaster, "first", PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        for (int i = 0; i < count; i++) {
+            broadcast(broadcaster, "tx" + i, PeerBroadcaster.PRIORITY_TRANSACTIONS, peer1);
+        }
+        // peer fails every next request immediately
+        peer1.immediateFailure = true;
+
+        peer1.respond(accepted());
+
+        assertEquals(count + 1, peer1.sent.size());
+        assertEquals("tx" + (count - 1), peer1.sent.get(count));
+    }
+
+    private static PeerBroadcaster broadcaster(int sendToPeersLimit, int maxQueueSize, boolean blocksFirst) {
+        // sends which follow completed responses run in the completing thread
+        return new PeerBroadcaster(sendToPeersLimit, maxQueueSize, blocksFirst, 1000, Runnable::run);
+    }
+
+    private static void broadcast(PeerBroadcaster broadcaster, String key, int priority, TestPeer... peers) {
+        JSONObject request = new JSONObject();
+        request.put("key", key);
+        List<Peer> candidates = new ArrayList<>();
+        for (TestPeer peer : peers) {
+            candidates.add(peer.peer);
+        }
+        broadcaster.broadcast(key, priority, request, candidates, CHAIN_ID);
+    }
+
+    private static void respondAll(TestPeer peer) {
+        while (!peer.responses.isEmpty()) {
+            peer.respond(accepted());
+        }
+    }
+
+    private static JSONObject accepted() {
+        return new JSONObject();
+    }
+
+    private static class TestPeer {
+        private final Peer peer = mock(Peer.class);
+        private final List<Object> sent = new ArrayList<>();
+        private final Deque<CompletableFuture<JSONObject>> responses = new ArrayDeque<>();
+        private boolean immediateFailure;
+
+        private TestPeer(String host) {
+            doReturn(host).when(peer).getHost();
+            doAnswer(invocation -> {
+                JSONObject request = invocation.getArgument(0);
+                sent.add(request.get("key"));
+                CompletableFuture<JSONObject> response = new CompletableFuture<>();
+                if (immediateFailure) {
+                    response.completeExceptionally(new RuntimeException("Peer is not connected"));
+                } else {
+                    responses.add(response);
+                }
+                return response;
+            }).when(peer).sendAsync(any(), any(), anyInt());
+        }
+
+        private void respond(JSONObject response) {
+            responses.poll().complete(response);
+        }
+
+        private void fail() {
+            responses.poll().completeExceptionally(new RuntimeException("Connection refused"));
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.apollocurrency.aplwallet.apl.util.AplException;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+class PeerHttpClientTest {
+    private Server server;
+    private PeerHttpClient httpClient;
+    private String url;
+    private volatile int status = HttpServletResponse.SC_OK;
+    private volatile byte[] body = "{\"a\":1}".getBytes(StandardCharsets.UTF_8);
+    private volatile boolean contentLength = true;
+    private volatile String receivedRequest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("127.0.0.1");
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                receivedRequest = new String(baseRequest.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+                response.setStatus(status);
+                if (contentLength) {
+                    response.setContentLength(body.length);
+                }
+                OutputStream out = response.getOutputStream();
+                // without content length response is chunked
+                for (int offset = 0; offset < body.length; offset += 1024) {
+                    out.write(body, offset, Math.min(1024, body.length - offset));
+                    out.flush();
+                }
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + connector.getLocalPort() + "/apl";
+        httpClient = new PeerHttpClient(2000, 5000, 10000, 2, 4);
+        httpClient.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        httpClient.shutdown();
+        server.stop();
+    }
+
+    @Test
+    void testPost() throws Exception {
+        assertEquals("{\"a\":1}", post(url, 1000).get(5, TimeUnit.SECONDS));
+        assertEquals("{\"requestType\":\"getInfo\"}", receivedRequest);
+    }
+
+    @Test
+    void testResponseOfMaxSize() throws Exception {
+        body = new byte[10_000];
+        contentLength = false;
+
+        assertEquals(10_000, post(url, 10_000).get(5, TimeUnit.SECONDS).length());
+    }
+
+    @Test
+    void testNon200Response() {
+        status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+
+        Throwable failure = failure(post(url, 1000));
+
+        assertTrue(failure instanceof PeerHttpClient.HttpStatusException);
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, ((PeerHttpClient.HttpStatusException) failure).getStatus());
+    }
+
+    @Test
+    void testTooLargeResponseWithContentLength() {
+        body = new byte[10_001];
+
+        assertTrue(failure(post(url, 10_000)) instanceof AplException.AplIOException);
+    }
+
+    @Test
+    void testTooLargeChunkedResponse() {
+        body = new byte[100_000];
+        contentLength = false;
+
+        assertTrue(failure(post(url, 10_000)) instanceof AplException.AplIOException);
+    }
+
+    @Test
+    void testInvalidUrlIsNotPeerFailure() {
+        CompletableFuture<String> future = post("http://bad host:7876/apl", 1000);
+
+        Throwable failure = failure(future);
+        assertFalse(failure instanceof AplException.AplIOException);
+        assertTrue(failure instanceof IllegalArgumentException);
+    }
+
+    @Test
+    void testConnectionRefusedIsNotSizeFailure() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        assertFalse(failure(post("http://127.0.0.1:" + port + "/apl", 1000)) instanceof AplException.AplIOException);
+    }
+
+    private CompletableFuture<String> post(String url, int maxResponseSize) {
+        return httpClient.post(url, "{\"requestType\":\"getInfo\"}", maxResponseSize);
+    }
+
+    private static Throwable failure(CompletableFuture<String> future) {
+        return assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS)).getCause();
+    }
+}
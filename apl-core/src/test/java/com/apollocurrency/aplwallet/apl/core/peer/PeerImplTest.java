@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainImpl;
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainProcessorImpl;
+import com.apollocurrency.aplwallet.apl.core.app.EpochTime;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import com.apollocurrency.aplwallet.apl.util.UPnP;
+import com.apollocurrency.aplwallet.apl.util.injectable.PropertiesHolder;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.jboss.weld.junit.MockBean;
+import org.jboss.weld.junit5.EnableWeld;
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldSetup;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+@EnableWeld
+class PeerImplTest {
+    private static final UUID CHAIN_ID = UUID.fromString("b5d7b697-f359-4ce5-a619-fa34b6fb01a5");
+
+    private EpochTime epochTime = mock(EpochTime.class);
+
+    // PeerImpl, Peers and API look up their static dependencies in CDI
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator.from(PropertiesHolder.class)
+            .addBeans(MockBean.of(mock(BlockchainConfig.class), BlockchainConfig.class))
+            .addBeans(MockBean.of(mock(BlockchainImpl.class), BlockchainImpl.class))
+            .addBeans(MockBean.of(epochTime, EpochTime.class))
+            .addBeans(MockBean.of(mock(PeerHttpServer.class), PeerHttpServer.class))
+            .addBeans(MockBean.of(mock(UPnP.class), UPnP.class))
+            .addBeans(MockBean.builder().types(BlockchainProcessorImpl.class).create(ctx -> mock(BlockchainProcessorImpl.class)).build())
+            .build();
+
+    private Server server;
+    private int port;
+    private volatile int status = HttpServletResponse.SC_OK;
+    private volatile String body = "{\"a\":1}";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        doReturn(1000).when(epochTime).getEpochTime();
+        server = new Server();
+        ServerConnector connector = new ServerConnector(server);
+        connector.setHost("127.0.0.1");
+        server.addConnector(connector);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                response.setStatus(status);
+                response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        port = connector.getLocalPort();
+        Peers.knownBlacklistedPeers = Collections.emptySet();
+        Peers.httpClient = new PeerHttpClient(2000, 5000, 10000, 2, 4);
+        Peers.httpClient.start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        Peers.httpClient.shutdown();
+        Peers.httpClient = null;
+        server.stop();
+    }
+
+    @Test
+    void testSendAsync() throws Exception {
+        PeerImpl peer = connectedPeer("127.0.0.1");
+
+        JSONObject response = peer.sendAsync(request(), CHAIN_ID, 1000).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1L, response.get("a"));
+        assertEquals(Peer.State.CONNECTED, peer.getState());
+        assertEquals(body.length(), peer.getDownloadedVolume());
+    }
+
+    @Test
+    void testSendAsyncWithoutResponse() throws Exception {
+        PeerImpl peer = connectedPeer("127.0.0.1");
+
+        assertNull(peer.sendAsync(request(), CHAIN_ID, 0).get(5, TimeUnit.SECONDS));
+        assertEquals(Peer.State.CONNECTED, peer.getState());
+    }
+
+    @Test
+    void testErrorResponseDeactivates() throws Exception {
+        body = "{\"error\":\"Unsupported request type!\"}";
+        PeerImpl peer = connectedPeer("127.0.0.1");
+
+        JSONObject response = peer.sendAsync(request(), CHAIN_ID, 1000).get(5, TimeUnit.SECONDS);
+
+        assertEquals("Unsupported request type!", response.get("error"));
+        assertEquals(Peer.State.DISCONNECTED, peer.getState());
+        assertFalse(peer.isBlacklisted());
+    }
+
+    @Test
+    void testNon200ResponseDeactivates() throws Exception {
+        status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        PeerImpl peer = connectedPeer("127.0.0.1");
+
+        assertNull(peer.sendAsync(request(), CHAIN_ID, 1000).get(5, TimeUnit.SECONDS));
+        assertEquals(Peer.State.DISCONNECTED, peer.getState());
+        assertFalse(peer.isBlacklisted());
+    }
+
+    @Test
+    void testInvalidResponseDeactivates() throws Exception {
+        body = "not json";
+        PeerImpl peer = connectedPeer("127.0.0.1");
+
+        assertNull(peer.sendAsync(request(), CHAIN_ID, 1000).get(5, TimeUnit.SECONDS));
+        assertEquals(Peer.State.DISCONNECTED, peer.getState());
+        assertFalse(peer.isBlacklisted());
+    }
+
+    @Test
+    void testTooLargeResponseBlacklists() throws Exception {
+        body = "{\"a\":\"" + "a".repeat(1000) + "\"}";
+        PeerImpl peer = connectedPeer("127.0.0.1");
+
+        assertNull(peer.sendAsync(request(), CHAIN_ID, 1000).get(5, TimeUnit.SECONDS));
+        assertTrue(peer.isBlacklisted());
+        assertEquals(Peer.State.NON_CONNECTED, peer.getState());
+    }
+
+    @Test
+    void testInvalidHostDoesNotBlacklist() throws Exception {
+        PeerImpl peer = connectedPeer("bad host");
+
+        assertNull(peer.sendAsync(request(), CHAIN_ID, 1000).get(5, TimeUnit.SECONDS));
+        assertEquals(Peer.State.DISCONNECTED, peer.getState());
+        assertFalse(peer.isBlacklisted());
+    }
+
+    private PeerImpl connectedPeer(String host) {
+        PeerImpl peer = new PeerImpl(host, host + ":" + port);
+        peer.setChainId(CHAIN_ID);
+        peer.setState(Peer.State.CONNECTED);
+        return peer;
+    }
+
+    private static JSONObject request() {
+        JSONObject request = new JSONObject();
+        request.put("requestType", "getInfo");
+        return request;
+    }
+}
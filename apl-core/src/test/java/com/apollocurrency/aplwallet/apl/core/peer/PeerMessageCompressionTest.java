@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.peer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+class PeerMessageCompressionTest {
+    private static final byte[] MESSAGE = ("{\"requestType\":\"processTransactions\",\"transactions\":[{\"type\":0,\"subtype\":0," +
+            "\"timestamp\":50000000,\"deadline\":1440,\"senderPublicKey\":\"bf0ced0472d8ba3df9e21808e98e61b34404aad737e2bae1778cebc698b40f37\"," +
+            "\"recipient\":\"3705364957971254799\",\"amountATM\":500000000,\"feeATM\":100000000,\"ecBlockHeight\":10050," +
+            "\"ecBlockId\":\"15851958254727390093\",\"signature\":\"4a4cfed5b6d2e4a8f7a69b49fd7e6fc3b7fab2d66d1bf2ad4e3f6a7b66c2a70f\"," +
+            "\"attachment\":{\"version.OrdinaryPayment\":0},\"version\":1}],\"chainId\":\"b5d7b697-f359-4ce5-a619-fa34b6fb01a5\"}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void testGzip() throws IOException {
+        byte[] compressed = PeerMessageCompression.compress(MESSAGE, false);
+
+        assertArrayEquals(MESSAGE, PeerMessageCompression.uncompress(compressed, MESSAGE.length, false));
+    }
+
+    @Test
+    void testDictionary() throws IOException {
+        byte[] compressed = PeerMessageCompression.compress(MESSAGE, true);
+
+        assertArrayEquals(MESSAGE, PeerMessageCompression.uncompress(compressed, MESSAGE.length, true));
+        assertTrue(compressed.length < PeerMessageCompression.compress(MESSAGE, false).length);
+    }
+
+    @Test
+    void testDifferentDictionaryIsRejected() {
+        Deflater deflater = new Deflater();
+        deflater.setDictionary("other dictionary".getBytes(StandardCharsets.UTF_8));
+        deflater.setInput(MESSAGE);
+        deflater.finish();
+        byte[] compressed = new byte[MESSAGE.length * 2];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+        byte[] data = Arrays.copyOf(compressed, length);
+
+        assertThrows(IOException.class, () -> PeerMessageCompression.uncompress(data, MESSAGE.length, true));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.apollocurrency.aplwallet.apl.core.db.DataSourceLease;
+import com.apollocurrency.aplwallet.apl.core.db.DbIterator;
+import com.apollocurrency.aplwallet.apl.core.db.TransactionalDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ShardQueryExecutorTest {
+
+    private TransactionalDataSource dataSource(Integer... rows) throws SQLException {
+        TransactionalDataSource dataSource = mock(TransactionalDataSource.class);
+        Connection con = mock(Connection.class);
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(con);
+        when(con.prepareStatement(anyString())).thenReturn(pstmt);
+        when(pstmt.executeQuery()).thenReturn(rs);
+        Boolean[] next = new Boolean[rows.length];
+        Arrays.fill(next, Boolean.TRUE);
+        when(rs.next()).thenReturn(rows.length > 0, Arrays.copyOf(next, rows.length == 0 ? 0 : rows.length - 1))
+                .thenReturn(false);
+        if (rows.length > 0) {
+            when(rs.getInt(1)).thenReturn(rows[0], Arrays.copyOfRange(rows, 1, rows.length));
+        }
+        return dataSource;
+    }
+
+    private List<Integer> query(List<TransactionalDataSource> dataSources, int from, int to, int maxParallelRows) {
+        List<Long> shardIds = new ArrayList<>();
+        for (long i = 1; i < dataSources.size(); i++) {
+            shardIds.add(i);
+        }
+        ShardQueryExecutor executor = new ShardQueryExecutor(() -> dataSources.get(0), () -> shardIds,
+                shardId -> DataSourceLease.of(dataSources.get(shardId.intValue())), 2, maxParallelRows);
+        List<Integer> result = new ArrayList<>();
+        try (DbIterator<Integer> iterator = executor.query((con, fromIndex, toIndex) -> con.prepareStatement("SELECT height FROM block"),
+                (con, rs) -> rs.getInt(1), from, to)) {
+            iterator.forEach(result::add);
+        }
+        return result;
+    }
+
+    @Test
+    void testUnboundedQueryMergedInDataSourceOrder() throws SQLException {
+        List<Integer> result = query(Arrays.asList(dataSource(9, 8), dataSource(7, 6, 5), dataSource(4)), 0, -1, 100);
+
+        assertEquals(Arrays.asList(9, 8, 7, 6, 5, 4), result);
+    }
+
+    @Test
+    void testPageSpansShards() throws SQLException {
+        List<Integer> result = query(Arrays.asList(dataSource(9, 8), dataSource(7, 6, 5), dataSource(4, 3)), 1, 4, 100);
+
+        assertEquals(Arrays.asList(8, 7, 6, 5), result);
+    }
+
+    @Test
+    void testStreamedPageSpansShards() throws SQLException {
+        List<Integer> result = query(Arrays.asList(dataSource(9, 8), dataSource(7, 6, 5), dataSource(4, 3)), 1, 4, 0);
+
+        assertEquals(Arrays.asList(8, 7, 6, 5), result);
+    }
+
+    @Test
+    void testPageFilledByMainDb() throws SQLException {
+        List<Integer> result = query(Arrays.asList(dataSource(9, 8, 7), dataSource(6)), 0, 1, 100);
+
+        assertEquals(Arrays.asList(9, 8), result);
+    }
+
+    @Test
+    void testStreamedPageFilledByMainDbDoesNotQueryShards() throws SQLException {
+        TransactionalDataSource shard = dataSource(6);
+        List<Integer> result = query(Arrays.asList(dataSource(9, 8, 7), shard), 0, 1, 0);
+
+        assertEquals(Arrays.asList(9, 8), result);
+        verify(shard, never()).getConnection();
+    }
+
+    @Test
+    void testStreamedQueryOpensShardsOneByOne() throws SQLException {
+        TransactionalDataSource shard1 = dataSource(7);
+        TransactionalDataSource shard2 = dataSource(6);
+        List<Long> shardIds = Arrays.asList(1L, 2L);
+        List<TransactionalDataSource> dataSources = Arrays.asList(dataSource(9, 8), shard1, shard2);
+        ShardQueryExecutor executor = new ShardQueryExecutor(() -> dataSources.get(0), () -> shardIds,
+                shardId -> DataSourceLease.of(dataSources.get(shardId.intValue())), 2, 100);
+
+        try (DbIterator<Integer> iterator = executor.query((con, fromIndex, toIndex) -> con.prepareStatement("SELECT height FROM block"),
+                (con, rs) -> rs.getInt(1), 0, -1)) {
+            assertEquals(9, iterator.next().intValue());
+            assertEquals(8, iterator.next().intValue());
+            verify(shard1, never()).getConnection();
+            assertEquals(7, iterator.next().intValue());
+            verify(shard2, never()).getConnection();
+        }
+    }
+
+    @Test
+    void testStreamedQueryHoldsShardLeaseUntilShardIsRead() throws SQLException {
+        List<Long> shardIds = Arrays.asList(1L, 2L);
+        List<TransactionalDataSource> dataSources = Arrays.asList(dataSource(9), dataSource(8), dataSource(7));
+        AtomicInteger leased = new AtomicInteger();
+        ShardQueryExecutor executor = new ShardQueryExecutor(() -> dataSources.get(0), () -> shardIds, shardId -> {
+            leased.incrementAndGet();
+            return new DataSourceLease(dataSources.get(shardId.intValue()), leased::decrementAndGet);
+        }, 2, 0);
+
+        try (DbIterator<Integer> iterator = executor.query((con, fromIndex, toIndex) -> con.prepareStatement("SELECT height FROM block"),
+                (con, rs) -> rs.getInt(1), 0, -1)) {
+            assertEquals(9, iterator.next().intValue());
+            assertEquals(0, leased.get());
+            assertEquals(8, iterator.next().intValue());
+            assertEquals(1, leased.get());
+            assertEquals(7, iterator.next().intValue());
+            assertEquals(1, leased.get());
+        }
+        assertEquals(0, leased.get());
+    }
+
+    @Test
+    void testParallelQueryReleasesShardLeases() throws SQLException {
+        List<Long> shardIds = Arrays.asList(1L, 2L);
+        List<TransactionalDataSource> dataSources = Arrays.asList(dataSource(9), dataSource(8), dataSource(7));
+        AtomicInteger leased = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        ShardQueryExecutor executor = new ShardQueryExecutor(() -> dataSources.get(0), () -> shardIds, shardId -> {
+            leased.incrementAndGet();
+            return new DataSourceLease(dataSources.get(shardId.intValue()), released::incrementAndGet);
+        }, 2, 100);
+
+        try (DbIterator<Integer> iterator = executor.query((con, fromIndex, toIndex) -> con.prepareStatement("SELECT height FROM block"),
+                (con, rs) -> rs.getInt(1), 0, 2)) {
+            List<Integer> result = new ArrayList<>();
+            iterator.forEach(result::add);
+            assertEquals(Arrays.asList(9, 8, 7), result);
+        }
+        assertEquals(2, leased.get());
+        assertEquals(2, released.get());
+    }
+
+    @Test
+    void testPageBeyondResult() throws SQLException {
+        List<Integer> result = query(Arrays.asList(dataSource(9), dataSource()), 5, 10, 100);
+
+        assertEquals(Collections.emptyList(), result);
+    }
+
+    @Test
+    void testStreamedPageBeyondResult() throws SQLException {
+        List<Integer> result = query(Arrays.asList(dataSource(9), dataSource()), 5, 10, 0);
+
+        assertEquals(Collections.emptyList(), result);
+    }
+}
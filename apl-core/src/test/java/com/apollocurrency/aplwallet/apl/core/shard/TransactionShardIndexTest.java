@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.shard;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class TransactionShardIndexTest {
+
+    @Test
+    void testLoadAndLookup() throws SQLException {
+        Connection con = mock(Connection.class);
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(con.prepareStatement(anyString())).thenReturn(pstmt);
+        when(pstmt.executeQuery()).thenReturn(rs);
+        when(rs.next()).thenReturn(true, true, true, true, false);
+        when(rs.getLong(1)).thenReturn(-100L, 5L, 5L, 42L);
+        when(rs.getLong(2)).thenReturn(1L, 2L, 1L);
+
+        TransactionShardIndex index = TransactionShardIndex.load(con);
+
+        assertEquals(3, index.size());
+        assertEquals(Long.valueOf(1), index.getShardId(-100L));
+        assertEquals(Long.valueOf(2), index.getShardId(5L));
+        assertEquals(Long.valueOf(1), index.getShardId(42L));
+        assertNull(index.getShardId(6L));
+    }
+
+    @Test
+    void testLoadEmpty() throws SQLException {
+        Connection con = mock(Connection.class);
+        PreparedStatement pstmt = mock(PreparedStatement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(con.prepareStatement(anyString())).thenReturn(pstmt);
+        when(pstmt.executeQuery()).thenReturn(rs);
+
+        TransactionShardIndex index = TransactionShardIndex.load(con);
+
+        assertSame(TransactionShardIndex.empty(), index);
+        assertNull(index.getShardId(1L));
+    }
+}
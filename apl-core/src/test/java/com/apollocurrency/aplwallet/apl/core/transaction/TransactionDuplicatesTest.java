@@ -0,0 +1,278 @@
+/*
+ * Copyright © 2018-2019 Apollo Foundation
+ */
+
+package com.apollocurrency.aplwallet.apl.core.transaction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import com.apollocurrency.aplwallet.apl.core.app.BlockchainImpl;
+import com.apollocurrency.aplwallet.apl.core.app.EpochTime;
+import com.apollocurrency.aplwallet.apl.core.chainid.BlockchainConfig;
+import org.jboss.weld.junit.MockBean;
+import org.jboss.weld.junit5.EnableWeld;
+import org.jboss.weld.junit5.WeldInitiator;
+import org.jboss.weld.junit5.WeldSetup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@EnableWeld
+class TransactionDuplicatesTest {
+    private static final Logger log = getLogger(TransactionDuplicatesTest.class);
+
+    // TransactionType looks up its static dependencies in CDI
+    @WeldSetup
+    public WeldInitiator weld = WeldInitiator.from()
+            .addBeans(MockBean.of(mock(BlockchainConfig.class), BlockchainConfig.class))
+            .addBeans(MockBean.of(mock(BlockchainImpl.class), BlockchainImpl.class))
+            .addBeans(MockBean.of(mock(EpochTime.class), EpochTime.class))
+            .build();
+
+    private TransactionType type;
+    private TransactionType otherType;
+    private TransactionDuplicates duplicates = new TransactionDuplicates();
+
+    @BeforeEach
+    void setUp() {
+        type = mockType(2, 1);
+        otherType = mockType(1, 2);
+    }
+
+    @Test
+    void testMaxCount() {
+        for (int i = 0; i < 3; i++) {
+            assertFalse(duplicates.isDuplicate(type, 10L, 3));
+            assertFalse(duplicates.isDuplicate(type, 10L, 20L, 3));
+            assertFalse(duplicates.isDuplicate(type, "key", 3));
+        }
+
+        assertTrue(duplicates.isDuplicate(type, 10L, 3));
+        assertTrue(duplicates.isDuplicate(type, 10L, 20L, 3));
+        assertTrue(duplicates.isDuplicate(type, "key", 3));
+    }
+
+    @Test
+    void testMaxCountIsCountedPerType() {
+        assertFalse(duplicates.isDuplicate(type, 10L, 1));
+        assertFalse(duplicates.isDuplicate(otherType, 10L, 1));
+        assertFalse(duplicates.isDuplicate(type, "key", 1));
+        assertFalse(duplicates.isDuplicate(otherType, "key", 1));
+
+        assertTrue(duplicates.isDuplicate(type, 10L, 1));
+        assertTrue(duplicates.isDuplicate(otherType, 10L, 1));
+        assertTrue(duplicates.isDuplicate(type, "key", 1));
+        assertTrue(duplicates.isDuplicate(otherType, "key", 1));
+    }
+
+    @Test
+    void testExclusiveKey() {
+        assertFalse(duplicates.isDuplicate(type, 10L, 0));
+        assertFalse(duplicates.isDuplicate(type, 10L, 20L, 0));
+        assertFalse(duplicates.isDuplicate(type, "key", 0));
+
+        // exclusive key rejects any other transaction with the key, whatever its max count is
+        assertTrue(duplicates.isDuplicate(type, 10L, 0));
+        assertTrue(duplicates.isDuplicate(type, 10L, Integer.MAX_VALUE));
+        assertTrue(duplicates.isDuplicate(type, 10L, 20L, Integer.MAX_VALUE));
+        assertTrue(duplicates.isDuplicate(type, "key", Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testExclusiveKeyAfterNotExclusive() {
+        assertFalse(duplicates.isDuplicate(type, 10L, Integer.MAX_VALUE));
+        assertFalse(duplicates.isDuplicate(type, "key", Integer.MAX_VALUE));
+
+        assertTrue(duplicates.isDuplicate(type, 10L, 0));
+        assertTrue(duplicates.isDuplicate(type, "key", 0));
+    }
+
+    @Test
+    void testUnlimitedKey() {
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(duplicates.isDuplicate(type, 10L, Integer.MAX_VALUE));
+            assertFalse(duplicates.isDuplicate(type, 10L, 20L, Integer.MAX_VALUE));
+            assertFalse(duplicates.isDuplicate(type, "key", Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void testKeysOfDifferentKindsDoNotCollide() {
+        assertFalse(duplicates.isDuplicate(type, 10L, 0));
+        assertFalse(duplicates.isDuplicate(type, 10L, 0L, 0));
+        assertFalse(duplicates.isDuplicate(type, 0L, 10L, 0));
+        assertFalse(duplicates.isDuplicate(type, "10", 0));
+        assertFalse(duplicates.isDuplicate(otherType, 10L, 0));
+        assertFalse(duplicates.isDuplicate(otherType, 10L, 0L, 0));
+        // type 1 subtype 2 and type 2 subtype 1 have different codes
+        assertFalse(duplicates.isDuplicate(mockType(1, 1), 10L, 0));
+        assertFalse(duplicates.isDuplicate(mockType(2, 2), 10L, 0));
+
+        assertTrue(duplicates.isDuplicate(type, 10L, 0));
+        assertTrue(duplicates.isDuplicate(type, 10L, 0L, 0));
+        assertTrue(duplicates.isDuplicate(type, 0L, 10L, 0));
+        assertTrue(duplicates.isDuplicate(type, "10", 0));
+    }
+
+    @Test
+    void testManyKeysAcrossResize() {
+        // far above initial capacity, so the table is resized several times and probe chains are long
+        long[] keys = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE};
+        for (long key : keys) {
+            assertFalse(duplicates.isDuplicate(type, key, 0));
+        }
+        for (long key = 1; key <= 5000; key++) {
+            assertFalse(duplicates.isDuplicate(type, key << 32, 0));
+            assertFalse(duplicates.isDuplicate(type, key, -key, 0));
+        }
+
+        for (long key : keys) {
+            assertTrue(duplicates.isDuplicate(type, key, 0));
+        }
+        for (long key = 1; key <= 5000; key++) {
+            assertTrue(duplicates.isDuplicate(type, key << 32, 0));
+            assertTrue(duplicates.isDuplicate(type, key, -key, 0));
+            assertFalse(duplicates.isDuplicate(otherType, key << 32, 0));
+        }
+    }
+
+    @Test
+    void testClearBetweenBlocks() {
+        for (long key = 1; key <= 1000; key++) {
+            assertFalse(duplicates.isDuplicate(type, key, 1));
+            assertFalse(duplicates.isDuplicate(type, key, key, 1));
+            assertFalse(duplicates.isDuplicate(type, Long.toUnsignedString(key), 1));
+        }
+
+        duplicates.clear();
+
+        // grown table is kept and starts empty
+        for (long key = 1; key <= 1000; key++) {
+            assertFalse(duplicates.isDuplicate(type, key, 1));
+            assertFalse(duplicates.isDuplicate(type, key, key, 1));
+            assertFalse(duplicates.isDuplicate(type, Long.toUnsignedString(key), 1));
+        }
+        for (long key = 1; key <= 1000; key++) {
+            assertTrue(duplicates.isDuplicate(type, key, 1));
+            assertTrue(duplicates.isDuplicate(type, key, key, 1));
+            assertTrue(duplicates.isDuplicate(type, Long.toUnsignedString(key), 1));
+        }
+
+        duplicates.clear();
+        duplicates.clear();
+
+        assertFalse(duplicates.isDuplicate(type, 1L, 1));
+        assertTrue(duplicates.isDuplicate(type, 1L, 1));
+    }
+
+    @Test
+    void testSameResultsAsStringKeys() {
+        Random random = new Random(0);
+        LegacyDuplicates legacy = new LegacyDuplicates();
+        TransactionType[] types = {type, otherType};
+        int[] maxCounts = {0, 1, 3, Integer.MAX_VALUE};
+        for (int block = 0; block < 20; block++) {
+            for (int i = 0; i < 500; i++) {
+                TransactionType keyType = types[random.nextInt(types.length)];
+                int maxCount = maxCounts[random.nextInt(maxCounts.length)];
+                long key1 = random.nextInt(200);
+                long key2 = random.nextInt(3);
+                if (random.nextBoolean()) {
+                    assertEquals(legacy.isDuplicate(keyType, Long.toUnsignedString(key1), maxCount),
+                            duplicates.isDuplicate(keyType, key1, maxCount));
+                } else {
+                    assertEquals(legacy.isDuplicate(keyType, Long.toUnsignedString(key1) + ":" + Long.toUnsignedString(key2), maxCount),
+                            duplicates.isDuplicate(keyType, key1, key2, maxCount));
+                }
+            }
+            legacy.clear();
+            duplicates.clear();
+        }
+    }
+
+    @Test
+    @Disabled
+    void testPerformance() {
+        int blocks = 20_000;
+        int transactions = 255;
+        long[] keys1 = new long[transactions];
+        long[] keys2 = new long[transactions];
+        Random random = new Random(0);
+        for (int i = 0; i < transactions; i++) {
+            keys1[i] = random.nextLong();
+            keys2[i] = random.nextLong();
+        }
+        LegacyDuplicates legacy = new LegacyDuplicates();
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int found = 0;
+            for (int block = 0; block < blocks; block++) {
+                for (int i = 0; i < transactions; i++) {
+                    if (legacy.isDuplicate(type, Long.toUnsignedString(keys1[i]), 0)
+                            || legacy.isDuplicate(otherType, Long.toUnsignedString(keys1[i]) + ":" + Long.toUnsignedString(keys2[i]), 0)) {
+                        found++;
+                    }
+                }
+                legacy = new LegacyDuplicates();
+            }
+            long legacyTime = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int block = 0; block < blocks; block++) {
+                for (int i = 0; i < transactions; i++) {
+                    if (duplicates.isDuplicate(type, keys1[i], 0)
+                            || duplicates.isDuplicate(otherType, keys1[i], keys2[i], 0)) {
+                        found++;
+                    }
+                }
+                duplicates.clear();
+            }
+            long time = System.nanoTime() - start;
+            log.info("String keys: {} ms, primitive keys: {} ms, duplicates {}", legacyTime / 1_000_000, time / 1_000_000, found);
+        }
+    }
+
+    private static TransactionType mockType(int type, int subtype) {
+        TransactionType transactionType = mock(TransactionType.class);
+        doReturn((byte) type).when(transactionType).getType();
+        doReturn((byte) subtype).when(transactionType).getSubtype();
+        return transactionType;
+    }
+
+    /**
+     * Nested map of string keys which was used before {@link TransactionDuplicates}
+     */
+    private static class LegacyDuplicates {
+        private final Map<TransactionType, Map<String, Integer>> duplicates = new HashMap<>();
+
+        boolean isDuplicate(TransactionType uniqueType, String key, int maxCount) {
+            Map<String, Integer> typeDuplicates = duplicates.computeIfAbsent(uniqueType, t -> new HashMap<>());
+            Integer currentCount = typeDuplicates.get(key);
+            if (currentCount == null) {
+                typeDuplicates.put(key, maxCount > 0 ? 1 : 0);
+                return false;
+            }
+            if (currentCount == 0) {
+                return true;
+            }
+            if (currentCount < maxCount) {
+                typeDuplicates.put(key, currentCount + 1);
+                return false;
+            }
+            return true;
+        }
+
+        void clear() {
+            duplicates.clear();
+        }
+    }
+}
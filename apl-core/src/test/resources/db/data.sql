@@ -1,5 +1,6 @@
 DELETE FROM PUBLIC.UPDATE_STATUS;
 DELETE FROM PUBLIC.TRANSACTION;
+DELETE FROM PUBLIC.ACCOUNT_TRANSACTION;
 DELETE FROM PUBLIC.BLOCK;
 DELETE FROM PUBLIC.TWO_FACTOR_AUTH;
 DELETE FROM PUBLIC.ACCOUNT;
@@ -10,6 +11,7 @@ delete from FTL.INDEXES;
 delete from public.option;
 delete from public.shard;
 delete from referenced_transaction;
+delete from derived_table_count;
 delete from phasing_poll;
 delete from phasing_poll_result;
 delete from phasing_poll_voter;
@@ -53,6 +55,11 @@ INSERT INTO PUBLIC.TRANSACTION
   (5000     ,-4081443370478530685	  ,15456	 ,-6206981717632723220      ,142195        ,1440,	null	                ,3	        ,0	                ,100000000	    ,X'830fc103e1cc5bc7a3dd989ad0d7a8c66307a9ef23f05d2a18b661ee0a464088'	      ,X'551f99bc4eceaae7c7007ac077ed163f4d95f8acc0119e38b726b5c8b494cf09c5059292de17efbc4ec14848e3944ecd0a5d0ca2591177266e04d426ce25a1c1'      ,16763004	    ,8	   ,0	    ,9211698109297098287	 ,null	                                                                                ,FALSE      ,1	,FALSE	        ,FALSE	            ,FALSE	                        ,103950	        ,3234042379296483074	,FALSE	                    ,FALSE	                ,FALSE	                        ,FALSE,	                X'01054c494e555805414d4436340002a427a6d86645d0c32527e50fe292a0b1cf3983ef083f9fc392359e34d90012a65d5bd927c2cd09466433c107e523ff01bc00e414108d01e515f56ddbc054abce83fa4bd30bdf4623928e768536f8e56d9695ebadfbe34b5d1d59aa63545f5238a4817ec09389687df5ec116423b0e572a5ee9c47eaab432b19805a610beecb495595636a14009524caee8f1c73db084f1842bf895440233bff67c8f09674056113efd58da69f8411df3df174438bd2e8280e4eac97d6f89a6d756c1feddccc6d593d59578aab46ad9024b0ba742c547418ea7b2adbed80c8f673cd2cff31fefb6ab068c03232d79dfd83977a05bb0fb286f81ddbc0a9c75e6fce81747223a8fe5e506f9a9d7a7fd08d51b63ba25b4872886857b59607e24e842aa39e9d0d78a3db3ad97b03e64fb135ef55f5f396e29c8a4e146087b853f9a1be0a647201836da32ef5b0bff1a3bc599bff155cbfe8a24ad5ee7ab711bf9de7682876c8b7986025e68c8ee63f63505d3ec21f53a98e9de78f39b69c8438028a0e569f81c9ac7bc7d2dc0ea4f4406a696938fe422bad1076342267ee13d657aa9e68d07aafba6b33fc3e90d72ea5147bc21d223b862c56d989a568a7a2609b272261df3af318f340283490ff4d909768deee8987e363bba10c489d746e4e706daf02b78ba5886f59c204bc2237702d1c2191a6c6b0d3095c9c3d462e4e1cae02f0f53b5e94c2150002b51c553a2e69bc868926235c2fc01ba04b69070324a0c94d9c0d32f65ad4bb475c2b2887800caed2f4023f6510c363a5c4a7da0d8ba7cf85e921990fa7eba87c053ee753157c7541b291483a3f444b0e5d91dcb0f74def9dbe46c910546d0b616ebd9241e7f09aa619cb84b95560307d7e6b07e4fa47c508a621683717485542883203f1f17279b5e93173fa01b19bc707b1ee899bd1118322befed65b6eb28df579d56e61ca6b90abe5408f21544e3e6195ab23876baab07db967de04e815a9395987775acbe57bb7ac8d7366ad62a655bb4598edb4d3d2dce3d326fbeef97b654c686e9abd2c613ea740701a5a4d647e1ebf3bda0fc29fdbb5dfc7dc22842f32e552b0f999076d5f644809ff752224b71fe2f85ad8ac4766d57756d52953bbfb6e6b2134b173bf4995218429371ce3989cd764482396acb05eeaf2e138f38bae9107a9b6db626c6647be5d4a1e6f02f17326700ddeec0b8037671252f0e5c475e06964b6c5a5ff51bc07b494ee84ef5be7d84146f949fe6639409c3fe7550597e45c93ec276721781d9e8677fe4501b583a2b6d96d583c6397c8c5ef14ab6932581d81a8a3518da882fb920dd47c4af25ed755697a7cb181936ae0f21f3c2976f3168202e02fc4b351dcbb7f0c9e5b50a7f1f1d1841dd4de09ca374e3d01fc4fa6cb9271c727a194a2b701ec5e7d882790bb800cc2f86339ad708869ea291105312e302e382000a2c1e47afd4b25035a025091ec3c33ec1992d09e7f3c05875d79e660139220a4')
 ;
 
+INSERT INTO PUBLIC.ACCOUNT_TRANSACTION (ACCOUNT_ID, HEIGHT, TRANSACTION_INDEX, TRANSACTION_ID, DIRECTION, TYPE, SUBTYPE)
+SELECT SENDER_ID, HEIGHT, TRANSACTION_INDEX, ID, 0, TYPE, SUBTYPE FROM PUBLIC.TRANSACTION;
+INSERT INTO PUBLIC.ACCOUNT_TRANSACTION (ACCOUNT_ID, HEIGHT, TRANSACTION_INDEX, TRANSACTION_ID, DIRECTION, TYPE, SUBTYPE)
+SELECT RECIPIENT_ID, HEIGHT, TRANSACTION_INDEX, ID, 1, TYPE, SUBTYPE FROM PUBLIC.TRANSACTION WHERE RECIPIENT_ID IS NOT NULL AND RECIPIENT_ID <> SENDER_ID;
+
 INSERT INTO PUBLIC.UPDATE_STATUS (transaction_id, updated) VALUES (
   -1536976186224925700, TRUE
 );
@@ -127,7 +134,7 @@ INSERT into PUBLIC.PHASING_POLL_LINKED_TRANSACTION
 (20         ,-4081443370478530685, X'fc23d4474d90abeae5dd6d599381a75a2a06e61f91ff2249067a10e6515d202f', -1536976186224925700  , 15456),
 (30         ,-4081443370478530685, X'5ea0de6146ac28b8b64d4f7f1ccbd1c7b2e43397221ef7ed3fa10c4ec0581d43', -5176698353372716962  , 15456),
 ;
-INSERT into version values (271);
+INSERT into version values (283);
 INSERT INTO FTL.INDEXES (schema, table, columns)
                          VALUES('PUBLIC', 'CURRENCY', 'code,name,description');
 
@@ -234,6 +234,8 @@ public final class JSON {
             encodeObject((Map<Object, Object>)value, sb);
         } else if (value instanceof List) {
             encodeArray((List<Object>)value, sb);
+        } else if (value instanceof JSONAware) {
+            sb.append(((JSONAware)value).toJSONString());
         } else {
             sb.append('\"');
             escapeString(value.toString(), sb);
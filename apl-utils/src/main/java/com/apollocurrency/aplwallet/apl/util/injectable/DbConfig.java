@@ -39,7 +39,8 @@ public class DbConfig {
                 .maxConnections(propertiesHolder.getIntProperty("apl.maxDbConnections"))
                 .loginTimeout(propertiesHolder.getIntProperty("apl.dbLoginTimeout"))
                 .defaultLockTimeout(propertiesHolder.getIntProperty("apl.dbDefaultLockTimeout") * 1000)
-                .maxMemoryRows(propertiesHolder.getIntProperty("apl.dbMaxMemoryRows")
+                .maxMemoryRows(propertiesHolder.getIntProperty("apl.dbMaxMemoryRows"))
+                .mvStore(propertiesHolder.getBooleanProperty("apl.dbMvStore")
                 );
         return dbProperties;
     }
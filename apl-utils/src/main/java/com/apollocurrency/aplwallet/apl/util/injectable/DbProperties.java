@@ -22,6 +22,8 @@ public final class DbProperties implements Cloneable {
     private int loginTimeout;
     private int defaultLockTimeout;
     private int maxMemoryRows;
+    private boolean mvStore;
+    private boolean compress;
     private Optional<Long> dbIdentity = Optional.empty();
 
     public long getMaxCacheSize() {
@@ -72,6 +74,14 @@ public final class DbProperties implements Cloneable {
         return maxMemoryRows;
     }
 
+    public boolean isMvStore() {
+        return mvStore;
+    }
+
+    public boolean isCompress() {
+        return compress;
+    }
+
     public Optional<Long> getDbIdentity() {
         return dbIdentity;
     }
@@ -136,6 +146,16 @@ public final class DbProperties implements Cloneable {
         return this;
     }
 
+    public DbProperties mvStore(boolean mvStore) {
+        this.mvStore = mvStore;
+        return this;
+    }
+
+    public DbProperties compress(boolean compress) {
+        this.compress = compress;
+        return this;
+    }
+
     public DbProperties dbIdentity(long shardIdOrTempId) {
         if (shardIdOrTempId == 0) {
             return this;
@@ -172,6 +192,8 @@ public final class DbProperties implements Cloneable {
         clonedObj.loginTimeout = this.loginTimeout;
         clonedObj.defaultLockTimeout = this.defaultLockTimeout;
         clonedObj.maxMemoryRows = this.maxMemoryRows;
+        clonedObj.mvStore = this.mvStore;
+        clonedObj.compress = this.compress;
         clonedObj.dbIdentity = Optional.empty();
         return clonedObj;
     }
@@ -190,6 +212,8 @@ public final class DbProperties implements Cloneable {
                 ", loginTimeout=" + loginTimeout +
                 ", defaultLockTimeout=" + defaultLockTimeout +
                 ", maxMemoryRows=" + maxMemoryRows +
+                ", mvStore=" + mvStore +
+                ", compress=" + compress +
                 '}';
     }
 }